@@ -2,6 +2,10 @@ export function getBuildCancellationKey(rootProjectFolder: string): string {
     return "getBuild" + rootProjectFolder;
 }
 
+export function getProjectDependenciesCancellationKey(rootProjectFolder: string, projectPath: string): string {
+    return "getProjectDependencies" + rootProjectFolder + projectPath;
+}
+
 export function getRunBuildCancellationKey(rootProjectFolder: string, args: ReadonlyArray<string>): string {
     return "runBuild" + rootProjectFolder + args.join("");
 }
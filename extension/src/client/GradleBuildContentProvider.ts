@@ -4,7 +4,7 @@
 import AwaitLock from "await-lock";
 import { GradleClient } from ".";
 import { syncGradleBuild } from "../languageServer/languageServer";
-import { GradleBuild } from "../proto/gradle_pb";
+import { DependencyItem, GradleBuild, GradleProject } from "../proto/gradle_pb";
 import { RootProject } from "../rootProject";
 import { getGradleConfig } from "../util/config";
 
@@ -15,14 +15,21 @@ export class GradleBuildContentProvider {
 
     constructor(private readonly client: GradleClient) {}
 
-    public async getGradleBuild(rootProject: RootProject): Promise<GradleBuild | undefined> {
+    /**
+     * @param onProject called with each project of a build that isn't cached, as
+     * the server sends it, without its sub projects
+     */
+    public async getGradleBuild(
+        rootProject: RootProject,
+        onProject?: (project: GradleProject) => void
+    ): Promise<GradleBuild | undefined> {
         await lock.acquireAsync();
         try {
             const projectPath = rootProject.getProjectUri().fsPath;
             if (this.cachedBuild.has(projectPath)) {
                 return this.cachedBuild.get(projectPath);
             }
-            const gradleBuild = await this.client.getBuild(rootProject, getGradleConfig());
+            const gradleBuild = await this.client.getBuild(rootProject, getGradleConfig(), false, onProject);
             if (gradleBuild) {
                 await syncGradleBuild(gradleBuild);
                 this.cachedBuild.set(projectPath, gradleBuild);
@@ -33,6 +40,14 @@ export class GradleBuildContentProvider {
         }
     }
 
+    /**
+     * Resolves the dependencies of a project on demand, GetBuild fetches the
+     * model without them.
+     */
+    public getProjectDependencies(rootProject: RootProject, projectPath: string): Promise<DependencyItem | undefined> {
+        return this.client.getProjectDependencies(rootProject, projectPath, getGradleConfig());
+    }
+
     public refresh(): void {
         this.cachedBuild.clear();
     }
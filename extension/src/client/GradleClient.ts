@@ -5,9 +5,11 @@ import { connectivityState as ConnectivityState } from "@grpc/grpc-js";
 import {
     Output,
     GetBuildRequest,
+    GetBuildProjectResult,
     GetBuildReply,
     Cancelled,
     GradleBuild,
+    GradleProject,
     Environment,
     GradleConfig,
     GetDaemonsStatusReply,
@@ -24,6 +26,9 @@ import {
     CancelBuildsReply,
     ExecuteCommandRequest,
     ExecuteCommandReply,
+    DependencyItem,
+    GetProjectDependenciesRequest,
+    GetProjectDependenciesReply,
 } from "../proto/gradle_pb";
 
 import { GradleClient as GrpcClient } from "../proto/gradle_grpc_pb";
@@ -31,11 +36,17 @@ import { logger, LoggerStream, LogVerbosity, Logger } from "../logger";
 import { GradleServer } from "../server";
 import { ProgressHandler } from "../progress";
 import { removeCancellingTask, restartQueuedTask } from "../tasks/taskUtil";
-import { COMMAND_REFRESH_DAEMON_STATUS, COMMAND_SHOW_LOGS, COMMAND_CANCEL_BUILD } from "../commands";
+import {
+    COMMAND_REFRESH,
+    COMMAND_REFRESH_DAEMON_STATUS,
+    COMMAND_SHOW_LOGS,
+    COMMAND_CANCEL_BUILD,
+} from "../commands";
 import { RootProject } from "../rootProject/RootProject";
-import { getBuildCancellationKey } from "./CancellationKeys";
+import { getBuildCancellationKey, getProjectDependenciesCancellationKey } from "./CancellationKeys";
+import { assembleGradleBuild } from "./utils";
 import { EventWaiter } from "../util/EventWaiter";
-import { getGradleConfig, getJavaDebugCleanOutput } from "../util/config";
+import { getGradleConfig, getJavaDebugCleanOutput, getWarmUpDaemon } from "../util/config";
 import { setDefault, unsetDefault } from "../views/defaultProject/DefaultProjectUtils";
 import { SpecifySourcePackageNameStep } from "../createProject/SpecifySourcePackageNameStep";
 
@@ -123,7 +134,8 @@ export class GradleClient implements vscode.Disposable {
     public async getBuild(
         rootProject: RootProject,
         gradleConfig: GradleConfig,
-        showOutputColors = false
+        showOutputColors = false,
+        onProject?: (project: GradleProject) => void
     ): Promise<GradleBuild | undefined> {
         await this.waitForConnect();
         this.statusBarItem.hide();
@@ -147,15 +159,21 @@ export class GradleClient implements vscode.Disposable {
                 request.setCancellationKey(cancellationKey);
                 request.setGradleConfig(gradleConfig);
                 request.setShowOutputColors(showOutputColors);
+                // dependencies are fetched once a project is expanded, see getProjectDependencies
+                request.setSkipDependencies(true);
+                request.setStreamProjects(true);
+                request.setWarmUp(getWarmUpDaemon());
                 const getBuildStream = this.grpcClient!.getBuild(request);
                 try {
                     return await new Promise((resolve, reject) => {
                         let build: GradleBuild | undefined;
+                        let servedFromCache = false;
+                        const projectResults: GetBuildProjectResult[] = [];
                         getBuildStream
                             .on("data", async (getBuildReply: GetBuildReply) => {
                                 switch (getBuildReply.getKindCase()) {
                                     case GetBuildReply.KindCase.PROGRESS:
-                                        progressHandler.report(getBuildReply.getProgress()!.getMessage().trim());
+                                        progressHandler.reportProgress(getBuildReply.getProgress()!);
                                         break;
                                     case GetBuildReply.KindCase.OUTPUT:
                                         switch (getBuildReply.getOutput()!.getOutputType()) {
@@ -176,7 +194,29 @@ export class GradleClient implements vscode.Disposable {
                                         break;
                                     case GetBuildReply.KindCase.GET_BUILD_RESULT:
                                         void unsetDefault();
-                                        build = getBuildReply.getGetBuildResult()!.getBuild();
+                                        const getBuildResult = getBuildReply.getGetBuildResult()!;
+                                        if (getBuildResult.getCached()) {
+                                            // don't wait for the server to revalidate the cached build
+                                            servedFromCache = true;
+                                            build = getBuildResult.getBuild();
+                                            resolve(build);
+                                        } else if (servedFromCache) {
+                                            // the build changed since it was cached
+                                            void vscode.commands.executeCommand(COMMAND_REFRESH);
+                                        } else if (getBuildResult.getStreamed()) {
+                                            build = assembleGradleBuild(projectResults, getBuildResult.getBuild());
+                                        } else {
+                                            build = getBuildResult.getBuild();
+                                        }
+                                        break;
+                                    case GetBuildReply.KindCase.GET_BUILD_PROJECT_RESULT:
+                                        const projectResult = getBuildReply.getGetBuildProjectResult()!;
+                                        projectResults.push(projectResult);
+                                        // show the project without waiting for the rest of the build
+                                        const project = projectResult.getProject();
+                                        if (project && onProject) {
+                                            onProject(project);
+                                        }
                                         break;
                                     case GetBuildReply.KindCase.ENVIRONMENT:
                                         const environment = getBuildReply.getEnvironment()!;
@@ -223,6 +263,74 @@ export class GradleClient implements vscode.Disposable {
         );
     }
 
+    public async getProjectDependencies(
+        rootProject: RootProject,
+        projectPath: string,
+        gradleConfig: GradleConfig
+    ): Promise<DependencyItem | undefined> {
+        await this.waitForConnect();
+        return vscode.window.withProgress(
+            {
+                location: vscode.ProgressLocation.Window,
+                title: "Gradle",
+                cancellable: true,
+            },
+            async (progress: vscode.Progress<{ message?: string }>, token: vscode.CancellationToken) => {
+                const progressHandler = new ProgressHandler(progress, "Resolve dependencies");
+                const cancellationKey = getProjectDependenciesCancellationKey(
+                    rootProject.getProjectUri().fsPath,
+                    projectPath
+                );
+
+                token.onCancellationRequested(() => this.cancelBuild(cancellationKey));
+
+                const stdOutLoggerStream = new LoggerStream(logger, LogVerbosity.INFO);
+                const stdErrLoggerStream = new LoggerStream(logger, LogVerbosity.ERROR);
+
+                const request = new GetProjectDependenciesRequest();
+                request.setProjectDir(rootProject.getProjectUri().fsPath);
+                request.setProjectPath(projectPath);
+                request.setCancellationKey(cancellationKey);
+                request.setGradleConfig(gradleConfig);
+                const getProjectDependenciesStream = this.grpcClient!.getProjectDependencies(request);
+                try {
+                    return await new Promise((resolve, reject) => {
+                        let dependencyItem: DependencyItem | undefined;
+                        getProjectDependenciesStream
+                            .on("data", (reply: GetProjectDependenciesReply) => {
+                                switch (reply.getKindCase()) {
+                                    case GetProjectDependenciesReply.KindCase.PROGRESS:
+                                        progressHandler.reportProgress(reply.getProgress()!);
+                                        break;
+                                    case GetProjectDependenciesReply.KindCase.OUTPUT:
+                                        switch (reply.getOutput()!.getOutputType()) {
+                                            case Output.OutputType.STDOUT:
+                                                stdOutLoggerStream.write(reply.getOutput()!.getOutputBytes_asU8());
+                                                break;
+                                            case Output.OutputType.STDERR:
+                                                stdErrLoggerStream.write(reply.getOutput()!.getOutputBytes_asU8());
+                                                break;
+                                        }
+                                        break;
+                                    case GetProjectDependenciesReply.KindCase.CANCELLED:
+                                        this.handleGetBuildCancelled(reply.getCancelled()!);
+                                        break;
+                                    case GetProjectDependenciesReply.KindCase.GET_PROJECT_DEPENDENCIES_RESULT:
+                                        dependencyItem = reply.getGetProjectDependenciesResult()!.getDependencyItem();
+                                        break;
+                                }
+                            })
+                            .on("error", reject)
+                            .on("end", () => resolve(dependencyItem));
+                    });
+                } catch (err) {
+                    logger.error(`Error getting dependencies of ${projectPath}: ${err.details || err.message}`);
+                }
+                return undefined;
+            }
+        );
+    }
+
     public async runBuild(
         projectFolder: string,
         cancellationKey: string,
@@ -277,7 +385,7 @@ export class GradleClient implements vscode.Disposable {
                             .on("data", (runBuildReply: RunBuildReply) => {
                                 switch (runBuildReply.getKindCase()) {
                                     case RunBuildReply.KindCase.PROGRESS:
-                                        progressHandler.report(runBuildReply.getProgress()!.getMessage().trim());
+                                        progressHandler.reportProgress(runBuildReply.getProgress()!);
                                         break;
                                     case RunBuildReply.KindCase.OUTPUT:
                                         if (onOutput) {
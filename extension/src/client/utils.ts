@@ -2,7 +2,7 @@
 // Licensed under the MIT license.
 
 import * as vscode from "vscode";
-import { GradleBuild, GradleProject } from "../proto/gradle_pb";
+import { GetBuildProjectResult, GradleBuild, GradleProject } from "../proto/gradle_pb";
 import { RootProject } from "../rootProject";
 import { RootProjectsStore } from "../stores";
 
@@ -14,6 +14,44 @@ export function findGradleProjectFromBuild(projectPath: string, gradleBuild: Gra
     return findGradleProject(projectPath, rootProject);
 }
 
+/**
+ * Rebuilds the project tree from the projects that were streamed one by one,
+ * the final build result only carries the dependency graph.
+ */
+export function assembleGradleBuild(
+    projectResults: GetBuildProjectResult[],
+    streamedBuild: GradleBuild | undefined
+): GradleBuild {
+    const build = streamedBuild || new GradleBuild();
+    const subProjects = new Map<string, GradleProject[]>();
+    let rootProject: GradleProject | undefined;
+    for (const projectResult of projectResults) {
+        const project = projectResult.getProject();
+        if (!project) {
+            continue;
+        }
+        const parentProjectPath = projectResult.getParentProjectPath();
+        if (!parentProjectPath) {
+            rootProject = project;
+        } else {
+            const siblings = subProjects.get(parentProjectPath) || [];
+            siblings.push(project);
+            subProjects.set(parentProjectPath, siblings);
+        }
+    }
+    const addSubProjects = (project: GradleProject): void => {
+        for (const subProject of subProjects.get(project.getProjectpath()) || []) {
+            addSubProjects(subProject);
+            project.addProjects(subProject);
+        }
+    };
+    if (rootProject) {
+        addSubProjects(rootProject);
+        build.setProject(rootProject);
+    }
+    return build;
+}
+
 function findGradleProject(projectPath: string, project: GradleProject): GradleProject | undefined {
     if (vscode.Uri.file(project.getProjectpath()).fsPath === projectPath) {
         return project;
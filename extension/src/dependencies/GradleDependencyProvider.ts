@@ -5,7 +5,10 @@ import * as vscode from "vscode";
 import { GradleBuildContentProvider } from "../client/GradleBuildContentProvider";
 import { findGradleProjectFromBuild } from "../client/utils";
 import { RootProject } from "../rootProject";
-import { getDependencyConfigurationTreeItems } from "../views/gradleTasks/DependencyUtils";
+import {
+    getDependencyConfigurationTreeItems,
+    getDependencyConfigurationTreeItemsFromGraph,
+} from "../views/gradleTasks/DependencyUtils";
 import { HintItem } from "../views/gradleTasks/HintItem";
 import { ProjectDependencyTreeItem } from "../views/gradleTasks/ProjectDependencyTreeItem";
 
@@ -26,8 +29,23 @@ export class GradleDependencyProvider {
         const gradleBuild = await this.contentProvider.getGradleBuild(rootProject);
         if (gradleBuild) {
             const project = findGradleProjectFromBuild(projectPath, gradleBuild);
-            if (project) {
-                const dependencyItem = project.getDependencyitem();
+            const dependencyGraph = gradleBuild.getDependencyGraph();
+            if (project && dependencyGraph) {
+                const configItems = getDependencyConfigurationTreeItemsFromGraph(
+                    project.getDependencyconfigurationsList(),
+                    dependencyGraph,
+                    element
+                );
+                if (configItems) {
+                    this.cachedDependencies.set(projectPath, configItems);
+                    return configItems;
+                }
+            } else if (project) {
+                let dependencyItem = project.getDependencyitem();
+                if (!dependencyItem?.getChildrenList().length) {
+                    // the build is fetched without dependencies, resolve those of this project only
+                    dependencyItem = await this.contentProvider.getProjectDependencies(rootProject, projectPath);
+                }
                 if (dependencyItem) {
                     const configItems = getDependencyConfigurationTreeItems(dependencyItem, element);
                     if (configItems) {
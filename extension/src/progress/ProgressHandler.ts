@@ -1,4 +1,5 @@
 import * as vscode from "vscode";
+import { Progress } from "../proto/gradle_pb";
 
 export class ProgressHandler {
     private readonly _onDidProgressStart: vscode.EventEmitter<null> = new vscode.EventEmitter<null>();
@@ -20,4 +21,10 @@ export class ProgressHandler {
             this._onDidProgressStart.dispose();
         }
     }
+
+    public reportProgress(progress: Progress): void {
+        const message = progress.getMessage().trim();
+        const total = progress.getTotal();
+        this.report(total > 0 && message ? `${message} (${progress.getCompleted()}/${total})` : message);
+    }
 }
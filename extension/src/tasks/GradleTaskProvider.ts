@@ -10,9 +10,13 @@ import { GradleBuildContentProvider } from "../client/GradleBuildContentProvider
 
 export class GradleTaskProvider implements vscode.TaskProvider, vscode.Disposable {
     private cachedTasks: vscode.Task[] = [];
+    // the tasks of the projects received so far, while the tasks are loading
+    private loadingTasks: vscode.Task[] = [];
     private readonly _onDidLoadTasks: vscode.EventEmitter<vscode.Task[]> = new vscode.EventEmitter<vscode.Task[]>();
     private readonly _onDidStartRefresh: vscode.EventEmitter<null> = new vscode.EventEmitter<null>();
     private readonly _onDidStopRefresh: vscode.EventEmitter<null> = new vscode.EventEmitter<null>();
+    private readonly _onDidLoadProjectTasks: vscode.EventEmitter<vscode.Task[]> =
+        new vscode.EventEmitter<vscode.Task[]>();
 
     constructor(
         private readonly rootProjectsStore: RootProjectsStore,
@@ -23,6 +27,7 @@ export class GradleTaskProvider implements vscode.TaskProvider, vscode.Disposabl
     public readonly onDidLoadTasks: vscode.Event<vscode.Task[]> = this._onDidLoadTasks.event;
     public readonly onDidStartRefresh: vscode.Event<null> = this._onDidStartRefresh.event;
     public readonly onDidStopRefresh: vscode.Event<null> = this._onDidStopRefresh.event;
+    public readonly onDidLoadProjectTasks: vscode.Event<vscode.Task[]> = this._onDidLoadProjectTasks.event;
     private loadTasksPromise?: Promise<vscode.Task[]>;
 
     private readonly _waitForTasksLoad = new EventWaiter<vscode.Task[]>(this.onDidLoadTasks);
@@ -61,7 +66,16 @@ export class GradleTaskProvider implements vscode.TaskProvider, vscode.Disposabl
             return Promise.resolve(this.cachedTasks);
         }
 
-        this.loadTasksPromise = loadTasksForProjectRoots(this.client, folders, this.gradleBuildContentProvider)
+        this.loadingTasks = [];
+        this.loadTasksPromise = loadTasksForProjectRoots(
+            this.client,
+            folders,
+            this.gradleBuildContentProvider,
+            (projectTasks) => {
+                this.loadingTasks = this.loadingTasks.concat(projectTasks);
+                this._onDidLoadProjectTasks.fire(projectTasks);
+            }
+        )
             .then(
                 (tasks) => {
                     this.cachedTasks = tasks;
@@ -75,9 +89,10 @@ export class GradleTaskProvider implements vscode.TaskProvider, vscode.Disposabl
             .then(() => this.cachedTasks);
 
         return this.loadTasksPromise.finally(() => {
+            this.loadingTasks = [];
+            this.loadTasksPromise = undefined;
             this._onDidLoadTasks.fire(this.cachedTasks);
             this._onDidStopRefresh.fire(null);
-            this.loadTasksPromise = undefined;
         });
     }
 
@@ -85,6 +100,14 @@ export class GradleTaskProvider implements vscode.TaskProvider, vscode.Disposabl
         return this.cachedTasks;
     }
 
+    /**
+     * @returns the tasks of the projects that were loaded so far, empty once the
+     * tasks are loaded
+     */
+    public getLoadingTasks(): vscode.Task[] {
+        return this.loadingTasks;
+    }
+
     public findByTaskId(taskId: TaskId): vscode.Task | void {
         return this.getTasks().find((task: vscode.Task) => {
             return task.definition.id === taskId;
@@ -100,5 +123,6 @@ export class GradleTaskProvider implements vscode.TaskProvider, vscode.Disposabl
         this._onDidLoadTasks.dispose();
         this._onDidStartRefresh.dispose();
         this._onDidStopRefresh.dispose();
+        this._onDidLoadProjectTasks.dispose();
     }
 }
@@ -267,12 +267,18 @@ export function getVSCodeTasksFromGradleProject(
 export async function loadTasksForProjectRoots(
     client: GradleClient,
     rootProjects: ReadonlyArray<RootProject>,
-    gradleBuildContentProvider: GradleBuildContentProvider
+    gradleBuildContentProvider: GradleBuildContentProvider,
+    onProjectTasks?: (tasks: vscode.Task[]) => void
 ): Promise<vscode.Task[]> {
     let allTasks: vscode.Task[] = [];
     for (const rootProject of rootProjects) {
         if (getConfigIsAutoDetectionEnabled(rootProject)) {
-            const gradleBuild = await gradleBuildContentProvider.getGradleBuild(rootProject);
+            const gradleBuild = await gradleBuildContentProvider.getGradleBuild(
+                rootProject,
+                onProjectTasks &&
+                    ((project: GradleProject) =>
+                        onProjectTasks(getVSCodeTasksFromGradleProject(rootProject, project, client)))
+            );
             const gradleProject = gradleBuild && gradleBuild.getProject();
             if (gradleProject) {
                 const vsCodeTasks = getVSCodeTasksFromGradleProject(rootProject, gradleProject, client);
@@ -119,6 +119,7 @@ export function buildMockContext(): any {
 export function buildMockClient(): any {
     return {
         getBuild: sinon.stub(),
+        getProjectDependencies: sinon.stub(),
         getDaemonsStatus: sinon.stub(),
         stopDaemon: sinon.stub(),
         stopDaemons: sinon.stub(),
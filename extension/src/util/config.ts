@@ -114,6 +114,10 @@ export function getAllowParallelRun(): boolean {
     return vscode.workspace.getConfiguration("gradle").get<boolean>("allowParallelRun", false);
 }
 
+export function getWarmUpDaemon(): boolean {
+    return vscode.workspace.getConfiguration("gradle").get<boolean>("warmUpDaemon", false);
+}
+
 export function getOpenBuildOutput(): OpenBuildOutputValue {
     return vscode.workspace
         .getConfiguration("java.gradle.buildServer")
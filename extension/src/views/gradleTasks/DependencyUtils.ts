@@ -2,7 +2,7 @@
 // Licensed under the MIT license.
 
 import * as vscode from "vscode";
-import { DependencyItem, GradleDependencyType } from "../../proto/gradle_pb";
+import { DependencyConfiguration, DependencyGraph, DependencyItem, GradleDependencyType } from "../../proto/gradle_pb";
 import { DependencyConfigurationTreeItem } from "./DependencyConfigurationTreeItem";
 import { DependencyTreeItem } from "./DependencyTreeItem";
 import { ProjectDependencyTreeItem } from "./ProjectDependencyTreeItem";
@@ -92,3 +92,70 @@ function protocolItem2DependencyTreeItem(
     }
     return dependencyItem;
 }
+
+export function getDependencyConfigurationTreeItemsFromGraph(
+    configurations: DependencyConfiguration[],
+    graph: DependencyGraph,
+    parent: ProjectDependencyTreeItem
+): DependencyConfigurationTreeItem[] | undefined {
+    const nodes = graph.getNodesList();
+    const configItems = [];
+    for (const configuration of configurations) {
+        const edges = new Map<number, number[]>();
+        for (const edge of configuration.getEdgesList()) {
+            edges.set(edge.getNode(), edge.getChildrenList());
+        }
+        const configurationItem = new DependencyConfigurationTreeItem(
+            configuration.getName(),
+            vscode.TreeItemCollapsibleState.Collapsed,
+            parent
+        );
+        const storageMap = new Map();
+        const treeChildren = configuration
+            .getDependenciesList()
+            .map((node) => graphNode2DependencyTreeItem(node, nodes, edges, configurationItem, storageMap));
+        if (treeChildren.length) {
+            configurationItem.setChildren(treeChildren);
+            configItems.push(configurationItem);
+        }
+    }
+    if (!configItems.length) {
+        return undefined;
+    }
+    return configItems;
+}
+
+function graphNode2DependencyTreeItem(
+    node: number,
+    nodes: string[],
+    edges: Map<number, number[]>,
+    parent: vscode.TreeItem,
+    storageMap: Map<string, vscode.TreeItem>
+): DependencyTreeItem {
+    const name = nodes[node];
+    const dependencyItem: DependencyTreeItem = new DependencyTreeItem(
+        name,
+        vscode.TreeItemCollapsibleState.Collapsed,
+        parent
+    );
+    if (storageMap.has(name)) {
+        const omittedTreeItem = storageMap.get(name);
+        if (omittedTreeItem) {
+            dependencyItem.setOmittedTreeItem(omittedTreeItem);
+        }
+        dependencyItem.contextValue = "omitted";
+        dependencyItem.label = dependencyItem.label + " (*)";
+        dependencyItem.collapsibleState = vscode.TreeItemCollapsibleState.None;
+        dependencyItem.tooltip =
+            'Dependency omitted. Click "Go to Dependency" to reveal the previously listed dependency.';
+    } else {
+        storageMap.set(name, dependencyItem);
+        const treeChildren = (edges.get(node) || []).map((child) =>
+            graphNode2DependencyTreeItem(child, nodes, edges, dependencyItem, storageMap)
+        );
+        dependencyItem.collapsibleState =
+            treeChildren.length > 0 ? vscode.TreeItemCollapsibleState.Collapsed : vscode.TreeItemCollapsibleState.None;
+        dependencyItem.setChildren(treeChildren);
+    }
+    return dependencyItem;
+}
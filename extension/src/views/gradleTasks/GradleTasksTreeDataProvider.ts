@@ -54,6 +54,7 @@ function resetCachedTreeItems(): void {
 
 export class GradleTasksTreeDataProvider implements vscode.TreeDataProvider<vscode.TreeItem> {
     private collapsed = true;
+    private showsLoadingTasks = false;
     private readonly _onDidChangeTreeData: vscode.EventEmitter<vscode.TreeItem | null> =
         new vscode.EventEmitter<vscode.TreeItem | null>();
     public readonly onDidChangeTreeData: vscode.Event<vscode.TreeItem | null> = this._onDidChangeTreeData.event;
@@ -67,6 +68,17 @@ export class GradleTasksTreeDataProvider implements vscode.TreeDataProvider<vsco
         private readonly icons: Icons,
         private readonly client: GradleClient
     ) {
+        this.gradleTaskProvider.onDidLoadProjectTasks(() => {
+            this.showsLoadingTasks = true;
+            this.refresh();
+        });
+        this.gradleTaskProvider.onDidLoadTasks(() => {
+            // replace the projects shown while loading with the whole build
+            if (this.showsLoadingTasks) {
+                this.showsLoadingTasks = false;
+                this.refresh();
+            }
+        });
         const collapsed = this.context.workspaceState.get("gradleTasksCollapsed", false);
         // eslint-disable-next-line @typescript-eslint/no-floating-promises
         this.setCollapsed(collapsed);
@@ -83,7 +95,8 @@ export class GradleTasksTreeDataProvider implements vscode.TreeDataProvider<vsco
         resetCachedTreeItems();
         // using vscode.tasks.fetchTasks({ type: 'gradle' }) is *incredibly slow* which
         // is why we get them directly from the task provider
-        const tasks = await this.gradleTaskProvider.loadTasks();
+        const loadingTasks = this.gradleTaskProvider.getLoadingTasks();
+        const tasks = loadingTasks.length ? loadingTasks : await this.gradleTaskProvider.loadTasks();
         if (tasks.length === 0) {
             return [new NoGradleTasksTreeItem()];
         }
@@ -0,0 +1,39 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle.api;
+
+import java.io.Serializable;
+
+/**
+ * The result of {@link GradleBuildModelAction}.
+ */
+public class GradleBuildModel implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final GradleEnvironmentModel environment;
+	private final GradleProjectModel projectModel;
+	private final boolean streamed;
+
+	public GradleBuildModel(GradleEnvironmentModel environment, GradleProjectModel projectModel, boolean streamed) {
+		this.environment = environment;
+		this.projectModel = projectModel;
+		this.streamed = streamed;
+	}
+
+	// null if Gradle can't build the environment from within an action
+	public GradleEnvironmentModel getEnvironment() {
+		return environment;
+	}
+
+	// null when the project models have been streamed
+	public GradleProjectModel getProjectModel() {
+		return projectModel;
+	}
+
+	// true when the environment and the project models have been sent to the
+	// client as they were built
+	public boolean isStreamed() {
+		return streamed;
+	}
+}
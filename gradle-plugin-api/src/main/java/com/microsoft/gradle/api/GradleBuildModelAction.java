@@ -0,0 +1,55 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle.api;
+
+import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.BuildController;
+import org.gradle.tooling.UnsupportedVersionException;
+import org.gradle.tooling.model.build.BuildEnvironment;
+
+/**
+ * Fetches the build environment and the project models in a single build
+ * action, instead of a {@link BuildEnvironment} model request followed by a
+ * {@link GradleModelAction}, saving a round trip to the daemon.
+ */
+public class GradleBuildModelAction implements BuildAction<GradleBuildModel> {
+	private final boolean skipDependencies;
+	private final boolean streamProjects;
+
+	/**
+	 * @param streamProjects
+	 *            send the environment, then the model of each project, as soon as
+	 *            they are built. Only done by Gradle 8.6+, older versions return
+	 *            the whole model instead.
+	 */
+	public GradleBuildModelAction(boolean skipDependencies, boolean streamProjects) {
+		this.skipDependencies = skipDependencies;
+		this.streamProjects = streamProjects;
+	}
+
+	@Override
+	public GradleBuildModel execute(BuildController controller) {
+		// null if Gradle can't build the environment from within an action
+		BuildEnvironment buildEnvironment = controller.findModel(BuildEnvironment.class);
+		GradleEnvironmentModel environment = buildEnvironment == null
+				? null
+				: GradleEnvironmentModel.of(buildEnvironment);
+		if (streamProjects && environment != null && trySend(controller, environment)) {
+			new GradleModelAction(skipDependencies, true).execute(controller);
+			return new GradleBuildModel(environment, null, true);
+		}
+		GradleProjectModel projectModel = new GradleModelAction(skipDependencies).execute(controller);
+		return new GradleBuildModel(environment, projectModel, false);
+	}
+
+	private static boolean trySend(BuildController controller, Object value) {
+		try {
+			controller.send(value);
+			return true;
+		} catch (UnsupportedVersionException e) {
+			// Gradle < 8.6
+			return false;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle.api;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.BuildController;
+import org.gradle.tooling.model.gradle.BasicGradleProject;
+
+/**
+ * Resolves the dependencies of a single project, identified by either its
+ * Gradle path (eg :app) or its project directory.
+ */
+public class GradleDependencyModelAction implements BuildAction<GradleDependencyModel> {
+	private final String projectPath;
+	private final ArrayList<String> configurations;
+
+	public GradleDependencyModelAction(String projectPath, List<String> configurations) {
+		this.projectPath = projectPath;
+		this.configurations = new ArrayList<>(configurations);
+	}
+
+	@Override
+	public GradleDependencyModel execute(BuildController controller) {
+		for (BasicGradleProject project : controller.getBuildModel().getProjects()) {
+			if (matches(project)) {
+				return controller.getModel(project, GradleDependencyModel.class, GradleDependencyModelParameters.class,
+						parameters -> parameters.setConfigurations(configurations));
+			}
+		}
+		return null;
+	}
+
+	private boolean matches(BasicGradleProject project) {
+		return project.getPath().equals(projectPath)
+				|| project.getProjectDirectory().getAbsolutePath().equals(new File(projectPath).getAbsolutePath());
+	}
+}
@@ -0,0 +1,14 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle.api;
+
+import java.util.List;
+
+public interface GradleDependencyModelParameters {
+	/**
+	 * The configurations to resolve, all resolvable configurations when empty.
+	 */
+	List<String> getConfigurations();
+	void setConfigurations(List<String> configurations);
+}
@@ -0,0 +1,53 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle.api;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.tooling.model.build.BuildEnvironment;
+
+/**
+ * The build environment, copied out of the {@link BuildEnvironment} model so
+ * that it can be returned, or sent, by a build action.
+ */
+public class GradleEnvironmentModel implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final String gradleVersion;
+	private final String gradleUserHome;
+	private final String javaHome;
+	private final List<String> jvmArguments;
+
+	public GradleEnvironmentModel(String gradleVersion, String gradleUserHome, String javaHome,
+			List<String> jvmArguments) {
+		this.gradleVersion = gradleVersion;
+		this.gradleUserHome = gradleUserHome;
+		this.javaHome = javaHome;
+		this.jvmArguments = jvmArguments;
+	}
+
+	public static GradleEnvironmentModel of(BuildEnvironment environment) {
+		return new GradleEnvironmentModel(environment.getGradle().getGradleVersion(),
+				environment.getGradle().getGradleUserHome().getAbsolutePath(),
+				environment.getJava().getJavaHome().getAbsolutePath(),
+				new ArrayList<>(environment.getJava().getJvmArguments()));
+	}
+
+	public String getGradleVersion() {
+		return gradleVersion;
+	}
+
+	public String getGradleUserHome() {
+		return gradleUserHome;
+	}
+
+	public String getJavaHome() {
+		return javaHome;
+	}
+
+	public List<String> getJvmArguments() {
+		return jvmArguments;
+	}
+}
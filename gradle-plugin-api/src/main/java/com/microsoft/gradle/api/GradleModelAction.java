@@ -3,12 +3,69 @@
 
 package com.microsoft.gradle.api;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import org.gradle.tooling.BuildAction;
 import org.gradle.tooling.BuildController;
+import org.gradle.tooling.model.gradle.BasicGradleProject;
 
 public class GradleModelAction implements BuildAction<GradleProjectModel> {
+	private final boolean skipDependencies;
+	private final boolean streamProjects;
+
+	public GradleModelAction() {
+		this(false);
+	}
+
+	public GradleModelAction(boolean skipDependencies) {
+		this(skipDependencies, false);
+	}
+
+	/**
+	 * @param streamProjects
+	 *            send the model of each project, without its sub projects, as soon
+	 *            as it is built and return null. Requires Gradle 8.6+.
+	 */
+	public GradleModelAction(boolean skipDependencies, boolean streamProjects) {
+		this.skipDependencies = skipDependencies;
+		this.streamProjects = streamProjects;
+	}
+
 	@Override
 	public GradleProjectModel execute(BuildController controller) {
-		return controller.getModel(GradleProjectModel.class);
+		if (streamProjects) {
+			sendProjects(controller);
+			return null;
+		}
+		if (!skipDependencies) {
+			return controller.getModel(GradleProjectModel.class);
+		}
+		return controller.getModel(controller.getBuildModel().getRootProject(), GradleProjectModel.class,
+				GradleProjectModelParameters.class, parameters -> parameters.setSkipDependencies(true));
+	}
+
+	private void sendProjects(BuildController controller) {
+		// the root project is built first, it models the build hierarchy that the sub
+		// projects then share
+		BasicGradleProject rootProject = controller.getBuildModel().getRootProject();
+		GradleProjectModel rootModel = GradleProjectModelAction.getModel(controller, rootProject, skipDependencies);
+		List<GradleProjectModelAction> actions = new ArrayList<>();
+		for (BasicGradleProject project : controller.getBuildModel().getProjects()) {
+			if (!project.getPath().equals(rootProject.getPath())) {
+				actions.add(new GradleProjectModelAction(project.getPath(), skipDependencies));
+			}
+		}
+		List<GradleProjectModel> subModels = new ArrayList<>();
+		if (controller.getCanQueryProjectModelInParallel(GradleProjectModel.class)) {
+			subModels.addAll(controller.run(actions));
+		} else {
+			for (GradleProjectModelAction action : actions) {
+				subModels.add(action.execute(controller));
+			}
+		}
+		subModels.removeIf(Objects::isNull);
+		// sent last, with the task selectors of the sub projects
+		controller.send(new RootProjectModel(rootModel, rootProject.getName(), subModels));
 	}
 }
@@ -9,6 +9,8 @@ import org.gradle.tooling.model.Model;
 public interface GradleProjectModel extends Model {
 	boolean getIsRoot();
 	String getProjectPath();
+	// null for the root project
+	String getParentProjectPath();
 	List<GradleProjectModel> getSubProjects();
 	List<GradleTask> getTasks();
 	GradleDependencyNode getDependencyNode();
@@ -0,0 +1,45 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle.api;
+
+import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.BuildController;
+import org.gradle.tooling.model.gradle.BasicGradleProject;
+
+/**
+ * Builds the model of a single project, without its sub projects, and sends it
+ * to the client. Run as a nested action of {@link GradleModelAction} so that
+ * Gradle can query projects in parallel.
+ */
+public class GradleProjectModelAction implements BuildAction<GradleProjectModel> {
+	private final String projectPath;
+	private final boolean skipDependencies;
+
+	public GradleProjectModelAction(String projectPath, boolean skipDependencies) {
+		this.projectPath = projectPath;
+		this.skipDependencies = skipDependencies;
+	}
+
+	/** @return the model that was sent, or null if the project wasn't found */
+	@Override
+	public GradleProjectModel execute(BuildController controller) {
+		for (BasicGradleProject project : controller.getBuildModel().getProjects()) {
+			if (project.getPath().equals(projectPath)) {
+				GradleProjectModel model = getModel(controller, project, skipDependencies);
+				controller.send(model);
+				return model;
+			}
+		}
+		return null;
+	}
+
+	static GradleProjectModel getModel(BuildController controller, BasicGradleProject project,
+			boolean skipDependencies) {
+		return controller.getModel(project, GradleProjectModel.class, GradleProjectModelParameters.class,
+				parameters -> {
+					parameters.setSkipDependencies(skipDependencies);
+					parameters.setSkipSubProjects(true);
+				});
+	}
+}
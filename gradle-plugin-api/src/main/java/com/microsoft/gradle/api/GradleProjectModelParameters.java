@@ -0,0 +1,12 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle.api;
+
+public interface GradleProjectModelParameters {
+	boolean getSkipDependencies();
+	void setSkipDependencies(boolean skipDependencies);
+	// model the target project only, leaving sub projects empty
+	boolean getSkipSubProjects();
+	void setSkipSubProjects(boolean skipSubProjects);
+}
@@ -0,0 +1,138 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle.api;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The model of a root project built without its sub projects, with a task
+ * selector for each task name of the sub projects, built from their models so
+ * that the tasks of the sub projects are only realized once.
+ */
+public class RootProjectModel implements GradleProjectModel, Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final GradleProjectModel rootModel;
+	private final List<GradleTask> tasks;
+
+	/**
+	 * @param rootProjectName
+	 *            the name of the project the task selectors run from
+	 * @param subModels
+	 *            the models of the sub projects, in project order
+	 */
+	public RootProjectModel(GradleProjectModel rootModel, String rootProjectName, List<GradleProjectModel> subModels) {
+		this.rootModel = rootModel;
+		this.tasks = new ArrayList<>(rootModel.getTasks());
+		// the tasks of a project share its build file
+		String buildFile = tasks.isEmpty() ? "" : tasks.get(0).getBuildFile();
+		Set<String> taskNames = new HashSet<>();
+		for (GradleTask task : rootModel.getTasks()) {
+			taskNames.add(task.getName());
+		}
+		for (GradleProjectModel subModel : subModels) {
+			for (GradleTask task : subModel.getTasks()) {
+				if (taskNames.add(task.getName())) {
+					// use task selector to run a task for all subprojects
+					tasks.add(new TaskSelector(task, rootProjectName, buildFile));
+				}
+			}
+		}
+	}
+
+	public boolean getIsRoot() {
+		return rootModel.getIsRoot();
+	}
+
+	public String getProjectPath() {
+		return rootModel.getProjectPath();
+	}
+
+	public String getParentProjectPath() {
+		return rootModel.getParentProjectPath();
+	}
+
+	public List<GradleProjectModel> getSubProjects() {
+		return Collections.emptyList();
+	}
+
+	public List<GradleTask> getTasks() {
+		return tasks;
+	}
+
+	public GradleDependencyNode getDependencyNode() {
+		return rootModel.getDependencyNode();
+	}
+
+	public List<String> getPlugins() {
+		return rootModel.getPlugins();
+	}
+
+	public List<GradleClosure> getClosures() {
+		return rootModel.getClosures();
+	}
+
+	public List<String> getScriptClasspaths() {
+		return rootModel.getScriptClasspaths();
+	}
+
+	private static class TaskSelector implements GradleTask, Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+		private final String group;
+		private final String project;
+		private final String buildFile;
+		private final String rootProject;
+		private final String description;
+		private final boolean debuggable;
+
+		TaskSelector(GradleTask task, String project, String buildFile) {
+			this.name = task.getName();
+			this.group = task.getGroup();
+			this.project = project;
+			this.buildFile = buildFile;
+			this.rootProject = task.getRootProject();
+			this.description = task.getDescription();
+			this.debuggable = task.getDebuggable();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getGroup() {
+			return group;
+		}
+
+		public String getPath() {
+			return ":" + name;
+		}
+
+		public String getProject() {
+			return project;
+		}
+
+		public String getBuildFile() {
+			return buildFile;
+		}
+
+		public String getRootProject() {
+			return rootProject;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public boolean getDebuggable() {
+			return debuggable;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle;
+
+import com.microsoft.gradle.api.GradleDependencyModel;
+import com.microsoft.gradle.api.GradleDependencyNode;
+import java.io.Serializable;
+
+public class DefaultGradleDependencyModel implements Serializable, GradleDependencyModel {
+	private GradleDependencyNode node;
+
+	public DefaultGradleDependencyModel(GradleDependencyNode node) {
+		this.node = node;
+	}
+
+	public GradleDependencyNode getDependencyNode() {
+		return this.node;
+	}
+}
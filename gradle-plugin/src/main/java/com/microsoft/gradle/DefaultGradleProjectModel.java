@@ -13,6 +13,7 @@ import java.util.List;
 public class DefaultGradleProjectModel implements Serializable, GradleProjectModel {
 	private boolean isRoot;
 	private String projectPath;
+	private String parentProjectPath;
 	private List<GradleProjectModel> subProjects;
 	private List<GradleTask> tasks;
 	private GradleDependencyNode node;
@@ -20,11 +21,12 @@ public class DefaultGradleProjectModel implements Serializable, GradleProjectMod
 	private List<GradleClosure> closures;
 	private List<String> scriptClasspaths;
 
-	public DefaultGradleProjectModel(boolean isRoot, String projectPath, List<GradleProjectModel> subProjects,
-			List<GradleTask> tasks, GradleDependencyNode node, List<String> plugins, List<GradleClosure> closures,
-			List<String> scriptClasspaths) {
+	public DefaultGradleProjectModel(boolean isRoot, String projectPath, String parentProjectPath,
+			List<GradleProjectModel> subProjects, List<GradleTask> tasks, GradleDependencyNode node,
+			List<String> plugins, List<GradleClosure> closures, List<String> scriptClasspaths) {
 		this.isRoot = isRoot;
 		this.projectPath = projectPath;
+		this.parentProjectPath = parentProjectPath;
 		this.subProjects = subProjects;
 		this.tasks = tasks;
 		this.node = node;
@@ -41,6 +43,10 @@ public class DefaultGradleProjectModel implements Serializable, GradleProjectMod
 		return this.projectPath;
 	}
 
+	public String getParentProjectPath() {
+		return this.parentProjectPath;
+	}
+
 	public List<GradleProjectModel> getSubProjects() {
 		return this.subProjects;
 	}
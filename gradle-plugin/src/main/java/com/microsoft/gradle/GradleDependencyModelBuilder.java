@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.microsoft.gradle;
+
+import com.microsoft.gradle.api.GradleDependencyModel;
+import com.microsoft.gradle.api.GradleDependencyModelParameters;
+import com.microsoft.gradle.api.GradleDependencyNode;
+import com.microsoft.gradle.api.GradleDependencyType;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.ResolvableDependencies;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolutionResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.tooling.provider.model.ParameterizedToolingModelBuilder;
+
+public class GradleDependencyModelBuilder implements ParameterizedToolingModelBuilder<GradleDependencyModelParameters> {
+
+	public boolean canBuild(String modelName) {
+		return modelName.equals(GradleDependencyModel.class.getName());
+	}
+
+	public Class<GradleDependencyModelParameters> getParameterType() {
+		return GradleDependencyModelParameters.class;
+	}
+
+	public Object buildAll(String modelName, Project project) {
+		return new DefaultGradleDependencyModel(buildDependencyNode(project, Collections.emptySet()));
+	}
+
+	public Object buildAll(String modelName, GradleDependencyModelParameters parameters, Project project) {
+		Collection<String> configurations = parameters.getConfigurations();
+		return new DefaultGradleDependencyModel(
+				buildDependencyNode(project, configurations == null ? Collections.emptySet() : configurations));
+	}
+
+	/**
+	 * Resolves the given configurations of the project, or every resolvable
+	 * configuration when none are given.
+	 */
+	static GradleDependencyNode buildDependencyNode(Project project, Collection<String> configurations) {
+		DefaultGradleDependencyNode rootNode = new DefaultGradleDependencyNode(project.getName(),
+				GradleDependencyType.PROJECT);
+		ConfigurationContainer configurationContainer = project.getConfigurations();
+		// iterate through a snapshot of apparent configurations, because resolving
+		// dependencies can trigger plugins dynamically adding other configurations
+		// (e.g. io.quarkus plugin)
+		for (String configName : new TreeSet<>(configurationContainer.getNames())) {
+			if (!configurations.isEmpty() && !configurations.contains(configName)) {
+				continue;
+			}
+			Configuration config = configurationContainer.getByName(configName);
+			if (!config.isCanBeResolved()) {
+				continue;
+			}
+			DefaultGradleDependencyNode configNode = new DefaultGradleDependencyNode(config.getName(),
+					GradleDependencyType.CONFIGURATION);
+			ResolvableDependencies incoming = config.getIncoming();
+			ResolutionResult resolutionResult = incoming.getResolutionResult();
+			ResolvedComponentResult rootResult = resolutionResult.getRoot();
+			Set<? extends DependencyResult> dependencies = rootResult.getDependencies();
+			Set<String> dependencySet = new HashSet<>();
+			for (DependencyResult dependency : dependencies) {
+				if (dependency instanceof ResolvedDependencyResult) {
+					DefaultGradleDependencyNode dependencyNode = resolveDependency(
+							(ResolvedDependencyResult) dependency, dependencySet);
+					configNode.addChildren(dependencyNode);
+				}
+			}
+			if (!configNode.getChildren().isEmpty()) {
+				rootNode.addChildren(configNode);
+			}
+		}
+		return rootNode;
+	}
+
+	private static DefaultGradleDependencyNode resolveDependency(ResolvedDependencyResult result,
+			Set<String> dependencySet) {
+		DefaultGradleDependencyNode dependencyNode = new DefaultGradleDependencyNode(
+				result.getSelected().getModuleVersion().getGroup() + ":"
+						+ result.getSelected().getModuleVersion().getName() + ":"
+						+ result.getSelected().getModuleVersion().getVersion(),
+				GradleDependencyType.DEPENDENCY);
+		if (dependencySet.add(dependencyNode.getName())) {
+			Set<? extends DependencyResult> dependencies = result.getSelected().getDependencies();
+			for (DependencyResult dependency : dependencies) {
+				if (dependency instanceof ResolvedDependencyResult) {
+					DefaultGradleDependencyNode childNode = resolveDependency((ResolvedDependencyResult) dependency,
+							dependencySet);
+					dependencyNode.addChildren(childNode);
+				}
+			}
+		}
+		return dependencyNode;
+	}
+}
@@ -20,5 +20,6 @@ public class GradlePlugin implements Plugin<Project> {
 	@Override
 	public void apply(Project project) {
 		registry.register(new GradleProjectModelBuilder(registry));
+		registry.register(new GradleDependencyModelBuilder());
 	}
 }
@@ -9,6 +9,7 @@ import com.microsoft.gradle.api.GradleDependencyType;
 import com.microsoft.gradle.api.GradleField;
 import com.microsoft.gradle.api.GradleMethod;
 import com.microsoft.gradle.api.GradleProjectModel;
+import com.microsoft.gradle.api.GradleProjectModelParameters;
 import com.microsoft.gradle.api.GradleTask;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AccessibleObject;
@@ -18,22 +19,17 @@ import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.WeakHashMap;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
-import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.artifacts.ConfigurationContainer;
-import org.gradle.api.artifacts.ResolvableDependencies;
-import org.gradle.api.artifacts.result.DependencyResult;
-import org.gradle.api.artifacts.result.ResolutionResult;
-import org.gradle.api.artifacts.result.ResolvedComponentResult;
-import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.initialization.dsl.ScriptHandler;
 import org.gradle.api.internal.initialization.DefaultScriptHandler;
 import org.gradle.api.internal.tasks.TaskContainerInternal;
+import org.gradle.api.invocation.Gradle;
 import org.gradle.api.plugins.Convention;
 import org.gradle.api.plugins.ExtensionsSchema;
 import org.gradle.api.plugins.ExtensionsSchema.ExtensionSchema;
@@ -43,16 +39,23 @@ import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.classpath.ClassPath;
 import org.gradle.plugins.ide.internal.tooling.model.DefaultGradleProject;
-import org.gradle.tooling.provider.model.ToolingModelBuilder;
+import org.gradle.tooling.provider.model.ParameterizedToolingModelBuilder;
 import org.gradle.tooling.provider.model.ToolingModelBuilderRegistry;
 import org.gradle.util.GradleVersion;
 
-public class GradleProjectModelBuilder implements ToolingModelBuilder {
+public class GradleProjectModelBuilder implements ParameterizedToolingModelBuilder<GradleProjectModelParameters> {
 
 	private static String MINIMAL_SUPPORTED_PLUGIN_CLOSURE_VERSION = "5.0";
+	// the GradleProject builder always models the whole build, so share its result
+	// between the per project requests of a build
+	private static final Map<Gradle, DefaultGradleProject> hierarchies = Collections
+			.synchronizedMap(new WeakHashMap<>());
 
-	private Set<GradleTask> cachedTasks = new HashSet<>();
+	// in project order, so the root task selectors are the same on each fetch
+	private Set<GradleTask> cachedTasks = new LinkedHashSet<>();
 	private ToolingModelBuilderRegistry registry;
+	private boolean skipDependencies;
+	private boolean skipSubProjects;
 
 	public GradleProjectModelBuilder(ToolingModelBuilderRegistry registry) {
 		this.registry = registry;
@@ -62,14 +65,35 @@ public class GradleProjectModelBuilder implements ToolingModelBuilder {
 		return modelName.equals(GradleProjectModel.class.getName());
 	}
 
+	public Class<GradleProjectModelParameters> getParameterType() {
+		return GradleProjectModelParameters.class;
+	}
+
 	public Object buildAll(String modelName, Project project) {
+		return buildAll(modelName, project, false, false);
+	}
+
+	public Object buildAll(String modelName, GradleProjectModelParameters parameters, Project project) {
+		return buildAll(modelName, project, parameters.getSkipDependencies(), parameters.getSkipSubProjects());
+	}
+
+	private Object buildAll(String modelName, Project project, boolean skipDependencies, boolean skipSubProjects) {
+		this.skipDependencies = skipDependencies;
+		this.skipSubProjects = skipSubProjects;
 		cachedTasks.clear();
-		DefaultGradleProject gradleProject = (DefaultGradleProject) this.registry
-				.getBuilder("org.gradle.tooling.model.GradleProject").buildAll(modelName, project);
+		DefaultGradleProject gradleProject = getGradleProject(modelName, project);
 		if (gradleProject == null) {
 			return null;
 		}
+		if (skipSubProjects && project.getParent() != null) {
+			return buildModel(project, project.getRootProject().getName(), gradleProject);
+		}
 		GradleProjectModel rootModel = buildModel(project, project.getName(), gradleProject);
+		if (skipSubProjects) {
+			// the build action adds the task selectors, from the models of the sub
+			// projects
+			return rootModel;
+		}
 		// add task selectors for root project
 		Set<String> taskNames = new HashSet<>();
 		for (GradleTask existingTask : rootModel.getTasks()) {
@@ -93,6 +117,24 @@ public class GradleProjectModelBuilder implements ToolingModelBuilder {
 		return rootModel;
 	}
 
+	private DefaultGradleProject getGradleProject(String modelName, Project project) {
+		DefaultGradleProject hierarchy = skipSubProjects ? hierarchies.get(project.getGradle()) : null;
+		if (hierarchy == null) {
+			hierarchy = (DefaultGradleProject) this.registry.getBuilder("org.gradle.tooling.model.GradleProject")
+					.buildAll(modelName, project);
+			if (hierarchy == null) {
+				return null;
+			}
+			if (skipSubProjects) {
+				hierarchies.put(project.getGradle(), hierarchy);
+			}
+		}
+		if (project.getParent() == null) {
+			return hierarchy;
+		}
+		return hierarchy.findByPath(project.getPath());
+	}
+
 	private GradleProjectModel buildModel(Project project, String rootProjectName, DefaultGradleProject gradleProject) {
 		if (project == null) {
 			return null;
@@ -103,11 +145,15 @@ public class GradleProjectModelBuilder implements ToolingModelBuilder {
 		classpath.getAsFiles().forEach((file) -> {
 			scriptClasspaths.add(file.getAbsolutePath());
 		});
-		GradleDependencyNode node = generateDefaultGradleDependencyNode(project);
+		GradleDependencyNode node = skipDependencies
+				? new DefaultGradleDependencyNode(project.getName(), GradleDependencyType.PROJECT)
+				: GradleDependencyModelBuilder.buildDependencyNode(project, Collections.emptySet());
 		List<String> plugins = getPlugins(project);
 		List<GradleClosure> closures = getPluginClosures(project);
 		List<GradleProjectModel> subModels = new ArrayList<>();
-		for (DefaultGradleProject subDefaultGradleProject : gradleProject.getChildren()) {
+		for (DefaultGradleProject subDefaultGradleProject : skipSubProjects
+				? Collections.<DefaultGradleProject>emptyList()
+				: gradleProject.getChildren()) {
 			// Query sub projects when both gradleProject and project contain them
 			Map<String, Project> childProjects = project.getChildProjects();
 			String projectName = subDefaultGradleProject.getName();
@@ -120,60 +166,11 @@ public class GradleProjectModelBuilder implements ToolingModelBuilder {
 			}
 		}
 		List<GradleTask> tasks = getGradleTasks(project, rootProjectName, gradleProject);
+		String parentProjectPath = project.getParent() == null
+				? null
+				: project.getParent().getProjectDir().getAbsolutePath();
 		return new DefaultGradleProjectModel(project.getParent() == null, project.getProjectDir().getAbsolutePath(),
-				subModels, tasks, node, plugins, closures, scriptClasspaths);
-	}
-
-	private GradleDependencyNode generateDefaultGradleDependencyNode(Project project) {
-		DefaultGradleDependencyNode rootNode = new DefaultGradleDependencyNode(project.getName(),
-				GradleDependencyType.PROJECT);
-		ConfigurationContainer configurationContainer = project.getConfigurations();
-		// iterate through a snapshot of apparent configurations, because resolving
-		// dependencies can trigger plugins dynamically adding other configurations
-		// (e.g. io.quarkus plugin)
-		for (String configName : new TreeSet<>(configurationContainer.getNames())) {
-			Configuration config = configurationContainer.getByName(configName);
-			if (!config.isCanBeResolved()) {
-				continue;
-			}
-			DefaultGradleDependencyNode configNode = new DefaultGradleDependencyNode(config.getName(),
-					GradleDependencyType.CONFIGURATION);
-			ResolvableDependencies incoming = config.getIncoming();
-			ResolutionResult resolutionResult = incoming.getResolutionResult();
-			ResolvedComponentResult rootResult = resolutionResult.getRoot();
-			Set<? extends DependencyResult> dependencies = rootResult.getDependencies();
-			Set<String> dependencySet = new HashSet<>();
-			for (DependencyResult dependency : dependencies) {
-				if (dependency instanceof ResolvedDependencyResult) {
-					DefaultGradleDependencyNode dependencyNode = resolveDependency(
-							(ResolvedDependencyResult) dependency, dependencySet);
-					configNode.addChildren(dependencyNode);
-				}
-			}
-			if (!configNode.getChildren().isEmpty()) {
-				rootNode.addChildren(configNode);
-			}
-		}
-		return rootNode;
-	}
-
-	private DefaultGradleDependencyNode resolveDependency(ResolvedDependencyResult result, Set<String> dependencySet) {
-		DefaultGradleDependencyNode dependencyNode = new DefaultGradleDependencyNode(
-				result.getSelected().getModuleVersion().getGroup() + ":"
-						+ result.getSelected().getModuleVersion().getName() + ":"
-						+ result.getSelected().getModuleVersion().getVersion(),
-				GradleDependencyType.DEPENDENCY);
-		if (dependencySet.add(dependencyNode.getName())) {
-			Set<? extends DependencyResult> dependencies = result.getSelected().getDependencies();
-			for (DependencyResult dependency : dependencies) {
-				if (dependency instanceof ResolvedDependencyResult) {
-					DefaultGradleDependencyNode childNode = resolveDependency((ResolvedDependencyResult) dependency,
-							dependencySet);
-					dependencyNode.addChildren(childNode);
-				}
-			}
-		}
-		return dependencyNode;
+				parentProjectPath, subModels, tasks, node, plugins, closures, scriptClasspaths);
 	}
 
 	private List<String> getPlugins(Project project) {
@@ -0,0 +1,240 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationDescriptor;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.StartEvent;
+import org.gradle.tooling.events.configuration.ProjectConfigurationOperationDescriptor;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.model.UnsupportedMethodException;
+
+/**
+ * Records the task, transform and project configuration events of a build in a
+ * bounded ring buffer, and summarises them as a BuildProfile. The profiles of
+ * the most recent builds are kept by cancellation key.
+ */
+public class BuildProfiler implements ProgressListener {
+	public static final Set<OperationType> OPERATION_TYPES = Collections.unmodifiableSet(new HashSet<>(
+			Arrays.asList(OperationType.TASK, OperationType.TRANSFORM, OperationType.PROJECT_CONFIGURATION)));
+
+	static final int MAX_EVENTS = 20_000;
+	private static final int MAX_PROFILES = 16;
+	private static final int DEFAULT_LIMIT = 10;
+
+	private static final Map<String, BuildProfiler> profilers = new LinkedHashMap<String, BuildProfiler>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, BuildProfiler> eldest) {
+			return size() > MAX_PROFILES;
+		}
+	};
+
+	private final ArrayDeque<ProfileEvent> events = new ArrayDeque<>();
+	private final int maxEvents;
+	private final long startTime = System.currentTimeMillis();
+	private long endTime;
+	private int droppedEvents;
+
+	BuildProfiler(int maxEvents) {
+		this.maxEvents = maxEvents;
+	}
+
+	/** Starts profiling a build, replacing the profile of a previous build. */
+	public static BuildProfiler start(String cancellationKey) {
+		BuildProfiler profiler = new BuildProfiler(MAX_EVENTS);
+		synchronized (profilers) {
+			profilers.remove(cancellationKey);
+			profilers.put(cancellationKey, profiler);
+		}
+		return profiler;
+	}
+
+	/** Returns the profiler of the running or last build, or null. */
+	public static BuildProfiler get(String cancellationKey) {
+		synchronized (profilers) {
+			return profilers.get(cancellationKey);
+		}
+	}
+
+	@Override
+	public synchronized void statusChanged(ProgressEvent event) {
+		Progress.OperationType operationType = ProgressCoalescer.getOperationType(event.getDescriptor());
+		if (operationType == Progress.OperationType.GENERIC
+				|| !(event instanceof StartEvent || event instanceof FinishEvent)) {
+			return;
+		}
+		if (events.size() == maxEvents) {
+			events.removeFirst();
+			droppedEvents++;
+		}
+		events.addLast(new ProfileEvent(event, operationType));
+	}
+
+	public synchronized void finish() {
+		endTime = System.currentTimeMillis();
+	}
+
+	public BuildProfile getProfile(int limit) {
+		List<ProfileEvent> snapshot;
+		BuildProfile.Builder profile = BuildProfile.newBuilder();
+		synchronized (this) {
+			snapshot = new ArrayList<>(events);
+			profile.setRunning(endTime == 0)
+					.setDurationMillis((endTime == 0 ? System.currentTimeMillis() : endTime) - startTime)
+					.setDroppedEvents(droppedEvents);
+		}
+		Map<String, ProfileEvent> tasks = new LinkedHashMap<>();
+		List<ProfileEvent> configurations = new ArrayList<>();
+		for (ProfileEvent event : snapshot) {
+			if (!event.finished) {
+				continue;
+			}
+			if (event.operationType == Progress.OperationType.TASK) {
+				tasks.put(event.path, event);
+				countTask(profile, event.outcome);
+			} else if (event.operationType == Progress.OperationType.PROJECT_CONFIGURATION) {
+				configurations.add(event);
+			}
+		}
+		int ran = profile.getTasksExecuted() + profile.getTasksFromCache();
+		profile.setCacheHitRatio(ran == 0 ? 0 : (double) profile.getTasksFromCache() / ran);
+
+		List<ProfileEvent> slowestTasks = new ArrayList<>(tasks.values());
+		slowestTasks.sort(Comparator.comparingLong(ProfileEvent::getDuration).reversed());
+		int count = Math.min(limit > 0 ? limit : DEFAULT_LIMIT, slowestTasks.size());
+		for (ProfileEvent task : slowestTasks.subList(0, count)) {
+			profile.addSlowestTasks(task.toOperation());
+		}
+		configurations.sort(Comparator.comparingLong(ProfileEvent::getDuration).reversed());
+		for (ProfileEvent configuration : configurations) {
+			profile.addProjectConfigurations(configuration.toOperation());
+		}
+		for (ProfileEvent task : getCriticalPath(tasks)) {
+			profile.addCriticalPath(task.toOperation());
+		}
+		return profile.build();
+	}
+
+	/**
+	 * Walks back from the task that finished last, through the dependency that
+	 * finished last, ie the one the task was waiting for.
+	 */
+	private static List<ProfileEvent> getCriticalPath(Map<String, ProfileEvent> tasks) {
+		ProfileEvent task = null;
+		for (ProfileEvent candidate : tasks.values()) {
+			if (task == null || candidate.endTime > task.endTime) {
+				task = candidate;
+			}
+		}
+		List<ProfileEvent> path = new ArrayList<>();
+		Set<String> visited = new HashSet<>();
+		while (task != null && visited.add(task.path)) {
+			path.add(task);
+			ProfileEvent blocking = null;
+			for (String dependency : task.dependencies) {
+				ProfileEvent candidate = tasks.get(dependency);
+				if (candidate != null && (blocking == null || candidate.endTime > blocking.endTime)) {
+					blocking = candidate;
+				}
+			}
+			task = blocking;
+		}
+		Collections.reverse(path);
+		return path;
+	}
+
+	private static void countTask(BuildProfile.Builder profile, Progress.Outcome outcome) {
+		profile.setTasks(profile.getTasks() + 1);
+		switch (outcome) {
+			case UP_TO_DATE :
+				profile.setTasksUpToDate(profile.getTasksUpToDate() + 1);
+				break;
+			case FROM_CACHE :
+				profile.setTasksFromCache(profile.getTasksFromCache() + 1);
+				break;
+			case SUCCESS :
+				profile.setTasksExecuted(profile.getTasksExecuted() + 1);
+				break;
+			case FAILED :
+				profile.setTasksFailed(profile.getTasksFailed() + 1);
+				break;
+			default :
+				break;
+		}
+	}
+
+	static class ProfileEvent {
+		private final Progress.OperationType operationType;
+		private final String path;
+		private final boolean finished;
+		private final long startTime;
+		private final long endTime;
+		private final Progress.Outcome outcome;
+		private final List<String> dependencies = new ArrayList<>();
+
+		ProfileEvent(ProgressEvent event, Progress.OperationType operationType) {
+			OperationDescriptor descriptor = event.getDescriptor();
+			this.operationType = operationType;
+			this.finished = event instanceof FinishEvent;
+			if (finished) {
+				OperationResult result = ((FinishEvent) event).getResult();
+				this.startTime = result.getStartTime();
+				this.endTime = result.getEndTime();
+				this.outcome = ProgressCoalescer.getOutcome(result);
+			} else {
+				this.startTime = event.getEventTime();
+				this.endTime = 0;
+				this.outcome = Progress.Outcome.NONE;
+			}
+			if (descriptor instanceof TaskOperationDescriptor) {
+				TaskOperationDescriptor task = (TaskOperationDescriptor) descriptor;
+				this.path = task.getTaskPath();
+				if (finished) {
+					addDependencies(task);
+				}
+			} else if (descriptor instanceof ProjectConfigurationOperationDescriptor) {
+				this.path = ((ProjectConfigurationOperationDescriptor) descriptor).getProject().getProjectPath();
+			} else {
+				this.path = descriptor.getDisplayName();
+			}
+		}
+
+		private void addDependencies(TaskOperationDescriptor task) {
+			try {
+				for (OperationDescriptor dependency : task.getDependencies()) {
+					if (dependency instanceof TaskOperationDescriptor) {
+						dependencies.add(((TaskOperationDescriptor) dependency).getTaskPath());
+					}
+				}
+			} catch (UnsupportedMethodException e) {
+				// Gradle < 5.1, there is no critical path
+			}
+		}
+
+		long getDuration() {
+			return endTime - startTime;
+		}
+
+		ProfiledOperation toOperation() {
+			return ProfiledOperation.newBuilder().setPath(path).setOperationType(operationType).setOutcome(outcome)
+					.setStartTime(startTime).setDurationMillis(getDuration()).build();
+		}
+	}
+}
@@ -0,0 +1,155 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the files that configure a build, the same ones the model cache
+ * fingerprints: settings & build scripts, gradle.properties, wrapper
+ * properties, version catalogs and buildSrc. Only the directories holding them
+ * are watched, call {@link #registerDirectories()} again once the build has
+ * changed to pick up new ones.
+ */
+public class BuildWatcher implements Closeable {
+	private static final String BUILD_SRC = "buildSrc";
+
+	private final Path root;
+	private final Path buildSrc;
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> directories = new HashMap<>();
+
+	public BuildWatcher(Path root) throws IOException {
+		this.root = root.toAbsolutePath();
+		this.buildSrc = this.root.resolve(BUILD_SRC);
+		this.watchService = root.getFileSystem().newWatchService();
+		registerDirectories();
+	}
+
+	public synchronized void registerDirectories() throws IOException {
+		Set<Path> watched = new HashSet<>(directories.values());
+		Set<Path> dirs = new HashSet<>();
+		dirs.add(root);
+		// where version catalogs & the wrapper properties are added
+		addIfDirectory(dirs, root.resolve("gradle"));
+		addIfDirectory(dirs, root.resolve("gradle").resolve("wrapper"));
+		for (Path input : GradleModelCache.getBuildInputs(root)) {
+			dirs.add(input.getParent());
+		}
+		if (Files.isDirectory(buildSrc)) {
+			addBuildSrcDirectories(dirs);
+		}
+		for (Path dir : dirs) {
+			if (!watched.contains(dir)) {
+				WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				directories.put(key, dir);
+			}
+		}
+	}
+
+	/**
+	 * Blocks until build files change, then until they have stayed unchanged for
+	 * the debounce time.
+	 *
+	 * @return the changed files, relative to the root
+	 * @throws java.nio.file.ClosedWatchServiceException
+	 *             once the watcher is closed
+	 */
+	public List<String> awaitChanges(long debounceMillis) throws InterruptedException {
+		Set<String> changes = new TreeSet<>();
+		WatchKey key = watchService.take();
+		while (true) {
+			collectChanges(key, changes);
+			if (changes.isEmpty()) {
+				key = watchService.take();
+				continue;
+			}
+			key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+			if (key == null) {
+				return new ArrayList<>(changes);
+			}
+		}
+	}
+
+	synchronized int getWatchedDirectoryCount() {
+		return directories.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	// with / on every OS, like the paths of the model
+	private String getRelativePath(Path path) {
+		return root.relativize(path).toString().replace(File.separatorChar, '/');
+	}
+
+	private synchronized void collectChanges(WatchKey key, Set<String> changes) {
+		Path dir = directories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (dir == null) {
+				continue;
+			}
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				// events were lost, any build file may have changed
+				changes.add(getRelativePath(dir));
+				continue;
+			}
+			Path file = dir.resolve((Path) event.context());
+			if (file.startsWith(buildSrc) || GradleModelCache.isBuildInput(file.getFileName().toString())) {
+				changes.add(getRelativePath(file));
+			}
+		}
+		if (!key.reset()) {
+			// the directory is gone
+			directories.remove(key);
+		}
+	}
+
+	private void addBuildSrcDirectories(Set<Path> dirs) throws IOException {
+		Files.walkFileTree(buildSrc, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				String name = dir.getFileName().toString();
+				if (!dir.equals(buildSrc) && (name.startsWith(".") || name.equals("build"))) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				dirs.add(dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static void addIfDirectory(Set<Path> dirs, Path dir) {
+		if (Files.isDirectory(dir)) {
+			dirs.add(dir);
+		}
+	}
+}
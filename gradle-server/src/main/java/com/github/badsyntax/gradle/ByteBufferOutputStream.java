@@ -1,13 +1,25 @@
 package com.github.badsyntax.gradle;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Hands every write straight to onWrite without buffering, the receiver must
+ * copy the bytes before returning.
+ */
+public abstract class ByteBufferOutputStream extends OutputStream {
+	// reused for single byte writes, onWrite copies it before returning
+	private final byte[] singleByte = new byte[1];
+
+	@Override
+	public synchronized void write(int b) {
+		singleByte[0] = (byte) b;
+		onWrite(singleByte, 0, 1);
+	}
 
-public abstract class ByteBufferOutputStream extends ByteArrayOutputStream {
 	@Override
-	public void flush() {
-		onFlush(toByteArray());
-		reset();
+	public void write(byte[] bytes, int offset, int length) {
+		onWrite(bytes, offset, length);
 	}
 
-	public abstract void onFlush(byte[] bytes);
+	public abstract void onWrite(byte[] bytes, int offset, int length);
 }
@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.google.common.base.Strings;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * Groups the roots of a workspace by the daemon that can build them: the same
+ * Gradle version, Gradle user home, JVM arguments & Java home. Builds of a
+ * group run one after the other and reuse one warm daemon, instead of each root
+ * spawning a daemon of its own.
+ */
+public class DaemonGroups {
+	private static final String GRADLE_PROPERTIES = "gradle.properties";
+	private static final String JVM_ARGS_PROPERTY = "org.gradle.jvmargs";
+	private static final String JAVA_HOME_PROPERTY = "org.gradle.java.home";
+
+	private DaemonGroups() {
+	}
+
+	/**
+	 * @return the requests grouped by daemon, in the order of their first request
+	 */
+	public static List<List<GetBuildRequest>> group(List<GetBuildRequest> requests) {
+		Map<String, List<GetBuildRequest>> groups = new LinkedHashMap<>();
+		for (GetBuildRequest req : requests) {
+			groups.computeIfAbsent(getDaemonKey(req.getProjectDir(), req.getGradleConfig()), key -> new ArrayList<>())
+					.add(req);
+		}
+		return new ArrayList<>(groups.values());
+	}
+
+	/**
+	 * Requests with the same key can be built by the same daemon. Roots whose
+	 * Gradle version can't be told get a key of their own.
+	 */
+	static String getDaemonKey(String projectDir, GradleConfig config) {
+		Properties gradleProperties = getGradleProperties(projectDir);
+		return String.join("\n", getGradleVersion(projectDir, config), getGradleUserHome(projectDir, config),
+				normalize(config.getJvmArguments()), normalize(gradleProperties.getProperty(JVM_ARGS_PROPERTY)),
+				Strings.nullToEmpty(gradleProperties.getProperty(JAVA_HOME_PROPERTY)));
+	}
+
+	private static String getGradleVersion(String projectDir, GradleConfig config) {
+		if (config.getWrapperEnabled()) {
+			String version = new GradleWrapper(new File(projectDir)).getGradleVersion();
+			return version != null ? version : "wrapper:" + new File(projectDir).getAbsolutePath();
+		}
+		if (!Strings.isNullOrEmpty(config.getVersion())) {
+			return config.getVersion();
+		}
+		File gradleHome = !Strings.isNullOrEmpty(config.getGradleHome())
+				? new File(config.getGradleHome())
+				: GradleProjectConnector.getSystemGradleHome();
+		if (gradleHome == null) {
+			return GradleProjectConnector.TOOLING_API_VERSION;
+		}
+		String version = new GradleLocalInstallation(gradleHome).getGradleVersion();
+		return version != null ? version : "installation:" + gradleHome.getAbsolutePath();
+	}
+
+	private static String getGradleUserHome(String projectDir, GradleConfig config) {
+		String userHome = config.getUserHome();
+		if (Strings.isNullOrEmpty(userHome)) {
+			return "";
+		}
+		// relative to the project, as GradleProjectConnector resolves it
+		return Paths.get(userHome).isAbsolute()
+				? userHome
+				: Paths.get(projectDir, userHome).toAbsolutePath().toString();
+	}
+
+	private static Properties getGradleProperties(String projectDir) {
+		Properties properties = new Properties();
+		File propertiesFile = new File(projectDir, GRADLE_PROPERTIES);
+		if (propertiesFile.isFile()) {
+			try (InputStream input = new FileInputStream(propertiesFile)) {
+				properties.load(input);
+			} catch (IOException e) {
+				// unreadable, the build itself reports it
+			}
+		}
+		return properties;
+	}
+
+	private static String normalize(String arguments) {
+		if (Strings.isNullOrEmpty(arguments)) {
+			return "";
+		}
+		return Arrays.stream(arguments.trim().split("\\s+")).collect(Collectors.joining(" "));
+	}
+}
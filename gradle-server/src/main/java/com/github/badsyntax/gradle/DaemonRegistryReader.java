@@ -0,0 +1,275 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.github.badsyntax.gradle.exceptions.DaemonRegistryException;
+import com.google.common.base.Strings;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the daemons of a Gradle version from the daemon registry under the
+ * Gradle user home (daemon/VERSION/registry.bin), giving the same list as
+ * "gradle --status" without starting a JVM. Only the registry layout of recent
+ * Gradle versions is understood, anything else is reported as a
+ * DaemonRegistryException so the caller can fall back to "gradle --status".
+ */
+public class DaemonRegistryReader {
+	private static final String REGISTRY_FILE = "registry.bin";
+	// org.gradle.launcher.daemon.server.api.DaemonState, by ordinal
+	private static final DaemonInfo.DaemonStatus[] DAEMON_STATES = {DaemonInfo.DaemonStatus.IDLE,
+			DaemonInfo.DaemonStatus.BUSY, DaemonInfo.DaemonStatus.CANCELED, DaemonInfo.DaemonStatus.STOPPING,
+			DaemonInfo.DaemonStatus.STOPPED, DaemonInfo.DaemonStatus.STOPPED, DaemonInfo.DaemonStatus.STOPPED};
+	// address types of DaemonRegistryContent
+	private static final int SOCKET_INET_ADDRESS = 0;
+	private static final int MULTI_CHOICE_ADDRESS = 1;
+	// gradle --status lists the daemons stopped within the last hour
+	private static final long STOP_EVENT_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+	private static final Map<File, CachedRegistry> cache = new ConcurrentHashMap<>();
+
+	private DaemonRegistryReader() {
+	}
+
+	static class Registry {
+		final List<RegisteredDaemon> daemons = new ArrayList<>();
+		final List<StopEvent> stopEvents = new ArrayList<>();
+	}
+
+	static class RegisteredDaemon {
+		final long pid;
+		final DaemonInfo.DaemonStatus status;
+
+		RegisteredDaemon(long pid, DaemonInfo.DaemonStatus status) {
+			this.pid = pid;
+			this.status = status;
+		}
+	}
+
+	static class StopEvent {
+		final long timestamp;
+		final long pid;
+		final String reason;
+
+		StopEvent(long timestamp, long pid, String reason) {
+			this.timestamp = timestamp;
+			this.pid = pid;
+			this.reason = reason;
+		}
+	}
+
+	private static class CachedRegistry {
+		private final long lastModified;
+		private final long length;
+		private final Registry registry;
+
+		CachedRegistry(long lastModified, long length, Registry registry) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.registry = registry;
+		}
+	}
+
+	public static File getGradleUserHome() {
+		String gradleUserHome = System.getenv("GRADLE_USER_HOME");
+		return Strings.isNullOrEmpty(gradleUserHome)
+				? new File(System.getProperty("user.home"), ".gradle")
+				: new File(gradleUserHome);
+	}
+
+	/**
+	 * @return the running daemons of the version, followed by the ones stopped
+	 *         recently, as "gradle --status" lists them
+	 */
+	public static List<DaemonInfo> read(File gradleUserHome, String gradleVersion) throws DaemonRegistryException {
+		File daemonDir = new File(gradleUserHome, "daemon");
+		Registry registry = getRegistry(new File(new File(daemonDir, gradleVersion), REGISTRY_FILE), daemonDir);
+		List<DaemonInfo> daemons = new ArrayList<>();
+		Set<Long> pids = new HashSet<>();
+		for (RegisteredDaemon daemon : registry.daemons) {
+			// the registry keeps the entries of daemons that were killed
+			if (isAlive(daemon.pid) && pids.add(daemon.pid)) {
+				daemons.add(DaemonInfo.newBuilder().setPid(String.valueOf(daemon.pid)).setStatus(daemon.status)
+						.setInfo(gradleVersion).build());
+			}
+		}
+		long now = System.currentTimeMillis();
+		List<StopEvent> stopEvents = new ArrayList<>(registry.stopEvents);
+		stopEvents.sort((first, second) -> Long.compare(second.timestamp, first.timestamp));
+		for (StopEvent stopEvent : stopEvents) {
+			if (now - stopEvent.timestamp <= STOP_EVENT_MAX_AGE_MILLIS && pids.add(stopEvent.pid)) {
+				daemons.add(DaemonInfo.newBuilder().setPid(String.valueOf(stopEvent.pid))
+						.setStatus(DaemonInfo.DaemonStatus.STOPPED)
+						.setInfo("(" + Strings.nullToEmpty(stopEvent.reason) + ")").build());
+			}
+		}
+		return daemons;
+	}
+
+	static void clearCache() {
+		cache.clear();
+	}
+
+	private static Registry getRegistry(File registryFile, File daemonDir) throws DaemonRegistryException {
+		long lastModified = registryFile.lastModified();
+		long length = registryFile.length();
+		if (lastModified == 0) {
+			// no daemon of this version has been started yet
+			return new Registry();
+		}
+		CachedRegistry cached = cache.get(registryFile);
+		if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+			return cached.registry;
+		}
+		try (InputStream input = new BufferedInputStream(new FileInputStream(registryFile))) {
+			Registry registry = parse(input, daemonDir);
+			cache.put(registryFile, new CachedRegistry(lastModified, length, registry));
+			return registry;
+		} catch (IOException e) {
+			throw new DaemonRegistryException("Unable to read daemon registry " + registryFile, e);
+		}
+	}
+
+	/**
+	 * Parses DaemonRegistryContent as written by Gradle's SimpleStateCache.
+	 *
+	 * @param daemonDir
+	 *            the daemon registry dir each daemon records, used to check the
+	 *            layout is understood
+	 */
+	static Registry parse(InputStream input, File daemonDir) throws IOException, DaemonRegistryException {
+		DataInputStream data = new DataInputStream(input);
+		Registry registry = new Registry();
+		if (!data.readBoolean()) {
+			return registry;
+		}
+		int addressCount = data.readInt();
+		for (int i = 0; i < addressCount; i++) {
+			skipAddress(data);
+		}
+		for (int i = 0; i < addressCount; i++) {
+			registry.daemons.add(readDaemon(data, addressCount, daemonDir));
+		}
+		int stopEventCount = data.readInt();
+		for (int i = 0; i < stopEventCount; i++) {
+			long timestamp = data.readLong();
+			long pid = data.readLong();
+			if (data.readBoolean()) {
+				// DaemonExpirationStatus
+				data.readByte();
+			}
+			registry.stopEvents.add(new StopEvent(timestamp, pid, readNullableString(data)));
+		}
+		if (data.read() != -1) {
+			throw new DaemonRegistryException("Unexpected data after the stop events");
+		}
+		return registry;
+	}
+
+	private static void skipAddress(DataInputStream data) throws IOException, DaemonRegistryException {
+		int addressType = data.readByte();
+		if (addressType == MULTI_CHOICE_ADDRESS) {
+			// UUID, port, candidate addresses
+			data.readLong();
+			data.readLong();
+			data.readInt();
+			int candidates = data.readInt();
+			for (int i = 0; i < candidates; i++) {
+				skipBinary(data);
+			}
+		} else if (addressType == SOCKET_INET_ADDRESS) {
+			skipBinary(data);
+			data.readInt();
+		} else {
+			throw new DaemonRegistryException("Unsupported daemon address type " + addressType);
+		}
+	}
+
+	private static RegisteredDaemon readDaemon(DataInputStream data, int addressCount, File daemonDir)
+			throws IOException, DaemonRegistryException {
+		int addressIndex = data.readInt();
+		if (addressIndex < 0 || addressIndex >= addressCount) {
+			throw new DaemonRegistryException("Unexpected daemon address index " + addressIndex);
+		}
+		// token, state, last busy
+		skipBinary(data);
+		int state = data.readByte();
+		if (state < 0 || state >= DAEMON_STATES.length) {
+			throw new DaemonRegistryException("Unexpected daemon state " + state);
+		}
+		data.readLong();
+		// DefaultDaemonContext: uid, java home, java version, java vendor, registry dir
+		readNullableString(data);
+		data.readUTF();
+		data.readInt();
+		data.readUTF();
+		String registryDir = data.readUTF();
+		if (!new File(registryDir).getAbsoluteFile().equals(daemonDir.getAbsoluteFile())) {
+			throw new DaemonRegistryException("Unsupported daemon context layout");
+		}
+		if (!data.readBoolean()) {
+			throw new DaemonRegistryException("Daemon without a pid");
+		}
+		long pid = data.readLong();
+		// idle timeout, JVM options, instrumentation agent, native services mode,
+		// priority
+		if (data.readBoolean()) {
+			data.readInt();
+		}
+		int daemonOpts = data.readInt();
+		for (int i = 0; i < daemonOpts; i++) {
+			data.readUTF();
+		}
+		data.readBoolean();
+		data.readInt();
+		if (data.readBoolean()) {
+			data.readInt();
+		}
+		return new RegisteredDaemon(pid, DAEMON_STATES[state]);
+	}
+
+	private static void skipBinary(DataInputStream data) throws IOException, DaemonRegistryException {
+		int length = data.readInt();
+		if (length < 0) {
+			throw new DaemonRegistryException("Unexpected binary length " + length);
+		}
+		if (data.skipBytes(length) != length) {
+			throw new EOFException();
+		}
+	}
+
+	private static String readNullableString(DataInputStream data) throws IOException {
+		return data.readBoolean() ? data.readUTF() : null;
+	}
+
+	/**
+	 * @return whether the process is running, or true if that can't be told (Java
+	 *         8)
+	 */
+	private static boolean isAlive(long pid) {
+		try {
+			Class<?> processHandle = Class.forName("java.lang.ProcessHandle");
+			Method of = processHandle.getMethod("of", long.class);
+			Method isAlive = processHandle.getMethod("isAlive");
+			Optional<?> handle = (Optional<?>) of.invoke(null, pid);
+			return handle.isPresent() && (Boolean) isAlive.invoke(handle.get());
+		} catch (ReflectiveOperationException e) {
+			return true;
+		}
+	}
+}
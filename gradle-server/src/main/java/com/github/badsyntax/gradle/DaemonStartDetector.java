@@ -0,0 +1,105 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Passes build output through, noting whether Gradle started a new daemon for
+ * the build rather than reusing an idle one. ANSI escape sequences of colored
+ * output are skipped when matching.
+ */
+public class DaemonStartDetector extends OutputStream {
+	// "Starting a Gradle Daemon (subsequent builds will be faster)", "Starting a
+	// Gradle Daemon, 1 incompatible Daemon could not be reused, ..."
+	private static final byte[] DAEMON_START_MESSAGE = "Starting a Gradle Daemon".getBytes(StandardCharsets.UTF_8);
+	private static final byte ESC = 0x1b;
+
+	private enum Escape {
+		NONE, STARTED, CONTROL_SEQUENCE
+	}
+
+	private final OutputStream delegate;
+	// position in DAEMON_START_MESSAGE matched so far, at the start of a line
+	private int matched;
+	private boolean lineStart = true;
+	private Escape escape = Escape.NONE;
+	private volatile boolean daemonStarted;
+
+	/**
+	 * @param delegate
+	 *            receives the output, or null to discard it
+	 */
+	public DaemonStartDetector(OutputStream delegate) {
+		this.delegate = delegate;
+	}
+
+	public boolean isDaemonStarted() {
+		return daemonStarted;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+		if (!daemonStarted) {
+			scan(bytes, offset, length);
+		}
+		if (delegate != null) {
+			delegate.write(bytes, offset, length);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (delegate != null) {
+			delegate.flush();
+		}
+	}
+
+	private void scan(byte[] bytes, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			byte b = bytes[i];
+			if (skipEscape(b)) {
+				continue;
+			}
+			if (b == '\n' || b == '\r') {
+				lineStart = true;
+				matched = 0;
+			} else if (lineStart && b == DAEMON_START_MESSAGE[matched]) {
+				if (++matched == DAEMON_START_MESSAGE.length) {
+					daemonStarted = true;
+					return;
+				}
+			} else {
+				lineStart = false;
+			}
+		}
+	}
+
+	// eg ESC[1m or ESC[0K, a control sequence ends with a byte in @ to ~
+	private boolean skipEscape(byte b) {
+		switch (escape) {
+			case STARTED :
+				escape = b == '[' ? Escape.CONTROL_SEQUENCE : Escape.NONE;
+				return true;
+			case CONTROL_SEQUENCE :
+				if (b >= '@' && b <= '~') {
+					escape = Escape.NONE;
+				}
+				return true;
+			default :
+				if (b == ESC) {
+					escape = Escape.STARTED;
+					return true;
+				}
+				return false;
+		}
+	}
+}
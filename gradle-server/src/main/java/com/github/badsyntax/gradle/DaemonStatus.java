@@ -1,13 +1,19 @@
 package com.github.badsyntax.gradle;
 
-import com.github.badsyntax.gradle.exceptions.GradleExecutionException;
+import com.github.badsyntax.gradle.exceptions.DaemonRegistryException;
+import com.github.badsyntax.gradle.process.ProcessListener;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class DaemonStatus {
+	private static final Logger logger = LoggerFactory.getLogger(DaemonStatus.class.getName());
+
 	private GradleExecution gradleExecution;
 
 	// 56783 IDLE 6.4
@@ -18,19 +24,36 @@ public class DaemonStatus {
 		this.gradleExecution = gradleExecution;
 	}
 
-	public synchronized List<DaemonInfo> get() throws GradleExecutionException {
-		ArrayList<DaemonInfo> daemonStatus = new ArrayList<>();
-		String processOutput = gradleExecution.exec("--status", "--quiet");
-		Stream.of(processOutput.split("\n")).forEach(line -> {
-			Matcher statusMatcher = STATUS_REGEX.matcher(line);
-			if (statusMatcher.matches()) {
+	public CompletableFuture<List<DaemonInfo>> get() {
+		String gradleVersion = gradleExecution.getGradleVersion();
+		if (gradleVersion != null) {
+			try {
+				return CompletableFuture.completedFuture(
+						DaemonRegistryReader.read(DaemonRegistryReader.getGradleUserHome(), gradleVersion));
+			} catch (DaemonRegistryException e) {
+				logger.debug("Falling back to gradle --status: {}", e.getMessage());
+			}
+		}
+		// parsed as the lines arrive
+		List<DaemonInfo> daemonStatus = Collections.synchronizedList(new ArrayList<>());
+		ProcessListener listener = new ProcessListener() {
+			@Override
+			public void onStdOut(String line) {
+				Matcher statusMatcher = STATUS_REGEX.matcher(line);
+				if (!statusMatcher.matches()) {
+					return;
+				}
 				String pid = statusMatcher.group(1);
 				String status = statusMatcher.group(2);
 				String info = statusMatcher.group(3);
-				daemonStatus.add(DaemonInfo.newBuilder().setPid(pid).setInfo(info)
-						.setStatus(DaemonInfo.DaemonStatus.valueOf(status)).build());
+				try {
+					daemonStatus.add(DaemonInfo.newBuilder().setPid(pid).setInfo(info)
+							.setStatus(DaemonInfo.DaemonStatus.valueOf(status)).build());
+				} catch (IllegalArgumentException e) {
+					logger.debug("Ignoring daemon {} with unknown status {}", pid, status);
+				}
 			}
-		});
-		return daemonStatus;
+		};
+		return gradleExecution.exec(listener, "--status", "--quiet").thenApply(output -> daemonStatus);
 	}
 }
@@ -0,0 +1,121 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.github.badsyntax.gradle.exceptions.GradleBuildRunnerException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts a daemon for later builds ahead of time. The warm up runs the help
+ * task through GradleBuildRunner, so the daemon is started with the JVM
+ * arguments & environment of the builds that follow, and the build scripts are
+ * compiled.
+ */
+public class DaemonWarmUp {
+	private static final Logger logger = LoggerFactory.getLogger(DaemonWarmUp.class.getName());
+	private static final List<String> WARM_UP_ARGS = Collections.singletonList("help");
+
+	private static final ExecutorService executor = Executors
+			.newSingleThreadExecutor(ServerExecutors.newThreadFactory("gradle-daemon-warm-up"));
+	// by project dir
+	private static final Map<String, WarmUp> warmUps = new ConcurrentHashMap<>();
+
+	private DaemonWarmUp() {
+	}
+
+	private static class WarmUp {
+		private final GradleConfig gradleConfig;
+		private final WarmUpMetrics.Builder metrics;
+
+		WarmUp(String projectDir, GradleConfig gradleConfig) {
+			this.gradleConfig = gradleConfig;
+			this.metrics = WarmUpMetrics.newBuilder().setProjectDir(projectDir);
+		}
+	}
+
+	public static WarmUpMetrics warmUp(String projectDir, GradleConfig gradleConfig, String cancellationKey)
+			throws IOException, GradleBuildRunnerException {
+		DaemonStartDetector daemonStartDetector = new DaemonStartDetector(null);
+		GradleBuildRunner gradleRunner = new GradleBuildRunner(projectDir, WARM_UP_ARGS, gradleConfig, cancellationKey,
+				false, 0, false);
+		gradleRunner.setStandardOutputStream(daemonStartDetector);
+		long start = System.nanoTime();
+		gradleRunner.run();
+		WarmUp warmUp = new WarmUp(projectDir, gradleConfig);
+		warmUp.metrics.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+				.setDaemonStarted(daemonStartDetector.isDaemonStarted());
+		warmUps.put(projectDir, warmUp);
+		logger.info("Warmed up {} in {}ms, daemon started: {}", projectDir, warmUp.metrics.getDurationMillis(),
+				warmUp.metrics.getDaemonStarted());
+		return warmUp.metrics.build();
+	}
+
+	/**
+	 * Queues a warm up, unless the project has been warmed up with the same config
+	 * already.
+	 */
+	public static void warmUpInBackground(String projectDir, GradleConfig gradleConfig) {
+		if (isWarmedUp(projectDir, gradleConfig)) {
+			return;
+		}
+		executor.execute(() -> {
+			if (isWarmedUp(projectDir, gradleConfig)) {
+				return;
+			}
+			try {
+				warmUp(projectDir, gradleConfig, "warm-up-" + projectDir);
+			} catch (Exception e) {
+				logger.warn("Unable to warm up {}: {}", projectDir, e.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * Records whether a build after the warm up reused a daemon.
+	 */
+	public static void recordBuild(String projectDir, GradleConfig gradleConfig, boolean daemonStarted) {
+		if (!isWarmedUp(projectDir, gradleConfig)) {
+			return;
+		}
+		WarmUp warmUp = warmUps.get(projectDir);
+		synchronized (warmUp) {
+			warmUp.metrics.setBuilds(warmUp.metrics.getBuilds() + 1);
+			if (!daemonStarted) {
+				warmUp.metrics.setBuildsReusingDaemon(warmUp.metrics.getBuildsReusingDaemon() + 1);
+			}
+		}
+		if (daemonStarted) {
+			logger.info("Build of {} started a new daemon despite the warm up", projectDir);
+		}
+	}
+
+	public static List<WarmUpMetrics> getMetrics() {
+		List<WarmUpMetrics> metrics = new ArrayList<>();
+		for (WarmUp warmUp : warmUps.values()) {
+			synchronized (warmUp) {
+				metrics.add(warmUp.metrics.build());
+			}
+		}
+		return metrics;
+	}
+
+	private static boolean isWarmedUp(String projectDir, GradleConfig gradleConfig) {
+		WarmUp warmUp = warmUps.get(projectDir);
+		return warmUp != null && warmUp.gradleConfig.equals(gradleConfig);
+	}
+
+	static void reset() {
+		warmUps.clear();
+	}
+}
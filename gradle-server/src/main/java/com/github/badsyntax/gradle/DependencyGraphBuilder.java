@@ -0,0 +1,90 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.microsoft.gradle.api.GradleDependencyNode;
+import com.microsoft.gradle.api.GradleDependencyType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Interns the dependency trees of every project of a build into a single node
+ * table, so that a library graph shared by many configurations is sent once and
+ * referenced by index.
+ */
+public class DependencyGraphBuilder {
+	private final Map<String, Integer> nodeIndexes = new HashMap<>();
+	private final DependencyGraph.Builder graph = DependencyGraph.newBuilder();
+
+	/**
+	 * Adds the configurations of a project dependency node, as returned by the
+	 * plugin, to the graph.
+	 */
+	public List<DependencyConfiguration> addProject(GradleDependencyNode projectNode) {
+		List<DependencyConfiguration> configurations = new ArrayList<>();
+		if (projectNode.getChildren() == null) {
+			return configurations;
+		}
+		for (GradleDependencyNode configurationNode : projectNode.getChildren()) {
+			if (configurationNode.getType() != GradleDependencyType.CONFIGURATION) {
+				continue;
+			}
+			DependencyConfiguration.Builder configuration = DependencyConfiguration.newBuilder()
+					.setName(configurationNode.getName());
+			Set<Integer> visited = new HashSet<>();
+			for (GradleDependencyNode dependencyNode : getDependencies(configurationNode)) {
+				configuration.addDependencies(addNode(dependencyNode, configuration, visited));
+			}
+			configurations.add(configuration.build());
+		}
+		return configurations;
+	}
+
+	public DependencyGraph build() {
+		return graph.build();
+	}
+
+	private int addNode(GradleDependencyNode node, DependencyConfiguration.Builder configuration,
+			Set<Integer> visited) {
+		int index = intern(node.getName());
+		List<GradleDependencyNode> dependencies = getDependencies(node);
+		// the plugin only expands the first occurrence of a module per configuration
+		if (dependencies.isEmpty() || !visited.add(index)) {
+			return index;
+		}
+		DependencyEdges.Builder edges = DependencyEdges.newBuilder().setNode(index);
+		for (GradleDependencyNode dependency : dependencies) {
+			edges.addChildren(addNode(dependency, configuration, visited));
+		}
+		configuration.addEdges(edges);
+		return index;
+	}
+
+	private int intern(String name) {
+		Integer index = nodeIndexes.get(name);
+		if (index == null) {
+			index = graph.getNodesCount();
+			nodeIndexes.put(name, index);
+			graph.addNodes(name);
+		}
+		return index;
+	}
+
+	private static List<GradleDependencyNode> getDependencies(GradleDependencyNode node) {
+		List<GradleDependencyNode> dependencies = new ArrayList<>();
+		if (node.getChildren() == null) {
+			return dependencies;
+		}
+		for (GradleDependencyNode child : node.getChildren()) {
+			if (child.getType() == GradleDependencyType.DEPENDENCY) {
+				dependencies.add(child);
+			}
+		}
+		return dependencies;
+	}
+}
@@ -0,0 +1,243 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers why a module is on the classpath of a configuration from the last
+ * model GetBuild fetched, without asking Gradle again. The reverse edges of a
+ * configuration are indexed the first time it is queried, and dropped once the
+ * model is refreshed.
+ */
+public class DependencyInsightIndex {
+	// parent of the direct dependencies of a configuration
+	private static final int ROOT = -1;
+
+	private static final Map<String, DependencyInsightIndex> indexes = new ConcurrentHashMap<>();
+
+	private final GradleBuild build;
+	private final Map<String, GradleProject> projects = new HashMap<>();
+	// by project path, then configuration name
+	private final Map<String, Map<String, ConfigurationIndex>> configurations = new ConcurrentHashMap<>();
+
+	private DependencyInsightIndex(GradleBuild build) {
+		this.build = build;
+		if (build.hasProject()) {
+			addProjects(build.getProject());
+		}
+	}
+
+	/**
+	 * Replaces the model of a build, called each time GetBuild sends one with
+	 * dependencies.
+	 */
+	public static void update(String projectDir, GradleBuild build) {
+		indexes.put(getKey(projectDir), new DependencyInsightIndex(build));
+	}
+
+	public static void invalidate(String projectDir) {
+		indexes.remove(getKey(projectDir));
+	}
+
+	/** Returns the index of a build, or null if no model was fetched for it. */
+	public static DependencyInsightIndex get(String projectDir) {
+		return indexes.get(getKey(projectDir));
+	}
+
+	/**
+	 * @return false for a model fetched with skip_dependencies, which would leave
+	 *         nothing to answer from
+	 */
+	public static boolean hasDependencies(GradleBuild build) {
+		return build.hasProject() && hasDependencies(build.getProject());
+	}
+
+	private static boolean hasDependencies(GradleProject project) {
+		if (project.getDependencyConfigurationsCount() > 0 || project.getDependencyItem().getChildrenCount() > 0) {
+			return true;
+		}
+		for (GradleProject subProject : project.getProjectsList()) {
+			if (hasDependencies(subProject)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param module
+	 *            group:name to match any version, or group:name:version
+	 * @throws IllegalArgumentException
+	 *             if the project or the configuration isn't in the model
+	 */
+	public GetDependencyInsightReply getInsight(String projectPath, String configuration, String module, int maxPaths) {
+		GradleProject project = projects.get(projectPath);
+		if (project == null) {
+			throw new IllegalArgumentException("Project not found: " + projectPath);
+		}
+		ConfigurationIndex index = configurations.computeIfAbsent(projectPath, key -> new ConcurrentHashMap<>())
+				.computeIfAbsent(configuration, key -> buildIndex(project, configuration));
+		GetDependencyInsightReply.Builder reply = GetDependencyInsightReply.newBuilder();
+		Deque<Integer> path = new ArrayDeque<>();
+		Set<Integer> onPath = new HashSet<>();
+		for (int node : index.find(module)) {
+			if (!index.addPaths(node, path, onPath, reply, maxPaths)) {
+				reply.setTruncated(true);
+				break;
+			}
+		}
+		return reply.build();
+	}
+
+	private void addProjects(GradleProject project) {
+		projects.put(project.getProjectPath(), project);
+		for (GradleProject subProject : project.getProjectsList()) {
+			addProjects(subProject);
+		}
+	}
+
+	private ConfigurationIndex buildIndex(GradleProject project, String configuration) {
+		for (DependencyConfiguration dependencyConfiguration : project.getDependencyConfigurationsList()) {
+			if (dependencyConfiguration.getName().equals(configuration)) {
+				return ConfigurationIndex.of(build.getDependencyGraph(), dependencyConfiguration);
+			}
+		}
+		for (DependencyItem item : project.getDependencyItem().getChildrenList()) {
+			if (item.getType() == GradleDependencyType.CONFIGURATION && item.getName().equals(configuration)) {
+				return ConfigurationIndex.of(item);
+			}
+		}
+		throw new IllegalArgumentException(
+				"Configuration " + configuration + " not found in " + project.getProjectPath() + ", was it resolved?");
+	}
+
+	private static String getKey(String projectDir) {
+		return new File(projectDir).getAbsolutePath();
+	}
+
+	/** The parents of each node of a configuration, and its nodes by module. */
+	private static class ConfigurationIndex {
+		private final List<String> nodes;
+		private final Map<Integer, Set<Integer>> parents = new HashMap<>();
+		private final Map<String, List<Integer>> modules = new HashMap<>();
+
+		private ConfigurationIndex(List<String> nodes) {
+			this.nodes = nodes;
+		}
+
+		static ConfigurationIndex of(DependencyGraph graph, DependencyConfiguration configuration) {
+			ConfigurationIndex index = new ConfigurationIndex(graph.getNodesList());
+			for (int dependency : configuration.getDependenciesList()) {
+				index.addEdge(ROOT, dependency);
+			}
+			for (DependencyEdges edges : configuration.getEdgesList()) {
+				for (int child : edges.getChildrenList()) {
+					index.addEdge(edges.getNode(), child);
+				}
+			}
+			return index;
+		}
+
+		static ConfigurationIndex of(DependencyItem configuration) {
+			ConfigurationIndex index = new ConfigurationIndex(new ArrayList<>());
+			index.addItems(ROOT, configuration, new HashMap<>());
+			return index;
+		}
+
+		private void addItems(int parent, DependencyItem item, Map<String, Integer> nodeIndexes) {
+			for (DependencyItem child : item.getChildrenList()) {
+				if (child.getType() != GradleDependencyType.DEPENDENCY) {
+					continue;
+				}
+				Integer node = nodeIndexes.get(child.getName());
+				if (node == null) {
+					node = nodes.size();
+					nodeIndexes.put(child.getName(), node);
+					nodes.add(child.getName());
+				}
+				addEdge(parent, node);
+				addItems(node, child, nodeIndexes);
+			}
+		}
+
+		private void addEdge(int parent, int child) {
+			Set<Integer> nodeParents = parents.get(child);
+			if (nodeParents == null) {
+				nodeParents = new LinkedHashSet<>();
+				parents.put(child, nodeParents);
+				modules.computeIfAbsent(getModule(nodes.get(child)), key -> new ArrayList<>()).add(child);
+			}
+			nodeParents.add(parent);
+		}
+
+		List<Integer> find(String module) {
+			List<Integer> versions = modules.getOrDefault(getModule(module), Collections.emptyList());
+			if (module.equals(getModule(module))) {
+				return versions;
+			}
+			List<Integer> found = new ArrayList<>();
+			for (int node : versions) {
+				if (nodes.get(node).equals(module)) {
+					found.add(node);
+				}
+			}
+			return found;
+		}
+
+		/**
+		 * Walks the parents of a node up to the configuration, adding each path that
+		 * reaches it.
+		 *
+		 * @return false once there are more paths than maxPaths
+		 */
+		boolean addPaths(int node, Deque<Integer> path, Set<Integer> onPath, GetDependencyInsightReply.Builder reply,
+				int maxPaths) {
+			if (node == ROOT) {
+				if (reply.getPathsCount() == maxPaths) {
+					return false;
+				}
+				DependencyPath.Builder dependencyPath = DependencyPath.newBuilder();
+				for (int pathNode : path) {
+					dependencyPath.addNodes(nodes.get(pathNode));
+				}
+				reply.addPaths(dependencyPath);
+				return true;
+			}
+			if (!onPath.add(node)) {
+				// a cycle, the path doesn't lead to the configuration
+				return true;
+			}
+			path.push(node);
+			try {
+				for (int parent : parents.getOrDefault(node, Collections.emptySet())) {
+					if (!addPaths(parent, path, onPath, reply, maxPaths)) {
+						return false;
+					}
+				}
+				return true;
+			} finally {
+				path.pop();
+				onPath.remove(node);
+			}
+		}
+
+		/** Strips the version of group:name:version. */
+		private static String getModule(String name) {
+			String[] parts = name.split(":", -1);
+			return parts.length > 2 ? parts[0] + ":" + parts[1] : name;
+		}
+	}
+}
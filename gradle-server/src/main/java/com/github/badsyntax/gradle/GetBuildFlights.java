@@ -0,0 +1,120 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.google.common.base.Strings;
+import io.grpc.stub.StreamObserver;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single flight for GetBuild: a request identical to one in flight (same
+ * project, config & options, any cancellation key) subscribes to the replies of
+ * the running build instead of starting another one. Cancelling a subscriber
+ * only detaches it, the build is cancelled once every subscriber has cancelled
+ * or gone.
+ */
+public class GetBuildFlights {
+	private static final Map<GetBuildRequest, Flight> flights = new ConcurrentHashMap<>();
+	private static final AtomicLong flightIds = new AtomicLong();
+
+	private GetBuildFlights() {
+	}
+
+	public static class Flight {
+		private final GetBuildRequest req;
+		private final SharedReplyStream<GetBuildReply> replies;
+		// subscribers by cancellation key, the extension reuses keys for the same
+		// project
+		private final Map<String, Set<StreamObserver<GetBuildReply>>> subscribers = new ConcurrentHashMap<>();
+		private final Map<String, Runnable> cancelHandlers = new ConcurrentHashMap<>();
+
+		Flight(GetBuildRequest key) {
+			// the build's own key, so no single subscriber can cancel it
+			this.req = key.toBuilder().setCancellationKey("get-build-flight-" + flightIds.incrementAndGet()).build();
+			this.replies = new SharedReplyStream<>(GetBuildFlights::isReplayable,
+					() -> GetBuildReply.newBuilder().setCancelled(
+							Cancelled.newBuilder().setMessage("Build cancelled").setProjectDir(req.getProjectDir()))
+							.build(),
+					() -> close(key));
+			this.replies.setOnCancelHandler(this::cancel);
+		}
+
+		/**
+		 * @return the request to run the build with
+		 */
+		public GetBuildRequest getRequest() {
+			return req;
+		}
+
+		public SharedReplyStream<GetBuildReply> getReplies() {
+			return replies;
+		}
+
+		private void addSubscriber(String cancellationKey, StreamObserver<GetBuildReply> responseObserver) {
+			subscribers.computeIfAbsent(cancellationKey, key -> ConcurrentHashMap.newKeySet()).add(responseObserver);
+			Runnable cancelHandler = cancelHandlers.computeIfAbsent(cancellationKey,
+					key -> () -> unsubscribe(cancellationKey));
+			GradleBuildCancellation.setCancelHandler(cancellationKey, cancelHandler);
+		}
+
+		private void unsubscribe(String cancellationKey) {
+			Set<StreamObserver<GetBuildReply>> observers = subscribers.remove(cancellationKey);
+			if (observers != null) {
+				observers.forEach(replies::unsubscribe);
+			}
+		}
+
+		private void close(GetBuildRequest key) {
+			flights.remove(key, this);
+			cancelHandlers.forEach(GradleBuildCancellation::clearCancelHandler);
+		}
+
+		private void cancel() {
+			try {
+				GradleBuildCancellation.cancelBuild(req.getCancellationKey());
+			} catch (Exception e) {
+				// not started yet or already finished, the replies are closed anyway
+			}
+		}
+	}
+
+	/**
+	 * Subscribes the call to the flight of an identical request, starting a new
+	 * flight if there is none.
+	 *
+	 * @return the new flight, for the caller to run the build of, or null if the
+	 *         call joined a flight that is already running
+	 */
+	public static Flight subscribe(GetBuildRequest req, StreamObserver<GetBuildReply> responseObserver) {
+		GetBuildRequest key = req.toBuilder().clearCancellationKey().build();
+		while (true) {
+			Flight[] created = new Flight[1];
+			Flight flight = flights.computeIfAbsent(key, k -> created[0] = new Flight(k));
+			if (!Strings.isNullOrEmpty(req.getCancellationKey())) {
+				flight.addSubscriber(req.getCancellationKey(), responseObserver);
+			}
+			if (flight.replies.subscribe(responseObserver)) {
+				return flight == created[0] ? flight : null;
+			}
+			// closed between the lookup and the subscription, it is about to be removed
+			flight.close(key);
+		}
+	}
+
+	static int getFlightCount() {
+		return flights.size();
+	}
+
+	/** Drops every flight, and the cancel handlers of their subscribers. */
+	static void clear() {
+		flights.forEach((key, flight) -> flight.close(key));
+	}
+
+	private static boolean isReplayable(GetBuildReply reply) {
+		return !reply.hasOutput() && !reply.hasProgress();
+	}
+}
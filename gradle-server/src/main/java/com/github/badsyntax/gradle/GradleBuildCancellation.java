@@ -2,6 +2,7 @@ package com.github.badsyntax.gradle;
 
 import com.github.badsyntax.gradle.exceptions.GradleCancellationException;
 import com.google.common.base.Strings;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import org.gradle.tooling.CancellationToken;
@@ -10,6 +11,9 @@ import org.gradle.tooling.GradleConnector;
 
 public class GradleBuildCancellation {
 	private static final ConcurrentMap<String, CancellationTokenSource> tokens = new ConcurrentHashMap<>();
+	// keys of calls that share another call's build, see GetBuildFlights. Builds
+	// of different requests can share a key, each flight has its own handler.
+	private static final ConcurrentMap<String, Set<Runnable>> cancelHandlers = new ConcurrentHashMap<>();
 
 	private GradleBuildCancellation() {
 	}
@@ -24,15 +28,33 @@ public class GradleBuildCancellation {
 		tokens.remove(cancellationKey);
 	}
 
+	/**
+	 * Runs the handler instead of cancelling a token when the key is cancelled.
+	 */
+	public static void setCancelHandler(String cancellationKey, Runnable cancelHandler) {
+		cancelHandlers.computeIfAbsent(cancellationKey, key -> ConcurrentHashMap.newKeySet()).add(cancelHandler);
+	}
+
+	/** Removes the handler, leaving the other handlers of the key in place. */
+	public static void clearCancelHandler(String cancellationKey, Runnable cancelHandler) {
+		cancelHandlers.computeIfPresent(cancellationKey, (key, handlers) -> {
+			handlers.remove(cancelHandler);
+			return handlers.isEmpty() ? null : handlers;
+		});
+	}
+
 	public static void cancelBuild(String cancellationKey) throws GradleCancellationException {
 		if (Strings.isNullOrEmpty(cancellationKey)) {
 			throw new GradleCancellationException("No cancellation key specified");
 		}
 		CancellationTokenSource cancellationTokenSource = tokens.get(cancellationKey);
-		if (cancellationTokenSource == null) {
-			throw new GradleCancellationException("Build is not running for key: " + cancellationKey);
-		} else {
+		Set<Runnable> handlers = cancelHandlers.get(cancellationKey);
+		if (cancellationTokenSource != null) {
 			cancellationTokenSource.cancel();
+		} else if (handlers != null && !handlers.isEmpty()) {
+			handlers.forEach(Runnable::run);
+		} else {
+			throw new GradleCancellationException("Build is not running for key: " + cancellationKey);
 		}
 	}
 
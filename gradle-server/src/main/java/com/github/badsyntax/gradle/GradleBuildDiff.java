@@ -0,0 +1,68 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The projects that changed between two fetches of a build. Projects are
+ * compared without their sub projects, so a change to one project doesn't mark
+ * its parents as changed.
+ */
+public class GradleBuildDiff {
+	private final List<GetBuildProjectResult> changedProjects = new ArrayList<>();
+	private final List<String> removedProjectPaths = new ArrayList<>();
+
+	/**
+	 * @param previous
+	 *            the projects of the previous fetch, see {@link #getProjects}
+	 */
+	public GradleBuildDiff(Map<String, GetBuildProjectResult> previous, Map<String, GetBuildProjectResult> current) {
+		current.forEach((projectPath, project) -> {
+			if (!project.equals(previous.get(projectPath))) {
+				changedProjects.add(project);
+			}
+		});
+		for (String projectPath : previous.keySet()) {
+			if (!current.containsKey(projectPath)) {
+				removedProjectPaths.add(projectPath);
+			}
+		}
+	}
+
+	/**
+	 * @return the projects of the build by project path, each without its sub
+	 *         projects, parents first
+	 */
+	public static Map<String, GetBuildProjectResult> getProjects(GradleBuild build) {
+		Map<String, GetBuildProjectResult> projects = new LinkedHashMap<>();
+		if (build.hasProject()) {
+			addProjects(projects, build.getProject(), "");
+		}
+		return projects;
+	}
+
+	private static void addProjects(Map<String, GetBuildProjectResult> projects, GradleProject project,
+			String parentProjectPath) {
+		projects.put(project.getProjectPath(), GetBuildProjectResult.newBuilder()
+				.setParentProjectPath(parentProjectPath).setProject(project.toBuilder().clearProjects()).build());
+		for (GradleProject subProject : project.getProjectsList()) {
+			addProjects(projects, subProject, project.getProjectPath());
+		}
+	}
+
+	/**
+	 * @return the new projects and those that changed, parents first
+	 */
+	public List<GetBuildProjectResult> getChangedProjects() {
+		return changedProjects;
+	}
+
+	public List<String> getRemovedProjectPaths() {
+		return removedProjectPaths;
+	}
+}
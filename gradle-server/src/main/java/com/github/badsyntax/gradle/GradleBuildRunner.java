@@ -1,7 +1,7 @@
 package com.github.badsyntax.gradle;
 
 import com.github.badsyntax.gradle.exceptions.GradleBuildRunnerException;
-import com.google.common.base.Strings;
+import com.github.badsyntax.gradle.utils.Utils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -15,7 +15,6 @@ import java.util.Map;
 import java.util.Set;
 import org.gradle.tooling.BuildLauncher;
 import org.gradle.tooling.CancellationToken;
-import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.ProjectConnection;
 import org.gradle.tooling.events.OperationType;
 import org.gradle.tooling.events.ProgressListener;
@@ -36,6 +35,7 @@ public class GradleBuildRunner {
 	private OutputStream standardErrorStream;
 	private InputStream standardInputStream;
 	private ProgressListener progressListener;
+	private Map<ProgressListener, Set<OperationType>> additionalProgressListeners = new HashMap<>();
 	private Boolean javaDebugCleanOutputCache;
 
 	public GradleBuildRunner(String projectDir, List<String> args, GradleConfig gradleConfig, String cancellationKey,
@@ -73,13 +73,17 @@ public class GradleBuildRunner {
 		return this;
 	}
 
+	public GradleBuildRunner addProgressListener(ProgressListener progressListener, Set<OperationType> operationTypes) {
+		this.additionalProgressListeners.put(progressListener, operationTypes);
+		return this;
+	}
+
 	public void run() throws IOException, GradleBuildRunnerException {
 		if (Boolean.TRUE.equals(args.isEmpty())) {
 			throw new GradleBuildRunnerException("No args supplied");
 		}
-		GradleConnector gradleConnector = GradleProjectConnector.build(projectDir, gradleConfig);
-		try (ProjectConnection connection = gradleConnector.connect()) {
-			runBuild(connection);
+		try (PooledProjectConnection pooledConnection = GradleProjectConnectionPool.acquire(projectDir, gradleConfig)) {
+			runBuild(pooledConnection.getConnection());
 		} finally {
 			GradleBuildCancellation.clearToken(cancellationKey);
 		}
@@ -90,15 +94,22 @@ public class GradleBuildRunner {
 		progressEvents.add(OperationType.PROJECT_CONFIGURATION);
 		progressEvents.add(OperationType.TASK);
 		progressEvents.add(OperationType.TRANSFORM);
+		progressEvents.add(OperationType.BUILD_PHASE);
 
 		CancellationToken cancellationToken = GradleBuildCancellation.buildToken(cancellationKey);
 
 		Boolean isDebugging = javaDebugPort != 0;
 
 		BuildLauncher build = connection.newBuild().withCancellationToken(cancellationToken)
-				.addProgressListener(progressListener, progressEvents).setStandardOutput(standardOutputStream)
-				.setStandardError(standardErrorStream).setColorOutput(colorOutput)
-				.withArguments(buildArguments(isDebugging));
+				.setStandardOutput(standardOutputStream).setStandardError(standardErrorStream)
+				.setColorOutput(colorOutput).withArguments(buildArguments(isDebugging));
+
+		// builds run in the background, eg a warm up, report no progress
+		if (progressListener != null) {
+			build.addProgressListener(progressListener, progressEvents);
+		}
+
+		additionalProgressListeners.forEach(build::addProgressListener);
 
 		if (this.standardInputStream != null) {
 			build.setStandardInput(standardInputStream);
@@ -108,11 +119,12 @@ public class GradleBuildRunner {
 			build.setEnvironmentVariables(buildJavaEnvVarsWithJwdp(javaDebugPort));
 		}
 
-		if (!Strings.isNullOrEmpty(gradleConfig.getJvmArguments())) {
-			build.setJvmArguments(gradleConfig.getJvmArguments());
+		String[] jvmArguments = Utils.getJvmArguments(gradleConfig);
+		if (jvmArguments.length > 0) {
+			build.setJvmArguments(jvmArguments);
 		}
 
-		build.run();
+		ServerMetrics.runToolingApi(build::run);
 	}
 
 	private List<String> buildArguments(Boolean isDebugging) throws GradleBuildRunnerException {
@@ -3,8 +3,19 @@
 
 package com.github.badsyntax.gradle;
 
-import com.github.badsyntax.gradle.exceptions.GradleExecutionException;
+import com.github.badsyntax.gradle.process.ProcessListener;
+import java.util.concurrent.CompletableFuture;
 
 public interface GradleExecution {
-	public String exec(String... args) throws GradleExecutionException;
+	/**
+	 * @return the stdout of gradle, or a GradleExecutionException if it can't be
+	 *         run, times out or writes to stderr
+	 */
+	public CompletableFuture<String> exec(ProcessListener listener, String... args);
+
+	/**
+	 * @return the Gradle version that exec runs, or null if it can't be told
+	 *         without running Gradle
+	 */
+	public String getGradleVersion();
 }
@@ -6,40 +6,70 @@ package com.github.badsyntax.gradle;
 import com.github.badsyntax.gradle.exceptions.GradleExecutionException;
 import com.github.badsyntax.gradle.exceptions.ProcessException;
 import com.github.badsyntax.gradle.process.Process;
-import com.github.badsyntax.gradle.process.ProcessOutput;
+import com.github.badsyntax.gradle.process.ProcessListener;
+import com.github.badsyntax.gradle.process.ProcessResult;
 import java.io.File;
 import java.io.IOException;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class GradleLocalInstallation implements GradleExecution {
 	private File localInstallation;
 	private static final String GRADLE_EXECUTION_UNIX = "gradle";
 	private static final String GRADLE_EXECUTION_WINDOWS = "gradle.bat";
+	// lib/gradle-launcher-8.6.jar
+	private static final Pattern LAUNCHER_JAR_REGEX = Pattern.compile("^gradle-launcher-(.+)\\.jar$");
 
 	public GradleLocalInstallation(File localInstallation) {
 		this.localInstallation = localInstallation;
 	}
 
-	public synchronized String exec(String... args) throws GradleExecutionException {
+	public CompletableFuture<String> exec(ProcessListener listener, String... args) {
+		CompletableFuture<String> stdOut = new CompletableFuture<>();
+		if (args.length == 0) {
+			stdOut.completeExceptionally(new GradleExecutionException("No gradle args supplied"));
+			return stdOut;
+		}
+		File binFolder = localInstallation.toPath().resolve("bin").toFile();
+		Process process = new Process(binFolder);
+		process.setUnixCommand(GRADLE_EXECUTION_UNIX);
+		process.setWindowsCommand(GRADLE_EXECUTION_WINDOWS);
+		CompletableFuture<ProcessResult> result;
 		try {
-			if (args.length == 0) {
-				throw new GradleExecutionException("No gradle args supplied");
+			result = process.exec(listener, args);
+		} catch (IOException | ProcessException e) {
+			stdOut.completeExceptionally(
+					new GradleExecutionException(String.format("Error running gradle: %s", e.getMessage()), e));
+			return stdOut;
+		}
+		result.whenComplete((processResult, error) -> {
+			if (error != null) {
+				stdOut.completeExceptionally(new GradleExecutionException(
+						String.format("Error running gradle: %s", error.getMessage()), error));
+			} else if (processResult.getStdErr().length() > 0) {
+				stdOut.completeExceptionally(new GradleExecutionException(
+						String.format("Error running gradle: %s", processResult.getStdErr())));
+			} else {
+				stdOut.complete(processResult.getStdOut());
 			}
-			File binFolder = localInstallation.toPath().resolve("bin").toFile();
-			Process process = new Process(binFolder);
-			process.setUnixCommand(GRADLE_EXECUTION_UNIX);
-			process.setWindowsCommand(GRADLE_EXECUTION_WINDOWS);
-			process.exec(args);
-			ProcessOutput processOutput = process.getProcessOutput();
-			String stdErrString = processOutput.getStdErr().lines().collect(Collectors.joining("\n"));
-			String stdOutString = processOutput.getStdOut().lines().collect(Collectors.joining("\n"));
-			process.close();
-			if (stdErrString.length() > 0) {
-				throw new GradleExecutionException(String.format("Error running gradle: %s", stdErrString));
+		});
+		// cancelling the caller's future kills the process
+		stdOut.whenComplete((output, error) -> result.cancel(false));
+		return stdOut;
+	}
+
+	public String getGradleVersion() {
+		String[] libs = localInstallation.toPath().resolve("lib").toFile().list();
+		if (libs == null) {
+			return null;
+		}
+		for (String lib : libs) {
+			Matcher versionMatcher = LAUNCHER_JAR_REGEX.matcher(lib);
+			if (versionMatcher.matches()) {
+				return versionMatcher.group(1);
 			}
-			return stdOutString;
-		} catch (IOException | ProcessException e) {
-			throw new GradleExecutionException(String.format("Error running gradle: %s", e.getMessage()));
 		}
+		return null;
 	}
 }
@@ -0,0 +1,305 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.github.badsyntax.gradle.utils.PluginUtils;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the GetBuild model on disk, keyed by a fingerprint of the files that
+ * configure the build. A cached model is served straight away and then
+ * revalidated against the tooling API.
+ */
+public class GradleModelCache {
+	private static final Logger logger = LoggerFactory.getLogger(GradleModelCache.class.getName());
+
+	private static final String PLUGIN_JAR_PATH = "/gradle-plugin.jar";
+	private static final String CACHE_DIR_ENV = "VSCODE_GRADLE_MODEL_CACHE_DIR";
+	// bump when the cached GradleBuild content changes shape
+	private static final int CACHE_VERSION = 3;
+	// skip revalidating a model this server already built a few moments ago
+	private static final long REVALIDATE_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+	// file systems with coarse timestamps may not show a change made right after
+	// a file was hashed
+	private static final long TIMESTAMP_GRANULARITY_MILLIS = TimeUnit.SECONDS.toMillis(2);
+
+	private static final Map<String, Validation> validations = new ConcurrentHashMap<>();
+	private static final Map<Path, InputHash> inputHashes = new ConcurrentHashMap<>();
+	private static volatile byte[] pluginJarHash;
+	private static volatile File cacheDir = getDefaultCacheDir();
+
+	private GradleModelCache() {
+	}
+
+	/**
+	 * Hashes the settings & build scripts, gradle.properties, wrapper properties,
+	 * version catalogs, buildSrc and the request options, including the Gradle
+	 * config. Build logic outside the project directory (eg included builds) is
+	 * left to revalidation.
+	 */
+	public static String getFingerprint(GetBuildRequest req) throws IOException {
+		String projectDir = req.getProjectDir();
+		GradleConfig config = req.getGradleConfig();
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putInt(CACHE_VERSION);
+		hasher.putString(new File(projectDir).getAbsolutePath(), StandardCharsets.UTF_8);
+		// options that change the model, but not the keys of the call itself
+		hasher.putBytes(req.toBuilder().clearCancellationKey().clearShowOutputColors().clearStreamProjects()
+				.clearWarmUp().build().toByteArray());
+		// the plugin that builds the model
+		hasher.putBytes(getPluginJarHash());
+		Path root = new File(projectDir).getAbsoluteFile().toPath();
+		List<Path> inputs = getBuildInputs(root);
+		for (Path input : inputs) {
+			hasher.putString(root.relativize(input).toString(), StandardCharsets.UTF_8);
+			hasher.putBytes(hashInput(input));
+		}
+		Set<Path> currentInputs = new HashSet<>(inputs);
+		inputHashes.keySet().removeIf(input -> input.startsWith(root) && !currentInputs.contains(input));
+		File userHomeProperties = new File(getGradleUserHome(config), "gradle.properties");
+		if (userHomeProperties.isFile()) {
+			hasher.putBytes(Files.readAllBytes(userHomeProperties.toPath()));
+		}
+		return hasher.hash().toString();
+	}
+
+	/** Returns the cached model, or null if there is none for this fingerprint. */
+	public static CachedModel get(String projectDir, String fingerprint) {
+		File cacheFile = getCacheFile(projectDir);
+		if (!cacheFile.isFile()) {
+			return null;
+		}
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+			if (!fingerprint.equals(input.readUTF())) {
+				return null;
+			}
+			Environment environment = Environment.parseDelimitedFrom(input);
+			GradleBuild build = GradleBuild.parseFrom((InputStream) input);
+			return new CachedModel(environment.equals(Environment.getDefaultInstance()) ? null : environment, build);
+		} catch (IOException e) {
+			logger.debug("Unable to read cached model for {}: {}", projectDir, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @param environment
+	 *            sent along with the cached build, may be null
+	 */
+	public static void put(String projectDir, String fingerprint, Environment environment, GradleBuild build) {
+		validations.put(projectDir, new Validation(fingerprint, System.currentTimeMillis()));
+		File cacheFile = getCacheFile(projectDir);
+		try {
+			Files.createDirectories(cacheFile.getParentFile().toPath());
+			Path tempFile = Files.createTempFile(cacheFile.getParentFile().toPath(), cacheFile.getName(), ".tmp");
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				output.writeUTF(fingerprint);
+				(environment != null ? environment : Environment.getDefaultInstance())
+						.writeDelimitedTo((OutputStream) output);
+				build.writeTo((OutputStream) output);
+			}
+			try {
+				Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to cache model for {}: {}", projectDir, e.getMessage());
+		}
+	}
+
+	public static void invalidate(String projectDir) {
+		validations.remove(projectDir);
+		try {
+			Files.deleteIfExists(getCacheFile(projectDir).toPath());
+		} catch (IOException e) {
+			logger.debug("Unable to remove cached model for {}: {}", projectDir, e.getMessage());
+		}
+	}
+
+	public static boolean needsRevalidation(String projectDir, String fingerprint) {
+		Validation validation = validations.get(projectDir);
+		return validation == null || !validation.fingerprint.equals(fingerprint)
+				|| System.currentTimeMillis() - validation.timestamp > REVALIDATE_AFTER_MILLIS;
+	}
+
+	static void setCacheDir(File dir) {
+		cacheDir = dir != null ? dir : getDefaultCacheDir();
+		validations.clear();
+		inputHashes.clear();
+	}
+
+	private static byte[] getPluginJarHash() throws IOException {
+		byte[] hash = pluginJarHash;
+		if (hash == null) {
+			Hasher hasher = Hashing.sha256().newHasher();
+			try (InputStream pluginJar = PluginUtils.class.getResourceAsStream(PLUGIN_JAR_PATH)) {
+				if (pluginJar != null) {
+					hasher.putBytes(PluginUtils.readFully(pluginJar));
+				}
+			}
+			hash = hasher.hash().asBytes();
+			pluginJarHash = hash;
+		}
+		return hash;
+	}
+
+	/**
+	 * Hashes the content of a build input, reusing the previous hash while its size
+	 * and modification time are unchanged.
+	 */
+	private static byte[] hashInput(Path input) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(input, BasicFileAttributes.class);
+		long modified = attributes.lastModifiedTime().toMillis();
+		InputHash inputHash = inputHashes.get(input);
+		if (inputHash != null && inputHash.size == attributes.size() && inputHash.modified == modified
+				&& modified < inputHash.hashedAt - TIMESTAMP_GRANULARITY_MILLIS) {
+			return inputHash.hash;
+		}
+		long hashedAt = System.currentTimeMillis();
+		byte[] hash = Hashing.sha256().hashBytes(Files.readAllBytes(input)).asBytes();
+		inputHashes.put(input, new InputHash(attributes.size(), modified, hashedAt, hash));
+		return hash;
+	}
+
+	private static File getCacheFile(String projectDir) {
+		String name = Hashing.sha256().hashString(new File(projectDir).getAbsolutePath(), StandardCharsets.UTF_8)
+				.toString();
+		return new File(cacheDir, name + ".bin");
+	}
+
+	static List<Path> getBuildInputs(Path root) throws IOException {
+		List<Path> inputs = new ArrayList<>();
+		if (!Files.isDirectory(root)) {
+			return inputs;
+		}
+		Path buildSrc = root.resolve("buildSrc");
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				String name = dir.getFileName().toString();
+				if (!dir.equals(root)
+						&& (name.startsWith(".") || name.equals("build") || name.equals("node_modules"))) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile()
+						&& (file.startsWith(buildSrc) || isBuildInput(file.getFileName().toString()))) {
+					inputs.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException e) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(inputs);
+		return inputs;
+	}
+
+	static boolean isBuildInput(String fileName) {
+		return fileName.endsWith(".gradle") || fileName.endsWith(".gradle.kts") || fileName.equals("gradle.properties")
+				|| fileName.equals("gradle-wrapper.properties") || fileName.endsWith(".versions.toml");
+	}
+
+	private static File getGradleUserHome(GradleConfig config) {
+		if (!Strings.isNullOrEmpty(config.getUserHome())) {
+			return new File(config.getUserHome());
+		}
+		String gradleUserHome = System.getenv("GRADLE_USER_HOME");
+		if (!Strings.isNullOrEmpty(gradleUserHome)) {
+			return new File(gradleUserHome);
+		}
+		return new File(System.getProperty("user.home"), ".gradle");
+	}
+
+	private static File getDefaultCacheDir() {
+		String dir = System.getenv(CACHE_DIR_ENV);
+		if (!Strings.isNullOrEmpty(dir)) {
+			return new File(dir);
+		}
+		return new File(System.getProperty("user.home"), ".vscode-gradle" + File.separator + "model-cache");
+	}
+
+	public static class CachedModel {
+		private final Environment environment;
+		private final GradleBuild build;
+
+		CachedModel(Environment environment, GradleBuild build) {
+			this.environment = environment;
+			this.build = build;
+		}
+
+		/** Returns the environment of the build, or null if it wasn't cached. */
+		public Environment getEnvironment() {
+			return environment;
+		}
+
+		public GradleBuild getBuild() {
+			return build;
+		}
+	}
+
+	private static class InputHash {
+		private final long size;
+		private final long modified;
+		private final long hashedAt;
+		private final byte[] hash;
+
+		InputHash(long size, long modified, long hashedAt, byte[] hash) {
+			this.size = size;
+			this.modified = modified;
+			this.hashedAt = hashedAt;
+			this.hash = hash;
+		}
+	}
+
+	private static class Validation {
+		private final String fingerprint;
+		private final long timestamp;
+
+		Validation(String fingerprint, long timestamp) {
+			this.fingerprint = fingerprint;
+			this.timestamp = timestamp;
+		}
+	}
+}
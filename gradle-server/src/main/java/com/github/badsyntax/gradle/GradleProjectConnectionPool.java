@@ -0,0 +1,220 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares tooling API connections between requests for the same project and
+ * Gradle configuration, so that subsequent builds skip connector setup and
+ * distribution resolution.
+ */
+public class GradleProjectConnectionPool {
+	private static final Logger logger = LoggerFactory.getLogger(GradleProjectConnectionPool.class.getName());
+
+	private static final int MAX_SIZE = 16;
+	private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+	// access-ordered, so iteration starts at the least recently used connection
+	private static final Map<String, PooledProjectConnection> connections = new LinkedHashMap<>(16, 0.75f, true);
+	// connections being opened, by key
+	private static final Map<String, CompletableFuture<Void>> connecting = new HashMap<>();
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+	private static final AtomicLong evictions = new AtomicLong();
+	private static ScheduledExecutorService sweeper;
+
+	private GradleProjectConnectionPool() {
+	}
+
+	public static PooledProjectConnection acquire(String projectDir, GradleConfig config) {
+		String fingerprint = fingerprint(config);
+		String key = projectDir + "#" + fingerprint;
+		while (true) {
+			CompletableFuture<Void> connected = new CompletableFuture<>();
+			CompletableFuture<Void> pending;
+			GradleConnector connector = null;
+			GradleProjectConnectionType connectionType = null;
+			String localInstallation = null;
+			synchronized (GradleProjectConnectionPool.class) {
+				invalidateStale(projectDir, fingerprint);
+				PooledProjectConnection pooledConnection = connections.get(key);
+				if (pooledConnection != null) {
+					hits.incrementAndGet();
+					return lease(pooledConnection, true);
+				}
+				pending = connecting.putIfAbsent(key, connected);
+				if (pending == null) {
+					misses.incrementAndGet();
+					connector = GradleProjectConnector.build(projectDir, config);
+					connectionType = GradleProjectConnector.getConnectionType();
+					localInstallation = GradleProjectConnector.getLocalInstallation();
+				}
+			}
+			if (pending == null) {
+				return connect(key, projectDir, fingerprint, connector, connectionType, localInstallation, connected);
+			}
+			// another request is connecting to the same project, share its connection
+			pending.handle((result, error) -> null).join();
+		}
+	}
+
+	/**
+	 * Connects outside the pool lock, so that a slow connection to one project
+	 * doesn't hold up requests for the others.
+	 */
+	private static PooledProjectConnection connect(String key, String projectDir, String fingerprint,
+			GradleConnector connector, GradleProjectConnectionType connectionType, String localInstallation,
+			CompletableFuture<Void> connected) {
+		try {
+			ProjectConnection connection = connector.connect();
+			synchronized (GradleProjectConnectionPool.class) {
+				PooledProjectConnection pooledConnection = new PooledProjectConnection(projectDir, fingerprint,
+						connection, connectionType, localInstallation);
+				connections.put(key, pooledConnection);
+				lease(pooledConnection, false);
+				trimToSize();
+				scheduleSweeper();
+				return pooledConnection;
+			}
+		} finally {
+			synchronized (GradleProjectConnectionPool.class) {
+				connecting.remove(key);
+			}
+			connected.complete(null);
+		}
+	}
+
+	private static PooledProjectConnection lease(PooledProjectConnection pooledConnection, boolean hit) {
+		// keep daemon status & stop daemons in line with the connection being used
+		GradleProjectConnector.setConnectionType(pooledConnection.getConnectionType(),
+				pooledConnection.getLocalInstallation());
+		logger.debug("Connection pool {} for {} (hits: {}, misses: {})", hit ? "hit" : "miss",
+				pooledConnection.getProjectDir(), hits.get(), misses.get());
+		pooledConnection.lease();
+		return pooledConnection;
+	}
+
+	static synchronized void release(PooledProjectConnection pooledConnection) {
+		if (pooledConnection.release() == 0 && pooledConnection.isEvicted()) {
+			pooledConnection.closeConnection();
+		}
+	}
+
+	public static synchronized void invalidate(String projectDir) {
+		Iterator<PooledProjectConnection> iterator = connections.values().iterator();
+		while (iterator.hasNext()) {
+			PooledProjectConnection pooledConnection = iterator.next();
+			if (pooledConnection.getProjectDir().equals(projectDir)) {
+				iterator.remove();
+				evict(pooledConnection);
+			}
+		}
+	}
+
+	public static synchronized void invalidateAll() {
+		List<PooledProjectConnection> evicted = new ArrayList<>(connections.values());
+		connections.clear();
+		evicted.forEach(GradleProjectConnectionPool::evict);
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+			sweeper = null;
+		}
+	}
+
+	public static long getHits() {
+		return hits.get();
+	}
+
+	public static long getMisses() {
+		return misses.get();
+	}
+
+	public static long getEvictions() {
+		return evictions.get();
+	}
+
+	public static synchronized int size() {
+		return connections.size();
+	}
+
+	private static void invalidateStale(String projectDir, String fingerprint) {
+		Iterator<PooledProjectConnection> iterator = connections.values().iterator();
+		while (iterator.hasNext()) {
+			PooledProjectConnection pooledConnection = iterator.next();
+			if (pooledConnection.getProjectDir().equals(projectDir)
+					&& !pooledConnection.getFingerprint().equals(fingerprint)) {
+				logger.debug("Gradle config changed for {}, invalidating pooled connection", projectDir);
+				iterator.remove();
+				evict(pooledConnection);
+			}
+		}
+	}
+
+	private static void trimToSize() {
+		Iterator<PooledProjectConnection> iterator = connections.values().iterator();
+		while (connections.size() > MAX_SIZE && iterator.hasNext()) {
+			PooledProjectConnection pooledConnection = iterator.next();
+			if (!pooledConnection.isLeased()) {
+				iterator.remove();
+				evict(pooledConnection);
+			}
+		}
+	}
+
+	private static synchronized void sweepIdle() {
+		long now = System.currentTimeMillis();
+		Iterator<PooledProjectConnection> iterator = connections.values().iterator();
+		while (iterator.hasNext()) {
+			PooledProjectConnection pooledConnection = iterator.next();
+			if (!pooledConnection.isLeased() && now - pooledConnection.getLastUsed() > IDLE_TIMEOUT_MILLIS) {
+				logger.debug("Closing idle connection for {}", pooledConnection.getProjectDir());
+				iterator.remove();
+				evict(pooledConnection);
+			}
+		}
+	}
+
+	private static void evict(PooledProjectConnection pooledConnection) {
+		evictions.incrementAndGet();
+		pooledConnection.markEvicted();
+		if (!pooledConnection.isLeased()) {
+			pooledConnection.closeConnection();
+		}
+	}
+
+	private static void scheduleSweeper() {
+		if (sweeper != null) {
+			return;
+		}
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "gradle-connection-pool");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sweeper.scheduleWithFixedDelay(GradleProjectConnectionPool::sweepIdle, SWEEP_INTERVAL_MILLIS,
+				SWEEP_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private static String fingerprint(GradleConfig config) {
+		// only the settings used by GradleProjectConnector affect the connection
+		return String.join("|", config.getUserHome(), config.getGradleHome(), config.getVersion(),
+				String.valueOf(config.getWrapperEnabled()));
+	}
+}
@@ -68,6 +68,11 @@ public class GradleProjectConnector {
 		return GradleProjectConnector.localInstallation;
 	}
 
+	static void setConnectionType(GradleProjectConnectionType connectionType, String localInstallation) {
+		GradleProjectConnector.connectionType = connectionType;
+		GradleProjectConnector.localInstallation = localInstallation;
+	}
+
 	public static File getSystemGradleHome() {
 		Map<String, String> env = System.getenv();
 		Properties sysProperties = System.getProperties();
@@ -2,7 +2,11 @@ package com.github.badsyntax.gradle;
 
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.ServerInterceptors;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,22 +14,53 @@ import org.slf4j.LoggerFactory;
 public class GradleServer {
 	private static final Logger logger = LoggerFactory.getLogger(GradleServer.class.getName());
 
-	private final int port;
+	private final String address;
 	private final Server server;
+	private final ExecutorService executor;
+	private final ServerTransports.ServerTransport transport;
 
-	public GradleServer(int port) {
-		this(ServerBuilder.forPort(port), port);
+	public GradleServer(int port) throws IOException {
+		this(ServerOptions.parse(new String[]{String.valueOf(port)}, System.getenv()));
+	}
+
+	public GradleServer(ServerOptions options) throws IOException {
+		this(ServerTransports.create(options), options);
 	}
 
 	public GradleServer(ServerBuilder<?> serverBuilder, int port) {
-		this.port = port;
-		server = serverBuilder.addService(new GradleService()).build();
+		this(new ServerTransports.ServerTransport(serverBuilder, "port " + port, false, () -> {
+		}), ServerOptions.parse(new String[]{String.valueOf(port)}, new HashMap<>()));
+	}
+
+	private GradleServer(ServerTransports.ServerTransport transport, ServerOptions options) {
+		this.transport = transport;
+		this.address = transport.getAddress();
+		// netty serializes output messages before onNext returns
+		OutputBufferPool outputBufferPool = new OutputBufferPool(transport.isSerializing());
+		ServerBuilder<?> serverBuilder = transport.getServerBuilder();
+		ExecutorService serverExecutor = ServerExecutors.create(options);
+		if (serverExecutor != null) {
+			serverBuilder.executor(serverExecutor);
+			this.executor = serverExecutor;
+		} else {
+			// only runs the calls queued by the project concurrency limit
+			this.executor = Executors
+					.newCachedThreadPool(ServerExecutors.newThreadFactory("gradle-server-queued-call"));
+		}
+		// the concurrency interceptor runs first, so calls it defers still get the
+		// metrics context when they start
+		server = serverBuilder.addService(ServerInterceptors.intercept(new GradleService(),
+				outputBufferPool.interceptor(), new MetricsInterceptor(),
+				new ProjectConcurrencyInterceptor(options.getMaxCallsPerProject(), executor))).build();
+		logger.debug("Executor: {}, max calls per project: {}", options.getExecutorMode(),
+				options.getMaxCallsPerProject());
 	}
 
 	@SuppressWarnings("java:S106")
 	public void start() throws IOException {
 		server.start();
-		logger.info("Server started, listening on {}", port);
+		logger.info("Server started, listening on {}", address);
+		ServerMetrics.startLogging();
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			@Override
 			public void run() {
@@ -45,6 +80,10 @@ public class GradleServer {
 		if (server != null) {
 			server.shutdown().awaitTermination(30, TimeUnit.SECONDS);
 		}
+		executor.shutdown();
+		transport.shutdown();
+		ServerMetrics.stopLogging();
+		GradleProjectConnectionPool.invalidateAll();
 	}
 
 	private void blockUntilShutdown() throws InterruptedException {
@@ -54,11 +93,7 @@ public class GradleServer {
 	}
 
 	public static void main(String[] args) throws Exception {
-		int port = 8887;
-		if (args.length > 0) {
-			port = Integer.parseInt(args[0]);
-		}
-		GradleServer server = new GradleServer(port);
+		GradleServer server = new GradleServer(ServerOptions.parse(args, System.getenv()));
 		server.start();
 		server.blockUntilShutdown();
 	}
@@ -4,26 +4,66 @@ import com.github.badsyntax.gradle.handlers.CancelBuildHandler;
 import com.github.badsyntax.gradle.handlers.CancelBuildsHandler;
 import com.github.badsyntax.gradle.handlers.ExecuteCommandHandler;
 import com.github.badsyntax.gradle.handlers.GetBuildHandler;
+import com.github.badsyntax.gradle.handlers.GetBuildProfileHandler;
+import com.github.badsyntax.gradle.handlers.GetBuildsHandler;
 import com.github.badsyntax.gradle.handlers.GetDaemonsStatusHandler;
+import com.github.badsyntax.gradle.handlers.GetDependencyInsightHandler;
+import com.github.badsyntax.gradle.handlers.GetProjectDependenciesHandler;
+import com.github.badsyntax.gradle.handlers.GetServerMetricsHandler;
+import com.github.badsyntax.gradle.handlers.ListTasksHandler;
 import com.github.badsyntax.gradle.handlers.RunBuildHandler;
+import com.github.badsyntax.gradle.handlers.RunBuildsHandler;
+import com.github.badsyntax.gradle.handlers.RunTestsHandler;
+import com.github.badsyntax.gradle.handlers.SearchTasksHandler;
 import com.github.badsyntax.gradle.handlers.StopDaemonHandler;
 import com.github.badsyntax.gradle.handlers.StopDaemonsHandler;
+import com.github.badsyntax.gradle.handlers.WarmUpHandler;
+import com.github.badsyntax.gradle.handlers.WatchBuildHandler;
 import io.grpc.stub.StreamObserver;
 
 public class GradleService extends GradleGrpc.GradleImplBase {
 
 	@Override
 	public void getBuild(GetBuildRequest req, StreamObserver<GetBuildReply> responseObserver) {
-		GetBuildHandler getBuildHandler = new GetBuildHandler(req, responseObserver);
+		GetBuildFlights.Flight flight = GetBuildFlights.subscribe(req, responseObserver);
+		if (flight == null) {
+			// an identical request is running, its replies are shared with this call
+			return;
+		}
+		GetBuildHandler getBuildHandler = new GetBuildHandler(flight.getRequest(), flight.getReplies());
 		getBuildHandler.run();
 	}
 
+	@Override
+	public void getBuilds(GetBuildsRequest req, StreamObserver<GetBuildsReply> responseObserver) {
+		GetBuildsHandler getBuildsHandler = new GetBuildsHandler(req, responseObserver);
+		getBuildsHandler.run();
+	}
+
+	@Override
+	public void watchBuild(WatchBuildRequest req, StreamObserver<WatchBuildReply> responseObserver) {
+		WatchBuildHandler watchBuildHandler = new WatchBuildHandler(req, responseObserver);
+		watchBuildHandler.run();
+	}
+
 	@Override
 	public void runBuild(RunBuildRequest req, StreamObserver<RunBuildReply> responseObserver) {
 		RunBuildHandler runBuildHandler = new RunBuildHandler(req, responseObserver);
 		runBuildHandler.run();
 	}
 
+	@Override
+	public void runBuilds(RunBuildsRequest req, StreamObserver<RunBuildsReply> responseObserver) {
+		RunBuildsHandler runBuildsHandler = new RunBuildsHandler(req, responseObserver);
+		runBuildsHandler.run();
+	}
+
+	@Override
+	public void runTests(RunTestsRequest req, StreamObserver<RunTestsReply> responseObserver) {
+		RunTestsHandler runTestsHandler = new RunTestsHandler(req, responseObserver);
+		runTestsHandler.run();
+	}
+
 	@Override
 	public void cancelBuild(CancelBuildRequest req, StreamObserver<CancelBuildReply> responseObserver) {
 		CancelBuildHandler cancelRunBuildHandler = new CancelBuildHandler(req, responseObserver);
@@ -59,4 +99,50 @@ public class GradleService extends GradleGrpc.GradleImplBase {
 		ExecuteCommandHandler executeCommandHandler = new ExecuteCommandHandler(req, responseObserver);
 		executeCommandHandler.run();
 	}
+
+	@Override
+	public void getProjectDependencies(GetProjectDependenciesRequest req,
+			StreamObserver<GetProjectDependenciesReply> responseObserver) {
+		GetProjectDependenciesHandler getProjectDependenciesHandler = new GetProjectDependenciesHandler(req,
+				responseObserver);
+		getProjectDependenciesHandler.run();
+	}
+
+	@Override
+	public void getDependencyInsight(GetDependencyInsightRequest req,
+			StreamObserver<GetDependencyInsightReply> responseObserver) {
+		GetDependencyInsightHandler getDependencyInsightHandler = new GetDependencyInsightHandler(req,
+				responseObserver);
+		getDependencyInsightHandler.run();
+	}
+
+	@Override
+	public void searchTasks(SearchTasksRequest req, StreamObserver<SearchTasksReply> responseObserver) {
+		SearchTasksHandler searchTasksHandler = new SearchTasksHandler(req, responseObserver);
+		searchTasksHandler.run();
+	}
+
+	@Override
+	public void listTasks(ListTasksRequest req, StreamObserver<ListTasksReply> responseObserver) {
+		ListTasksHandler listTasksHandler = new ListTasksHandler(req, responseObserver);
+		listTasksHandler.run();
+	}
+
+	@Override
+	public void getBuildProfile(GetBuildProfileRequest req, StreamObserver<GetBuildProfileReply> responseObserver) {
+		GetBuildProfileHandler getBuildProfileHandler = new GetBuildProfileHandler(req, responseObserver);
+		getBuildProfileHandler.run();
+	}
+
+	@Override
+	public void getServerMetrics(GetServerMetricsRequest req, StreamObserver<GetServerMetricsReply> responseObserver) {
+		GetServerMetricsHandler getServerMetricsHandler = new GetServerMetricsHandler(responseObserver);
+		getServerMetricsHandler.run();
+	}
+
+	@Override
+	public void warmUp(WarmUpRequest req, StreamObserver<WarmUpReply> responseObserver) {
+		WarmUpHandler warmUpHandler = new WarmUpHandler(req, responseObserver);
+		warmUpHandler.run();
+	}
 }
@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.github.badsyntax.gradle.exceptions.GradleBuildRunnerException;
+import com.github.badsyntax.gradle.utils.Utils;
+import com.google.common.base.Strings;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.TestLauncher;
+import org.gradle.tooling.TestSpec;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressListener;
+
+/**
+ * Runs the selected tests with the TestLauncher, rather than the whole test
+ * task.
+ */
+public class GradleTestRunner {
+	private final RunTestsRequest req;
+	private OutputStream standardOutputStream;
+	private OutputStream standardErrorStream;
+	private ProgressListener progressListener;
+	private Map<ProgressListener, Set<OperationType>> additionalProgressListeners = new HashMap<>();
+
+	public GradleTestRunner(RunTestsRequest req) {
+		this.req = req;
+	}
+
+	public GradleTestRunner setStandardOutputStream(OutputStream standardOutputStream) {
+		this.standardOutputStream = standardOutputStream;
+		return this;
+	}
+
+	public GradleTestRunner setStandardErrorStream(OutputStream standardErrorStream) {
+		this.standardErrorStream = standardErrorStream;
+		return this;
+	}
+
+	public GradleTestRunner setProgressListener(ProgressListener progressListener) {
+		this.progressListener = progressListener;
+		return this;
+	}
+
+	public GradleTestRunner addProgressListener(ProgressListener progressListener, Set<OperationType> operationTypes) {
+		this.additionalProgressListeners.put(progressListener, operationTypes);
+		return this;
+	}
+
+	public void run() throws GradleBuildRunnerException {
+		if (req.getTestClassesCount() == 0 && req.getTestMethodsCount() == 0 && req.getTestPatternsCount() == 0) {
+			throw new GradleBuildRunnerException("No tests supplied");
+		}
+		if (req.getTestPatternsCount() > 0 && Strings.isNullOrEmpty(req.getTaskPath())) {
+			throw new GradleBuildRunnerException("Test patterns require a test task");
+		}
+		try (PooledProjectConnection pooledConnection = GradleProjectConnectionPool.acquire(req.getProjectDir(),
+				req.getGradleConfig())) {
+			runTests(pooledConnection.getConnection());
+		} finally {
+			GradleBuildCancellation.clearToken(req.getCancellationKey());
+		}
+	}
+
+	private void runTests(ProjectConnection connection) {
+		Set<OperationType> progressEvents = new HashSet<>();
+		progressEvents.add(OperationType.PROJECT_CONFIGURATION);
+		progressEvents.add(OperationType.TASK);
+		progressEvents.add(OperationType.TRANSFORM);
+		progressEvents.add(OperationType.BUILD_PHASE);
+
+		CancellationToken cancellationToken = GradleBuildCancellation.buildToken(req.getCancellationKey());
+
+		TestLauncher launcher = connection.newTestLauncher().withCancellationToken(cancellationToken)
+				.addProgressListener(progressListener, progressEvents).setStandardOutput(standardOutputStream)
+				.setStandardError(standardErrorStream).setColorOutput(req.getShowOutputColors())
+				.withArguments(req.getArgsList());
+
+		additionalProgressListeners.forEach(launcher::addProgressListener);
+
+		selectTests(launcher);
+
+		if (req.getJavaDebugPort() != 0) {
+			launcher.debugTestsOn(req.getJavaDebugPort());
+		}
+
+		String[] jvmArguments = Utils.getJvmArguments(req.getGradleConfig());
+		if (jvmArguments.length > 0) {
+			launcher.setJvmArguments(jvmArguments);
+		}
+
+		ServerMetrics.runToolingApi(launcher::run);
+	}
+
+	private void selectTests(TestLauncher launcher) {
+		List<String> testClasses = new ArrayList<>(req.getTestClassesList());
+		List<TestMethods> testMethods = new ArrayList<>();
+		for (TestMethods methods : req.getTestMethodsList()) {
+			if (methods.getMethodsCount() == 0) {
+				testClasses.add(methods.getTestClass());
+			} else {
+				testMethods.add(methods);
+			}
+		}
+		String taskPath = req.getTaskPath();
+		if (Strings.isNullOrEmpty(taskPath)) {
+			// in every test task
+			if (!testClasses.isEmpty()) {
+				launcher.withJvmTestClasses(testClasses);
+			}
+			for (TestMethods methods : testMethods) {
+				launcher.withJvmTestMethods(methods.getTestClass(), methods.getMethodsList());
+			}
+		} else if (req.getTestPatternsCount() == 0) {
+			// Gradle 6.1+
+			if (!testClasses.isEmpty()) {
+				launcher.withTaskAndTestClasses(taskPath, testClasses);
+			}
+			for (TestMethods methods : testMethods) {
+				launcher.withTaskAndTestMethods(taskPath, methods.getTestClass(), methods.getMethodsList());
+			}
+		} else {
+			// Gradle 7.6+
+			launcher.withTestsFor(specs -> {
+				TestSpec spec = specs.forTaskPath(taskPath);
+				spec.includeClasses(testClasses);
+				for (TestMethods methods : testMethods) {
+					spec.includeMethods(methods.getTestClass(), methods.getMethodsList());
+				}
+				spec.includePatterns(req.getTestPatternsList());
+			});
+		}
+	}
+}
@@ -3,13 +3,19 @@ package com.github.badsyntax.gradle;
 import com.github.badsyntax.gradle.exceptions.GradleExecutionException;
 import com.github.badsyntax.gradle.exceptions.ProcessException;
 import com.github.badsyntax.gradle.process.Process;
-import com.github.badsyntax.gradle.process.ProcessOutput;
+import com.github.badsyntax.gradle.process.ProcessListener;
+import com.github.badsyntax.gradle.process.ProcessResult;
 import com.github.badsyntax.gradle.utils.Utils;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.stream.Collectors;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class GradleWrapper implements GradleExecution {
 	private File projectRoot;
@@ -17,31 +23,60 @@ public class GradleWrapper implements GradleExecution {
 	private static final String GRADLE_WRAPPER_WINDOWS = "gradlew.bat";
 	private static final Path GRADLE_WRAPPER_PROPERTIES_PATH = Paths.get("gradle", "wrapper",
 			"gradle-wrapper.properties");
+	// https\://services.gradle.org/distributions/gradle-8.6-bin.zip
+	private static final Pattern DISTRIBUTION_VERSION_REGEX = Pattern.compile("gradle-([^/]+)-(bin|all)\\.zip$");
 
 	public GradleWrapper(File projectRoot) {
 		this.projectRoot = projectRoot;
 	}
 
-	public synchronized String exec(String... args) throws GradleExecutionException {
+	public CompletableFuture<String> exec(ProcessListener listener, String... args) {
+		CompletableFuture<String> stdOut = new CompletableFuture<>();
+		if (args.length == 0) {
+			stdOut.completeExceptionally(new GradleExecutionException("No wrapper args supplied"));
+			return stdOut;
+		}
+		Process process = new Process(projectRoot);
+		process.setUnixCommand(GRADLE_WRAPPER_UNIX);
+		process.setWindowsCommand(GRADLE_WRAPPER_WINDOWS);
+		CompletableFuture<ProcessResult> result;
 		try {
-			if (args.length == 0) {
-				throw new GradleExecutionException("No wrapper args supplied");
-			}
-			Process process = new Process(projectRoot);
-			process.setUnixCommand(GRADLE_WRAPPER_UNIX);
-			process.setWindowsCommand(GRADLE_WRAPPER_WINDOWS);
-			process.exec(args);
-			ProcessOutput processOutput = process.getProcessOutput();
-			String stdErrString = processOutput.getStdErr().lines().collect(Collectors.joining("\n"));
-			String stdOutString = processOutput.getStdOut().lines().collect(Collectors.joining("\n"));
-			process.close();
-			if (stdErrString.length() > 0) {
-				throw new GradleExecutionException(String.format("Error running gradle wrapper: %s", stdErrString));
-			}
-			return stdOutString;
+			result = process.exec(listener, args);
 		} catch (IOException | ProcessException e) {
-			throw new GradleExecutionException(String.format("Error running gradle wrapper: %s", e.getMessage()));
+			stdOut.completeExceptionally(
+					new GradleExecutionException(String.format("Error running gradle wrapper: %s", e.getMessage()), e));
+			return stdOut;
+		}
+		result.whenComplete((processResult, error) -> {
+			if (error != null) {
+				stdOut.completeExceptionally(new GradleExecutionException(
+						String.format("Error running gradle wrapper: %s", error.getMessage()), error));
+			} else if (processResult.getStdErr().length() > 0) {
+				stdOut.completeExceptionally(new GradleExecutionException(
+						String.format("Error running gradle wrapper: %s", processResult.getStdErr())));
+			} else {
+				stdOut.complete(processResult.getStdOut());
+			}
+		});
+		// cancelling the caller's future kills the process
+		stdOut.whenComplete((output, error) -> result.cancel(false));
+		return stdOut;
+	}
+
+	public String getGradleVersion() {
+		File propertiesFile = projectRoot.toPath().resolve(GRADLE_WRAPPER_PROPERTIES_PATH).toFile();
+		Properties properties = new Properties();
+		try (InputStream input = new FileInputStream(propertiesFile)) {
+			properties.load(input);
+		} catch (IOException e) {
+			return null;
+		}
+		String distributionUrl = properties.getProperty("distributionUrl");
+		if (distributionUrl == null) {
+			return null;
 		}
+		Matcher versionMatcher = DISTRIBUTION_VERSION_REGEX.matcher(distributionUrl);
+		return versionMatcher.find() ? versionMatcher.group(1) : null;
 	}
 
 	public static boolean hasValidWrapper(File projectRoot) {
@@ -0,0 +1,62 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram with exponential buckets, 8 per power of two
+ * between 1 microsecond and about 1 hour. Percentiles are reported as the upper
+ * bound of their bucket, so are at most ~9% high.
+ */
+public class LatencyHistogram {
+	private static final int BUCKETS_PER_DOUBLING = 8;
+	private static final int BUCKETS = 32 * BUCKETS_PER_DOUBLING;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	public void record(long nanos) {
+		counts.incrementAndGet(getBucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return the latency in milliseconds, or 0 if nothing was recorded
+	 */
+	public double getPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank && snapshot[i] > 0) {
+				return getUpperBound(i) / 1000.0;
+			}
+		}
+		return getUpperBound(BUCKETS - 1) / 1000.0;
+	}
+
+	static int getBucket(long micros) {
+		if (micros <= 1) {
+			return 0;
+		}
+		int bucket = (int) Math.ceil(Math.log(micros) / Math.log(2) * BUCKETS_PER_DOUBLING);
+		return Math.min(bucket, BUCKETS - 1);
+	}
+
+	// in microseconds
+	private static double getUpperBound(int bucket) {
+		return Math.pow(2, (double) bucket / BUCKETS_PER_DOUBLING);
+	}
+}
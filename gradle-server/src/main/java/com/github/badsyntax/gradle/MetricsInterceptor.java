@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records latency, in flight calls, messages, bytes and cancellations of every
+ * RPC in ServerMetrics, and makes the RPC's metrics available to the handler
+ * through the gRPC context.
+ */
+public class MetricsInterceptor implements ServerInterceptor {
+
+	@Override
+	public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+			ServerCallHandler<ReqT, RespT> next) {
+		ServerMetrics.MethodMetrics metrics = ServerMetrics.forMethod(call.getMethodDescriptor().getFullMethodName());
+		MeasuredServerCall<ReqT, RespT> measuredCall = new MeasuredServerCall<>(call, metrics);
+		Context context = Context.current().withValue(ServerMetrics.CURRENT_METHOD, metrics);
+		ServerCall.Listener<ReqT> listener = Contexts.interceptCall(context, measuredCall, headers, next);
+		return new SimpleForwardingServerCallListener<ReqT>(listener) {
+			@Override
+			public void onMessage(ReqT message) {
+				metrics.messageReceived(message);
+				super.onMessage(message);
+			}
+
+			@Override
+			public void onCancel() {
+				measuredCall.finish(Status.CANCELLED);
+				super.onCancel();
+			}
+		};
+	}
+
+	private static class MeasuredServerCall<ReqT, RespT> extends SimpleForwardingServerCall<ReqT, RespT> {
+		private final ServerMetrics.MethodMetrics metrics;
+		private final long startTime = System.nanoTime();
+		private final AtomicBoolean finished = new AtomicBoolean();
+
+		MeasuredServerCall(ServerCall<ReqT, RespT> call, ServerMetrics.MethodMetrics metrics) {
+			super(call);
+			this.metrics = metrics;
+			metrics.callStarted();
+		}
+
+		@Override
+		public void sendMessage(RespT message) {
+			metrics.messageSent(message);
+			super.sendMessage(message);
+		}
+
+		@Override
+		public void close(Status status, Metadata trailers) {
+			finish(status);
+			super.close(status, trailers);
+		}
+
+		void finish(Status status) {
+			if (finished.compareAndSet(false, true)) {
+				metrics.callFinished(System.nanoTime() - startTime, status);
+			}
+		}
+	}
+}
@@ -0,0 +1,220 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces stdout & stderr chunks into Output messages of up to
+ * MAX_BATCH_BYTES, or whatever has been written within MAX_BATCH_DELAY_MILLIS,
+ * and holds them back while the client isn't ready to receive more. Once the
+ * spill buffer is full, writers block until the client catches up.
+ *
+ * Output is copied once, into a pooled buffer that is wrapped by the Output
+ * message. The sink must run the supplied callback once the message has been
+ * sent, which hands the buffer back to the pool.
+ */
+public class OutputBatcher {
+	private static final Logger logger = LoggerFactory.getLogger(OutputBatcher.class.getName());
+
+	static final int MAX_BATCH_BYTES = OutputBufferPool.BUFFER_SIZE;
+	static final long MAX_BATCH_DELAY_MILLIS = 20;
+	static final int MAX_SPILL_BYTES = 1024 * 1024;
+	// onReady callbacks are queued behind the (blocking) service method, so poll
+	// isReady() as well
+	private static final long READY_POLL_MILLIS = 10;
+
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "gradle-output-batcher");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private static final AtomicLong totalCoalescedMessages = new AtomicLong();
+	private static final AtomicLong totalBlockedNanos = new AtomicLong();
+
+	private final ServerCallStreamObserver<?> flowControl;
+	private final BiConsumer<Output, Runnable> sink;
+	private final OutputBufferPool bufferPool;
+	private final Deque<PendingOutput> spill = new ArrayDeque<>();
+	private byte[] pending;
+	private int pendingLength;
+	private Output.OutputType pendingType;
+	private int pendingChunks;
+	private String taskPath = "";
+	private int spillBytes;
+	private ScheduledFuture<?> scheduledFlush;
+	private long coalescedMessages;
+	private long blockedNanos;
+
+	public OutputBatcher(StreamObserver<?> responseObserver, BiConsumer<Output, Runnable> sink) {
+		this(responseObserver, sink, OutputBufferPool.current());
+	}
+
+	OutputBatcher(StreamObserver<?> responseObserver, BiConsumer<Output, Runnable> sink, OutputBufferPool bufferPool) {
+		this.sink = sink;
+		this.bufferPool = bufferPool;
+		this.flowControl = responseObserver instanceof ServerCallStreamObserver
+				? (ServerCallStreamObserver<?>) responseObserver
+				: null;
+		if (flowControl != null) {
+			try {
+				flowControl.setOnReadyHandler(this::onReady);
+			} catch (IllegalStateException e) {
+				// the service method has already returned, rely on polling
+				logger.debug("Unable to set onReady handler: {}", e.getMessage());
+			}
+		}
+	}
+
+	public synchronized void write(Output.OutputType outputType, byte[] bytes, int offset, int length) {
+		if (length == 0) {
+			return;
+		}
+		if (pendingChunks > 0 && pendingType != outputType) {
+			emitPending();
+		}
+		pendingType = outputType;
+		pendingChunks++;
+		while (length > 0) {
+			if (pending == null) {
+				pending = bufferPool.acquire();
+			}
+			int copied = Math.min(length, pending.length - pendingLength);
+			System.arraycopy(bytes, offset, pending, pendingLength, copied);
+			pendingLength += copied;
+			offset += copied;
+			length -= copied;
+			if (pendingLength == pending.length) {
+				emitPending();
+				pendingType = outputType;
+				pendingChunks = length > 0 ? 1 : 0;
+			}
+		}
+		if (pendingChunks > 0 && scheduledFlush == null) {
+			scheduledFlush = scheduler.schedule(this::flushScheduled, MAX_BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		awaitSpill(MAX_SPILL_BYTES);
+	}
+
+	/**
+	 * Sends everything written so far, waiting for the client if needed. Call this
+	 * before replying with the result so no output is left behind it.
+	 */
+	public synchronized void flush() {
+		emitPending();
+		awaitSpill(0);
+		logger.debug("Output batching: {} messages coalesced, {}ms blocked", coalescedMessages,
+				TimeUnit.NANOSECONDS.toMillis(blockedNanos));
+	}
+
+	/**
+	 * Attributes the output written from now on to a task, or to none with an empty
+	 * path. Output written before is emitted under the previous task.
+	 */
+	public synchronized void setTaskPath(String taskPath) {
+		if (!this.taskPath.equals(taskPath)) {
+			emitPending();
+			this.taskPath = taskPath;
+		}
+	}
+
+	public static long getCoalescedMessages() {
+		return totalCoalescedMessages.get();
+	}
+
+	public static long getBlockedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(totalBlockedNanos.get());
+	}
+
+	private synchronized void flushScheduled() {
+		scheduledFlush = null;
+		// never block the shared scheduler thread, writers apply the backpressure
+		emitPending();
+	}
+
+	private synchronized void onReady() {
+		drainSpill();
+		notifyAll();
+	}
+
+	private void emitPending() {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		if (pendingChunks == 0) {
+			return;
+		}
+		Output output = Output.newBuilder().setOutputType(pendingType)
+				.setOutputBytes(UnsafeByteOperations.unsafeWrap(pending, 0, pendingLength)).setTaskPath(taskPath)
+				.build();
+		coalescedMessages += pendingChunks - 1;
+		totalCoalescedMessages.addAndGet(pendingChunks - 1L);
+		spill.add(new PendingOutput(output, pending));
+		spillBytes += pendingLength;
+		pending = null;
+		pendingLength = 0;
+		pendingChunks = 0;
+		drainSpill();
+	}
+
+	private void drainSpill() {
+		if (isCancelled()) {
+			spill.forEach(pendingOutput -> bufferPool.release(pendingOutput.buffer));
+			spill.clear();
+			spillBytes = 0;
+			return;
+		}
+		while (!spill.isEmpty() && (flowControl == null || flowControl.isReady())) {
+			PendingOutput pendingOutput = spill.poll();
+			spillBytes -= pendingOutput.output.getOutputBytes().size();
+			sink.accept(pendingOutput.output, () -> bufferPool.release(pendingOutput.buffer));
+		}
+	}
+
+	private void awaitSpill(int maxSpillBytes) {
+		if (spillBytes <= maxSpillBytes) {
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			while (spillBytes > maxSpillBytes && !isCancelled()) {
+				wait(READY_POLL_MILLIS);
+				drainSpill();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			long blocked = System.nanoTime() - start;
+			blockedNanos += blocked;
+			totalBlockedNanos.addAndGet(blocked);
+		}
+	}
+
+	private boolean isCancelled() {
+		return flowControl != null && flowControl.isCancelled();
+	}
+
+	private static class PendingOutput {
+		private final Output output;
+		private final byte[] buffer;
+
+		PendingOutput(Output output, byte[] buffer) {
+			this.output = output;
+			this.buffer = buffer;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size heap buffers for build output. Buffers are wrapped (not copied)
+ * into Output messages, so they can only be handed back once the message has
+ * been serialized by the transport.
+ *
+ * Each server has a pool of its own, made available to its calls through the
+ * gRPC context by {@link #interceptor()}.
+ */
+public class OutputBufferPool {
+	public static final int BUFFER_SIZE = 32 * 1024;
+	private static final int MAX_POOLED_BUFFERS = 64;
+
+	private static final Context.Key<OutputBufferPool> CURRENT = Context.key("output-buffer-pool");
+	// used outside of a server call
+	private static final OutputBufferPool UNPOOLED = new OutputBufferPool(false);
+
+	private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pooledBuffers = new AtomicInteger();
+	private final AtomicLong allocatedBuffers = new AtomicLong();
+	private final boolean recycling;
+
+	/**
+	 * @param recycling
+	 *            only for transports that copy a message into their own buffers
+	 *            while sending it. The in-process transport hands the message
+	 *            instance itself to the client.
+	 */
+	public OutputBufferPool(boolean recycling) {
+		this.recycling = recycling;
+	}
+
+	/** Returns the pool of the server running the current call. */
+	public static OutputBufferPool current() {
+		OutputBufferPool pool = CURRENT.get();
+		return pool != null ? pool : UNPOOLED;
+	}
+
+	public byte[] acquire() {
+		byte[] buffer = buffers.poll();
+		if (buffer == null) {
+			allocatedBuffers.incrementAndGet();
+			return new byte[BUFFER_SIZE];
+		}
+		pooledBuffers.decrementAndGet();
+		return buffer;
+	}
+
+	public void release(byte[] buffer) {
+		if (!recycling || buffer.length != BUFFER_SIZE) {
+			return;
+		}
+		if (pooledBuffers.incrementAndGet() > MAX_POOLED_BUFFERS) {
+			pooledBuffers.decrementAndGet();
+			return;
+		}
+		buffers.offer(buffer);
+	}
+
+	public boolean isRecycling() {
+		return recycling;
+	}
+
+	long getAllocatedBuffers() {
+		return allocatedBuffers.get();
+	}
+
+	/** Makes this pool the current one for the calls of a server. */
+	public ServerInterceptor interceptor() {
+		return new ServerInterceptor() {
+			@Override
+			public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+					ServerCallHandler<ReqT, RespT> next) {
+				Context context = Context.current().withValue(CURRENT, OutputBufferPool.this);
+				return Contexts.interceptCall(context, call, headers, next);
+			}
+		};
+	}
+}
@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import org.gradle.tooling.ProjectConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class PooledProjectConnection implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(PooledProjectConnection.class.getName());
+
+	private final String projectDir;
+	private final String fingerprint;
+	private final ProjectConnection connection;
+	private final GradleProjectConnectionType connectionType;
+	private final String localInstallation;
+	private int leases;
+	private long lastUsed;
+	private boolean evicted;
+
+	PooledProjectConnection(String projectDir, String fingerprint, ProjectConnection connection,
+			GradleProjectConnectionType connectionType, String localInstallation) {
+		this.projectDir = projectDir;
+		this.fingerprint = fingerprint;
+		this.connection = connection;
+		this.connectionType = connectionType;
+		this.localInstallation = localInstallation;
+		this.lastUsed = System.currentTimeMillis();
+	}
+
+	public ProjectConnection getConnection() {
+		return connection;
+	}
+
+	public String getProjectDir() {
+		return projectDir;
+	}
+
+	String getFingerprint() {
+		return fingerprint;
+	}
+
+	GradleProjectConnectionType getConnectionType() {
+		return connectionType;
+	}
+
+	String getLocalInstallation() {
+		return localInstallation;
+	}
+
+	// the methods below are guarded by the GradleProjectConnectionPool lock
+
+	void lease() {
+		leases++;
+		lastUsed = System.currentTimeMillis();
+	}
+
+	int release() {
+		leases--;
+		lastUsed = System.currentTimeMillis();
+		return leases;
+	}
+
+	boolean isLeased() {
+		return leases > 0;
+	}
+
+	long getLastUsed() {
+		return lastUsed;
+	}
+
+	void markEvicted() {
+		evicted = true;
+	}
+
+	boolean isEvicted() {
+		return evicted;
+	}
+
+	void closeConnection() {
+		try {
+			connection.close();
+		} catch (Exception e) {
+			logger.warn("Unable to close connection for {}: {}", projectDir, e.getMessage());
+		}
+	}
+
+	@Override
+	public void close() {
+		GradleProjectConnectionPool.release(this);
+	}
+}
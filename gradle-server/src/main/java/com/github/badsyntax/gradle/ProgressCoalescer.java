@@ -0,0 +1,150 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.gradle.tooling.events.FailureResult;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationDescriptor;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.StartEvent;
+import org.gradle.tooling.events.SuccessResult;
+import org.gradle.tooling.events.configuration.ProjectConfigurationOperationDescriptor;
+import org.gradle.tooling.events.lifecycle.BuildPhaseOperationDescriptor;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+import org.gradle.tooling.events.transform.TransformOperationDescriptor;
+
+/**
+ * Turns tooling API progress events into structured Progress replies, sending
+ * at most the latest state once per THROTTLE_MILLIS rather than every event.
+ */
+public class ProgressCoalescer implements ProgressListener {
+	static final long THROTTLE_MILLIS = 100;
+
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "gradle-progress-coalescer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final Consumer<Progress> sink;
+	private Progress latest;
+	private ScheduledFuture<?> scheduledFlush;
+	private long lastSent;
+	private int completed;
+	private int total;
+
+	public ProgressCoalescer(Consumer<Progress> sink) {
+		this.sink = sink;
+	}
+
+	@Override
+	public synchronized void statusChanged(ProgressEvent event) {
+		OperationDescriptor descriptor = event.getDescriptor();
+		if (descriptor instanceof BuildPhaseOperationDescriptor) {
+			if (event instanceof StartEvent) {
+				// eg the number of projects to configure, or tasks to run
+				total = ((BuildPhaseOperationDescriptor) descriptor).getBuildItemsCount();
+				completed = 0;
+			}
+			return;
+		}
+		Progress.OperationType operationType = getOperationType(descriptor);
+		Progress.EventType eventType = Progress.EventType.STATUS;
+		Progress.Outcome outcome = Progress.Outcome.NONE;
+		if (event instanceof StartEvent) {
+			eventType = Progress.EventType.START;
+		} else if (event instanceof FinishEvent) {
+			eventType = Progress.EventType.FINISH;
+			outcome = getOutcome(((FinishEvent) event).getResult());
+			if (operationType == Progress.OperationType.TASK
+					|| operationType == Progress.OperationType.PROJECT_CONFIGURATION) {
+				completed++;
+			}
+		}
+		latest = Progress.newBuilder().setMessage(event.getDisplayName()).setOperationType(operationType)
+				.setEventType(eventType).setPath(getPath(descriptor)).setOutcome(outcome).setCompleted(completed)
+				.setTotal(Math.max(total, completed)).build();
+		if (scheduledFlush != null) {
+			return;
+		}
+		long wait = lastSent + THROTTLE_MILLIS - System.currentTimeMillis();
+		if (wait <= 0) {
+			send();
+		} else {
+			scheduledFlush = scheduler.schedule(this::flushScheduled, wait, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Sends the latest state if it hasn't been sent yet. Call this before replying
+	 * with the result.
+	 */
+	public synchronized void flush() {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		send();
+	}
+
+	private synchronized void flushScheduled() {
+		scheduledFlush = null;
+		send();
+	}
+
+	private void send() {
+		if (latest == null) {
+			return;
+		}
+		sink.accept(latest);
+		latest = null;
+		lastSent = System.currentTimeMillis();
+	}
+
+	static Progress.OperationType getOperationType(OperationDescriptor descriptor) {
+		if (descriptor instanceof TaskOperationDescriptor) {
+			return Progress.OperationType.TASK;
+		} else if (descriptor instanceof ProjectConfigurationOperationDescriptor) {
+			return Progress.OperationType.PROJECT_CONFIGURATION;
+		} else if (descriptor instanceof TransformOperationDescriptor) {
+			return Progress.OperationType.TRANSFORM;
+		}
+		return Progress.OperationType.GENERIC;
+	}
+
+	private static String getPath(OperationDescriptor descriptor) {
+		if (descriptor instanceof TaskOperationDescriptor) {
+			return ((TaskOperationDescriptor) descriptor).getTaskPath();
+		} else if (descriptor instanceof ProjectConfigurationOperationDescriptor) {
+			return ((ProjectConfigurationOperationDescriptor) descriptor).getProject().getProjectPath();
+		}
+		return "";
+	}
+
+	static Progress.Outcome getOutcome(OperationResult result) {
+		if (result instanceof TaskSuccessResult) {
+			TaskSuccessResult taskResult = (TaskSuccessResult) result;
+			if (taskResult.isFromCache()) {
+				return Progress.Outcome.FROM_CACHE;
+			}
+			return taskResult.isUpToDate() ? Progress.Outcome.UP_TO_DATE : Progress.Outcome.SUCCESS;
+		} else if (result instanceof TaskSkippedResult) {
+			return Progress.Outcome.SKIPPED;
+		} else if (result instanceof FailureResult) {
+			return Progress.Outcome.FAILED;
+		} else if (result instanceof SuccessResult) {
+			return Progress.Outcome.SUCCESS;
+		}
+		return Progress.Outcome.NONE;
+	}
+}
@@ -0,0 +1,344 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.ForwardingServerCall.SimpleForwardingServerCall;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the builds and model queries running at once for each project
+ * directory. Calls over the limit wait in a queue without holding a thread, and
+ * start as the running ones close. A cancelled call keeps its permit until its
+ * handler returns, the build it started may still be running. Queued calls the
+ * executor rejects fail with RESOURCE_EXHAUSTED. Calls that build several
+ * projects, or one project again and again, take a permit for each build
+ * instead, see {@link #acquire}.
+ */
+public class ProjectConcurrencyInterceptor implements ServerInterceptor {
+	private static final Logger logger = LoggerFactory.getLogger(ProjectConcurrencyInterceptor.class.getName());
+	private static final Set<String> LIMITED_METHODS = new HashSet<>(Arrays.asList(
+			GradleGrpc.getGetBuildMethod().getFullMethodName(), GradleGrpc.getRunBuildMethod().getFullMethodName(),
+			GradleGrpc.getRunBuildsMethod().getFullMethodName(), GradleGrpc.getRunTestsMethod().getFullMethodName(),
+			GradleGrpc.getGetProjectDependenciesMethod().getFullMethodName()));
+	private static final Set<String> PER_BUILD_METHODS = new HashSet<>(Arrays.asList(
+			GradleGrpc.getGetBuildsMethod().getFullMethodName(), GradleGrpc.getWatchBuildMethod().getFullMethodName()));
+	private static final String PROJECT_DIR_FIELD = "project_dir";
+	private static final Context.Key<ProjectConcurrencyInterceptor> CURRENT = Context
+			.key("project-concurrency-interceptor");
+	private static final Permit UNLIMITED = () -> {
+	};
+
+	private final int maxCallsPerProject;
+	private final Executor executor;
+	private final Map<String, ProjectQueue> projects = new ConcurrentHashMap<>();
+
+	/**
+	 * @param executor
+	 *            runs the queued calls once a running call of the project closes
+	 */
+	public ProjectConcurrencyInterceptor(int maxCallsPerProject, Executor executor) {
+		this.maxCallsPerProject = maxCallsPerProject;
+		this.executor = executor;
+	}
+
+	@Override
+	public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+			ServerCallHandler<ReqT, RespT> next) {
+		String methodName = call.getMethodDescriptor().getFullMethodName();
+		if (maxCallsPerProject <= 0) {
+			return next.startCall(call, headers);
+		}
+		if (PER_BUILD_METHODS.contains(methodName)) {
+			return Contexts.interceptCall(Context.current().withValue(CURRENT, this), call, headers, next);
+		}
+		if (!LIMITED_METHODS.contains(methodName)) {
+			return next.startCall(call, headers);
+		}
+		GatedCall<ReqT, RespT> gatedCall = new GatedCall<>(call);
+		gatedCall.listener = next.startCall(gatedCall, headers);
+		return gatedCall.gatedListener;
+	}
+
+	/** A permit to build a project, closed once the build is done. */
+	public interface Permit extends AutoCloseable {
+		@Override
+		void close();
+	}
+
+	/**
+	 * Waits for a permit to build the project, shared with the calls of the
+	 * project, for the calls that build several projects or watch one.
+	 *
+	 * @return the permit, or null if the call was cancelled while waiting
+	 */
+	public static Permit acquire(String projectDir) {
+		ProjectConcurrencyInterceptor interceptor = CURRENT.get();
+		if (interceptor == null) {
+			return UNLIMITED;
+		}
+		CountDownLatch started = new CountDownLatch(1);
+		ProjectPermit permit = interceptor.new ProjectPermit(projectDir, started::countDown);
+		if (permit.acquire()) {
+			return permit::release;
+		}
+		Context context = Context.current();
+		Context.CancellationListener onCancel = cancelledContext -> started.countDown();
+		context.addListener(onCancel, MoreExecutors.directExecutor());
+		try {
+			started.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			context.removeListener(onCancel);
+		}
+		if (context.isCancelled() || Thread.currentThread().isInterrupted()) {
+			permit.cancel();
+			return null;
+		}
+		return permit::release;
+	}
+
+	int getQueuedCalls(String projectDir) {
+		ProjectQueue queue = projects.get(projectDir);
+		return queue == null ? 0 : queue.waiting.size();
+	}
+
+	/** @return whether a queue is kept for the project */
+	boolean hasQueue(String projectDir) {
+		return projects.containsKey(projectDir);
+	}
+
+	private static String getProjectDir(Object message) {
+		if (!(message instanceof Message)) {
+			return "";
+		}
+		Message request = (Message) message;
+		FieldDescriptor field = request.getDescriptorForType().findFieldByName(PROJECT_DIR_FIELD);
+		return field == null ? "" : String.valueOf(request.getField(field));
+	}
+
+	// updated within projects.compute, which serializes the permits of a project
+	private static class ProjectQueue {
+		private final Queue<ProjectPermit> waiting = new ConcurrentLinkedQueue<>();
+		private int running;
+
+		// the queue is dropped once the project is idle
+		ProjectQueue prune() {
+			return running == 0 && waiting.isEmpty() ? null : this;
+		}
+	}
+
+	private class ProjectPermit {
+		private final String projectDir;
+		// runs once a queued permit is handed over
+		private final Runnable onStart;
+		// guarded by the project queue
+		private boolean started;
+		private boolean released;
+
+		ProjectPermit(String projectDir, Runnable onStart) {
+			this.projectDir = projectDir;
+			this.onStart = onStart;
+		}
+
+		// takes the permit, or queues for it
+		boolean acquire() {
+			projects.compute(projectDir, (key, queue) -> {
+				if (queue == null) {
+					queue = new ProjectQueue();
+				}
+				if (queue.running < maxCallsPerProject) {
+					queue.running++;
+					started = true;
+				} else {
+					queue.waiting.add(this);
+				}
+				return queue;
+			});
+			return started;
+		}
+
+		void cancel() {
+			dequeue();
+			release();
+		}
+
+		// leaves the queue, a permit that has started keeps running
+		void dequeue() {
+			projects.computeIfPresent(projectDir, (key, queue) -> {
+				queue.waiting.remove(this);
+				return queue.prune();
+			});
+		}
+
+		// hands the permit over to the next queued one, if any
+		void release() {
+			ProjectPermit[] next = new ProjectPermit[1];
+			projects.computeIfPresent(projectDir, (key, queue) -> {
+				if (!started || released) {
+					return queue;
+				}
+				released = true;
+				next[0] = queue.waiting.poll();
+				if (next[0] == null) {
+					queue.running--;
+				} else {
+					next[0].started = true;
+				}
+				return queue.prune();
+			});
+			if (next[0] != null) {
+				next[0].onStart.run();
+			}
+		}
+	}
+
+	private class GatedCall<ReqT, RespT> extends SimpleForwardingServerCall<ReqT, RespT> {
+		private ServerCall.Listener<ReqT> listener;
+		private final ServerCall.Listener<ReqT> gatedListener;
+		private final Context context = Context.current();
+		// the callbacks of a queued call, in order, without holding a thread
+		private final SerializingExecutor callExecutor = new SerializingExecutor(executor);
+		private ProjectPermit permit;
+		private volatile boolean queued;
+		private volatile boolean cancelled;
+		private volatile boolean closed;
+		// the permit is released once the handler has returned and the call is done
+		private volatile boolean handlerReturned;
+
+		GatedCall(ServerCall<ReqT, RespT> call) {
+			super(call);
+			this.gatedListener = new SimpleForwardingServerCallListener<ReqT>(null) {
+				@Override
+				protected ServerCall.Listener<ReqT> delegate() {
+					return listener;
+				}
+
+				@Override
+				public void onMessage(ReqT message) {
+					permit = new ProjectPermit(getProjectDir(message), GatedCall.this::startQueuedLater);
+					super.onMessage(message);
+				}
+
+				@Override
+				public void onHalfClose() {
+					// the handler runs on half close, once the request has been received
+					if (permit == null) {
+						super.onHalfClose();
+					} else if (permit.acquire()) {
+						runHandler(super::onHalfClose);
+					} else {
+						queued = true;
+					}
+				}
+
+				@Override
+				public void onCancel() {
+					cancelled = true;
+					if (permit != null) {
+						if (handlerReturned) {
+							// an asynchronous handler may not close a cancelled call
+							permit.release();
+						} else {
+							// a running handler releases the permit as it returns
+							permit.dequeue();
+						}
+					}
+					deliver(super::onCancel);
+				}
+
+				@Override
+				public void onComplete() {
+					deliver(super::onComplete);
+				}
+
+				@Override
+				public void onReady() {
+					deliver(super::onReady);
+				}
+			};
+		}
+
+		@Override
+		public void close(Status status, Metadata trailers) {
+			super.close(status, trailers);
+			closed = true;
+			// a synchronous handler releases the permit as it returns
+			if (handlerReturned && permit != null) {
+				permit.release();
+			}
+		}
+
+		private void startQueuedLater() {
+			try {
+				callExecutor.execute(context.wrap(this::startQueued));
+			} catch (RejectedExecutionException e) {
+				logger.warn("Unable to start a queued call of {}: {}", permit.projectDir, e.getMessage());
+				if (!cancelled) {
+					close(Status.RESOURCE_EXHAUSTED.withDescription("The server is busy, try again later"),
+							new Metadata());
+				}
+				permit.release();
+			}
+		}
+
+		// runs the callbacks that follow the half close of a queued call after it
+		private void deliver(Runnable callback) {
+			if (!queued) {
+				callback.run();
+				return;
+			}
+			try {
+				callExecutor.execute(callback);
+			} catch (RejectedExecutionException e) {
+				logger.debug("Unable to notify a queued call of {}: {}", permit.projectDir, e.getMessage());
+			}
+		}
+
+		private void startQueued() {
+			if (cancelled) {
+				permit.release();
+				return;
+			}
+			runHandler(listener::onHalfClose);
+		}
+
+		// a synchronous handler has closed the call, or was cancelled, once it returns
+		private void runHandler(Runnable onHalfClose) {
+			boolean returned = false;
+			try {
+				onHalfClose.run();
+				returned = true;
+			} finally {
+				handlerReturned = true;
+				// gRPC closes the call of a failed handler without going through close()
+				if (!returned || closed || cancelled) {
+					permit.release();
+				}
+			}
+		}
+	}
+}
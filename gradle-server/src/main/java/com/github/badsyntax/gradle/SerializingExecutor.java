@@ -0,0 +1,58 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tasks one at a time, in the order they were submitted, on a shared
+ * executor. Like gRPC does for the callbacks of a call, without holding a
+ * thread between tasks.
+ */
+public class SerializingExecutor implements Executor {
+	private static final Logger logger = LoggerFactory.getLogger(SerializingExecutor.class.getName());
+
+	private final Executor delegate;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pending = new AtomicInteger();
+
+	public SerializingExecutor(Executor delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * @throws RejectedExecutionException
+	 *             if the delegate rejects the task, the tasks waiting behind it are
+	 *             dropped
+	 */
+	@Override
+	public void execute(Runnable task) {
+		tasks.add(task);
+		if (pending.getAndIncrement() == 0) {
+			try {
+				delegate.execute(this::drain);
+			} catch (RejectedExecutionException e) {
+				tasks.clear();
+				pending.set(0);
+				throw e;
+			}
+		}
+	}
+
+	private void drain() {
+		do {
+			try {
+				tasks.poll().run();
+			} catch (RuntimeException e) {
+				logger.error("Task failed: {}", e.getMessage(), e);
+			}
+		} while (pending.decrementAndGet() > 0);
+	}
+}
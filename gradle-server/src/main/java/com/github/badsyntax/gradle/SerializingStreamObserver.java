@@ -0,0 +1,74 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import io.grpc.stub.StreamObserver;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A per-call StreamObserver that can be written to from any number of threads
+ * (progress listeners, stdout & stderr) without locking. Signals are queued and
+ * drained in order by whichever producer finds the queue idle, so the delegate
+ * only ever sees one writer at a time.
+ */
+public class SerializingStreamObserver<T> implements StreamObserver<T> {
+	private static final Logger logger = LoggerFactory.getLogger(SerializingStreamObserver.class.getName());
+
+	private final StreamObserver<T> delegate;
+	private final Queue<Runnable> signals = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger pending = new AtomicInteger();
+
+	public SerializingStreamObserver(StreamObserver<T> delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void onNext(T value) {
+		emit(() -> delegate.onNext(value));
+	}
+
+	/**
+	 * Like onNext, but runs onSent once the delegate has taken the value, eg to
+	 * recycle buffers the value wraps.
+	 */
+	public void onNext(T value, Runnable onSent) {
+		emit(() -> {
+			try {
+				delegate.onNext(value);
+			} finally {
+				onSent.run();
+			}
+		});
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		emit(() -> delegate.onError(t));
+	}
+
+	@Override
+	public void onCompleted() {
+		emit(delegate::onCompleted);
+	}
+
+	private void emit(Runnable signal) {
+		signals.offer(signal);
+		if (pending.getAndIncrement() != 0) {
+			// another producer is draining and will pick this signal up
+			return;
+		}
+		do {
+			try {
+				signals.poll().run();
+			} catch (RuntimeException e) {
+				// eg the client cancelled the call, keep draining so the queue doesn't stall
+				logger.debug("Unable to send reply: {}", e.getMessage());
+			}
+		} while (pending.decrementAndGet() != 0);
+	}
+}
@@ -0,0 +1,71 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the executor the gRPC server runs calls on. Handlers block for the
+ * whole build, so this bounds how many builds hold a thread.
+ */
+public class ServerExecutors {
+	private static final Logger logger = LoggerFactory.getLogger(ServerExecutors.class.getName());
+
+	private ServerExecutors() {
+	}
+
+	/**
+	 * @return the executor, or null to keep gRPC's default cached thread pool
+	 */
+	public static ExecutorService create(ServerOptions options) {
+		switch (options.getExecutorMode()) {
+			case BOUNDED :
+				return newBoundedExecutor(options.getMaxThreads(), options.getQueueSize());
+			case VIRTUAL :
+				ExecutorService executor = newVirtualThreadExecutor();
+				if (executor != null) {
+					return executor;
+				}
+				logger.warn("Virtual threads require Java 21+, running on Java {}, using the default executor",
+						System.getProperty("java.version"));
+				return null;
+			default :
+				return null;
+		}
+	}
+
+	static ExecutorService newBoundedExecutor(int maxThreads, int queueSize) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueSize), newThreadFactory("gradle-server-call"));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	public static ThreadFactory newThreadFactory(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,189 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.google.common.base.Strings;
+import com.google.protobuf.MessageLite;
+import io.grpc.Context;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per RPC metrics, recorded by MetricsInterceptor and the handlers (for the
+ * time spent in the tooling API), and served by GetServerMetrics.
+ */
+public class ServerMetrics {
+	private static final Logger logger = LoggerFactory.getLogger(ServerMetrics.class.getName());
+
+	// seconds between metrics log dumps, disabled when unset
+	public static final String LOG_INTERVAL_ENV = "VSCODE_GRADLE_METRICS_LOG_INTERVAL";
+
+	static final Context.Key<MethodMetrics> CURRENT_METHOD = Context.key("gradle-server-method-metrics");
+
+	private static final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+	private static final long startTime = System.currentTimeMillis();
+	private static ScheduledExecutorService logScheduler;
+
+	private ServerMetrics() {
+	}
+
+	public static MethodMetrics forMethod(String fullMethodName) {
+		return methods.computeIfAbsent(fullMethodName, MethodMetrics::new);
+	}
+
+	/**
+	 * Runs a blocking tooling API call, adding its duration to the RPC being
+	 * handled on the current gRPC context, if any.
+	 */
+	public static <T> T timeToolingApi(Supplier<T> call) {
+		long start = System.nanoTime();
+		try {
+			return call.get();
+		} finally {
+			recordToolingApiTime(System.nanoTime() - start);
+		}
+	}
+
+	public static void runToolingApi(Runnable call) {
+		timeToolingApi(() -> {
+			call.run();
+			return null;
+		});
+	}
+
+	public static void recordToolingApiTime(long nanos) {
+		MethodMetrics metrics = CURRENT_METHOD.get();
+		if (metrics != null) {
+			metrics.toolingApiNanos.add(nanos);
+		}
+	}
+
+	public static GetServerMetricsReply getMetrics() {
+		GetServerMetricsReply.Builder reply = GetServerMetricsReply.newBuilder()
+				.setUptimeMillis(System.currentTimeMillis() - startTime);
+		List<MethodMetrics> snapshot = new ArrayList<>(methods.values());
+		snapshot.sort(Comparator.comparing(metrics -> metrics.method));
+		for (MethodMetrics metrics : snapshot) {
+			reply.addRpcs(metrics.toProto());
+		}
+		reply.addAllWarmUps(DaemonWarmUp.getMetrics());
+		return reply.build();
+	}
+
+	/** Starts logging the metrics periodically if LOG_INTERVAL_ENV is set. */
+	public static synchronized void startLogging() {
+		String interval = System.getenv(LOG_INTERVAL_ENV);
+		if (Strings.isNullOrEmpty(interval) || logScheduler != null) {
+			return;
+		}
+		long seconds;
+		try {
+			seconds = Long.parseLong(interval.trim());
+		} catch (NumberFormatException e) {
+			logger.warn("Ignoring invalid {}: {}", LOG_INTERVAL_ENV, interval);
+			return;
+		}
+		if (seconds <= 0) {
+			return;
+		}
+		logScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "gradle-server-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		logScheduler.scheduleAtFixedRate(ServerMetrics::log, seconds, seconds, TimeUnit.SECONDS);
+	}
+
+	public static synchronized void stopLogging() {
+		if (logScheduler != null) {
+			logScheduler.shutdownNow();
+			logScheduler = null;
+		}
+	}
+
+	private static void log() {
+		for (RpcMetrics metrics : getMetrics().getRpcsList()) {
+			logger.info(
+					"{}: calls={} inFlight={} errors={} cancelled={} p50={}ms p95={}ms p99={}ms sent={}/{}B received={}/{}B toolingApi={}ms",
+					metrics.getMethod(), metrics.getCalls(), metrics.getInFlight(), metrics.getErrors(),
+					metrics.getCancellations(), metrics.getLatencyP50Millis(), metrics.getLatencyP95Millis(),
+					metrics.getLatencyP99Millis(), metrics.getMessagesSent(), metrics.getBytesSent(),
+					metrics.getMessagesReceived(), metrics.getBytesReceived(), metrics.getToolingApiMillis());
+		}
+	}
+
+	static void reset() {
+		methods.clear();
+	}
+
+	public static class MethodMetrics {
+		private final String method;
+		private final LatencyHistogram latency = new LatencyHistogram();
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final LongAdder calls = new LongAdder();
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder cancellations = new LongAdder();
+		private final LongAdder messagesSent = new LongAdder();
+		private final LongAdder bytesSent = new LongAdder();
+		private final LongAdder messagesReceived = new LongAdder();
+		private final LongAdder bytesReceived = new LongAdder();
+		private final LongAdder toolingApiNanos = new LongAdder();
+
+		MethodMetrics(String method) {
+			this.method = method;
+		}
+
+		public void callStarted() {
+			calls.increment();
+			inFlight.incrementAndGet();
+		}
+
+		public void callFinished(long nanos, Status status) {
+			inFlight.decrementAndGet();
+			latency.record(nanos);
+			if (status.getCode() == Status.Code.CANCELLED) {
+				cancellations.increment();
+			} else if (!status.isOk()) {
+				errors.increment();
+			}
+		}
+
+		public void messageSent(Object message) {
+			messagesSent.increment();
+			bytesSent.add(getSize(message));
+		}
+
+		public void messageReceived(Object message) {
+			messagesReceived.increment();
+			bytesReceived.add(getSize(message));
+		}
+
+		private static int getSize(Object message) {
+			// protobuf memoizes the size, the transport computes it anyway
+			return message instanceof MessageLite ? ((MessageLite) message).getSerializedSize() : 0;
+		}
+
+		RpcMetrics toProto() {
+			return RpcMetrics.newBuilder().setMethod(method).setCalls(calls.sum()).setInFlight(inFlight.get())
+					.setErrors(errors.sum()).setCancellations(cancellations.sum())
+					.setLatencyP50Millis(latency.getPercentile(50)).setLatencyP95Millis(latency.getPercentile(95))
+					.setLatencyP99Millis(latency.getPercentile(99)).setMessagesSent(messagesSent.sum())
+					.setBytesSent(bytesSent.sum()).setMessagesReceived(messagesReceived.sum())
+					.setBytesReceived(bytesReceived.sum())
+					.setToolingApiMillis(TimeUnit.NANOSECONDS.toMillis(toolingApiNanos.sum())).build();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.google.common.base.Strings;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Options of the gradle server, from the command line (eg --executor=bounded)
+ * or the environment (eg VSCODE_GRADLE_SERVER_EXECUTOR=bounded). Command line
+ * options take precedence.
+ */
+public class ServerOptions {
+	public static final int DEFAULT_PORT = 8887;
+
+	static final String EXECUTOR_OPTION = "executor";
+	static final String MAX_THREADS_OPTION = "max-threads";
+	static final String QUEUE_SIZE_OPTION = "queue-size";
+	static final String MAX_CALLS_PER_PROJECT_OPTION = "max-calls-per-project";
+	static final String TRANSPORT_OPTION = "transport";
+	static final String SOCKET_PATH_OPTION = "socket-path";
+	static final String IN_PROCESS_NAME_OPTION = "in-process-name";
+
+	public enum ExecutorMode {
+		// gRPC's default, an unbounded cached thread pool
+		CACHED,
+		// a fixed number of threads with a bounded queue
+		BOUNDED,
+		// a virtual thread per task, Java 21+
+		VIRTUAL
+	}
+
+	public enum Transport {
+		// netty over loopback TCP, on the port
+		TCP,
+		// netty epoll over a unix domain socket, at the socket path, Linux only
+		UDS,
+		// in the same JVM, under the in process name, for tests & embedding
+		IN_PROCESS
+	}
+
+	private int port = DEFAULT_PORT;
+	private ExecutorMode executorMode = ExecutorMode.CACHED;
+	private int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+	private int queueSize = 256;
+	// builds & model queries per project, 0 for no limit
+	private int maxCallsPerProject = 0;
+	private Transport transport = Transport.TCP;
+	private String socketPath;
+	private String inProcessName = "vscode-gradle";
+
+	public static ServerOptions parse(String[] args, Map<String, String> env) {
+		ServerOptions options = new ServerOptions();
+		options.set(EXECUTOR_OPTION, env.get("VSCODE_GRADLE_SERVER_EXECUTOR"));
+		options.set(MAX_THREADS_OPTION, env.get("VSCODE_GRADLE_SERVER_MAX_THREADS"));
+		options.set(QUEUE_SIZE_OPTION, env.get("VSCODE_GRADLE_SERVER_QUEUE_SIZE"));
+		options.set(MAX_CALLS_PER_PROJECT_OPTION, env.get("VSCODE_GRADLE_SERVER_MAX_CALLS_PER_PROJECT"));
+		options.set(TRANSPORT_OPTION, env.get("VSCODE_GRADLE_SERVER_TRANSPORT"));
+		options.set(SOCKET_PATH_OPTION, env.get("VSCODE_GRADLE_SERVER_SOCKET_PATH"));
+		for (String arg : args) {
+			if (arg.startsWith("--")) {
+				int index = arg.indexOf('=');
+				if (index == -1) {
+					throw new IllegalArgumentException("Expected --option=value, got " + arg);
+				}
+				options.set(arg.substring(2, index), arg.substring(index + 1));
+			} else {
+				options.port = Integer.parseInt(arg);
+			}
+		}
+		return options;
+	}
+
+	private void set(String option, String value) {
+		if (Strings.isNullOrEmpty(value)) {
+			return;
+		}
+		switch (option) {
+			case EXECUTOR_OPTION :
+				executorMode = ExecutorMode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+				break;
+			case MAX_THREADS_OPTION :
+				maxThreads = parsePositive(option, value);
+				break;
+			case QUEUE_SIZE_OPTION :
+				queueSize = parsePositive(option, value);
+				break;
+			case MAX_CALLS_PER_PROJECT_OPTION :
+				maxCallsPerProject = Integer.parseInt(value.trim());
+				break;
+			case TRANSPORT_OPTION :
+				transport = Transport.valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+				break;
+			case SOCKET_PATH_OPTION :
+				socketPath = value;
+				break;
+			case IN_PROCESS_NAME_OPTION :
+				inProcessName = value;
+				break;
+			default :
+				throw new IllegalArgumentException("Unknown option: " + option);
+		}
+	}
+
+	private static int parsePositive(String option, String value) {
+		int number = Integer.parseInt(value.trim());
+		if (number <= 0) {
+			throw new IllegalArgumentException(option + " must be positive, got " + value);
+		}
+		return number;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public ExecutorMode getExecutorMode() {
+		return executorMode;
+	}
+
+	public int getMaxThreads() {
+		return maxThreads;
+	}
+
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public int getMaxCallsPerProject() {
+		return maxCallsPerProject;
+	}
+
+	public Transport getTransport() {
+		return transport;
+	}
+
+	public String getSocketPath() {
+		return socketPath;
+	}
+
+	public String getInProcessName() {
+		return inProcessName;
+	}
+}
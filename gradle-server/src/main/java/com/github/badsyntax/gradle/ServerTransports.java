@@ -0,0 +1,102 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.google.common.base.Strings;
+import io.grpc.ServerBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Creates the server builder of the transport the server listens on.
+ */
+public class ServerTransports {
+
+	private ServerTransports() {
+	}
+
+	public static ServerTransport create(ServerOptions options) throws IOException {
+		switch (options.getTransport()) {
+			case UDS :
+				return newDomainSocketTransport(options.getSocketPath());
+			case IN_PROCESS :
+				return new ServerTransport(InProcessServerBuilder.forName(options.getInProcessName()),
+						"in process server " + options.getInProcessName(), false, () -> {
+						});
+			default :
+				return new ServerTransport(NettyServerBuilder.forPort(options.getPort()), "port " + options.getPort(),
+						true, () -> {
+						});
+		}
+	}
+
+	private static ServerTransport newDomainSocketTransport(String socketPath) throws IOException {
+		if (Strings.isNullOrEmpty(socketPath)) {
+			throw new IllegalArgumentException("The uds transport requires --" + ServerOptions.SOCKET_PATH_OPTION);
+		}
+		if (!Epoll.isAvailable()) {
+			throw new IllegalStateException("The uds transport requires epoll, which is unavailable: "
+					+ Epoll.unavailabilityCause().getMessage());
+		}
+		File socketFile = new File(socketPath);
+		// left behind by a server that was killed
+		Files.deleteIfExists(socketFile.toPath());
+		EpollEventLoopGroup bossGroup = new EpollEventLoopGroup(1,
+				ServerExecutors.newThreadFactory("gradle-server-uds-boss"));
+		EpollEventLoopGroup workerGroup = new EpollEventLoopGroup(0,
+				ServerExecutors.newThreadFactory("gradle-server-uds-worker"));
+		NettyServerBuilder serverBuilder = NettyServerBuilder.forAddress(new DomainSocketAddress(socketFile))
+				.channelType(EpollServerDomainSocketChannel.class).bossEventLoopGroup(bossGroup)
+				.workerEventLoopGroup(workerGroup);
+		return new ServerTransport(serverBuilder, "unix socket " + socketFile, true, () -> {
+			bossGroup.shutdownGracefully();
+			workerGroup.shutdownGracefully();
+			socketFile.delete();
+		});
+	}
+
+	public static class ServerTransport {
+		private final ServerBuilder<?> serverBuilder;
+		private final String address;
+		private final boolean serializing;
+		private final Runnable onShutdown;
+
+		ServerTransport(ServerBuilder<?> serverBuilder, String address, boolean serializing, Runnable onShutdown) {
+			this.serverBuilder = serverBuilder;
+			this.address = address;
+			this.serializing = serializing;
+			this.onShutdown = onShutdown;
+		}
+
+		public ServerBuilder<?> getServerBuilder() {
+			return serverBuilder;
+		}
+
+		public String getAddress() {
+			return address;
+		}
+
+		/**
+		 * @return whether messages are serialized before onNext returns, the in process
+		 *         transport hands the messages over as they are
+		 */
+		public boolean isSerializing() {
+			return serializing;
+		}
+
+		/**
+		 * Releases the resources of the transport, once the server has terminated.
+		 */
+		public void shutdown() {
+			onShutdown.run();
+		}
+	}
+}
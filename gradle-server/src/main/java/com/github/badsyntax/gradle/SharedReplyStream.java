@@ -0,0 +1,208 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The reply stream of one handler, shared by any number of calls. Calls that
+ * subscribe late are first sent the replayable replies they missed. Flow
+ * control follows the slowest subscriber, and the stream counts as cancelled
+ * once every subscriber has gone.
+ */
+public class SharedReplyStream<T> extends ServerCallStreamObserver<T> {
+	private static final Logger logger = LoggerFactory.getLogger(SharedReplyStream.class.getName());
+
+	private final Predicate<T> replayable;
+	private final Supplier<T> cancelledReply;
+	private final Runnable onClosed;
+	private final List<Subscriber<T>> subscribers = new ArrayList<>();
+	private final List<T> history = new ArrayList<>();
+	private volatile Runnable onReadyHandler;
+	private Runnable onCancelHandler;
+	private boolean closed;
+	private boolean cancelled;
+
+	/**
+	 * @param replayable
+	 *            whether a reply is sent to calls that subscribe after it, eg
+	 *            results but not progress
+	 * @param cancelledReply
+	 *            the last reply of a call that unsubscribes
+	 * @param onClosed
+	 *            runs once the stream completes or fails, or every subscriber has
+	 *            gone
+	 */
+	public SharedReplyStream(Predicate<T> replayable, Supplier<T> cancelledReply, Runnable onClosed) {
+		this.replayable = replayable;
+		this.cancelledReply = cancelledReply;
+		this.onClosed = onClosed;
+	}
+
+	/**
+	 * @return false if the stream has already closed
+	 */
+	public synchronized boolean subscribe(StreamObserver<T> responseObserver) {
+		if (closed) {
+			return false;
+		}
+		Subscriber<T> subscriber = new Subscriber<>(responseObserver);
+		subscribers.add(subscriber);
+		if (subscriber.call != null) {
+			subscriber.call.setOnCancelHandler(() -> unsubscribe(subscriber, false));
+			subscriber.call.setOnReadyHandler(this::onReady);
+		}
+		for (T reply : history) {
+			send(subscriber, reply);
+		}
+		return true;
+	}
+
+	/**
+	 * Completes the subscription of the call, with the cancelled reply. The stream
+	 * is cancelled once no subscriber is left.
+	 */
+	public synchronized void unsubscribe(StreamObserver<T> responseObserver) {
+		subscribers.stream().filter(subscriber -> subscriber.observer == responseObserver).findFirst()
+				.ifPresent(subscriber -> unsubscribe(subscriber, true));
+	}
+
+	public synchronized int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	@Override
+	public synchronized void onNext(T value) {
+		if (closed) {
+			return;
+		}
+		if (replayable.test(value)) {
+			history.add(value);
+		}
+		for (Subscriber<T> subscriber : subscribers) {
+			send(subscriber, value);
+		}
+	}
+
+	@Override
+	public synchronized void onError(Throwable t) {
+		if (close()) {
+			subscribers.forEach(subscriber -> run(() -> subscriber.observer.onError(t)));
+		}
+	}
+
+	@Override
+	public synchronized void onCompleted() {
+		if (close()) {
+			subscribers.forEach(subscriber -> run(subscriber.observer::onCompleted));
+		}
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public synchronized void setOnCancelHandler(Runnable onCancelHandler) {
+		this.onCancelHandler = onCancelHandler;
+	}
+
+	@Override
+	public synchronized boolean isReady() {
+		return subscribers.stream().allMatch(subscriber -> subscriber.call == null || subscriber.call.isReady());
+	}
+
+	@Override
+	public void setOnReadyHandler(Runnable onReadyHandler) {
+		this.onReadyHandler = onReadyHandler;
+	}
+
+	@Override
+	public void setCompression(String compression) {
+		// each subscriber keeps its own settings
+	}
+
+	@Override
+	public void disableAutoInboundFlowControl() {
+		// unary requests, nothing to flow control
+	}
+
+	@Override
+	public void request(int count) {
+		// unary requests, nothing to flow control
+	}
+
+	@Override
+	public void setMessageCompression(boolean enable) {
+		// each subscriber keeps its own settings
+	}
+
+	private void onReady() {
+		Runnable handler = onReadyHandler;
+		if (handler != null) {
+			handler.run();
+		}
+	}
+
+	private void unsubscribe(Subscriber<T> subscriber, boolean reply) {
+		Runnable handler = null;
+		synchronized (this) {
+			if (!subscribers.remove(subscriber)) {
+				return;
+			}
+			if (reply) {
+				send(subscriber, cancelledReply.get());
+				run(subscriber.observer::onCompleted);
+			}
+			if (subscribers.isEmpty() && close()) {
+				cancelled = true;
+				handler = onCancelHandler;
+			}
+		}
+		if (handler != null) {
+			handler.run();
+		}
+	}
+
+	private boolean close() {
+		if (closed) {
+			return false;
+		}
+		closed = true;
+		history.clear();
+		onClosed.run();
+		return true;
+	}
+
+	private static <T> void send(Subscriber<T> subscriber, T value) {
+		run(() -> subscriber.observer.onNext(value));
+	}
+
+	private static void run(Runnable signal) {
+		try {
+			signal.run();
+		} catch (RuntimeException e) {
+			// eg the client cancelled the call, the other subscribers still get the reply
+			logger.debug("Unable to send reply: {}", e.getMessage());
+		}
+	}
+
+	private static class Subscriber<T> {
+		private final StreamObserver<T> observer;
+		private final ServerCallStreamObserver<T> call;
+
+		Subscriber(StreamObserver<T> observer) {
+			this.observer = observer;
+			this.call = observer instanceof ServerCallStreamObserver ? (ServerCallStreamObserver<T>) observer : null;
+		}
+	}
+}
@@ -0,0 +1,215 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Searches the tasks of the last model GetBuild fetched, so that a client can
+ * page through the tasks of a large build rather than filter all of them. The
+ * index is built on the first query, and dropped once the model is refreshed.
+ * The result of the last query is kept, so the next pages of it are sub lists.
+ */
+public class TaskIndex {
+	private static final Map<String, TaskIndex> indexes = new ConcurrentHashMap<>();
+	private static final AtomicLong generations = new AtomicLong();
+
+	// ranks of a match, best first
+	private static final int NAME_EXACT = 0;
+	private static final int NAME_PREFIX = 1;
+	private static final int PATH_PREFIX = 2;
+	private static final int NAME_OR_PATH_CONTAINS = 3;
+	private static final int GROUP_OR_DESCRIPTION_CONTAINS = 4;
+	private static final int NAME_FUZZY = 5;
+	private static final int NO_MATCH = -1;
+
+	private final GradleBuild build;
+	private final long generation = generations.incrementAndGet();
+	private List<Entry> entries;
+	private Map<String, List<GradleTask>> projectTasks;
+	// guarded by this
+	private String lastQuery;
+	private List<GradleTask> lastResult;
+
+	private TaskIndex(GradleBuild build) {
+		this.build = build;
+	}
+
+	/** Replaces the model of a build, called each time GetBuild sends one. */
+	public static void update(String projectDir, GradleBuild build) {
+		indexes.put(getKey(projectDir), new TaskIndex(build));
+	}
+
+	public static void invalidate(String projectDir) {
+		indexes.remove(getKey(projectDir));
+	}
+
+	/** Returns the index of a build, or null if no model was fetched for it. */
+	public static TaskIndex get(String projectDir) {
+		return indexes.get(getKey(projectDir));
+	}
+
+	/**
+	 * @return a number that changes each time the model of the build is replaced
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Matches the query, ignoring case, as a prefix of the task name or path, then
+	 * within the name, path, group or description, then as a subsequence of the
+	 * name (eg cJ for compileJava).
+	 *
+	 * @return the matching tasks, best matches first, or every task by path for an
+	 *         empty query
+	 */
+	public List<GradleTask> search(String query) {
+		String lowerCaseQuery = query.trim().toLowerCase(Locale.ROOT);
+		synchronized (this) {
+			if (lowerCaseQuery.equals(lastQuery)) {
+				return lastResult;
+			}
+		}
+		List<GradleTask> result = Collections.unmodifiableList(rank(lowerCaseQuery));
+		synchronized (this) {
+			lastQuery = lowerCaseQuery;
+			lastResult = result;
+		}
+		return result;
+	}
+
+	private List<GradleTask> rank(String lowerCaseQuery) {
+		List<Entry> allEntries = getEntries();
+		if (lowerCaseQuery.isEmpty()) {
+			return allEntries.stream().map(entry -> entry.task).collect(Collectors.toList());
+		}
+		List<Match> matches = new ArrayList<>();
+		for (Entry entry : allEntries) {
+			int rank = entry.match(lowerCaseQuery);
+			if (rank != NO_MATCH) {
+				matches.add(new Match(entry, rank));
+			}
+		}
+		// entries are sorted by path, the sort is stable
+		matches.sort(Comparator.comparingInt(match -> match.rank));
+		return matches.stream().map(match -> match.entry.task).collect(Collectors.toList());
+	}
+
+	/**
+	 * @return the tasks of a project, without those of its sub projects, or null if
+	 *         the project isn't in the model
+	 */
+	public synchronized List<GradleTask> getTasks(String projectPath) {
+		if (projectTasks == null) {
+			projectTasks = new HashMap<>();
+			if (build.hasProject()) {
+				addProjectTasks(build.getProject());
+			}
+		}
+		return projectTasks.get(projectPath);
+	}
+
+	private synchronized List<Entry> getEntries() {
+		if (entries == null) {
+			entries = new ArrayList<>();
+			if (build.hasProject()) {
+				addEntries(build.getProject());
+			}
+			entries.sort(Comparator.comparing(entry -> entry.path));
+		}
+		return entries;
+	}
+
+	private void addEntries(GradleProject project) {
+		for (GradleTask task : project.getTasksList()) {
+			entries.add(new Entry(task));
+		}
+		for (GradleProject subProject : project.getProjectsList()) {
+			addEntries(subProject);
+		}
+	}
+
+	private void addProjectTasks(GradleProject project) {
+		projectTasks.put(project.getProjectPath(), project.getTasksList());
+		for (GradleProject subProject : project.getProjectsList()) {
+			addProjectTasks(subProject);
+		}
+	}
+
+	private static String getKey(String projectDir) {
+		return new File(projectDir).getAbsolutePath();
+	}
+
+	/** A task with the fields that are searched, in lower case. */
+	private static class Entry {
+		private final GradleTask task;
+		private final String name;
+		private final String path;
+		private final String group;
+		private final String description;
+
+		Entry(GradleTask task) {
+			this.task = task;
+			this.name = task.getName().toLowerCase(Locale.ROOT);
+			this.path = task.getPath().toLowerCase(Locale.ROOT);
+			this.group = task.getGroup().toLowerCase(Locale.ROOT);
+			this.description = task.getDescription().toLowerCase(Locale.ROOT);
+		}
+
+		int match(String query) {
+			if (name.equals(query)) {
+				return NAME_EXACT;
+			}
+			if (name.startsWith(query)) {
+				return NAME_PREFIX;
+			}
+			if (path.startsWith(query)) {
+				return PATH_PREFIX;
+			}
+			if (name.contains(query) || path.contains(query)) {
+				return NAME_OR_PATH_CONTAINS;
+			}
+			if (group.contains(query) || description.contains(query)) {
+				return GROUP_OR_DESCRIPTION_CONTAINS;
+			}
+			if (isSubsequence(query, name)) {
+				return NAME_FUZZY;
+			}
+			return NO_MATCH;
+		}
+
+		private static boolean isSubsequence(String query, String text) {
+			int position = 0;
+			for (int i = 0; i < query.length(); i++) {
+				position = text.indexOf(query.charAt(i), position);
+				if (position < 0) {
+					return false;
+				}
+				position++;
+			}
+			return true;
+		}
+	}
+
+	private static class Match {
+		private final Entry entry;
+		private final int rank;
+
+		Match(Entry entry, int rank) {
+			this.entry = entry;
+			this.rank = rank;
+		}
+	}
+}
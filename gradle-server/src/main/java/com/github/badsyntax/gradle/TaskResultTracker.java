@@ -0,0 +1,125 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import org.gradle.tooling.Failure;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.StartEvent;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+
+/**
+ * Turns the task events of a build running several tasks into a TaskResult per
+ * task start & finish, and attributes the output to the running task. Gradle
+ * doesn't tell which task wrote the output, so it's only attributed while a
+ * single task runs.
+ */
+public class TaskResultTracker implements ProgressListener {
+	private final List<String> requestedTasks;
+	private final Consumer<TaskResult> sink;
+	private final OutputBatcher outputBatcher;
+	private final Set<String> runningTasks = new LinkedHashSet<>();
+	// the last result of each requested task
+	private final Map<String, TaskResult> requestedResults = new LinkedHashMap<>();
+
+	public TaskResultTracker(List<String> requestedTasks, Consumer<TaskResult> sink, OutputBatcher outputBatcher) {
+		this.requestedTasks = requestedTasks;
+		this.sink = sink;
+		this.outputBatcher = outputBatcher;
+	}
+
+	@Override
+	public void statusChanged(ProgressEvent event) {
+		if (!(event.getDescriptor() instanceof TaskOperationDescriptor)
+				|| !(event instanceof StartEvent || event instanceof FinishEvent)) {
+			return;
+		}
+		String path = ((TaskOperationDescriptor) event.getDescriptor()).getTaskPath();
+		TaskResult.Builder taskResult = TaskResult.newBuilder().setPath(path).setRequested(isRequested(path));
+		synchronized (this) {
+			if (event instanceof StartEvent) {
+				runningTasks.add(path);
+				taskResult.setEventType(Progress.EventType.START);
+			} else {
+				runningTasks.remove(path);
+				OperationResult result = ((FinishEvent) event).getResult();
+				taskResult.setEventType(Progress.EventType.FINISH).setOutcome(ProgressCoalescer.getOutcome(result))
+						.setDurationMillis(result.getEndTime() - result.getStartTime());
+				if (result instanceof TaskFailureResult) {
+					taskResult.setFailure(getFailure((TaskFailureResult) result));
+				}
+			}
+			if (outputBatcher != null) {
+				outputBatcher.setTaskPath(runningTasks.size() == 1 ? runningTasks.iterator().next() : "");
+			}
+			if (taskResult.getRequested()) {
+				requestedResults.put(path, taskResult.build());
+			}
+		}
+		sink.accept(taskResult.build());
+	}
+
+	/**
+	 * @return the last result of every requested task that ran, in request order
+	 */
+	public synchronized List<TaskResult> getRequestedResults() {
+		List<TaskResult> results = new ArrayList<>();
+		for (String requestedTask : requestedTasks) {
+			boolean ran = false;
+			for (TaskResult result : requestedResults.values()) {
+				if (matches(requestedTask, result.getPath())) {
+					results.add(result);
+					ran = true;
+				}
+			}
+			if (!ran) {
+				results.add(TaskResult.newBuilder().setPath(requestedTask).setRequested(true).build());
+			}
+		}
+		return results;
+	}
+
+	private boolean isRequested(String path) {
+		for (String requestedTask : requestedTasks) {
+			if (matches(requestedTask, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * As on the command line: an absolute path, a path relative to the root
+	 * project, or a name that selects the task in every project.
+	 */
+	static boolean matches(String requestedTask, String path) {
+		if (requestedTask.startsWith(":")) {
+			return requestedTask.equals(path);
+		}
+		if (requestedTask.contains(":")) {
+			return path.equals(":" + requestedTask);
+		}
+		return path.endsWith(":" + requestedTask);
+	}
+
+	private static String getFailure(TaskFailureResult result) {
+		List<String> messages = new ArrayList<>();
+		for (Failure failure : result.getFailures()) {
+			if (failure.getMessage() != null) {
+				messages.add(failure.getMessage());
+			}
+		}
+		return String.join("\n", messages);
+	}
+}
@@ -0,0 +1,122 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.gradle.tooling.Failure;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationResult;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.ProgressListener;
+import org.gradle.tooling.events.StartEvent;
+import org.gradle.tooling.events.test.JvmTestKind;
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor;
+import org.gradle.tooling.events.test.TestFailureResult;
+import org.gradle.tooling.events.test.TestOperationDescriptor;
+import org.gradle.tooling.events.test.TestSkippedResult;
+import org.gradle.tooling.events.test.TestSuccessResult;
+
+/**
+ * Turns the TEST progress events into a TestEvent per test start & finish, and
+ * counts the outcomes of the test methods.
+ */
+public class TestEventTracker implements ProgressListener {
+	private final Consumer<TestEvent> sink;
+	private int passed;
+	private int skipped;
+	private int failures;
+
+	public TestEventTracker(Consumer<TestEvent> sink) {
+		this.sink = sink;
+	}
+
+	@Override
+	public void statusChanged(ProgressEvent event) {
+		if (!(event.getDescriptor() instanceof TestOperationDescriptor)
+				|| !(event instanceof StartEvent || event instanceof FinishEvent)) {
+			return;
+		}
+		TestOperationDescriptor descriptor = (TestOperationDescriptor) event.getDescriptor();
+		TestEvent.Builder testEvent = TestEvent.newBuilder().setDisplayName(descriptor.getDisplayName());
+		if (descriptor instanceof JvmTestOperationDescriptor) {
+			JvmTestOperationDescriptor jvmDescriptor = (JvmTestOperationDescriptor) descriptor;
+			testEvent.setKind(getKind(jvmDescriptor));
+			if (jvmDescriptor.getClassName() != null) {
+				testEvent.setClassName(jvmDescriptor.getClassName());
+			}
+			if (jvmDescriptor.getMethodName() != null) {
+				testEvent.setMethodName(jvmDescriptor.getMethodName());
+			}
+		}
+		if (event instanceof StartEvent) {
+			testEvent.setEventType(Progress.EventType.START);
+		} else {
+			OperationResult result = ((FinishEvent) event).getResult();
+			testEvent.setEventType(Progress.EventType.FINISH).setOutcome(getOutcome(result))
+					.setDurationMillis(result.getEndTime() - result.getStartTime());
+			if (result instanceof TestFailureResult) {
+				testEvent.setFailure(getFailure((TestFailureResult) result));
+			}
+			if (testEvent.getKind() == TestEvent.Kind.METHOD) {
+				count(testEvent.getOutcome());
+			}
+		}
+		sink.accept(testEvent.build());
+	}
+
+	public synchronized int getPassed() {
+		return passed;
+	}
+
+	public synchronized int getSkipped() {
+		return skipped;
+	}
+
+	public synchronized int getFailures() {
+		return failures;
+	}
+
+	private synchronized void count(Progress.Outcome outcome) {
+		if (outcome == Progress.Outcome.SUCCESS) {
+			passed++;
+		} else if (outcome == Progress.Outcome.SKIPPED) {
+			skipped++;
+		} else if (outcome == Progress.Outcome.FAILED) {
+			failures++;
+		}
+	}
+
+	private static TestEvent.Kind getKind(JvmTestOperationDescriptor descriptor) {
+		if (descriptor.getJvmTestKind() == JvmTestKind.ATOMIC) {
+			return TestEvent.Kind.METHOD;
+		}
+		if (descriptor.getClassName() != null && descriptor.getMethodName() == null) {
+			return TestEvent.Kind.CLASS;
+		}
+		return TestEvent.Kind.SUITE;
+	}
+
+	private static Progress.Outcome getOutcome(OperationResult result) {
+		if (result instanceof TestSuccessResult) {
+			return Progress.Outcome.SUCCESS;
+		} else if (result instanceof TestSkippedResult) {
+			return Progress.Outcome.SKIPPED;
+		} else if (result instanceof TestFailureResult) {
+			return Progress.Outcome.FAILED;
+		}
+		return Progress.Outcome.NONE;
+	}
+
+	private static String getFailure(TestFailureResult result) {
+		List<String> messages = new ArrayList<>();
+		for (Failure failure : result.getFailures()) {
+			if (failure.getMessage() != null) {
+				messages.add(failure.getMessage());
+			}
+		}
+		return String.join("\n", messages);
+	}
+}
@@ -0,0 +1,16 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.exceptions;
+
+public class DaemonRegistryException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	public DaemonRegistryException(String message) {
+		super(message);
+	}
+
+	public DaemonRegistryException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
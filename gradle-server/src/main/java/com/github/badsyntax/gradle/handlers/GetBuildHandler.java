@@ -2,54 +2,68 @@ package com.github.badsyntax.gradle.handlers;
 
 import com.github.badsyntax.gradle.ByteBufferOutputStream;
 import com.github.badsyntax.gradle.Cancelled;
+import com.github.badsyntax.gradle.DaemonWarmUp;
+import com.github.badsyntax.gradle.DependencyGraph;
+import com.github.badsyntax.gradle.DependencyGraphBuilder;
+import com.github.badsyntax.gradle.DependencyInsightIndex;
 import com.github.badsyntax.gradle.DependencyItem;
 import com.github.badsyntax.gradle.Environment;
 import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.GetBuildProjectResult;
 import com.github.badsyntax.gradle.GetBuildReply;
 import com.github.badsyntax.gradle.GetBuildRequest;
 import com.github.badsyntax.gradle.GetBuildResult;
 import com.github.badsyntax.gradle.GradleBuild;
 import com.github.badsyntax.gradle.GradleBuildCancellation;
+import com.github.badsyntax.gradle.GradleConfig;
 import com.github.badsyntax.gradle.GradleEnvironment;
+import com.github.badsyntax.gradle.GradleModelCache;
 import com.github.badsyntax.gradle.GradleProject;
-import com.github.badsyntax.gradle.GradleProjectConnector;
+import com.github.badsyntax.gradle.GradleProjectConnectionPool;
 import com.github.badsyntax.gradle.GradleTask;
 import com.github.badsyntax.gradle.GrpcGradleClosure;
 import com.github.badsyntax.gradle.GrpcGradleField;
 import com.github.badsyntax.gradle.GrpcGradleMethod;
 import com.github.badsyntax.gradle.JavaEnvironment;
 import com.github.badsyntax.gradle.Output;
+import com.github.badsyntax.gradle.OutputBatcher;
+import com.github.badsyntax.gradle.PooledProjectConnection;
 import com.github.badsyntax.gradle.Progress;
+import com.github.badsyntax.gradle.ProgressCoalescer;
+import com.github.badsyntax.gradle.SerializingStreamObserver;
+import com.github.badsyntax.gradle.ServerMetrics;
+import com.github.badsyntax.gradle.TaskIndex;
 import com.github.badsyntax.gradle.utils.PluginUtils;
 import com.github.badsyntax.gradle.utils.Utils;
 import com.google.common.base.Strings;
-import com.google.protobuf.ByteString;
+import com.microsoft.gradle.api.GradleBuildModel;
+import com.microsoft.gradle.api.GradleBuildModelAction;
 import com.microsoft.gradle.api.GradleClosure;
 import com.microsoft.gradle.api.GradleDependencyNode;
+import com.microsoft.gradle.api.GradleEnvironmentModel;
 import com.microsoft.gradle.api.GradleField;
 import com.microsoft.gradle.api.GradleMethod;
-import com.microsoft.gradle.api.GradleModelAction;
 import com.microsoft.gradle.api.GradleProjectModel;
 import io.github.g00fy2.versioncompare.Version;
 import io.grpc.stub.StreamObserver;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 import org.gradle.internal.service.ServiceCreationException;
 import org.gradle.tooling.BuildActionExecuter;
 import org.gradle.tooling.BuildCancelledException;
 import org.gradle.tooling.CancellationToken;
 import org.gradle.tooling.GradleConnectionException;
-import org.gradle.tooling.GradleConnector;
 import org.gradle.tooling.ModelBuilder;
 import org.gradle.tooling.ProjectConnection;
 import org.gradle.tooling.events.OperationType;
-import org.gradle.tooling.events.ProgressEvent;
-import org.gradle.tooling.events.ProgressListener;
 import org.gradle.tooling.model.build.BuildEnvironment;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,78 +72,133 @@ public class GetBuildHandler {
 	private static final Logger logger = LoggerFactory.getLogger(GetBuildHandler.class.getName());
 
 	private GetBuildRequest req;
-	private StreamObserver<GetBuildReply> responseObserver;
-	private ProgressListener progressListener;
+	private SerializingStreamObserver<GetBuildReply> responseObserver;
+	private ProgressCoalescer progressListener;
 	private ByteBufferOutputStream standardOutputListener;
 	private ByteBufferOutputStream standardErrorListener;
+	private OutputBatcher outputBatcher;
 	private Environment environment;
+	private Environment sentEnvironment;
+	private String fingerprint;
+	private DependencyGraphBuilder dependencyGraph;
+	// the streamed projects by the path of their parent, the root project under ""
+	private Map<String, List<GradleProject>> streamedProjects;
 
 	public GetBuildHandler(GetBuildRequest req, StreamObserver<GetBuildReply> responseObserver) {
 		this.req = req;
-		this.responseObserver = responseObserver;
-		this.progressListener = (ProgressEvent event) -> {
-			synchronized (GetBuildHandler.class) {
-				replyWithProgress(event);
-			}
-		};
+		this.responseObserver = new SerializingStreamObserver<>(responseObserver);
+		this.outputBatcher = new OutputBatcher(responseObserver, this::replyWithOutput);
+		this.progressListener = new ProgressCoalescer(this::replyWithProgress);
 		this.standardOutputListener = new ByteBufferOutputStream() {
 			@Override
-			public void onFlush(byte[] bytes) {
-				synchronized (GetBuildHandler.class) {
-					replyWithStandardOutput(bytes);
-				}
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDOUT, bytes, offset, length);
 			}
 		};
 		this.standardErrorListener = new ByteBufferOutputStream() {
 			@Override
-			public void onFlush(byte[] bytes) {
-				synchronized (GetBuildHandler.class) {
-					replyWithStandardError(bytes);
-				}
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDERR, bytes, offset, length);
 			}
 		};
 	}
 
 	public void run() {
-		GradleConnector gradleConnector = GradleProjectConnector.build(req.getProjectDir(), req.getGradleConfig());
-		try (ProjectConnection connection = gradleConnector.connect()) {
-			this.environment = buildEnvironment(connection);
-			replyWithBuildEnvironment(this.environment);
-			BuildActionExecuter<GradleProjectModel> action = connection.action(new GradleModelAction());
-			if (action == null) {
+		GradleModelCache.CachedModel cachedModel = getCachedModel();
+		GradleBuild cachedBuild = cachedModel != null ? cachedModel.getBuild() : null;
+		if (cachedBuild != null) {
+			indexBuild(cachedBuild);
+			if (cachedModel.getEnvironment() != null) {
+				// the client shows the daemons of the roots it has an environment for
+				replyWithBuildEnvironment(cachedModel.getEnvironment());
+			}
+			replyWithBuild(cachedBuild, true);
+			if (!GradleModelCache.needsRevalidation(req.getProjectDir(), fingerprint)) {
 				responseObserver.onCompleted();
+				warmUp();
 				return;
 			}
-			List<String> arguments = new ArrayList<>();
-			String debugPlugin = System.getenv("VSCODE_DEBUG_PLUGIN");
-			if ("true".equals(debugPlugin)) {
-				arguments.add("-Dorg.gradle.debug=true");
-			}
-			File initScript = PluginUtils.getInitScript();
-			if (initScript != null) {
-				arguments.addAll(Arrays.asList("--init-script", initScript.getAbsolutePath()));
+		}
+		try (PooledProjectConnection pooledConnection = GradleProjectConnectionPool.acquire(req.getProjectDir(),
+				req.getGradleConfig())) {
+			ProjectConnection connection = pooledConnection.getConnection();
+			// a cached model is already on screen, only stream cold loads
+			boolean streamProjects = req.getStreamProjects() && cachedBuild == null;
+			// the environment comes with the models, in the same round trip to the daemon
+			BuildActionExecuter<GradleBuildModel> action = connection
+					.action(new GradleBuildModelAction(req.getSkipDependencies(), streamProjects));
+			if (action == null) {
+				responseObserver.onCompleted();
+				return;
 			}
-			String jvmArguments = req.getGradleConfig().getJvmArguments();
-			if (!Strings.isNullOrEmpty(jvmArguments)) {
-				arguments.addAll(Arrays.stream(jvmArguments.split(" ")).filter(e -> e != null && !e.isEmpty())
-						.collect(Collectors.toList()));
+			List<String> arguments = getActionArguments(req.getGradleConfig());
+			if (streamProjects) {
+				// let Gradle query the sub project models in parallel, no tasks are run
+				arguments.add("--parallel");
 			}
 			action.withArguments(arguments);
+			String[] jvmArguments = Utils.getJvmArguments(req.getGradleConfig());
+			if (jvmArguments.length > 0) {
+				action.setJvmArguments(jvmArguments);
+			}
 			CancellationToken cancellationToken = GradleBuildCancellation.buildToken(req.getCancellationKey());
 			Set<OperationType> progressEvents = new HashSet<>();
+			progressEvents.add(OperationType.GENERIC);
 			progressEvents.add(OperationType.PROJECT_CONFIGURATION);
+			progressEvents.add(OperationType.BUILD_PHASE);
 			action.withCancellationToken(cancellationToken).addProgressListener(progressListener, progressEvents)
 					.setStandardOutput(standardOutputListener).setStandardError(standardErrorListener)
 					.setColorOutput(req.getShowOutputColors());
-			GradleProjectModel gradleModel = action.run();
-			if (gradleModel == null) {
+			if (req.getDependencyGraph()) {
+				this.dependencyGraph = new DependencyGraphBuilder();
+			}
+			if (streamProjects) {
+				this.streamedProjects = new HashMap<>();
+				// Gradle 8.6+ sends the environment, then each project
+				action.setStreamedValueListener(this::onStreamedValue);
+			}
+			GradleBuildModel buildModel = ServerMetrics.timeToolingApi(action::run);
+			if (buildModel == null) {
 				throw new Exception("Error occurs in querying custom model.");
 			}
-			GradleProject project = getProjectData(gradleModel);
-			replyWithProject(project);
+			if (this.environment == null) {
+				this.environment = buildModel.getEnvironment() != null
+						? getEnvironment(buildModel.getEnvironment())
+						: buildEnvironment(connection);
+				replyWithBuildEnvironment(this.environment);
+			}
+			GradleProjectModel gradleModel = buildModel.getProjectModel();
+			if (streamProjects && gradleModel != null) {
+				// Gradle < 8.6, split the model once it has been fetched
+				replyWithProjects(gradleModel);
+			}
+			if (streamProjects ? streamedProjects.isEmpty() : gradleModel == null) {
+				throw new Exception("Error occurs in querying custom model.");
+			}
+			if (streamProjects) {
+				GradleBuild build = getBuildData(streamedProjects);
+				this.streamedProjects = null;
+				indexBuild(build);
+				if (fingerprint != null) {
+					GradleModelCache.put(req.getProjectDir(), fingerprint, environment, build);
+				}
+				replyWithStreamedBuild();
+			} else {
+				GradleBuild build = getBuildData(gradleModel);
+				indexBuild(build);
+				if (fingerprint != null) {
+					GradleModelCache.put(req.getProjectDir(), fingerprint, environment, build);
+				}
+				if (!build.equals(cachedBuild)) {
+					replyWithBuild(build, false);
+				}
+			}
+			replyWithCompleted();
+			warmUp();
 		} catch (BuildCancelledException e) {
 			replyWithCancelled(e);
 		} catch (ServiceCreationException | IllegalStateException | GradleConnectionException e) {
+			replyWithFallbackEnvironment();
 			String javaExtensionVersion = req.getGradleConfig().getJavaExtensionVersion();
 			boolean shouldCheckCompatibility = !(javaExtensionVersion != null
 					&& new Version(javaExtensionVersion).isAtLeast("1.3.0"));
@@ -152,14 +221,102 @@ public class GetBuildHandler {
 				}
 			}
 			logger.error(e.getMessage());
+			GradleModelCache.invalidate(req.getProjectDir());
+			DependencyInsightIndex.invalidate(req.getProjectDir());
+			TaskIndex.invalidate(req.getProjectDir());
 			replyWithError(e);
 		} catch (Exception e) {
+			replyWithFallbackEnvironment();
+			GradleModelCache.invalidate(req.getProjectDir());
+			DependencyInsightIndex.invalidate(req.getProjectDir());
+			TaskIndex.invalidate(req.getProjectDir());
 			replyWithError(e);
 		} finally {
 			GradleBuildCancellation.clearToken(req.getCancellationKey());
 		}
 	}
 
+	/**
+	 * Arguments for build actions that query models of the bundled plugin.
+	 */
+	static List<String> getActionArguments(GradleConfig gradleConfig) {
+		List<String> arguments = new ArrayList<>();
+		String debugPlugin = System.getenv("VSCODE_DEBUG_PLUGIN");
+		if ("true".equals(debugPlugin)) {
+			arguments.add("-Dorg.gradle.debug=true");
+		}
+		File initScript = PluginUtils.getInitScript();
+		if (initScript != null) {
+			arguments.addAll(Arrays.asList("--init-script", initScript.getAbsolutePath()));
+		}
+		return arguments;
+	}
+
+	/**
+	 * Assembles the project tree from the streamed projects, for the model cache.
+	 *
+	 * @param subProjects
+	 *            the projects by the path of their parent, the root project under
+	 *            an empty path
+	 */
+	static GradleBuild getBuildData(Map<String, List<GradleProject>> subProjects, DependencyGraph dependencyGraph) {
+		List<GradleProject> rootProjects = subProjects.get("");
+		GradleBuild.Builder build = GradleBuild.newBuilder();
+		if (rootProjects != null) {
+			build.setProject(withSubProjects(rootProjects.get(0), subProjects));
+		}
+		if (dependencyGraph != null) {
+			build.setDependencyGraph(dependencyGraph);
+		}
+		return build.build();
+	}
+
+	private static GradleProject withSubProjects(GradleProject project, Map<String, List<GradleProject>> subProjects) {
+		List<GradleProject> children = subProjects.get(project.getProjectPath());
+		if (children == null) {
+			return project;
+		}
+		GradleProject.Builder builder = project.toBuilder();
+		for (GradleProject child : children) {
+			builder.addProjects(withSubProjects(child, subProjects));
+		}
+		return builder.build();
+	}
+
+	private void warmUp() {
+		if (req.getWarmUp()) {
+			DaemonWarmUp.warmUpInBackground(req.getProjectDir(), req.getGradleConfig());
+		}
+	}
+
+	private void onStreamedValue(Object value) {
+		if (value instanceof GradleEnvironmentModel) {
+			this.environment = getEnvironment((GradleEnvironmentModel) value);
+			replyWithBuildEnvironment(this.environment);
+		} else {
+			replyWithProject((GradleProjectModel) value);
+		}
+	}
+
+	/** Keeps the model for the queries that don't ask Gradle again. */
+	private void indexBuild(GradleBuild build) {
+		// keep the dependencies of the last model that has them
+		if (DependencyInsightIndex.hasDependencies(build)) {
+			DependencyInsightIndex.update(req.getProjectDir(), build);
+		}
+		TaskIndex.update(req.getProjectDir(), build);
+	}
+
+	private GradleModelCache.CachedModel getCachedModel() {
+		try {
+			fingerprint = GradleModelCache.getFingerprint(req);
+			return GradleModelCache.get(req.getProjectDir(), fingerprint);
+		} catch (IOException e) {
+			logger.warn("Unable to fingerprint build inputs: {}", e.getMessage());
+			return null;
+		}
+	}
+
 	private String getRootCause(Throwable error) {
 		Throwable rootCause = error;
 		while (true) {
@@ -172,6 +329,10 @@ public class GetBuildHandler {
 		return rootCause.toString();
 	}
 
+	/**
+	 * Fetches the environment on its own, for the builds where the build action
+	 * couldn't, or failed before it did.
+	 */
 	private Environment buildEnvironment(ProjectConnection connection) {
 		ModelBuilder<BuildEnvironment> buildEnvironment = connection.model(BuildEnvironment.class);
 
@@ -183,40 +344,70 @@ public class GetBuildHandler {
 		buildEnvironment.withCancellationToken(cancellationToken).addProgressListener(progressListener, progressEvents)
 				.setStandardOutput(standardOutputListener).setStandardError(standardErrorListener)
 				.setColorOutput(req.getShowOutputColors());
-		String jvmArguments = req.getGradleConfig().getJvmArguments();
-		if (!Strings.isNullOrEmpty(jvmArguments)) {
-			buildEnvironment.setJvmArguments(Arrays.stream(jvmArguments.split(" "))
-					.filter(e -> e != null && !e.isEmpty()).toArray(String[]::new));
+		String[] jvmArguments = Utils.getJvmArguments(req.getGradleConfig());
+		if (jvmArguments.length > 0) {
+			buildEnvironment.setJvmArguments(jvmArguments);
 		}
 
 		try {
-			BuildEnvironment environment = buildEnvironment.get();
-			org.gradle.tooling.model.build.GradleEnvironment gradleEnvironment = environment.getGradle();
-			org.gradle.tooling.model.build.JavaEnvironment javaEnvironment = environment.getJava();
-			return Environment.newBuilder()
-					.setGradleEnvironment(GradleEnvironment.newBuilder()
-							.setGradleUserHome(gradleEnvironment.getGradleUserHome().getAbsolutePath())
-							.setGradleVersion(gradleEnvironment.getGradleVersion()))
-					.setJavaEnvironment(
-							JavaEnvironment.newBuilder().setJavaHome(javaEnvironment.getJavaHome().getAbsolutePath())
-									.addAllJvmArgs(javaEnvironment.getJvmArguments()))
-					.build();
+			BuildEnvironment environment = ServerMetrics.timeToolingApi(buildEnvironment::get);
+			return getEnvironment(GradleEnvironmentModel.of(environment));
 		} finally {
 			GradleBuildCancellation.clearToken(req.getCancellationKey());
 		}
 	}
 
-	private GradleProject getProjectData(GradleProjectModel gradleModel) {
+	private Environment findBuildEnvironment() {
+		try (PooledProjectConnection pooledConnection = GradleProjectConnectionPool.acquire(req.getProjectDir(),
+				req.getGradleConfig())) {
+			return buildEnvironment(pooledConnection.getConnection());
+		} catch (Exception e) {
+			logger.debug("Unable to fetch the build environment: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	static Environment getEnvironment(GradleEnvironmentModel environment) {
+		return Environment.newBuilder()
+				.setGradleEnvironment(GradleEnvironment.newBuilder().setGradleUserHome(environment.getGradleUserHome())
+						.setGradleVersion(environment.getGradleVersion()))
+				.setJavaEnvironment(JavaEnvironment.newBuilder().setJavaHome(environment.getJavaHome())
+						.addAllJvmArgs(environment.getJvmArguments()))
+				.build();
+	}
+
+	private GradleBuild getBuildData(GradleProjectModel gradleModel) {
+		GradleBuild.Builder build = GradleBuild.newBuilder().setProject(getProjectData(gradleModel, true));
+		if (dependencyGraph != null) {
+			build.setDependencyGraph(dependencyGraph.build());
+		}
+		return build.build();
+	}
+
+	private GradleBuild getBuildData(Map<String, List<GradleProject>> subProjects) {
+		return getBuildData(subProjects, dependencyGraph != null ? dependencyGraph.build() : null);
+	}
+
+	private GradleProject getProjectData(GradleProjectModel gradleModel, boolean withSubProjects) {
 		GradleProject.Builder project = GradleProject.newBuilder();
 		project.setIsRoot(gradleModel.getIsRoot());
 		project.addAllTasks(getGradleTasks(gradleModel));
-		List<GradleProject> subProjects = new ArrayList<>();
-		for (GradleProjectModel subProjectModel : gradleModel.getSubProjects()) {
-			subProjects.add(getProjectData(subProjectModel));
+		if (withSubProjects) {
+			List<GradleProject> subProjects = new ArrayList<>();
+			for (GradleProjectModel subProjectModel : gradleModel.getSubProjects()) {
+				subProjects.add(getProjectData(subProjectModel, true));
+			}
+			project.addAllProjects(subProjects);
 		}
-		project.addAllProjects(subProjects);
 		project.setProjectPath(gradleModel.getProjectPath());
-		project.setDependencyItem(getDependencyItem(gradleModel.getDependencyNode()));
+		GradleDependencyNode dependencyNode = gradleModel.getDependencyNode();
+		if (dependencyGraph == null) {
+			project.setDependencyItem(getDependencyItem(dependencyNode));
+		} else {
+			project.setDependencyItem(DependencyItem.newBuilder().setName(dependencyNode.getName())
+					.setTypeValue(dependencyNode.getType().ordinal()));
+			project.addAllDependencyConfigurations(dependencyGraph.addProject(dependencyNode));
+		}
 		project.addAllPlugins(gradleModel.getPlugins());
 		project.addAllPluginClosures(getPluginClosures(gradleModel));
 		project.addAllScriptClasspaths(gradleModel.getScriptClasspaths());
@@ -240,10 +431,13 @@ public class GetBuildHandler {
 			}
 			tasks.add(builder.build());
 		});
+		// the order of the tasks is not part of the model, so an unchanged build
+		// compares equal to its cached model
+		tasks.sort(Comparator.comparing(GradleTask::getPath).thenComparing(GradleTask::getName));
 		return tasks;
 	}
 
-	private DependencyItem getDependencyItem(GradleDependencyNode node) {
+	static DependencyItem getDependencyItem(GradleDependencyNode node) {
 		DependencyItem.Builder item = DependencyItem.newBuilder();
 		item.setName(node.getName());
 		item.setTypeValue(node.getType().ordinal());
@@ -281,15 +475,51 @@ public class GetBuildHandler {
 		return closures;
 	}
 
-	private void replyWithProject(GradleProject gradleProject) {
+	private void replyWithBuild(GradleBuild build, boolean cached) {
+		progressListener.flush();
+		outputBatcher.flush();
 		responseObserver.onNext(GetBuildReply.newBuilder()
-				.setGetBuildResult(
-						GetBuildResult.newBuilder().setBuild(GradleBuild.newBuilder().setProject(gradleProject)))
-				.build());
+				.setGetBuildResult(GetBuildResult.newBuilder().setBuild(build).setCached(cached)).build());
+	}
+
+	private void replyWithProjects(GradleProjectModel gradleModel) {
+		replyWithProject(gradleModel);
+		for (GradleProjectModel subProjectModel : gradleModel.getSubProjects()) {
+			replyWithProjects(subProjectModel);
+		}
+	}
+
+	private void replyWithProject(GradleProjectModel gradleModel) {
+		GetBuildProjectResult projectResult = GetBuildProjectResult.newBuilder()
+				.setParentProjectPath(Strings.nullToEmpty(gradleModel.getParentProjectPath()))
+				.setProject(getProjectData(gradleModel, false)).build();
+		// keep the project rather than the reply, it is sent as it arrives
+		streamedProjects.computeIfAbsent(projectResult.getParentProjectPath(), key -> new ArrayList<>())
+				.add(projectResult.getProject());
+		outputBatcher.flush();
+		responseObserver.onNext(GetBuildReply.newBuilder().setGetBuildProjectResult(projectResult).build());
+	}
+
+	private void replyWithStreamedBuild() {
+		GradleBuild.Builder build = GradleBuild.newBuilder();
+		if (dependencyGraph != null) {
+			build.setDependencyGraph(dependencyGraph.build());
+		}
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver.onNext(GetBuildReply.newBuilder()
+				.setGetBuildResult(GetBuildResult.newBuilder().setBuild(build).setStreamed(true)).build());
+	}
+
+	private void replyWithCompleted() {
+		progressListener.flush();
+		outputBatcher.flush();
 		responseObserver.onCompleted();
 	}
 
 	private void replyWithCancelled(BuildCancelledException e) {
+		progressListener.flush();
+		outputBatcher.flush();
 		responseObserver.onNext(GetBuildReply.newBuilder()
 				.setCancelled(Cancelled.newBuilder().setMessage(e.getMessage()).setProjectDir(req.getProjectDir()))
 				.build());
@@ -297,30 +527,39 @@ public class GetBuildHandler {
 	}
 
 	private void replyWithError(Exception e) {
+		progressListener.flush();
+		outputBatcher.flush();
 		responseObserver.onError(ErrorMessageBuilder.build(e));
 	}
 
-	private void replyWithBuildEnvironment(Environment environment) {
-		responseObserver.onNext(GetBuildReply.newBuilder().setEnvironment(environment).build());
+	/**
+	 * Sends the environment of a build that failed before the build action sent it,
+	 * so the client still shows the daemons of the root.
+	 */
+	private void replyWithFallbackEnvironment() {
+		if (this.environment == null) {
+			this.environment = findBuildEnvironment();
+			if (this.environment != null) {
+				replyWithBuildEnvironment(this.environment);
+			}
+		}
 	}
 
-	private void replyWithProgress(ProgressEvent progressEvent) {
-		responseObserver.onNext(GetBuildReply.newBuilder()
-				.setProgress(Progress.newBuilder().setMessage(progressEvent.getDisplayName())).build());
+	private void replyWithBuildEnvironment(Environment environment) {
+		// a cached model is followed by the revalidated one
+		if (environment.equals(sentEnvironment)) {
+			return;
+		}
+		sentEnvironment = environment;
+		responseObserver.onNext(GetBuildReply.newBuilder().setEnvironment(environment).build());
 	}
 
-	private void replyWithStandardOutput(byte[] bytes) {
-		ByteString byteString = ByteString.copyFrom(bytes);
-		responseObserver.onNext(GetBuildReply.newBuilder()
-				.setOutput(Output.newBuilder().setOutputType(Output.OutputType.STDOUT).setOutputBytes(byteString))
-				.build());
+	private void replyWithProgress(Progress progress) {
+		responseObserver.onNext(GetBuildReply.newBuilder().setProgress(progress).build());
 	}
 
-	private void replyWithStandardError(byte[] bytes) {
-		ByteString byteString = ByteString.copyFrom(bytes);
-		responseObserver.onNext(GetBuildReply.newBuilder()
-				.setOutput(Output.newBuilder().setOutputType(Output.OutputType.STDERR).setOutputBytes(byteString))
-				.build());
+	private void replyWithOutput(Output output, Runnable onSent) {
+		responseObserver.onNext(GetBuildReply.newBuilder().setOutput(output).build(), onSent);
 	}
 
 	private void replyWithCompatibilityCheckError(String gradleVersion, String javaVersion) {
@@ -0,0 +1,36 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.BuildProfiler;
+import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.GetBuildProfileReply;
+import com.github.badsyntax.gradle.GetBuildProfileRequest;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+public class GetBuildProfileHandler {
+	private GetBuildProfileRequest req;
+	private StreamObserver<GetBuildProfileReply> responseObserver;
+
+	public GetBuildProfileHandler(GetBuildProfileRequest req, StreamObserver<GetBuildProfileReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = responseObserver;
+	}
+
+	public void run() {
+		BuildProfiler buildProfiler = BuildProfiler.get(req.getCancellationKey());
+		if (buildProfiler == null) {
+			replyWithError(new IllegalArgumentException("No build profile for key: " + req.getCancellationKey()));
+			return;
+		}
+		responseObserver
+				.onNext(GetBuildProfileReply.newBuilder().setProfile(buildProfiler.getProfile(req.getLimit())).build());
+		responseObserver.onCompleted();
+	}
+
+	private void replyWithError(Exception e) {
+		responseObserver.onError(ErrorMessageBuilder.build(e, Status.NOT_FOUND));
+	}
+}
@@ -0,0 +1,255 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.DaemonGroups;
+import com.github.badsyntax.gradle.GetBuildFlights;
+import com.github.badsyntax.gradle.GetBuildReply;
+import com.github.badsyntax.gradle.GetBuildRequest;
+import com.github.badsyntax.gradle.GetBuildsReply;
+import com.github.badsyntax.gradle.GetBuildsRequest;
+import com.github.badsyntax.gradle.GetBuildsRootCompleted;
+import com.github.badsyntax.gradle.ProjectConcurrencyInterceptor;
+import com.github.badsyntax.gradle.ServerExecutors;
+import com.google.common.base.Strings;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches the builds of several roots. Roots that share a daemon are fetched
+ * one after the other, so they reuse one warm daemon, and the groups run in
+ * parallel up to a limit. Each root is fetched as a GetBuild, and joins an
+ * identical GetBuild in flight. A root waits for a permit of its project, like
+ * the GetBuild calls of the project do.
+ */
+public class GetBuildsHandler {
+	private static final Logger logger = LoggerFactory.getLogger(GetBuildsHandler.class.getName());
+	static final int DEFAULT_MAX_PARALLEL = 2;
+
+	private GetBuildsRequest req;
+	private StreamObserver<GetBuildsReply> responseObserver;
+	private final Set<RootReplies> activeRoots = ConcurrentHashMap.newKeySet();
+	private volatile boolean cancelled;
+
+	public GetBuildsHandler(GetBuildsRequest req, StreamObserver<GetBuildsReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = responseObserver;
+	}
+
+	public void run() {
+		if (responseObserver instanceof ServerCallStreamObserver) {
+			ServerCallStreamObserver<GetBuildsReply> call = (ServerCallStreamObserver<GetBuildsReply>) responseObserver;
+			call.setOnCancelHandler(this::cancel);
+			call.setOnReadyHandler(() -> activeRoots.forEach(RootReplies::onReady));
+		}
+		for (GetBuildRequest build : req.getBuildsList()) {
+			if (Strings.isNullOrEmpty(build.getProjectDir())) {
+				responseObserver.onError(Status.INVALID_ARGUMENT
+						.withDescription("Every build requires a project directory").asRuntimeException());
+				return;
+			}
+		}
+		List<List<GetBuildRequest>> groups = DaemonGroups.group(req.getBuildsList());
+		int maxParallel = req.getMaxParallel() > 0 ? req.getMaxParallel() : DEFAULT_MAX_PARALLEL;
+		int parallelism = Math.max(1, Math.min(maxParallel, groups.size()));
+		logger.info("Fetching {} roots in {} daemon groups, {} at once", req.getBuildsCount(), groups.size(),
+				parallelism);
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+				ServerExecutors.newThreadFactory("get-builds"));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (List<GetBuildRequest> group : groups) {
+				// keep the call's context, eg for the tooling API metrics
+				futures.add(executor.submit(Context.current().wrap(() -> group.forEach(this::getBuild))));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			synchronized (responseObserver) {
+				responseObserver.onCompleted();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel();
+		} catch (ExecutionException e) {
+			logger.error(e.getMessage(), e);
+			synchronized (responseObserver) {
+				responseObserver
+						.onError(Status.INTERNAL.withDescription(e.getCause().getMessage()).asRuntimeException());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void getBuild(GetBuildRequest build) {
+		if (cancelled) {
+			return;
+		}
+		RootReplies replies = new RootReplies(build.getProjectDir());
+		activeRoots.add(replies);
+		try {
+			GetBuildFlights.Flight flight = GetBuildFlights.subscribe(build, replies);
+			if (cancelled) {
+				// cancelled while subscribing, before the cancel handler was set
+				replies.cancel();
+			}
+			if (flight != null) {
+				runFlight(flight);
+			}
+			// a flight that was already running completes on its own thread
+			replies.completed.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			activeRoots.remove(replies);
+		}
+	}
+
+	private void runFlight(GetBuildFlights.Flight flight) {
+		try (ProjectConcurrencyInterceptor.Permit permit = ProjectConcurrencyInterceptor
+				.acquire(flight.getRequest().getProjectDir())) {
+			if (permit == null) {
+				// the call was cancelled while the project was busy
+				flight.getReplies().onError(Status.CANCELLED.withDescription("Build cancelled").asRuntimeException());
+				return;
+			}
+			GetBuildHandler getBuildHandler = new GetBuildHandler(flight.getRequest(), flight.getReplies());
+			getBuildHandler.run();
+		}
+	}
+
+	private void cancel() {
+		cancelled = true;
+		activeRoots.forEach(RootReplies::cancel);
+	}
+
+	/**
+	 * The replies of one root, sent on the call tagged with its project dir. The
+	 * root counts as cancelled once the call is.
+	 */
+	private class RootReplies extends ServerCallStreamObserver<GetBuildReply> {
+		private final String projectDir;
+		private final CountDownLatch completed = new CountDownLatch(1);
+		private volatile boolean rootCancelled;
+		private volatile Runnable onReadyHandler;
+		private volatile Runnable onCancelHandler;
+
+		RootReplies(String projectDir) {
+			this.projectDir = projectDir;
+		}
+
+		@Override
+		public void onNext(GetBuildReply reply) {
+			if (reply.hasCancelled()) {
+				rootCancelled = true;
+			}
+			// sent synchronously, the output buffers are recycled once onNext returns
+			send(GetBuildsReply.newBuilder().setProjectDir(projectDir).setGetBuildReply(reply).build());
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			Status status = Status.fromThrowable(t);
+			if (status.getCode() == Status.Code.CANCELLED) {
+				rootCancelled = true;
+				replyWithRootCompleted("");
+				return;
+			}
+			String error = Strings.nullToEmpty(status.getDescription());
+			replyWithRootCompleted(error.isEmpty() ? String.valueOf(t.getMessage()) : error);
+		}
+
+		@Override
+		public void onCompleted() {
+			replyWithRootCompleted("");
+		}
+
+		private void replyWithRootCompleted(String error) {
+			try {
+				send(GetBuildsReply.newBuilder().setProjectDir(projectDir)
+						.setRootCompleted(
+								GetBuildsRootCompleted.newBuilder().setError(error).setCancelled(rootCancelled))
+						.build());
+			} finally {
+				completed.countDown();
+			}
+		}
+
+		private void send(GetBuildsReply reply) {
+			synchronized (responseObserver) {
+				responseObserver.onNext(reply);
+			}
+		}
+
+		private void onReady() {
+			Runnable handler = onReadyHandler;
+			if (handler != null) {
+				handler.run();
+			}
+		}
+
+		private void cancel() {
+			Runnable handler = onCancelHandler;
+			if (handler != null) {
+				handler.run();
+			}
+			completed.countDown();
+		}
+
+		@Override
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public void setOnCancelHandler(Runnable onCancelHandler) {
+			this.onCancelHandler = onCancelHandler;
+		}
+
+		@Override
+		public boolean isReady() {
+			return !(responseObserver instanceof ServerCallStreamObserver)
+					|| ((ServerCallStreamObserver<?>) responseObserver).isReady();
+		}
+
+		@Override
+		public void setOnReadyHandler(Runnable onReadyHandler) {
+			this.onReadyHandler = onReadyHandler;
+		}
+
+		@Override
+		public void setCompression(String compression) {
+			// the call keeps its own settings
+		}
+
+		@Override
+		public void disableAutoInboundFlowControl() {
+			// unary request, nothing to flow control
+		}
+
+		@Override
+		public void request(int count) {
+			// unary request, nothing to flow control
+		}
+
+		@Override
+		public void setMessageCompression(boolean enable) {
+			// the call keeps its own settings
+		}
+	}
+}
@@ -9,11 +9,12 @@ import com.github.badsyntax.gradle.GradleLocalInstallation;
 import com.github.badsyntax.gradle.GradleProjectConnectionType;
 import com.github.badsyntax.gradle.GradleProjectConnector;
 import com.github.badsyntax.gradle.GradleWrapper;
-import com.github.badsyntax.gradle.exceptions.GradleExecutionException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,12 +58,23 @@ public class GetDaemonsStatusHandler {
 			replyWithError(new Exception("Get daemon status failed. Please check your Gradle Settings."));
 			return;
 		}
-		try {
-			List<DaemonInfo> status = daemonStatus.get();
-			replyWithSuccess(status);
-		} catch (GradleExecutionException e) {
-			logger.error(e.getMessage());
-			replyWithError(e);
+		// replies from the thread reading the output, the call doesn't wait on it
+		CompletableFuture<List<DaemonInfo>> status = daemonStatus.get();
+		cancelOnCallCancelled(status);
+		status.whenComplete((daemonInfos, error) -> {
+			if (error != null) {
+				logger.error(error.getMessage());
+				replyWithError(error instanceof Exception ? (Exception) error : new Exception(error));
+			} else {
+				replyWithSuccess(daemonInfos);
+			}
+		});
+	}
+
+	private void cancelOnCallCancelled(CompletableFuture<?> future) {
+		if (responseObserver instanceof ServerCallStreamObserver) {
+			((ServerCallStreamObserver<GetDaemonsStatusReply>) responseObserver)
+					.setOnCancelHandler(() -> future.cancel(false));
 		}
 	}
 
@@ -0,0 +1,48 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.DependencyInsightIndex;
+import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.GetDependencyInsightReply;
+import com.github.badsyntax.gradle.GetDependencyInsightRequest;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Finds the paths that lead to a module in a configuration, from the model
+ * GetBuild last fetched.
+ */
+public class GetDependencyInsightHandler {
+	static final int DEFAULT_MAX_PATHS = 100;
+
+	private GetDependencyInsightRequest req;
+	private StreamObserver<GetDependencyInsightReply> responseObserver;
+
+	public GetDependencyInsightHandler(GetDependencyInsightRequest req,
+			StreamObserver<GetDependencyInsightReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = responseObserver;
+	}
+
+	public void run() {
+		DependencyInsightIndex index = DependencyInsightIndex.get(req.getProjectDir());
+		if (index == null) {
+			responseObserver.onError(ErrorMessageBuilder.build(
+					new IllegalStateException("No build has been fetched for " + req.getProjectDir()),
+					Status.FAILED_PRECONDITION));
+			return;
+		}
+		int maxPaths = req.getMaxPaths() > 0 ? req.getMaxPaths() : DEFAULT_MAX_PATHS;
+		GetDependencyInsightReply reply;
+		try {
+			reply = index.getInsight(req.getProjectPath(), req.getConfiguration(), req.getModule(), maxPaths);
+		} catch (IllegalArgumentException e) {
+			responseObserver.onError(ErrorMessageBuilder.build(e, Status.NOT_FOUND));
+			return;
+		}
+		responseObserver.onNext(reply);
+		responseObserver.onCompleted();
+	}
+}
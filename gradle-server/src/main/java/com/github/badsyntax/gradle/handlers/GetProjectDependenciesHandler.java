@@ -0,0 +1,131 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.ByteBufferOutputStream;
+import com.github.badsyntax.gradle.Cancelled;
+import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.GetProjectDependenciesReply;
+import com.github.badsyntax.gradle.GetProjectDependenciesRequest;
+import com.github.badsyntax.gradle.GetProjectDependenciesResult;
+import com.github.badsyntax.gradle.GradleBuildCancellation;
+import com.github.badsyntax.gradle.GradleProjectConnectionPool;
+import com.github.badsyntax.gradle.Output;
+import com.github.badsyntax.gradle.OutputBatcher;
+import com.github.badsyntax.gradle.PooledProjectConnection;
+import com.github.badsyntax.gradle.Progress;
+import com.github.badsyntax.gradle.ProgressCoalescer;
+import com.github.badsyntax.gradle.SerializingStreamObserver;
+import com.github.badsyntax.gradle.ServerMetrics;
+import com.github.badsyntax.gradle.utils.Utils;
+import com.microsoft.gradle.api.GradleDependencyModel;
+import com.microsoft.gradle.api.GradleDependencyModelAction;
+import io.grpc.stub.StreamObserver;
+import java.util.HashSet;
+import java.util.Set;
+import org.gradle.tooling.BuildActionExecuter;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.events.OperationType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the dependencies of a single project on demand, so that GetBuild can
+ * skip dependency resolution.
+ */
+public class GetProjectDependenciesHandler {
+	private static final Logger logger = LoggerFactory.getLogger(GetProjectDependenciesHandler.class.getName());
+
+	private GetProjectDependenciesRequest req;
+	private SerializingStreamObserver<GetProjectDependenciesReply> responseObserver;
+	private ProgressCoalescer progressListener;
+	private ByteBufferOutputStream standardOutputListener;
+	private ByteBufferOutputStream standardErrorListener;
+	private OutputBatcher outputBatcher;
+
+	public GetProjectDependenciesHandler(GetProjectDependenciesRequest req,
+			StreamObserver<GetProjectDependenciesReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = new SerializingStreamObserver<>(responseObserver);
+		this.outputBatcher = new OutputBatcher(responseObserver, this::replyWithOutput);
+		this.progressListener = new ProgressCoalescer(this::replyWithProgress);
+		this.standardOutputListener = new ByteBufferOutputStream() {
+			@Override
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDOUT, bytes, offset, length);
+			}
+		};
+		this.standardErrorListener = new ByteBufferOutputStream() {
+			@Override
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDERR, bytes, offset, length);
+			}
+		};
+	}
+
+	public void run() {
+		try (PooledProjectConnection pooledConnection = GradleProjectConnectionPool.acquire(req.getProjectDir(),
+				req.getGradleConfig())) {
+			BuildActionExecuter<GradleDependencyModel> action = pooledConnection.getConnection()
+					.action(new GradleDependencyModelAction(req.getProjectPath(), req.getConfigurationsList()));
+			Set<OperationType> progressEvents = new HashSet<>();
+			progressEvents.add(OperationType.PROJECT_CONFIGURATION);
+			progressEvents.add(OperationType.BUILD_PHASE);
+			action.withArguments(GetBuildHandler.getActionArguments(req.getGradleConfig()))
+					.withCancellationToken(GradleBuildCancellation.buildToken(req.getCancellationKey()))
+					.addProgressListener(progressListener, progressEvents).setStandardOutput(standardOutputListener)
+					.setStandardError(standardErrorListener).setColorOutput(false);
+			String[] jvmArguments = Utils.getJvmArguments(req.getGradleConfig());
+			if (jvmArguments.length > 0) {
+				action.setJvmArguments(jvmArguments);
+			}
+			GradleDependencyModel model = ServerMetrics.timeToolingApi(action::run);
+			if (model == null) {
+				throw new IllegalArgumentException("Project not found: " + req.getProjectPath());
+			}
+			replyWithDependencies(model);
+		} catch (BuildCancelledException e) {
+			replyWithCancelled(e);
+		} catch (Exception e) {
+			logger.error(e.getMessage());
+			replyWithError(e);
+		} finally {
+			GradleBuildCancellation.clearToken(req.getCancellationKey());
+		}
+	}
+
+	private void replyWithDependencies(GradleDependencyModel model) {
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver
+				.onNext(GetProjectDependenciesReply.newBuilder()
+						.setGetProjectDependenciesResult(GetProjectDependenciesResult.newBuilder()
+								.setDependencyItem(GetBuildHandler.getDependencyItem(model.getDependencyNode())))
+						.build());
+		responseObserver.onCompleted();
+	}
+
+	private void replyWithCancelled(BuildCancelledException e) {
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver.onNext(GetProjectDependenciesReply.newBuilder()
+				.setCancelled(Cancelled.newBuilder().setMessage(e.getMessage()).setProjectDir(req.getProjectDir()))
+				.build());
+		responseObserver.onCompleted();
+	}
+
+	private void replyWithError(Exception e) {
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver.onError(ErrorMessageBuilder.build(e));
+	}
+
+	private void replyWithProgress(Progress progress) {
+		responseObserver.onNext(GetProjectDependenciesReply.newBuilder().setProgress(progress).build());
+	}
+
+	private void replyWithOutput(Output output, Runnable onSent) {
+		responseObserver.onNext(GetProjectDependenciesReply.newBuilder().setOutput(output).build(), onSent);
+	}
+}
@@ -0,0 +1,21 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.GetServerMetricsReply;
+import com.github.badsyntax.gradle.ServerMetrics;
+import io.grpc.stub.StreamObserver;
+
+public class GetServerMetricsHandler {
+	private StreamObserver<GetServerMetricsReply> responseObserver;
+
+	public GetServerMetricsHandler(StreamObserver<GetServerMetricsReply> responseObserver) {
+		this.responseObserver = responseObserver;
+	}
+
+	public void run() {
+		responseObserver.onNext(ServerMetrics.getMetrics());
+		responseObserver.onCompleted();
+	}
+}
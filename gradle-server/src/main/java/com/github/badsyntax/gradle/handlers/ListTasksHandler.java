@@ -0,0 +1,59 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.GradleTask;
+import com.github.badsyntax.gradle.ListTasksReply;
+import com.github.badsyntax.gradle.ListTasksRequest;
+import com.github.badsyntax.gradle.TaskIndex;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.List;
+
+/**
+ * Lists the tasks of a single project of the model GetBuild last fetched, a
+ * page at a time, so that a tree view can load them as it is expanded.
+ */
+public class ListTasksHandler {
+	static final int DEFAULT_PAGE_SIZE = 100;
+
+	private ListTasksRequest req;
+	private StreamObserver<ListTasksReply> responseObserver;
+
+	public ListTasksHandler(ListTasksRequest req, StreamObserver<ListTasksReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = responseObserver;
+	}
+
+	public void run() {
+		TaskIndex index = TaskIndex.get(req.getProjectDir());
+		if (index == null) {
+			responseObserver.onError(ErrorMessageBuilder.build(
+					new IllegalStateException("No build has been fetched for " + req.getProjectDir()),
+					Status.FAILED_PRECONDITION));
+			return;
+		}
+		List<GradleTask> tasks = index.getTasks(req.getProjectPath());
+		if (tasks == null) {
+			responseObserver.onError(ErrorMessageBuilder.build(
+					new IllegalArgumentException("Project not found: " + req.getProjectPath()), Status.NOT_FOUND));
+			return;
+		}
+		if (req.getPage() < 0) {
+			responseObserver.onError(ErrorMessageBuilder
+					.build(new IllegalArgumentException("Invalid page: " + req.getPage()), Status.INVALID_ARGUMENT));
+			return;
+		}
+		int pageSize = req.getPageSize() > 0 ? req.getPageSize() : DEFAULT_PAGE_SIZE;
+		long start = (long) req.getPage() * pageSize;
+		ListTasksReply.Builder reply = ListTasksReply.newBuilder().setTotalCount(tasks.size())
+				.setPageCount((int) (((long) tasks.size() + pageSize - 1) / pageSize));
+		if (start < tasks.size()) {
+			reply.addAllTasks(tasks.subList((int) start, (int) Math.min(start + pageSize, tasks.size())));
+		}
+		responseObserver.onNext(reply.build());
+		responseObserver.onCompleted();
+	}
+}
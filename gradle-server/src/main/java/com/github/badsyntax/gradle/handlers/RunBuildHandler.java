@@ -1,25 +1,28 @@
 package com.github.badsyntax.gradle.handlers;
 
+import com.github.badsyntax.gradle.BuildProfiler;
 import com.github.badsyntax.gradle.ByteBufferOutputStream;
 import com.github.badsyntax.gradle.Cancelled;
+import com.github.badsyntax.gradle.DaemonStartDetector;
+import com.github.badsyntax.gradle.DaemonWarmUp;
 import com.github.badsyntax.gradle.ErrorMessageBuilder;
 import com.github.badsyntax.gradle.GradleBuildRunner;
 import com.github.badsyntax.gradle.Output;
+import com.github.badsyntax.gradle.OutputBatcher;
 import com.github.badsyntax.gradle.Progress;
+import com.github.badsyntax.gradle.ProgressCoalescer;
 import com.github.badsyntax.gradle.RunBuildReply;
 import com.github.badsyntax.gradle.RunBuildRequest;
 import com.github.badsyntax.gradle.RunBuildResult;
+import com.github.badsyntax.gradle.SerializingStreamObserver;
 import com.github.badsyntax.gradle.exceptions.GradleBuildRunnerException;
 import com.google.common.base.Strings;
-import com.google.protobuf.ByteString;
 import io.grpc.stub.StreamObserver;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import org.gradle.tooling.BuildCancelledException;
 import org.gradle.tooling.BuildException;
 import org.gradle.tooling.UnsupportedVersionException;
-import org.gradle.tooling.events.ProgressEvent;
-import org.gradle.tooling.events.ProgressListener;
 import org.gradle.tooling.exceptions.UnsupportedBuildArgumentException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,33 +31,27 @@ public class RunBuildHandler {
 	private static final Logger logger = LoggerFactory.getLogger(RunBuildHandler.class.getName());
 
 	private RunBuildRequest req;
-	private StreamObserver<RunBuildReply> responseObserver;
-	private ProgressListener progressListener;
+	private SerializingStreamObserver<RunBuildReply> responseObserver;
+	private ProgressCoalescer progressListener;
 	private ByteBufferOutputStream standardOutputListener;
 	private ByteBufferOutputStream standardErrorListener;
+	private OutputBatcher outputBatcher;
 
 	public RunBuildHandler(RunBuildRequest req, StreamObserver<RunBuildReply> responseObserver) {
 		this.req = req;
-		this.responseObserver = responseObserver;
-		this.progressListener = (ProgressEvent event) -> {
-			synchronized (RunBuildHandler.class) {
-				replyWithProgress(event);
-			}
-		};
+		this.responseObserver = new SerializingStreamObserver<>(responseObserver);
+		this.outputBatcher = new OutputBatcher(responseObserver, this::replyWithOutput);
+		this.progressListener = new ProgressCoalescer(this::replyWithProgress);
 		this.standardOutputListener = new ByteBufferOutputStream() {
 			@Override
-			public void onFlush(byte[] bytes) {
-				synchronized (RunBuildHandler.class) {
-					replyWithStandardOutput(bytes);
-				}
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDOUT, bytes, offset, length);
 			}
 		};
 		this.standardErrorListener = new ByteBufferOutputStream() {
 			@Override
-			public void onFlush(byte[] bytes) {
-				synchronized (RunBuildHandler.class) {
-					replyWithStandardError(bytes);
-				}
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDERR, bytes, offset, length);
 			}
 		};
 	}
@@ -63,8 +60,11 @@ public class RunBuildHandler {
 		GradleBuildRunner gradleRunner = new GradleBuildRunner(req.getProjectDir(), req.getArgsList(),
 				req.getGradleConfig(), req.getCancellationKey(), req.getShowOutputColors(), req.getJavaDebugPort(),
 				req.getJavaDebugCleanOutputCache());
-		gradleRunner.setProgressListener(progressListener).setStandardOutputStream(standardOutputListener)
-				.setStandardErrorStream(standardErrorListener);
+		BuildProfiler buildProfiler = BuildProfiler.start(req.getCancellationKey());
+		DaemonStartDetector daemonStartDetector = new DaemonStartDetector(standardOutputListener);
+		gradleRunner.setProgressListener(progressListener).setStandardOutputStream(daemonStartDetector)
+				.setStandardErrorStream(standardErrorListener)
+				.addProgressListener(buildProfiler, BuildProfiler.OPERATION_TYPES);
 
 		if (!Strings.isNullOrEmpty(req.getInput())) {
 			gradleRunner.setStandardInputStream(new ByteArrayInputStream(req.getInput().getBytes()));
@@ -81,40 +81,38 @@ public class RunBuildHandler {
 				| IllegalStateException | IOException | GradleBuildRunnerException e) {
 			logger.error(e.getMessage());
 			replyWithError(e);
+		} finally {
+			buildProfiler.finish();
+			DaemonWarmUp.recordBuild(req.getProjectDir(), req.getGradleConfig(), daemonStartDetector.isDaemonStarted());
 		}
 	}
 
 	public void replyWithCancelled(BuildCancelledException e) {
+		progressListener.flush();
+		outputBatcher.flush();
 		responseObserver.onNext(RunBuildReply.newBuilder()
 				.setCancelled(Cancelled.newBuilder().setMessage(e.getMessage()).setProjectDir(req.getProjectDir()))
 				.build());
 	}
 
 	public void replyWithError(Exception e) {
+		progressListener.flush();
+		outputBatcher.flush();
 		responseObserver.onError(ErrorMessageBuilder.build(e));
 	}
 
 	public void replyWithSuccess() {
+		progressListener.flush();
+		outputBatcher.flush();
 		responseObserver.onNext(RunBuildReply.newBuilder()
 				.setRunBuildResult(RunBuildResult.newBuilder().setMessage("Successfully run build")).build());
 	}
 
-	private void replyWithProgress(ProgressEvent progressEvent) {
-		responseObserver.onNext(RunBuildReply.newBuilder()
-				.setProgress(Progress.newBuilder().setMessage(progressEvent.getDisplayName())).build());
+	private void replyWithProgress(Progress progress) {
+		responseObserver.onNext(RunBuildReply.newBuilder().setProgress(progress).build());
 	}
 
-	private void replyWithStandardOutput(byte[] bytes) {
-		ByteString byteString = ByteString.copyFrom(bytes);
-		responseObserver.onNext(RunBuildReply.newBuilder()
-				.setOutput(Output.newBuilder().setOutputType(Output.OutputType.STDOUT).setOutputBytes(byteString))
-				.build());
-	}
-
-	private void replyWithStandardError(byte[] bytes) {
-		ByteString byteString = ByteString.copyFrom(bytes);
-		responseObserver.onNext(RunBuildReply.newBuilder()
-				.setOutput(Output.newBuilder().setOutputType(Output.OutputType.STDERR).setOutputBytes(byteString))
-				.build());
+	private void replyWithOutput(Output output, Runnable onSent) {
+		responseObserver.onNext(RunBuildReply.newBuilder().setOutput(output).build(), onSent);
 	}
 }
@@ -0,0 +1,149 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.BuildProfiler;
+import com.github.badsyntax.gradle.ByteBufferOutputStream;
+import com.github.badsyntax.gradle.Cancelled;
+import com.github.badsyntax.gradle.DaemonStartDetector;
+import com.github.badsyntax.gradle.DaemonWarmUp;
+import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.GradleBuildRunner;
+import com.github.badsyntax.gradle.Output;
+import com.github.badsyntax.gradle.OutputBatcher;
+import com.github.badsyntax.gradle.Progress;
+import com.github.badsyntax.gradle.ProgressCoalescer;
+import com.github.badsyntax.gradle.RunBuildsReply;
+import com.github.badsyntax.gradle.RunBuildsRequest;
+import com.github.badsyntax.gradle.RunBuildsResult;
+import com.github.badsyntax.gradle.SerializingStreamObserver;
+import com.github.badsyntax.gradle.TaskResult;
+import com.github.badsyntax.gradle.TaskResultTracker;
+import com.github.badsyntax.gradle.exceptions.GradleBuildRunnerException;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.UnsupportedVersionException;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.exceptions.UnsupportedBuildArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs several tasks in a single build, replying with a TaskResult as each of
+ * them, and the tasks they depend on, starts and finishes.
+ */
+public class RunBuildsHandler {
+	private static final Logger logger = LoggerFactory.getLogger(RunBuildsHandler.class.getName());
+
+	private RunBuildsRequest req;
+	private SerializingStreamObserver<RunBuildsReply> responseObserver;
+	private ProgressCoalescer progressListener;
+	private TaskResultTracker taskResultTracker;
+	private ByteBufferOutputStream standardOutputListener;
+	private ByteBufferOutputStream standardErrorListener;
+	private OutputBatcher outputBatcher;
+
+	public RunBuildsHandler(RunBuildsRequest req, StreamObserver<RunBuildsReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = new SerializingStreamObserver<>(responseObserver);
+		this.outputBatcher = new OutputBatcher(responseObserver, this::replyWithOutput);
+		this.progressListener = new ProgressCoalescer(this::replyWithProgress);
+		this.taskResultTracker = new TaskResultTracker(req.getTasksList(), this::replyWithTaskResult, outputBatcher);
+		this.standardOutputListener = new ByteBufferOutputStream() {
+			@Override
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDOUT, bytes, offset, length);
+			}
+		};
+		this.standardErrorListener = new ByteBufferOutputStream() {
+			@Override
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDERR, bytes, offset, length);
+			}
+		};
+	}
+
+	public void run() {
+		if (req.getTasksCount() == 0) {
+			replyWithError(new GradleBuildRunnerException("No tasks supplied"));
+			return;
+		}
+		for (String task : req.getTasksList()) {
+			if (task.isEmpty() || task.startsWith("-")) {
+				replyWithError(new GradleBuildRunnerException(String.format("Invalid task: '%s'", task)));
+				return;
+			}
+		}
+		List<String> args = new ArrayList<>(req.getTasksList());
+		args.addAll(req.getArgsList());
+		GradleBuildRunner gradleRunner = new GradleBuildRunner(req.getProjectDir(), args, req.getGradleConfig(),
+				req.getCancellationKey(), req.getShowOutputColors(), 0, false);
+		BuildProfiler buildProfiler = BuildProfiler.start(req.getCancellationKey());
+		DaemonStartDetector daemonStartDetector = new DaemonStartDetector(standardOutputListener);
+		gradleRunner.setProgressListener(progressListener).setStandardOutputStream(daemonStartDetector)
+				.setStandardErrorStream(standardErrorListener)
+				.addProgressListener(buildProfiler, BuildProfiler.OPERATION_TYPES)
+				.addProgressListener(taskResultTracker, Collections.singleton(OperationType.TASK));
+
+		try {
+			gradleRunner.run();
+			replyWithResult("Successfully run build", false);
+			responseObserver.onCompleted();
+		} catch (BuildCancelledException e) {
+			replyWithCancelled(e);
+			responseObserver.onCompleted();
+		} catch (BuildException e) {
+			// eg a task failed, which the task results tell
+			logger.error(e.getMessage());
+			replyWithResult(e.getMessage(), true);
+			responseObserver.onCompleted();
+		} catch (UnsupportedVersionException | UnsupportedBuildArgumentException | IllegalStateException | IOException
+				| GradleBuildRunnerException e) {
+			logger.error(e.getMessage());
+			replyWithError(e);
+		} finally {
+			buildProfiler.finish();
+			DaemonWarmUp.recordBuild(req.getProjectDir(), req.getGradleConfig(), daemonStartDetector.isDaemonStarted());
+		}
+	}
+
+	public void replyWithCancelled(BuildCancelledException e) {
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver.onNext(RunBuildsReply.newBuilder()
+				.setCancelled(Cancelled.newBuilder().setMessage(e.getMessage()).setProjectDir(req.getProjectDir()))
+				.build());
+	}
+
+	public void replyWithError(Exception e) {
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver.onError(ErrorMessageBuilder.build(e));
+	}
+
+	public void replyWithResult(String message, boolean failed) {
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver
+				.onNext(RunBuildsReply.newBuilder().setRunBuildsResult(RunBuildsResult.newBuilder().setMessage(message)
+						.setFailed(failed).addAllTaskResults(taskResultTracker.getRequestedResults())).build());
+	}
+
+	private void replyWithProgress(Progress progress) {
+		responseObserver.onNext(RunBuildsReply.newBuilder().setProgress(progress).build());
+	}
+
+	private void replyWithTaskResult(TaskResult taskResult) {
+		responseObserver.onNext(RunBuildsReply.newBuilder().setTaskResult(taskResult).build());
+	}
+
+	private void replyWithOutput(Output output, Runnable onSent) {
+		responseObserver.onNext(RunBuildsReply.newBuilder().setOutput(output).build(), onSent);
+	}
+}
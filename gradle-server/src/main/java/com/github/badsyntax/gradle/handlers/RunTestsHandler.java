@@ -0,0 +1,136 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.BuildProfiler;
+import com.github.badsyntax.gradle.ByteBufferOutputStream;
+import com.github.badsyntax.gradle.Cancelled;
+import com.github.badsyntax.gradle.DaemonStartDetector;
+import com.github.badsyntax.gradle.DaemonWarmUp;
+import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.GradleTestRunner;
+import com.github.badsyntax.gradle.Output;
+import com.github.badsyntax.gradle.OutputBatcher;
+import com.github.badsyntax.gradle.Progress;
+import com.github.badsyntax.gradle.ProgressCoalescer;
+import com.github.badsyntax.gradle.RunTestsReply;
+import com.github.badsyntax.gradle.RunTestsRequest;
+import com.github.badsyntax.gradle.RunTestsResult;
+import com.github.badsyntax.gradle.SerializingStreamObserver;
+import com.github.badsyntax.gradle.TestEvent;
+import com.github.badsyntax.gradle.TestEventTracker;
+import com.github.badsyntax.gradle.exceptions.GradleBuildRunnerException;
+import io.grpc.stub.StreamObserver;
+import java.util.Collections;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.TestExecutionException;
+import org.gradle.tooling.UnsupportedVersionException;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.exceptions.UnsupportedBuildArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the selected tests, replying with a TestEvent as each test starts and
+ * finishes.
+ */
+public class RunTestsHandler {
+	private static final Logger logger = LoggerFactory.getLogger(RunTestsHandler.class.getName());
+
+	private RunTestsRequest req;
+	private SerializingStreamObserver<RunTestsReply> responseObserver;
+	private ProgressCoalescer progressListener;
+	private TestEventTracker testEventTracker;
+	private ByteBufferOutputStream standardOutputListener;
+	private ByteBufferOutputStream standardErrorListener;
+	private OutputBatcher outputBatcher;
+
+	public RunTestsHandler(RunTestsRequest req, StreamObserver<RunTestsReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = new SerializingStreamObserver<>(responseObserver);
+		this.outputBatcher = new OutputBatcher(responseObserver, this::replyWithOutput);
+		this.progressListener = new ProgressCoalescer(this::replyWithProgress);
+		this.testEventTracker = new TestEventTracker(this::replyWithTestEvent);
+		this.standardOutputListener = new ByteBufferOutputStream() {
+			@Override
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDOUT, bytes, offset, length);
+			}
+		};
+		this.standardErrorListener = new ByteBufferOutputStream() {
+			@Override
+			public void onWrite(byte[] bytes, int offset, int length) {
+				outputBatcher.write(Output.OutputType.STDERR, bytes, offset, length);
+			}
+		};
+	}
+
+	public void run() {
+		GradleTestRunner testRunner = new GradleTestRunner(req);
+		BuildProfiler buildProfiler = BuildProfiler.start(req.getCancellationKey());
+		DaemonStartDetector daemonStartDetector = new DaemonStartDetector(standardOutputListener);
+		testRunner.setProgressListener(progressListener).setStandardOutputStream(daemonStartDetector)
+				.setStandardErrorStream(standardErrorListener)
+				.addProgressListener(buildProfiler, BuildProfiler.OPERATION_TYPES)
+				.addProgressListener(testEventTracker, Collections.singleton(OperationType.TEST));
+
+		try {
+			testRunner.run();
+			replyWithResult("Successfully run tests", false);
+			responseObserver.onCompleted();
+		} catch (BuildCancelledException e) {
+			replyWithCancelled(e);
+			responseObserver.onCompleted();
+		} catch (TestExecutionException | BuildException e) {
+			// eg a test failed, or no test matched
+			logger.error(e.getMessage());
+			replyWithResult(e.getMessage(), true);
+			responseObserver.onCompleted();
+		} catch (UnsupportedVersionException | UnsupportedBuildArgumentException | IllegalStateException
+				| GradleBuildRunnerException e) {
+			logger.error(e.getMessage());
+			replyWithError(e);
+		} finally {
+			buildProfiler.finish();
+			DaemonWarmUp.recordBuild(req.getProjectDir(), req.getGradleConfig(), daemonStartDetector.isDaemonStarted());
+		}
+	}
+
+	public void replyWithCancelled(BuildCancelledException e) {
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver.onNext(RunTestsReply.newBuilder()
+				.setCancelled(Cancelled.newBuilder().setMessage(e.getMessage()).setProjectDir(req.getProjectDir()))
+				.build());
+	}
+
+	public void replyWithError(Exception e) {
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver.onError(ErrorMessageBuilder.build(e));
+	}
+
+	public void replyWithResult(String message, boolean failed) {
+		progressListener.flush();
+		outputBatcher.flush();
+		responseObserver.onNext(RunTestsReply.newBuilder()
+				.setRunTestsResult(RunTestsResult.newBuilder().setMessage(message)
+						.setFailed(failed || testEventTracker.getFailures() > 0).setPassed(testEventTracker.getPassed())
+						.setSkipped(testEventTracker.getSkipped()).setFailures(testEventTracker.getFailures()))
+				.build());
+	}
+
+	private void replyWithProgress(Progress progress) {
+		responseObserver.onNext(RunTestsReply.newBuilder().setProgress(progress).build());
+	}
+
+	private void replyWithTestEvent(TestEvent testEvent) {
+		responseObserver.onNext(RunTestsReply.newBuilder().setTestEvent(testEvent).build());
+	}
+
+	private void replyWithOutput(Output output, Runnable onSent) {
+		responseObserver.onNext(RunTestsReply.newBuilder().setOutput(output).build(), onSent);
+	}
+}
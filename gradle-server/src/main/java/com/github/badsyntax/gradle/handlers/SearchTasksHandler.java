@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.GradleTask;
+import com.github.badsyntax.gradle.SearchTasksReply;
+import com.github.badsyntax.gradle.SearchTasksRequest;
+import com.github.badsyntax.gradle.TaskIndex;
+import com.google.common.base.Strings;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Searches the tasks of the model GetBuild last fetched, a page at a time. The
+ * page token holds the offset of the next page, with the query and the model it
+ * is a page of, so it can't be used for another search or a refreshed model.
+ */
+public class SearchTasksHandler {
+	static final int DEFAULT_LIMIT = 50;
+
+	private SearchTasksRequest req;
+	private StreamObserver<SearchTasksReply> responseObserver;
+
+	public SearchTasksHandler(SearchTasksRequest req, StreamObserver<SearchTasksReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = responseObserver;
+	}
+
+	public void run() {
+		TaskIndex index = TaskIndex.get(req.getProjectDir());
+		if (index == null) {
+			responseObserver.onError(ErrorMessageBuilder.build(
+					new IllegalStateException("No build has been fetched for " + req.getProjectDir()),
+					Status.FAILED_PRECONDITION));
+			return;
+		}
+		PageToken pageToken = Strings.isNullOrEmpty(req.getPageToken())
+				? new PageToken(index.getGeneration(), 0, req.getQuery())
+				: PageToken.decode(req.getPageToken());
+		if (pageToken == null || !pageToken.query.equals(req.getQuery())) {
+			responseObserver.onError(
+					ErrorMessageBuilder.build(new IllegalArgumentException("Invalid page token: " + req.getPageToken()),
+							Status.INVALID_ARGUMENT));
+			return;
+		}
+		if (pageToken.generation != index.getGeneration()) {
+			responseObserver.onError(ErrorMessageBuilder.build(
+					new IllegalStateException("The tasks have changed since the first page, search again"),
+					Status.FAILED_PRECONDITION));
+			return;
+		}
+		int offset = pageToken.offset;
+		int limit = req.getLimit() > 0 ? req.getLimit() : DEFAULT_LIMIT;
+		List<GradleTask> tasks = index.search(req.getQuery());
+		int end = (int) Math.min((long) offset + limit, tasks.size());
+		SearchTasksReply.Builder reply = SearchTasksReply.newBuilder().setTotalCount(tasks.size());
+		if (offset < end) {
+			reply.addAllTasks(tasks.subList(offset, end));
+		}
+		if (end < tasks.size()) {
+			reply.setNextPageToken(new PageToken(index.getGeneration(), end, req.getQuery()).encode());
+		}
+		responseObserver.onNext(reply.build());
+		responseObserver.onCompleted();
+	}
+
+	static class PageToken {
+		private final long generation;
+		private final int offset;
+		private final String query;
+
+		PageToken(long generation, int offset, String query) {
+			this.generation = generation;
+			this.offset = offset;
+			this.query = query;
+		}
+
+		String encode() {
+			String token = generation + ":" + offset + ":" + query;
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+		}
+
+		/** @return the token, or null if it is not one of ours */
+		static PageToken decode(String pageToken) {
+			try {
+				String token = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+				String[] parts = token.split(":", 3);
+				if (parts.length < 3) {
+					return null;
+				}
+				int offset = Integer.parseInt(parts[1]);
+				return offset < 0 ? null : new PageToken(Long.parseLong(parts[0]), offset, parts[2]);
+			} catch (IllegalArgumentException e) {
+				// includes NumberFormatException
+				return null;
+			}
+		}
+	}
+}
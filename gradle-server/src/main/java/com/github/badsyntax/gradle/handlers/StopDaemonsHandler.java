@@ -8,9 +8,11 @@ import com.github.badsyntax.gradle.GradleProjectConnector;
 import com.github.badsyntax.gradle.GradleWrapper;
 import com.github.badsyntax.gradle.StopDaemonsReply;
 import com.github.badsyntax.gradle.StopDaemonsRequest;
-import com.github.badsyntax.gradle.exceptions.GradleExecutionException;
+import com.github.badsyntax.gradle.process.ProcessListener;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,40 +29,53 @@ public class StopDaemonsHandler {
 
 	public void run() {
 		File projectRoot = new File(req.getProjectDir());
-		try {
-			GradleExecution gradleExecution = null;
-			GradleProjectConnectionType connectionType = GradleProjectConnector.getConnectionType();
-			if (connectionType == GradleProjectConnectionType.WRAPPER) {
-				if (!GradleWrapper.hasValidWrapper(projectRoot)) {
-					// When java.import.gradle.wrapper.enabled is set to true but no wrapper
-					// properties file
-					// is found,
-					// We'll show no daemon status, so stopping a daemon in this case is not
-					// supported.
-					replyWithError(new Exception("Unsupported operation."));
-					return;
-				}
-				gradleExecution = new GradleWrapper(projectRoot);
-			} else if (connectionType == GradleProjectConnectionType.LOCALINSTALLATION) {
-				String localInstallation = GradleProjectConnector.getLocalInstallation();
-				gradleExecution = new GradleLocalInstallation(new File(localInstallation));
-			} else if (connectionType == GradleProjectConnectionType.SPECIFICVERSION) {
-				// We disabled stop all daemons in the client when specifies a gradle version
-				// So here will not be reached
+		GradleExecution gradleExecution = null;
+		GradleProjectConnectionType connectionType = GradleProjectConnector.getConnectionType();
+		if (connectionType == GradleProjectConnectionType.WRAPPER) {
+			if (!GradleWrapper.hasValidWrapper(projectRoot)) {
+				// When java.import.gradle.wrapper.enabled is set to true but no wrapper
+				// properties file
+				// is found,
+				// We'll show no daemon status, so stopping a daemon in this case is not
+				// supported.
 				replyWithError(new Exception("Unsupported operation."));
 				return;
 			}
-			if (gradleExecution == null) {
-				replyWithError(new Exception("Stop daemons failed. Please check your Gradle Settings."));
-				return;
+			gradleExecution = new GradleWrapper(projectRoot);
+		} else if (connectionType == GradleProjectConnectionType.LOCALINSTALLATION) {
+			String localInstallation = GradleProjectConnector.getLocalInstallation();
+			gradleExecution = new GradleLocalInstallation(new File(localInstallation));
+		} else if (connectionType == GradleProjectConnectionType.SPECIFICVERSION) {
+			// We disabled stop all daemons in the client when specifies a gradle version
+			// So here will not be reached
+			replyWithError(new Exception("Unsupported operation."));
+			return;
+		}
+		if (gradleExecution == null) {
+			replyWithError(new Exception("Stop daemons failed. Please check your Gradle Settings."));
+			return;
+		}
+		ProcessListener listener = new ProcessListener() {
+			@Override
+			public void onStdOut(String line) {
+				logger.info(line);
 			}
-			String stopOutput = gradleExecution.exec("--stop");
-			replyWithSuccess(stopOutput);
-			responseObserver.onCompleted();
-		} catch (GradleExecutionException e) {
-			logger.error(e.getMessage());
-			replyWithError(e);
+		};
+		// replies from the thread reading the output, the call doesn't wait on it
+		CompletableFuture<String> stopOutput = gradleExecution.exec(listener, "--stop");
+		if (responseObserver instanceof ServerCallStreamObserver) {
+			((ServerCallStreamObserver<StopDaemonsReply>) responseObserver)
+					.setOnCancelHandler(() -> stopOutput.cancel(false));
 		}
+		stopOutput.whenComplete((output, error) -> {
+			if (error != null) {
+				logger.error(error.getMessage());
+				replyWithError(error instanceof Exception ? (Exception) error : new Exception(error));
+			} else {
+				replyWithSuccess(output);
+				responseObserver.onCompleted();
+			}
+		});
 	}
 
 	private void replyWithError(Exception e) {
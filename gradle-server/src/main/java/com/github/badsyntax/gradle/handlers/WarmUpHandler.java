@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.DaemonWarmUp;
+import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.WarmUpReply;
+import com.github.badsyntax.gradle.WarmUpRequest;
+import com.github.badsyntax.gradle.exceptions.GradleBuildRunnerException;
+import io.grpc.stub.StreamObserver;
+import java.io.IOException;
+import org.gradle.tooling.GradleConnectionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class WarmUpHandler {
+	private static final Logger logger = LoggerFactory.getLogger(WarmUpHandler.class.getName());
+
+	private WarmUpRequest req;
+	private StreamObserver<WarmUpReply> responseObserver;
+
+	public WarmUpHandler(WarmUpRequest req, StreamObserver<WarmUpReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = responseObserver;
+	}
+
+	public void run() {
+		try {
+			responseObserver.onNext(WarmUpReply.newBuilder()
+					.setWarmUp(
+							DaemonWarmUp.warmUp(req.getProjectDir(), req.getGradleConfig(), req.getCancellationKey()))
+					.build());
+			responseObserver.onCompleted();
+		} catch (GradleConnectionException | IllegalStateException | IOException | GradleBuildRunnerException e) {
+			logger.error(e.getMessage());
+			replyWithError(e);
+		}
+	}
+
+	private void replyWithError(Exception e) {
+		responseObserver.onError(ErrorMessageBuilder.build(e));
+	}
+}
@@ -0,0 +1,222 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle.handlers;
+
+import com.github.badsyntax.gradle.BuildWatcher;
+import com.github.badsyntax.gradle.ErrorMessageBuilder;
+import com.github.badsyntax.gradle.GetBuildFlights;
+import com.github.badsyntax.gradle.GetBuildProjectResult;
+import com.github.badsyntax.gradle.GetBuildReply;
+import com.github.badsyntax.gradle.GetBuildRequest;
+import com.github.badsyntax.gradle.GradleBuild;
+import com.github.badsyntax.gradle.GradleBuildCancellation;
+import com.github.badsyntax.gradle.GradleBuildDiff;
+import com.github.badsyntax.gradle.ProjectConcurrencyInterceptor;
+import com.github.badsyntax.gradle.ServerExecutors;
+import com.github.badsyntax.gradle.WatchBuildChanged;
+import com.github.badsyntax.gradle.WatchBuildRefreshed;
+import com.github.badsyntax.gradle.WatchBuildReply;
+import com.github.badsyntax.gradle.WatchBuildRequest;
+import com.google.common.base.Strings;
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the build files of a project and fetches the model again once they
+ * change, replying with the projects that changed. The model is fetched as a
+ * GetBuild, so it shares the model cache & pooled connection, and joins an
+ * identical GetBuild in flight. Each fetch waits for a permit of the project,
+ * like the GetBuild calls of the project do.
+ */
+public class WatchBuildHandler {
+	private static final Logger logger = LoggerFactory.getLogger(WatchBuildHandler.class.getName());
+	static final int DEFAULT_DEBOUNCE_MILLIS = 300;
+	private static final AtomicLong watchIds = new AtomicLong();
+	private static final ThreadFactory watchThreads = ServerExecutors.newThreadFactory("watch-build");
+
+	private WatchBuildRequest req;
+	private StreamObserver<WatchBuildReply> responseObserver;
+	private final String cancellationKey = "watch-build-" + watchIds.incrementAndGet();
+	private volatile boolean cancelled;
+
+	public WatchBuildHandler(WatchBuildRequest req, StreamObserver<WatchBuildReply> responseObserver) {
+		this.req = req;
+		this.responseObserver = responseObserver;
+	}
+
+	public void run() {
+		File projectDir = new File(req.getProjectDir());
+		if (Strings.isNullOrEmpty(req.getProjectDir()) || !projectDir.isDirectory()) {
+			responseObserver.onError(ErrorMessageBuilder.build(
+					new IOException("Not a project directory: " + req.getProjectDir()), Status.INVALID_ARGUMENT));
+			return;
+		}
+		BuildWatcher watcher;
+		try {
+			watcher = new BuildWatcher(projectDir.toPath());
+		} catch (IOException e) {
+			logger.error(e.getMessage());
+			responseObserver.onError(ErrorMessageBuilder.build(e));
+			return;
+		}
+		if (responseObserver instanceof ServerCallStreamObserver) {
+			((ServerCallStreamObserver<WatchBuildReply>) responseObserver).setOnCancelHandler(() -> cancel(watcher));
+		}
+		// the watch lasts as long as the call, don't hold a thread of the server
+		watchThreads.newThread(Context.current().wrap(() -> watch(watcher))).start();
+	}
+
+	private void watch(BuildWatcher watcher) {
+		long debounceMillis = req.getDebounceMillis() > 0 ? req.getDebounceMillis() : DEFAULT_DEBOUNCE_MILLIS;
+		try {
+			Map<String, GetBuildProjectResult> projects = refresh(Collections.emptyMap());
+			while (!cancelled) {
+				List<String> files = watcher.awaitChanges(debounceMillis);
+				logger.info("Build files of {} changed: {}", req.getProjectDir(), files);
+				replyWithChanged(files);
+				// eg a new sub project with its build script
+				watcher.registerDirectories();
+				projects = refresh(projects);
+			}
+		} catch (ClosedWatchServiceException e) {
+			// the call was cancelled
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			logger.error(e.getMessage());
+			responseObserver.onError(ErrorMessageBuilder.build(e));
+		} finally {
+			close(watcher);
+		}
+	}
+
+	private Map<String, GetBuildProjectResult> refresh(Map<String, GetBuildProjectResult> previous)
+			throws InterruptedException {
+		long start = System.nanoTime();
+		GradleBuild build;
+		try {
+			build = fetchBuild();
+		} catch (ExecutionException e) {
+			if (!cancelled) {
+				replyWithRefreshed(Collections.emptyList(), getMessage(e.getCause()), start);
+			}
+			return previous;
+		}
+		Map<String, GetBuildProjectResult> projects = GradleBuildDiff.getProjects(build);
+		GradleBuildDiff diff = new GradleBuildDiff(previous, projects);
+		for (GetBuildProjectResult project : diff.getChangedProjects()) {
+			responseObserver.onNext(WatchBuildReply.newBuilder().setProject(project).build());
+		}
+		replyWithRefreshed(diff.getRemovedProjectPaths(), "", start);
+		return projects;
+	}
+
+	private GradleBuild fetchBuild() throws InterruptedException, ExecutionException {
+		GetBuildRequest getBuildRequest = GetBuildRequest.newBuilder().setProjectDir(req.getProjectDir())
+				.setCancellationKey(cancellationKey).setGradleConfig(req.getGradleConfig())
+				.setSkipDependencies(req.getSkipDependencies()).build();
+		BuildCollector collector = new BuildCollector();
+		GetBuildFlights.Flight flight = GetBuildFlights.subscribe(getBuildRequest, collector);
+		if (flight != null) {
+			try (ProjectConcurrencyInterceptor.Permit permit = ProjectConcurrencyInterceptor
+					.acquire(req.getProjectDir())) {
+				if (permit == null) {
+					// the call was cancelled while the project was busy
+					flight.getReplies()
+							.onError(Status.CANCELLED.withDescription("Build cancelled").asRuntimeException());
+				} else {
+					GetBuildHandler getBuildHandler = new GetBuildHandler(flight.getRequest(), flight.getReplies());
+					getBuildHandler.run();
+				}
+			}
+		}
+		// a flight that was already running completes on its own thread
+		return collector.build.get();
+	}
+
+	private static String getMessage(Throwable error) {
+		String description = Status.fromThrowable(error).getDescription();
+		return description != null ? description : Strings.nullToEmpty(error.getMessage());
+	}
+
+	private void cancel(BuildWatcher watcher) {
+		cancelled = true;
+		close(watcher);
+		try {
+			GradleBuildCancellation.cancelBuild(cancellationKey);
+		} catch (Exception e) {
+			// no model is being fetched
+		}
+	}
+
+	private static void close(BuildWatcher watcher) {
+		try {
+			watcher.close();
+		} catch (IOException e) {
+			logger.debug("Unable to close the watcher: {}", e.getMessage());
+		}
+	}
+
+	private void replyWithChanged(List<String> files) {
+		responseObserver.onNext(
+				WatchBuildReply.newBuilder().setChanged(WatchBuildChanged.newBuilder().addAllFiles(files)).build());
+	}
+
+	private void replyWithRefreshed(List<String> removedProjectPaths, String error, long start) {
+		responseObserver.onNext(WatchBuildReply.newBuilder()
+				.setRefreshed(WatchBuildRefreshed.newBuilder().addAllRemovedProjectPaths(removedProjectPaths)
+						.setError(error).setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)))
+				.build());
+	}
+
+	/**
+	 * Keeps the last model of a GetBuild, a cached one is followed by the
+	 * revalidated one if it changed.
+	 */
+	private static class BuildCollector implements StreamObserver<GetBuildReply> {
+		private final CompletableFuture<GradleBuild> build = new CompletableFuture<>();
+		private GradleBuild lastBuild;
+		private String error;
+
+		@Override
+		public synchronized void onNext(GetBuildReply reply) {
+			if (reply.hasGetBuildResult()) {
+				lastBuild = reply.getGetBuildResult().getBuild();
+			} else if (reply.getKindCase() == GetBuildReply.KindCase.COMPATIBILITY_CHECK_ERROR) {
+				error = reply.getCompatibilityCheckError();
+			} else if (reply.hasCancelled()) {
+				error = reply.getCancelled().getMessage();
+			}
+		}
+
+		@Override
+		public synchronized void onError(Throwable t) {
+			build.completeExceptionally(error != null ? new IllegalStateException(error, t) : t);
+		}
+
+		@Override
+		public synchronized void onCompleted() {
+			if (lastBuild != null) {
+				build.complete(lastBuild);
+			} else {
+				build.completeExceptionally(new IllegalStateException(error != null ? error : "No model was fetched"));
+			}
+		}
+	}
+}
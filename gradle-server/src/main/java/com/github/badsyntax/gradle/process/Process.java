@@ -1,9 +1,11 @@
 package com.github.badsyntax.gradle.process;
 
+import com.github.badsyntax.gradle.ServerExecutors;
 import com.github.badsyntax.gradle.exceptions.ProcessException;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -11,14 +13,46 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a command without blocking the caller. Stdout and stderr are pumped at
+ * the same time, so a process filling one pipe can't stall on the other, and
+ * the process is killed once its deadline passes or the result is cancelled.
+ */
+public class Process {
+	private static final Logger logger = LoggerFactory.getLogger(Process.class.getName());
 
-public class Process implements AutoCloseable {
 	public static final Boolean IS_WINDOWS = System.getProperty("os.name").toLowerCase().contains("windows");
+	// long enough for the wrapper to download a distribution
+	public static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+	// Every process needs both of its pumps running, so the pool can't be bounded
+	// without risking the deadlock it's here to avoid. Idle pumps are reused, then
+	// exit.
+	private static final ExecutorService PUMP_EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30,
+			TimeUnit.SECONDS, new SynchronousQueue<>(), ServerExecutors.newThreadFactory("process-pump"));
+	private static final ScheduledExecutorService DEADLINE_EXECUTOR = Executors
+			.newSingleThreadScheduledExecutor(ServerExecutors.newThreadFactory("process-deadline"));
 	private static Runtime runtime = Runtime.getRuntime();
+
 	private File workingDir;
 	private String windowsCommand;
 	private String unixCommand;
-	private ProcessOutput processOutput;
+	private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
 
 	public Process(File workingDir) {
 		this.workingDir = workingDir;
@@ -32,6 +66,10 @@ public class Process implements AutoCloseable {
 		this.unixCommand = command;
 	}
 
+	public synchronized void setTimeout(long timeout, TimeUnit unit) {
+		this.timeoutMillis = unit.toMillis(timeout);
+	}
+
 	public static synchronized void kill(String pid) throws IOException {
 		if (Boolean.TRUE.equals(IS_WINDOWS)) {
 			runtime.exec(String.format("taskkill /f /pid %s", pid));
@@ -40,15 +78,80 @@ public class Process implements AutoCloseable {
 		}
 	}
 
-	public synchronized void exec(String... args) throws IOException, ProcessException {
+	/**
+	 * @return the result once the process has exited and all of its output has been
+	 *         read. Fails with a ProcessException if the deadline passes first.
+	 *         Cancelling it kills the process.
+	 */
+	public synchronized CompletableFuture<ProcessResult> exec(ProcessListener listener, String... args)
+			throws IOException, ProcessException {
 		ProcessBuilder processBuilder = new ProcessBuilder(buildCommand(args));
 		processBuilder.directory(workingDir);
 		Map<String, String> env = processBuilder.environment();
 		// use the same java runtime to execute wrapper
 		env.put("JAVA_HOME", System.getProperty("java.home"));
 		java.lang.Process process = processBuilder.start();
-		this.processOutput = new ProcessOutput(new BufferedReader(new InputStreamReader(process.getInputStream())),
-				new BufferedReader(new InputStreamReader(process.getErrorStream())));
+		process.getOutputStream().close();
+
+		CompletableFuture<String> stdOut = CompletableFuture
+				.supplyAsync(() -> pump(process.getInputStream(), listener::onStdOut), PUMP_EXECUTOR);
+		CompletableFuture<String> stdErr = CompletableFuture
+				.supplyAsync(() -> pump(process.getErrorStream(), listener::onStdErr), PUMP_EXECUTOR);
+		CompletableFuture<ProcessResult> result = new CompletableFuture<>();
+		stdOut.thenCombine(stdErr, (out, err) -> new ProcessResult(waitFor(process), out, err))
+				.whenComplete((processResult, error) -> {
+					if (error == null) {
+						result.complete(processResult);
+					} else {
+						result.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+					}
+				});
+
+		long timeout = timeoutMillis;
+		ScheduledFuture<?> deadline = DEADLINE_EXECUTOR.schedule(() -> {
+			result.completeExceptionally(
+					new ProcessException(String.format("Process did not finish within %d ms", timeout)));
+		}, timeout, TimeUnit.MILLISECONDS);
+		result.whenComplete((processResult, error) -> {
+			deadline.cancel(false);
+			if (error != null) {
+				// also closes the pipes, ending the pumps
+				process.destroyForcibly();
+			}
+		});
+		return result;
+	}
+
+	private static String pump(InputStream stream, Consumer<String> listener) {
+		StringJoiner output = new StringJoiner("\n");
+		boolean listening = true;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				output.add(line);
+				if (listening) {
+					try {
+						listener.accept(line);
+					} catch (RuntimeException e) {
+						// keep draining, the process would block on a full pipe
+						logger.warn("Process listener failed: {}", e.getMessage());
+						listening = false;
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new CompletionException(new ProcessException("Unable to read process output", e));
+		}
+		return output.toString();
+	}
+
+	private static int waitFor(java.lang.Process process) {
+		try {
+			return process.waitFor();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted waiting for the process to exit");
+		}
 	}
 
 	private synchronized List<String> buildCommand(String[] args) throws ProcessException {
@@ -62,13 +165,4 @@ public class Process implements AutoCloseable {
 		commandList.addAll(Arrays.asList(args));
 		return commandList;
 	}
-
-	public synchronized ProcessOutput getProcessOutput() {
-		return processOutput;
-	}
-
-	@Override
-	public synchronized void close() throws IOException {
-		this.processOutput.close();
-	}
 }
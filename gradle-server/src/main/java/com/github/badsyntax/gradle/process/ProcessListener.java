@@ -0,0 +1,16 @@
+package com.github.badsyntax.gradle.process;
+
+/**
+ * Receives the output of a process line by line, as it arrives. Called from the
+ * threads pumping the process output.
+ */
+public interface ProcessListener {
+	ProcessListener NONE = new ProcessListener() {
+	};
+
+	default void onStdOut(String line) {
+	}
+
+	default void onStdErr(String line) {
+	}
+}
@@ -3,8 +3,11 @@
 
 package com.github.badsyntax.gradle.utils;
 
+import com.github.badsyntax.gradle.GradleConfig;
+import com.google.common.base.Strings;
 import io.github.g00fy2.versioncompare.Version;
 import java.io.File;
+import java.util.Arrays;
 import java.util.Locale;
 
 public class Utils {
@@ -12,6 +15,18 @@ public class Utils {
 		return file != null && file.exists();
 	}
 
+	/**
+	 * Splits the JVM arguments of the config, for the builds and model queries of a
+	 * project to start their daemon with the same arguments.
+	 */
+	public static String[] getJvmArguments(GradleConfig gradleConfig) {
+		String jvmArguments = gradleConfig.getJvmArguments();
+		if (Strings.isNullOrEmpty(jvmArguments)) {
+			return new String[0];
+		}
+		return Arrays.stream(jvmArguments.split(" ")).filter(e -> !e.isEmpty()).toArray(String[]::new);
+	}
+
 	public static boolean hasCompatibilityError(Version gradleVersion, Version javaVersion) {
 		return !gradleVersion.isAtLeast(getLowestGradleVersion(javaVersion), /* ignoreSuffix */ true);
 	}
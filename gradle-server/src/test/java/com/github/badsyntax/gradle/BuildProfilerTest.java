@@ -0,0 +1,124 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.gradle.tooling.events.OperationDescriptor;
+import org.gradle.tooling.events.configuration.ProjectConfigurationFinishEvent;
+import org.gradle.tooling.events.configuration.ProjectConfigurationOperationDescriptor;
+import org.gradle.tooling.events.configuration.ProjectConfigurationSuccessResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.task.TaskStartEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+import org.gradle.tooling.model.ProjectIdentifier;
+import org.junit.Test;
+
+public class BuildProfilerTest {
+
+	@Test
+	public void shouldSummariseTasksAndConfiguration() {
+		BuildProfiler profiler = new BuildProfiler(BuildProfiler.MAX_EVENTS);
+		profiler.statusChanged(projectConfigurationFinishEvent(":", 0, 300));
+		profiler.statusChanged(projectConfigurationFinishEvent(":app", 300, 1300));
+		TaskOperationDescriptor compile = task(":app:compileJava");
+		TaskOperationDescriptor resources = task(":app:processResources");
+		TaskOperationDescriptor classes = task(":app:classes", compile, resources);
+		TaskOperationDescriptor jar = task(":app:jar", classes);
+		profiler.statusChanged(taskStartEvent(compile, 1300));
+		profiler.statusChanged(taskFinishEvent(compile, 1300, 5300, false, false));
+		profiler.statusChanged(taskFinishEvent(resources, 1300, 1400, true, false));
+		profiler.statusChanged(taskFinishEvent(classes, 5300, 5310, false, false));
+		profiler.statusChanged(taskFinishEvent(jar, 5310, 5800, false, true));
+		profiler.finish();
+
+		BuildProfile profile = profiler.getProfile(2);
+		assertFalse(profile.getRunning());
+		assertEquals(Arrays.asList(":app:compileJava", ":app:jar"), paths(profile.getSlowestTasksList()));
+		assertEquals(4000, profile.getSlowestTasks(0).getDurationMillis());
+		assertEquals(Arrays.asList(":app", ":"), paths(profile.getProjectConfigurationsList()));
+		assertEquals(Arrays.asList(":app:compileJava", ":app:classes", ":app:jar"),
+				paths(profile.getCriticalPathList()));
+		assertEquals(4, profile.getTasks());
+		assertEquals(1, profile.getTasksUpToDate());
+		assertEquals(1, profile.getTasksFromCache());
+		assertEquals(2, profile.getTasksExecuted());
+		assertEquals(1 / 3.0, profile.getCacheHitRatio(), 0.001);
+	}
+
+	@Test
+	public void shouldDropOldestEventsWhenFull() {
+		BuildProfiler profiler = new BuildProfiler(2);
+		for (int i = 0; i < 5; i++) {
+			profiler.statusChanged(taskFinishEvent(task(":task" + i), i, i + 1, false, false));
+		}
+		BuildProfile profile = profiler.getProfile(10);
+		assertTrue(profile.getRunning());
+		assertEquals(3, profile.getDroppedEvents());
+		assertEquals(2, profile.getTasks());
+	}
+
+	@Test
+	public void shouldKeepProfileByCancellationKey() {
+		BuildProfiler profiler = BuildProfiler.start("build-key");
+		assertEquals(profiler, BuildProfiler.get("build-key"));
+		assertEquals(null, BuildProfiler.get("unknown-key"));
+	}
+
+	private static List<String> paths(List<ProfiledOperation> operations) {
+		return operations.stream().map(ProfiledOperation::getPath).collect(Collectors.toList());
+	}
+
+	private static TaskOperationDescriptor task(String taskPath, OperationDescriptor... dependencies) {
+		TaskOperationDescriptor descriptor = mock(TaskOperationDescriptor.class);
+		when(descriptor.getTaskPath()).thenReturn(taskPath);
+		doReturn(new HashSet<>(Arrays.asList(dependencies))).when(descriptor).getDependencies();
+		return descriptor;
+	}
+
+	private static TaskStartEvent taskStartEvent(TaskOperationDescriptor descriptor, long eventTime) {
+		TaskStartEvent event = mock(TaskStartEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		when(event.getEventTime()).thenReturn(eventTime);
+		return event;
+	}
+
+	private static TaskFinishEvent taskFinishEvent(TaskOperationDescriptor descriptor, long startTime, long endTime,
+			boolean upToDate, boolean fromCache) {
+		TaskSuccessResult result = mock(TaskSuccessResult.class);
+		when(result.getStartTime()).thenReturn(startTime);
+		when(result.getEndTime()).thenReturn(endTime);
+		when(result.isUpToDate()).thenReturn(upToDate);
+		when(result.isFromCache()).thenReturn(fromCache);
+		TaskFinishEvent event = mock(TaskFinishEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		when(event.getResult()).thenReturn(result);
+		return event;
+	}
+
+	private static ProjectConfigurationFinishEvent projectConfigurationFinishEvent(String projectPath, long startTime,
+			long endTime) {
+		ProjectIdentifier project = mock(ProjectIdentifier.class);
+		when(project.getProjectPath()).thenReturn(projectPath);
+		ProjectConfigurationOperationDescriptor descriptor = mock(ProjectConfigurationOperationDescriptor.class);
+		when(descriptor.getProject()).thenReturn(project);
+		ProjectConfigurationSuccessResult result = mock(ProjectConfigurationSuccessResult.class);
+		when(result.getStartTime()).thenReturn(startTime);
+		when(result.getEndTime()).thenReturn(endTime);
+		ProjectConfigurationFinishEvent event = mock(ProjectConfigurationFinishEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		when(event.getResult()).thenReturn(result);
+		return event;
+	}
+}
@@ -0,0 +1,88 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildWatcherTest {
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+	private File root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = temporaryFolder.newFolder("root");
+		write("settings.gradle", "include 'app'");
+		write("app/build.gradle", "apply plugin: 'java'");
+		write("app/src/main/java/App.java", "class App {}");
+		write("buildSrc/src/main/java/Plugin.java", "class Plugin {}");
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldWatchOnlyDirectoriesOfBuildFiles() throws IOException {
+		try (BuildWatcher watcher = new BuildWatcher(root.toPath())) {
+			// root, app, and buildSrc down to its sources
+			assertEquals(6, watcher.getWatchedDirectoryCount());
+		}
+	}
+
+	@Test
+	public void shouldReportDebouncedBuildFileChanges() throws Exception {
+		try (BuildWatcher watcher = new BuildWatcher(root.toPath())) {
+			Future<List<String>> changes = executor.submit(() -> watcher.awaitChanges(200));
+			write("app/src/main/java/App.java", "class App { }");
+			write("app/build.gradle", "apply plugin: 'application'");
+			write("settings.gradle", "include 'app', 'lib'");
+			write("buildSrc/src/main/java/Plugin.java", "class Plugin { }");
+
+			assertEquals(Arrays.asList("app/build.gradle", "buildSrc/src/main/java/Plugin.java", "settings.gradle"),
+					changes.get(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void shouldWatchNewDirectoriesOnceRegistered() throws Exception {
+		try (BuildWatcher watcher = new BuildWatcher(root.toPath())) {
+			// a new project only counts once it is included
+			Future<List<String>> included = executor.submit(() -> watcher.awaitChanges(200));
+			write("lib/build.gradle", "apply plugin: 'java'");
+			write("settings.gradle", "include 'app', 'lib'");
+			assertEquals(Arrays.asList("settings.gradle"), included.get(10, TimeUnit.SECONDS));
+			watcher.registerDirectories();
+
+			Future<List<String>> changes = executor.submit(() -> watcher.awaitChanges(200));
+			write("lib/build.gradle", "apply plugin: 'java-library'");
+			assertEquals(Arrays.asList("lib/build.gradle"), changes.get(10, TimeUnit.SECONDS));
+		}
+	}
+
+	private void write(String path, String content) throws IOException {
+		File file = new File(root, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,78 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DaemonGroupsTest {
+	private static final GradleConfig WRAPPER_CONFIG = GradleConfig.newBuilder().setWrapperEnabled(true).build();
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void shouldGroupRootsByGradleVersionInRequestOrder() throws IOException {
+		GetBuildRequest app = request(newRoot("app", "8.6"), WRAPPER_CONFIG);
+		GetBuildRequest legacy = request(newRoot("legacy", "7.6.4"), WRAPPER_CONFIG);
+		GetBuildRequest lib = request(newRoot("lib", "8.6"), WRAPPER_CONFIG);
+
+		List<List<GetBuildRequest>> groups = DaemonGroups.group(Arrays.asList(app, legacy, lib));
+
+		assertEquals(2, groups.size());
+		assertEquals(Arrays.asList(app, lib), groups.get(0));
+		assertEquals(Arrays.asList(legacy), groups.get(1));
+	}
+
+	@Test
+	public void shouldSplitRootsByJvmArguments() throws IOException {
+		File app = newRoot("app", "8.6");
+		File lib = newRoot("lib", "8.6");
+		String appKey = DaemonGroups.getDaemonKey(app.getPath(), WRAPPER_CONFIG);
+
+		assertEquals(appKey, DaemonGroups.getDaemonKey(lib.getPath(), WRAPPER_CONFIG));
+		assertNotEquals(appKey,
+				DaemonGroups.getDaemonKey(lib.getPath(), WRAPPER_CONFIG.toBuilder().setJvmArguments("-Xmx2g").build()));
+		Files.write(new File(lib, "gradle.properties").toPath(),
+				"org.gradle.jvmargs=-Xmx4g\n".getBytes(StandardCharsets.UTF_8));
+		assertNotEquals(appKey, DaemonGroups.getDaemonKey(lib.getPath(), WRAPPER_CONFIG));
+	}
+
+	@Test
+	public void shouldNotGroupRootsOfUnknownVersion() throws IOException {
+		File app = temporaryFolder.newFolder("app");
+		File lib = temporaryFolder.newFolder("lib");
+
+		assertNotEquals(DaemonGroups.getDaemonKey(app.getPath(), WRAPPER_CONFIG),
+				DaemonGroups.getDaemonKey(lib.getPath(), WRAPPER_CONFIG));
+		GradleConfig versionConfig = GradleConfig.newBuilder().setVersion("8.6").build();
+		assertEquals(DaemonGroups.getDaemonKey(app.getPath(), versionConfig),
+				DaemonGroups.getDaemonKey(lib.getPath(), versionConfig));
+	}
+
+	private File newRoot(String name, String gradleVersion) throws IOException {
+		File root = temporaryFolder.newFolder(name);
+		File wrapperDir = new File(root, "gradle/wrapper");
+		wrapperDir.mkdirs();
+		String distributionUrl = "distributionUrl=https\\://services.gradle.org/distributions/gradle-" + gradleVersion
+				+ "-bin.zip\n";
+		Files.write(new File(wrapperDir, "gradle-wrapper.properties").toPath(),
+				distributionUrl.getBytes(StandardCharsets.UTF_8));
+		return root;
+	}
+
+	private static GetBuildRequest request(File root, GradleConfig config) {
+		return GetBuildRequest.newBuilder().setProjectDir(root.getPath()).setGradleConfig(config).build();
+	}
+}
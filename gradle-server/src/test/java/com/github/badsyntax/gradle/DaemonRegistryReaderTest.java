@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+
+import com.github.badsyntax.gradle.exceptions.DaemonRegistryException;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DaemonRegistryReaderTest {
+	private static final String GRADLE_VERSION = "8.6";
+	// not a running process
+	private static final long DEAD_PID = Integer.MAX_VALUE - 1L;
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File gradleUserHome;
+	private File daemonDir;
+	private long pid;
+
+	@Before
+	public void setUp() throws IOException {
+		DaemonRegistryReader.clearCache();
+		gradleUserHome = temporaryFolder.newFolder("gradle-user-home");
+		daemonDir = new File(gradleUserHome, "daemon");
+		new File(daemonDir, GRADLE_VERSION).mkdirs();
+		pid = Long.parseLong(ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+	}
+
+	@Test
+	public void shouldReadRunningAndRecentlyStoppedDaemons() throws Exception {
+		long now = System.currentTimeMillis();
+		writeRegistry(daemonDir.getAbsolutePath(), new long[]{pid, DEAD_PID}, new byte[]{1, 0}, new Object[][]{
+				{now - 1000, 1234L, "stop command received"}, {now - TimeUnit.HOURS.toMillis(2), 5678L, "expired"}});
+
+		List<DaemonInfo> daemons = DaemonRegistryReader.read(gradleUserHome, GRADLE_VERSION);
+		assertEquals(2, daemons.size());
+		assertEquals(String.valueOf(pid), daemons.get(0).getPid());
+		assertEquals(DaemonInfo.DaemonStatus.BUSY, daemons.get(0).getStatus());
+		assertEquals(GRADLE_VERSION, daemons.get(0).getInfo());
+		assertEquals("1234", daemons.get(1).getPid());
+		assertEquals(DaemonInfo.DaemonStatus.STOPPED, daemons.get(1).getStatus());
+		assertEquals("(stop command received)", daemons.get(1).getInfo());
+	}
+
+	@Test
+	public void shouldRereadModifiedRegistry() throws Exception {
+		File registryFile = writeRegistry(daemonDir.getAbsolutePath(), new long[]{pid}, new byte[]{0}, new Object[0][]);
+		assertEquals(DaemonInfo.DaemonStatus.IDLE,
+				DaemonRegistryReader.read(gradleUserHome, GRADLE_VERSION).get(0).getStatus());
+		writeRegistry(daemonDir.getAbsolutePath(), new long[]{pid}, new byte[]{1}, new Object[0][]);
+		registryFile.setLastModified(registryFile.lastModified() + 2000);
+		assertEquals(DaemonInfo.DaemonStatus.BUSY,
+				DaemonRegistryReader.read(gradleUserHome, GRADLE_VERSION).get(0).getStatus());
+	}
+
+	@Test
+	public void shouldReturnNoDaemonsWithoutRegistry() throws Exception {
+		assertEquals(0, DaemonRegistryReader.read(gradleUserHome, "7.0").size());
+	}
+
+	@Test(expected = DaemonRegistryException.class)
+	public void shouldRejectUnknownLayout() throws Exception {
+		// eg an older daemon context without the java version & vendor
+		writeRegistry("/some/other/daemon/dir", new long[]{pid}, new byte[]{0}, new Object[0][]);
+		DaemonRegistryReader.read(gradleUserHome, GRADLE_VERSION);
+	}
+
+	/**
+	 * Writes the registry as Gradle 9.1 does.
+	 */
+	private File writeRegistry(String registryDir, long[] pids, byte[] states, Object[][] stopEvents)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+		data.writeBoolean(true);
+		data.writeInt(pids.length);
+		for (int i = 0; i < pids.length; i++) {
+			data.writeByte(1);
+			data.writeLong(i);
+			data.writeLong(i);
+			data.writeInt(40000 + i);
+			data.writeInt(1);
+			data.writeInt(4);
+			data.write(new byte[]{127, 0, 0, 1});
+		}
+		for (int i = 0; i < pids.length; i++) {
+			data.writeInt(i);
+			data.writeInt(16);
+			data.write(new byte[16]);
+			data.writeByte(states[i]);
+			data.writeLong(System.currentTimeMillis());
+			data.writeBoolean(true);
+			data.writeUTF("0046ef4e-8a5e-4ec7-9f67-89217685303" + i);
+			data.writeUTF("/path/to/jdk");
+			data.writeInt(17);
+			data.writeUTF("Eclipse Adoptium");
+			data.writeUTF(registryDir);
+			data.writeBoolean(true);
+			data.writeLong(pids[i]);
+			data.writeBoolean(true);
+			data.writeInt(10800000);
+			List<String> daemonOpts = Arrays.asList("-Xms256m", "-Xmx512m");
+			data.writeInt(daemonOpts.size());
+			for (String daemonOpt : daemonOpts) {
+				data.writeUTF(daemonOpt);
+			}
+			data.writeBoolean(true);
+			data.writeInt(0);
+			data.writeBoolean(true);
+			data.writeInt(1);
+		}
+		data.writeInt(stopEvents.length);
+		for (Object[] stopEvent : stopEvents) {
+			data.writeLong((Long) stopEvent[0]);
+			data.writeLong((Long) stopEvent[1]);
+			data.writeBoolean(true);
+			data.writeByte(3);
+			data.writeBoolean(true);
+			data.writeUTF((String) stopEvent[2]);
+		}
+		File registryFile = new File(new File(daemonDir, GRADLE_VERSION), "registry.bin");
+		Files.write(registryFile.toPath(), bytes.toByteArray());
+		return registryFile;
+	}
+}
@@ -0,0 +1,48 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class DaemonStartDetectorTest {
+
+	@Test
+	public void shouldDetectDaemonStartAcrossWrites() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		DaemonStartDetector detector = new DaemonStartDetector(output);
+		write(detector, "> Configure project :\nStarting a Gra");
+		assertFalse(detector.isDaemonStarted());
+		write(detector, "dle Daemon (subsequent builds will be faster)\n");
+		assertTrue(detector.isDaemonStarted());
+		assertEquals("> Configure project :\nStarting a Gradle Daemon (subsequent builds will be faster)\n",
+				output.toString("UTF-8"));
+	}
+
+	@Test
+	public void shouldOnlyMatchAtLineStart() throws IOException {
+		DaemonStartDetector detector = new DaemonStartDetector(null);
+		write(detector, "> Task :help\nNot Starting a Gradle Daemon\r\nBUILD SUCCESSFUL\n");
+		assertFalse(detector.isDaemonStarted());
+	}
+
+	@Test
+	public void shouldDetectDaemonStartInColoredOutput() throws IOException {
+		DaemonStartDetector detector = new DaemonStartDetector(null);
+		write(detector, "\u001b[2K\u001b[1mStarting a \u001b[");
+		write(detector, "0;1mGradle Daemon\u001b[m (subsequent builds will be faster)\n");
+		assertTrue(detector.isDaemonStarted());
+	}
+
+	private static void write(DaemonStartDetector detector, String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		detector.write(bytes, 0, bytes.length);
+	}
+}
@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.microsoft.gradle.api.GradleDependencyNode;
+import com.microsoft.gradle.api.GradleDependencyType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class DependencyGraphBuilderTest {
+	private static final int PROJECTS = 20;
+	private static final String[] CONFIGURATIONS = {"compileClasspath", "runtimeClasspath", "testCompileClasspath",
+			"testRuntimeClasspath", "annotationProcessor"};
+	private static final int LIBRARIES = 60;
+
+	@Test
+	public void shouldInternNodesAcrossConfigurations() {
+		Node library = dependency("com.example:lib:1.0", dependency("com.example:core:1.0"));
+		Node project = project(configuration("compileClasspath", library),
+				configuration("runtimeClasspath", library, dependency("com.example:runtime:1.0")));
+
+		DependencyGraphBuilder builder = new DependencyGraphBuilder();
+		List<DependencyConfiguration> configurations = builder.addProject(project);
+		DependencyGraph graph = builder.build();
+
+		assertEquals(Arrays.asList("com.example:lib:1.0", "com.example:core:1.0", "com.example:runtime:1.0"),
+				graph.getNodesList());
+		assertEquals(2, configurations.size());
+		DependencyConfiguration runtime = configurations.get(1);
+		assertEquals("runtimeClasspath", runtime.getName());
+		assertEquals(Arrays.asList(0, 2), runtime.getDependenciesList());
+		assertEquals(1, runtime.getEdgesCount());
+		assertEquals(0, runtime.getEdges(0).getNode());
+		assertEquals(Arrays.asList(1), runtime.getEdges(0).getChildrenList());
+	}
+
+	/**
+	 * Reply size benchmark: a multi-project build where every configuration pulls
+	 * in the same library graph.
+	 */
+	@Test
+	public void shouldBeSmallerThanDependencyItemTrees() {
+		Node libraries = sharedLibraries();
+		GradleProject.Builder treeRoot = GradleProject.newBuilder();
+		GradleProject.Builder graphRoot = GradleProject.newBuilder();
+		DependencyGraphBuilder builder = new DependencyGraphBuilder();
+		for (int i = 0; i < PROJECTS; i++) {
+			List<Node> configurations = new ArrayList<>();
+			for (String configuration : CONFIGURATIONS) {
+				configurations.add(configuration(configuration, libraries.children.toArray(new Node[0])));
+			}
+			Node project = project(configurations.toArray(new Node[0]));
+			treeRoot.addProjects(
+					GradleProject.newBuilder().setDependencyItem(toDependencyItem(project, new HashSet<>())));
+			graphRoot.addProjects(
+					GradleProject.newBuilder().addAllDependencyConfigurations(builder.addProject(project)));
+		}
+		int treeSize = GradleBuild.newBuilder().setProject(treeRoot).build().getSerializedSize();
+		int graphSize = GradleBuild.newBuilder().setProject(graphRoot).setDependencyGraph(builder.build()).build()
+				.getSerializedSize();
+
+		assertTrue(graphSize * 10 < treeSize);
+	}
+
+	// a chain of libraries, each depending on the next two, like a BOM graph
+	private static Node sharedLibraries() {
+		Node[] libraries = new Node[LIBRARIES];
+		for (int i = LIBRARIES - 1; i >= 0; i--) {
+			List<Node> children = new ArrayList<>();
+			for (int j = i + 1; j < Math.min(i + 3, LIBRARIES); j++) {
+				children.add(libraries[j]);
+			}
+			libraries[i] = dependency("com.fasterxml.jackson.module:jackson-module-" + i + ":2.15.2",
+					children.toArray(new Node[0]));
+		}
+		return configuration("libraries", libraries[0], libraries[1]);
+	}
+
+	// mirrors the plugin, which expands the first occurrence of a module per
+	// configuration only
+	private static DependencyItem toDependencyItem(Node node, Set<String> expanded) {
+		DependencyItem.Builder item = DependencyItem.newBuilder().setName(node.name).setTypeValue(node.type.ordinal());
+		if (node.type == GradleDependencyType.CONFIGURATION) {
+			expanded = new HashSet<>();
+		}
+		if (node.type != GradleDependencyType.DEPENDENCY || expanded.add(node.name)) {
+			for (GradleDependencyNode child : node.children) {
+				item.addChildren(toDependencyItem((Node) child, expanded));
+			}
+		}
+		return item.build();
+	}
+
+	private static Node project(Node... configurations) {
+		return new Node("app", GradleDependencyType.PROJECT, configurations);
+	}
+
+	private static Node configuration(String name, Node... dependencies) {
+		return new Node(name, GradleDependencyType.CONFIGURATION, dependencies);
+	}
+
+	private static Node dependency(String name, Node... dependencies) {
+		return new Node(name, GradleDependencyType.DEPENDENCY, dependencies);
+	}
+
+	private static class Node implements GradleDependencyNode {
+		private final String name;
+		private final GradleDependencyType type;
+		private final List<GradleDependencyNode> children;
+
+		Node(String name, GradleDependencyType type, Node... children) {
+			this.name = name;
+			this.type = type;
+			this.children = new ArrayList<>(Arrays.asList(children));
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public GradleDependencyType getType() {
+			return type;
+		}
+
+		@Override
+		public List<GradleDependencyNode> getChildren() {
+			return children;
+		}
+	}
+}
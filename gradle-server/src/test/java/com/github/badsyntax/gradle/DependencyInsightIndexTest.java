@@ -0,0 +1,128 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Test;
+
+public class DependencyInsightIndexTest {
+	private static final String PROJECT_DIR = "/root";
+	private static final String GUAVA = "com.google.guava:guava:31.1-jre";
+	private static final String FAILUREACCESS = "com.google.guava:failureaccess:1.0.1";
+	private static final String GRPC_API = "io.grpc:grpc-api:1.53.0";
+	private static final String GRPC_CORE = "io.grpc:grpc-core:1.53.0";
+
+	@After
+	public void tearDown() {
+		DependencyInsightIndex.invalidate(PROJECT_DIR);
+	}
+
+	@Test
+	public void shouldFindEveryPathOfTheDependencyGraph() {
+		// grpc-core -> grpc-api -> guava -> failureaccess, and guava directly
+		DependencyGraph graph = DependencyGraph.newBuilder()
+				.addAllNodes(Arrays.asList(GRPC_CORE, GRPC_API, GUAVA, FAILUREACCESS)).build();
+		DependencyConfiguration configuration = DependencyConfiguration.newBuilder().setName("runtimeClasspath")
+				.addDependencies(0).addDependencies(2).addEdges(edges(0, 1)).addEdges(edges(1, 2)).addEdges(edges(2, 3))
+				.build();
+		GradleProject root = GradleProject.newBuilder().setProjectPath(PROJECT_DIR)
+				.addDependencyConfigurations(configuration).build();
+		DependencyInsightIndex.update(PROJECT_DIR,
+				GradleBuild.newBuilder().setDependencyGraph(graph).setProject(root).build());
+
+		GetDependencyInsightReply reply = DependencyInsightIndex.get(PROJECT_DIR).getInsight(PROJECT_DIR,
+				"runtimeClasspath", "com.google.guava:failureaccess", 100);
+
+		// direct dependencies are found first
+		assertEquals(Arrays.asList(Arrays.asList(GUAVA, FAILUREACCESS),
+				Arrays.asList(GRPC_CORE, GRPC_API, GUAVA, FAILUREACCESS)), getPaths(reply));
+		assertFalse(reply.getTruncated());
+	}
+
+	@Test
+	public void shouldFindPathsOfDependencyItemsOfSubProjects() {
+		DependencyItem configuration = item(GradleDependencyType.CONFIGURATION, "compileClasspath",
+				item(GradleDependencyType.DEPENDENCY, GRPC_API, item(GradleDependencyType.DEPENDENCY, GUAVA)));
+		GradleProject app = GradleProject.newBuilder().setProjectPath("/root/app")
+				.setDependencyItem(item(GradleDependencyType.PROJECT, "app", configuration)).build();
+		DependencyInsightIndex.update(PROJECT_DIR, GradleBuild.newBuilder()
+				.setProject(GradleProject.newBuilder().setProjectPath(PROJECT_DIR).addProjects(app)).build());
+		DependencyInsightIndex index = DependencyInsightIndex.get(PROJECT_DIR);
+
+		assertEquals(Arrays.asList(Arrays.asList(GRPC_API, GUAVA)),
+				getPaths(index.getInsight("/root/app", "compileClasspath", GUAVA, 100)));
+		assertEquals(0, index.getInsight("/root/app", "compileClasspath", "com.google.guava:guava:30.0-jre", 100)
+				.getPathsCount());
+	}
+
+	@Test
+	public void shouldTruncatePaths() {
+		DependencyItem configuration = item(GradleDependencyType.CONFIGURATION, "compileClasspath",
+				item(GradleDependencyType.DEPENDENCY, GRPC_CORE, item(GradleDependencyType.DEPENDENCY, GUAVA)),
+				item(GradleDependencyType.DEPENDENCY, GRPC_API, item(GradleDependencyType.DEPENDENCY, GUAVA)));
+		GradleProject root = GradleProject.newBuilder().setProjectPath(PROJECT_DIR)
+				.setDependencyItem(item(GradleDependencyType.PROJECT, "root", configuration)).build();
+		DependencyInsightIndex.update(PROJECT_DIR, GradleBuild.newBuilder().setProject(root).build());
+
+		GetDependencyInsightReply reply = DependencyInsightIndex.get(PROJECT_DIR).getInsight(PROJECT_DIR,
+				"compileClasspath", "com.google.guava:guava", 1);
+
+		assertEquals(Arrays.asList(Arrays.asList(GRPC_CORE, GUAVA)), getPaths(reply));
+		assertTrue(reply.getTruncated());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnknownConfiguration() {
+		DependencyInsightIndex.update(PROJECT_DIR,
+				GradleBuild.newBuilder().setProject(GradleProject.newBuilder().setProjectPath(PROJECT_DIR)).build());
+
+		DependencyInsightIndex.get(PROJECT_DIR).getInsight(PROJECT_DIR, "runtimeClasspath", GUAVA, 100);
+	}
+
+	@Test
+	public void shouldTellModelsWithoutDependencies() {
+		DependencyItem project = item(GradleDependencyType.PROJECT, "app");
+		GradleProject app = GradleProject.newBuilder().setProjectPath("/root/app").setDependencyItem(project).build();
+		GradleProject root = GradleProject.newBuilder().setProjectPath(PROJECT_DIR).addProjects(app).build();
+		assertFalse(DependencyInsightIndex.hasDependencies(GradleBuild.newBuilder().setProject(root).build()));
+
+		GradleProject resolvedApp = app.toBuilder().setDependencyItem(
+				item(GradleDependencyType.PROJECT, "app", item(GradleDependencyType.CONFIGURATION, "compileClasspath")))
+				.build();
+		assertTrue(DependencyInsightIndex.hasDependencies(
+				GradleBuild.newBuilder().setProject(root.toBuilder().setProjects(0, resolvedApp)).build()));
+	}
+
+	@Test
+	public void shouldDropIndexOnInvalidate() {
+		DependencyInsightIndex.update(PROJECT_DIR, GradleBuild.getDefaultInstance());
+		DependencyInsightIndex.invalidate(PROJECT_DIR);
+
+		assertNull(DependencyInsightIndex.get(PROJECT_DIR));
+	}
+
+	private static DependencyEdges edges(int node, int... children) {
+		DependencyEdges.Builder edges = DependencyEdges.newBuilder().setNode(node);
+		for (int child : children) {
+			edges.addChildren(child);
+		}
+		return edges.build();
+	}
+
+	private static DependencyItem item(GradleDependencyType type, String name, DependencyItem... children) {
+		return DependencyItem.newBuilder().setType(type).setName(name).addAllChildren(Arrays.asList(children)).build();
+	}
+
+	private static List<List<String>> getPaths(GetDependencyInsightReply reply) {
+		return reply.getPathsList().stream().map(DependencyPath::getNodesList).collect(Collectors.toList());
+	}
+}
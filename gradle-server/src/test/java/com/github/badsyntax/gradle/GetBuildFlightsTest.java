@@ -0,0 +1,146 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.protobuf.ByteString;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Test;
+
+public class GetBuildFlightsTest {
+
+	@After
+	public void tearDown() {
+		GetBuildFlights.clear();
+	}
+
+	@Test
+	public void shouldShareRepliesOfIdenticalRequests() {
+		RecordingObserver first = new RecordingObserver();
+		RecordingObserver second = new RecordingObserver();
+		GetBuildFlights.Flight flight = GetBuildFlights.subscribe(getBuildRequest("first"), first);
+		assertNotNull(flight);
+		assertNull(GetBuildFlights.subscribe(getBuildRequest("second"), second));
+		assertNotNull(GetBuildFlights.subscribe(getBuildRequest("first").toBuilder().setShowOutputColors(true).build(),
+				new RecordingObserver()));
+
+		flight.getReplies().onNext(environmentReply());
+		flight.getReplies().onNext(outputReply());
+		RecordingObserver late = new RecordingObserver();
+		assertNull(GetBuildFlights.subscribe(getBuildRequest("late"), late));
+		flight.getReplies().onCompleted();
+
+		assertEquals(2, first.replies.size());
+		assertEquals(2, second.replies.size());
+		// only the replayable replies are sent to late subscribers
+		assertEquals(1, late.replies.size());
+		assertTrue(late.replies.get(0).hasEnvironment());
+		assertTrue(first.completed && second.completed && late.completed);
+		// the next request starts a new flight
+		assertNotNull(GetBuildFlights.subscribe(getBuildRequest("first"), new RecordingObserver()));
+	}
+
+	@Test
+	public void shouldCancelBuildOnceEverySubscriberHasCancelled() throws Exception {
+		RecordingObserver first = new RecordingObserver();
+		RecordingObserver second = new RecordingObserver();
+		GetBuildRequest req = getBuildRequest("first").toBuilder().setProjectDir("cancel-project").build();
+		GetBuildFlights.Flight flight = GetBuildFlights.subscribe(req, first);
+		GetBuildFlights.subscribe(req.toBuilder().setCancellationKey("second").build(), second);
+		AtomicBoolean buildCancelled = new AtomicBoolean();
+		// stands in for the token of the running build
+		Runnable cancelBuild = () -> buildCancelled.set(true);
+		GradleBuildCancellation.setCancelHandler(flight.getRequest().getCancellationKey(), cancelBuild);
+
+		GradleBuildCancellation.cancelBuild("second");
+		assertTrue(second.completed);
+		assertTrue(second.replies.get(0).hasCancelled());
+		assertFalse(buildCancelled.get());
+
+		flight.getReplies().onNext(environmentReply());
+		assertEquals(1, first.replies.size());
+		assertEquals(1, second.replies.size());
+
+		GradleBuildCancellation.cancelBuild("first");
+		assertTrue(first.completed);
+		assertTrue(buildCancelled.get());
+		assertTrue(flight.getReplies().isCancelled());
+		GradleBuildCancellation.clearCancelHandler(flight.getRequest().getCancellationKey(), cancelBuild);
+		assertNotNull(GetBuildFlights.subscribe(req, new RecordingObserver()));
+	}
+
+	@Test
+	public void shouldKeepCancelHandlersOfFlightsSharingAKey() throws Exception {
+		RecordingObserver first = new RecordingObserver();
+		RecordingObserver second = new RecordingObserver();
+		GetBuildFlights.Flight firstFlight = GetBuildFlights.subscribe(getBuildRequest("shared"), first);
+		GetBuildFlights.Flight secondFlight = GetBuildFlights
+				.subscribe(getBuildRequest("shared").toBuilder().setShowOutputColors(true).build(), second);
+		assertNotNull(secondFlight);
+
+		GradleBuildCancellation.cancelBuild("shared");
+
+		assertTrue(first.completed && second.completed);
+		assertTrue(firstFlight.getReplies().isCancelled());
+		assertTrue(secondFlight.getReplies().isCancelled());
+	}
+
+	@Test
+	public void shouldOnlyClearTheCancelHandlerOfTheClosedFlight() throws Exception {
+		RecordingObserver second = new RecordingObserver();
+		GetBuildFlights.Flight firstFlight = GetBuildFlights.subscribe(getBuildRequest("shared"),
+				new RecordingObserver());
+		GetBuildFlights.subscribe(getBuildRequest("shared").toBuilder().setShowOutputColors(true).build(), second);
+
+		firstFlight.getReplies().onCompleted();
+		GradleBuildCancellation.cancelBuild("shared");
+
+		assertTrue(second.completed);
+		assertTrue(second.replies.get(0).hasCancelled());
+	}
+
+	private static GetBuildRequest getBuildRequest(String cancellationKey) {
+		return GetBuildRequest.newBuilder().setProjectDir("project").setCancellationKey(cancellationKey)
+				.setGradleConfig(GradleConfig.newBuilder().setJvmArguments("-Xmx1g")).build();
+	}
+
+	private static GetBuildReply environmentReply() {
+		return GetBuildReply.newBuilder().setEnvironment(
+				Environment.newBuilder().setGradleEnvironment(GradleEnvironment.newBuilder().setGradleVersion("8.6")))
+				.build();
+	}
+
+	private static GetBuildReply outputReply() {
+		return GetBuildReply.newBuilder().setOutput(Output.newBuilder().setOutputType(Output.OutputType.STDOUT)
+				.setOutputBytes(ByteString.copyFromUtf8("configuring"))).build();
+	}
+
+	private static class RecordingObserver implements StreamObserver<GetBuildReply> {
+		private final List<GetBuildReply> replies = new ArrayList<>();
+		private boolean completed;
+
+		@Override
+		public void onNext(GetBuildReply value) {
+			replies.add(value);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+		}
+
+		@Override
+		public void onCompleted() {
+			completed = true;
+		}
+	}
+}
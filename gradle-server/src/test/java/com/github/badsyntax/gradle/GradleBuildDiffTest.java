@@ -0,0 +1,69 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class GradleBuildDiffTest {
+	@Test
+	public void shouldReportEveryProjectOfTheFirstFetch() {
+		GradleBuildDiff diff = new GradleBuildDiff(Collections.emptyMap(),
+				GradleBuildDiff.getProjects(build(project("/root", "build"), project("/root/app", "build"))));
+
+		assertEquals(Arrays.asList("/root", "/root/app"), getProjectPaths(diff));
+		assertEquals("/root", diff.getChangedProjects().get(1).getParentProjectPath());
+		assertEquals(0, diff.getChangedProjects().get(0).getProject().getProjectsCount());
+	}
+
+	@Test
+	public void shouldReportOnlyChangedAndRemovedProjects() {
+		Map<String, GetBuildProjectResult> previous = GradleBuildDiff.getProjects(
+				build(project("/root", "build"), project("/root/app", "build"), project("/root/lib", "build")));
+		Map<String, GetBuildProjectResult> current = GradleBuildDiff
+				.getProjects(build(project("/root", "build"), project("/root/app", "build", "run")));
+
+		GradleBuildDiff diff = new GradleBuildDiff(previous, current);
+
+		assertEquals(Arrays.asList("/root/app"), getProjectPaths(diff));
+		assertEquals(Arrays.asList("/root/lib"), diff.getRemovedProjectPaths());
+	}
+
+	@Test
+	public void shouldReportNothingForTheSameBuildFetchedTwice() {
+		Map<String, GetBuildProjectResult> previous = GradleBuildDiff
+				.getProjects(build(project("/root", "build", "test"), project("/root/app", "build", "run")));
+		Map<String, GetBuildProjectResult> current = GradleBuildDiff
+				.getProjects(build(project("/root", "build", "test"), project("/root/app", "build", "run")));
+
+		GradleBuildDiff diff = new GradleBuildDiff(previous, current);
+
+		assertTrue(diff.getChangedProjects().isEmpty());
+		assertTrue(diff.getRemovedProjectPaths().isEmpty());
+	}
+
+	private static GradleBuild build(GradleProject root, GradleProject... subProjects) {
+		return GradleBuild.newBuilder().setProject(root.toBuilder().addAllProjects(Arrays.asList(subProjects))).build();
+	}
+
+	private static GradleProject project(String projectPath, String... tasks) {
+		GradleProject.Builder project = GradleProject.newBuilder().setProjectPath(projectPath);
+		for (String task : tasks) {
+			project.addTasks(GradleTask.newBuilder().setName(task).setPath(projectPath + ":" + task));
+		}
+		return project.build();
+	}
+
+	private static List<String> getProjectPaths(GradleBuildDiff diff) {
+		return diff.getChangedProjects().stream().map(project -> project.getProject().getProjectPath())
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,106 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GradleModelCacheTest {
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File projectDir;
+	private GradleConfig config;
+
+	@Before
+	public void setUp() throws IOException {
+		GradleModelCache.setCacheDir(temporaryFolder.newFolder("cache"));
+		projectDir = temporaryFolder.newFolder("project");
+		write("settings.gradle", "include 'app'");
+		write("app/build.gradle", "apply plugin: 'java'");
+		config = GradleConfig.newBuilder().setWrapperEnabled(true).build();
+	}
+
+	@After
+	public void tearDown() {
+		GradleModelCache.setCacheDir(null);
+	}
+
+	@Test
+	public void shouldChangeFingerprintWhenBuildInputsChange() throws IOException {
+		String fingerprint = GradleModelCache.getFingerprint(request(config));
+		write("app/src/main/java/App.java", "class App {}");
+		write("app/build/tmp/build.gradle", "ignored");
+		assertEquals(fingerprint, GradleModelCache.getFingerprint(request(config)));
+
+		write("gradle/libs.versions.toml", "[versions]");
+		String catalogFingerprint = GradleModelCache.getFingerprint(request(config));
+		assertNotEquals(fingerprint, catalogFingerprint);
+
+		write("buildSrc/src/main/groovy/Convention.groovy", "class Convention {}");
+		String buildSrcFingerprint = GradleModelCache.getFingerprint(request(config));
+		assertNotEquals(catalogFingerprint, buildSrcFingerprint);
+
+		// same size, and likely the same timestamp, as the content hashed just before
+		write("app/build.gradle", "apply plugin: 'groo'");
+		assertNotEquals(buildSrcFingerprint, GradleModelCache.getFingerprint(request(config)));
+	}
+
+	@Test
+	public void shouldChangeFingerprintWhenConfigChanges() throws IOException {
+		String fingerprint = GradleModelCache.getFingerprint(request(config));
+		GradleConfig otherConfig = config.toBuilder().setJvmArguments("-Xmx2g").build();
+		assertNotEquals(fingerprint, GradleModelCache.getFingerprint(request(otherConfig)));
+		assertNotEquals(fingerprint,
+				GradleModelCache.getFingerprint(request(config).toBuilder().setSkipDependencies(true).build()));
+	}
+
+	@Test
+	public void shouldOnlyReturnModelForMatchingFingerprint() throws IOException {
+		String projectPath = projectDir.getAbsolutePath();
+		String fingerprint = GradleModelCache.getFingerprint(request(config));
+		GradleBuild build = GradleBuild.newBuilder().setProject(GradleProject.newBuilder().setIsRoot(true)
+				.setProjectPath(":").addTasks(GradleTask.newBuilder().setName("build").setPath(":build"))).build();
+		assertNull(GradleModelCache.get(projectPath, fingerprint));
+		assertTrue(GradleModelCache.needsRevalidation(projectPath, fingerprint));
+
+		Environment environment = Environment.newBuilder()
+				.setGradleEnvironment(GradleEnvironment.newBuilder().setGradleVersion("8.6")).build();
+		GradleModelCache.put(projectPath, fingerprint, environment, build);
+		assertEquals(build, GradleModelCache.get(projectPath, fingerprint).getBuild());
+		assertEquals(environment, GradleModelCache.get(projectPath, fingerprint).getEnvironment());
+		assertFalse(GradleModelCache.needsRevalidation(projectPath, fingerprint));
+
+		write("build.gradle", "apply plugin: 'base'");
+		String changedFingerprint = GradleModelCache.getFingerprint(request(config));
+		assertNull(GradleModelCache.get(projectPath, changedFingerprint));
+		assertTrue(GradleModelCache.needsRevalidation(projectPath, changedFingerprint));
+
+		GradleModelCache.invalidate(projectPath);
+		assertNull(GradleModelCache.get(projectPath, fingerprint));
+	}
+
+	private GetBuildRequest request(GradleConfig gradleConfig) {
+		return GetBuildRequest.newBuilder().setProjectDir(projectDir.getAbsolutePath()).setGradleConfig(gradleConfig)
+				.setCancellationKey(projectDir.getAbsolutePath()).build();
+	}
+
+	private void write(String path, String content) throws IOException {
+		File file = new File(projectDir, path);
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), content.getBytes());
+	}
+}
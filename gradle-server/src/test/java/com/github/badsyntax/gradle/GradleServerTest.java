@@ -1,14 +1,25 @@
 package com.github.badsyntax.gradle;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.*;
 
+import com.microsoft.gradle.api.GradleBuildModel;
+import com.microsoft.gradle.api.GradleBuildModelAction;
+import com.microsoft.gradle.api.GradleDependencyModel;
+import com.microsoft.gradle.api.GradleDependencyModelAction;
+import com.microsoft.gradle.api.GradleDependencyNode;
+import com.microsoft.gradle.api.GradleDependencyType;
+import com.microsoft.gradle.api.GradleEnvironmentModel;
+import com.microsoft.gradle.api.GradleProjectModel;
 import io.grpc.ManagedChannel;
+import io.grpc.Status;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
 import io.grpc.stub.StreamObserver;
@@ -21,9 +32,14 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.StreamedValueListener;
 import org.gradle.tooling.events.OperationType;
 import org.junit.After;
 import org.junit.Before;
@@ -64,6 +80,8 @@ public class GradleServerTest {
 		mockJvmArgs = new ArrayList<>();
 		mockBuildArgs = new ArrayList<>();
 		mockBuildArgs.add("test");
+		// builds of the same project would otherwise be served from the cache
+		GradleModelCache.setCacheDir(Files.createTempDirectory("mockModelCache").toFile());
 		stub = GradleGrpc.newStub(inProcessChannel);
 		setupMocks();
 	}
@@ -100,6 +118,10 @@ public class GradleServerTest {
 	org.gradle.tooling.model.build.JavaEnvironment mockJavaEnvironment;
 	@Mock
 	org.gradle.tooling.BuildLauncher mockBuildLauncher;
+	@Mock
+	org.gradle.tooling.BuildActionExecuter<GradleBuildModel> mockBuildModelAction;
+	@Mock
+	org.gradle.tooling.TestLauncher mockTestLauncher;
 
 	private void setupMocks() {
 		mockStatic(org.gradle.tooling.GradleConnector.class);
@@ -137,6 +159,19 @@ public class GradleServerTest {
 		when(mockConnection.model(org.gradle.tooling.model.build.BuildEnvironment.class))
 				.thenReturn(mockBuildEnvironmentBuilder);
 
+		// Build model action (getBuild) mocks
+		when(mockBuildModelAction.withArguments(any(List.class))).thenReturn(mockBuildModelAction);
+		when(mockBuildModelAction.withCancellationToken(any())).thenReturn(mockBuildModelAction);
+		when(mockBuildModelAction.addProgressListener(any(org.gradle.tooling.events.ProgressListener.class),
+				ArgumentMatchers.<Set<OperationType>>any())).thenReturn(mockBuildModelAction);
+		when(mockBuildModelAction.setStandardOutput(any(OutputStream.class))).thenReturn(mockBuildModelAction);
+		when(mockBuildModelAction.setStandardError(any(OutputStream.class))).thenReturn(mockBuildModelAction);
+		when(mockBuildModelAction.setColorOutput(any(Boolean.class))).thenReturn(mockBuildModelAction);
+		GradleBuildModel mockBuildModel = new GradleBuildModel(mockEnvironmentModel(), mockProjectModel("/root", null),
+				false);
+		when(mockBuildModelAction.run()).thenReturn(mockBuildModel);
+		when(mockConnection.action(any(GradleBuildModelAction.class))).thenReturn(mockBuildModelAction);
+
 		// Build launcher (run build) mocks
 		when(mockBuildLauncher.withCancellationToken(any())).thenReturn(mockBuildLauncher);
 		when(mockBuildLauncher.addProgressListener(any(org.gradle.tooling.events.ProgressListener.class),
@@ -147,11 +182,22 @@ public class GradleServerTest {
 		when(mockBuildLauncher.withArguments(any(List.class))).thenReturn(mockBuildLauncher);
 		when(mockBuildLauncher.forTasks(any(String.class))).thenReturn(mockBuildLauncher);
 		when(mockConnection.newBuild()).thenReturn(mockBuildLauncher);
+
+		// Test launcher (run tests) mocks
+		when(mockTestLauncher.withCancellationToken(any())).thenReturn(mockTestLauncher);
+		when(mockTestLauncher.addProgressListener(any(org.gradle.tooling.events.ProgressListener.class),
+				ArgumentMatchers.<Set<OperationType>>any())).thenReturn(mockTestLauncher);
+		when(mockTestLauncher.setStandardOutput(any(OutputStream.class))).thenReturn(mockTestLauncher);
+		when(mockTestLauncher.setStandardError(any(OutputStream.class))).thenReturn(mockTestLauncher);
+		when(mockTestLauncher.setColorOutput(any(Boolean.class))).thenReturn(mockTestLauncher);
+		when(mockTestLauncher.withArguments(any(Iterable.class))).thenReturn(mockTestLauncher);
+		when(mockConnection.newTestLauncher()).thenReturn(mockTestLauncher);
 	}
 
 	@After
 	public void tearDown() throws Exception {
 		server.stop();
+		GradleModelCache.setCacheDir(null);
 		mockProjectDir.delete();
 		mockGradleUserHome.delete();
 	}
@@ -218,14 +264,18 @@ public class GradleServerTest {
 	public void getBuild_shouldUseJvmArgs() throws IOException {
 		StreamObserver<GetBuildReply> mockResponseObserver = (StreamObserver<GetBuildReply>) mock(StreamObserver.class);
 
-		String jvmArgs = "-Xmx64m -Xms64m";
+		String jvmArgs = "-Xmx64m  -Xms64m";
+		ArgumentCaptor<List<String>> arguments = ArgumentCaptor.forClass(List.class);
 
 		GetBuildRequest req = GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
 				.setGradleConfig(GradleConfig.newBuilder().setJvmArguments(jvmArgs).setWrapperEnabled(true)).build();
 
 		stub.getBuild(req, mockResponseObserver);
 		verify(mockResponseObserver, never()).onError(any());
-		verify(mockBuildEnvironmentBuilder).setJvmArguments(jvmArgs.split(" "));
+		verify(mockBuildModelAction).setJvmArguments("-Xmx64m", "-Xms64m");
+		// the daemon is started with them, they are not build arguments
+		verify(mockBuildModelAction).withArguments(arguments.capture());
+		assertFalse(arguments.getValue().contains("-Xmx64m"));
 	}
 
 	@Test
@@ -237,13 +287,14 @@ public class GradleServerTest {
 
 		stub.getBuild(req1, mockResponseObserver);
 		verify(mockResponseObserver, never()).onError(any());
-		verify(mockBuildEnvironmentBuilder).setColorOutput(false);
+		verify(mockBuildModelAction).setColorOutput(false);
+		GradleModelCache.invalidate(req1.getProjectDir());
 
 		GetBuildRequest req2 = GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
 				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).setShowOutputColors(true).build();
 		stub.getBuild(req2, mockResponseObserver);
 		verify(mockResponseObserver, never()).onError(any());
-		verify(mockBuildEnvironmentBuilder).setColorOutput(true);
+		verify(mockBuildModelAction).setColorOutput(true);
 	}
 
 	@Test
@@ -258,11 +309,385 @@ public class GradleServerTest {
 		stub.getBuild(req, mockResponseObserver);
 		verify(mockResponseObserver, never()).onError(any());
 
-		verify(mockBuildEnvironmentBuilder).addProgressListener(any(org.gradle.tooling.events.ProgressListener.class),
+		verify(mockBuildModelAction).addProgressListener(any(org.gradle.tooling.events.ProgressListener.class),
 				onAddProgressListener.capture());
 
-		assertEquals(1, onAddProgressListener.getValue().size());
+		assertEquals(3, onAddProgressListener.getValue().size());
 		assertTrue(onAddProgressListener.getValue().contains(OperationType.GENERIC));
+		assertTrue(onAddProgressListener.getValue().contains(OperationType.PROJECT_CONFIGURATION));
+		assertTrue(onAddProgressListener.getValue().contains(OperationType.BUILD_PHASE));
+	}
+
+	@Test
+	public void getProjectDependencies_shouldReplyWithDependencyItem() throws IOException {
+		StreamObserver<GetProjectDependenciesReply> mockResponseObserver = (StreamObserver<GetProjectDependenciesReply>) mock(
+				StreamObserver.class);
+		org.gradle.tooling.BuildActionExecuter<GradleDependencyModel> mockAction = mock(
+				org.gradle.tooling.BuildActionExecuter.class);
+		when(mockConnection.action(any(GradleDependencyModelAction.class))).thenReturn(mockAction);
+		when(mockAction.withArguments(any(List.class))).thenReturn(mockAction);
+		when(mockAction.withCancellationToken(any())).thenReturn(mockAction);
+		when(mockAction.addProgressListener(any(org.gradle.tooling.events.ProgressListener.class),
+				ArgumentMatchers.<Set<OperationType>>any())).thenReturn(mockAction);
+		when(mockAction.setStandardOutput(any(OutputStream.class))).thenReturn(mockAction);
+		when(mockAction.setStandardError(any(OutputStream.class))).thenReturn(mockAction);
+		when(mockAction.setColorOutput(any(Boolean.class))).thenReturn(mockAction);
+		GradleDependencyNode mockNode = mock(GradleDependencyNode.class);
+		when(mockNode.getName()).thenReturn("app");
+		when(mockNode.getType()).thenReturn(GradleDependencyType.PROJECT);
+		GradleDependencyModel mockModel = mock(GradleDependencyModel.class);
+		when(mockModel.getDependencyNode()).thenReturn(mockNode);
+		when(mockAction.run()).thenReturn(mockModel);
+
+		GetProjectDependenciesRequest req = GetProjectDependenciesRequest.newBuilder()
+				.setProjectDir(mockProjectDir.getAbsolutePath().toString()).setProjectPath(":app")
+				.addConfigurations("runtimeClasspath")
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).build();
+
+		ArgumentCaptor<GetProjectDependenciesReply> onNext = ArgumentCaptor.forClass(GetProjectDependenciesReply.class);
+
+		stub.getProjectDependencies(req, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		verify(mockResponseObserver).onNext(onNext.capture());
+		verify(mockResponseObserver).onCompleted();
+		assertEquals("app", onNext.getValue().getGetProjectDependenciesResult().getDependencyItem().getName());
+	}
+
+	@Test
+	public void searchTasks_shouldPageThroughMatches() {
+		StreamObserver<SearchTasksReply> mockResponseObserver = (StreamObserver<SearchTasksReply>) mock(
+				StreamObserver.class);
+		indexTasks("test", "testClasses", "integrationTest", "build");
+		SearchTasksRequest req = SearchTasksRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath())
+				.setQuery("test").setLimit(2).build();
+		ArgumentCaptor<SearchTasksReply> onNext = ArgumentCaptor.forClass(SearchTasksReply.class);
+
+		try {
+			stub.searchTasks(req, mockResponseObserver);
+			verify(mockResponseObserver).onNext(onNext.capture());
+			SearchTasksReply firstPage = onNext.getValue();
+			assertEquals(3, firstPage.getTotalCount());
+			assertEquals(Arrays.asList("test", "testClasses"),
+					firstPage.getTasksList().stream().map(GradleTask::getName).collect(Collectors.toList()));
+			assertFalse(firstPage.getNextPageToken().isEmpty());
+
+			stub.searchTasks(req.toBuilder().setPageToken(firstPage.getNextPageToken()).build(), mockResponseObserver);
+			verify(mockResponseObserver, never()).onError(any());
+			verify(mockResponseObserver, times(2)).onNext(onNext.capture());
+			SearchTasksReply lastPage = onNext.getValue();
+			assertEquals("integrationTest", lastPage.getTasks(0).getName());
+			assertEquals("", lastPage.getNextPageToken());
+		} finally {
+			TaskIndex.invalidate(mockProjectDir.getAbsolutePath());
+		}
+	}
+
+	@Test
+	public void searchTasks_shouldRejectPageTokensOfAnotherSearch() {
+		StreamObserver<SearchTasksReply> mockResponseObserver = (StreamObserver<SearchTasksReply>) mock(
+				StreamObserver.class);
+		indexTasks("test", "testClasses", "integrationTest", "build");
+		SearchTasksRequest req = SearchTasksRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath())
+				.setQuery("test").setLimit(2).build();
+		ArgumentCaptor<SearchTasksReply> onNext = ArgumentCaptor.forClass(SearchTasksReply.class);
+		ArgumentCaptor<Throwable> onError = ArgumentCaptor.forClass(Throwable.class);
+
+		try {
+			stub.searchTasks(req, mockResponseObserver);
+			verify(mockResponseObserver).onNext(onNext.capture());
+			String pageToken = onNext.getValue().getNextPageToken();
+
+			stub.searchTasks(req.toBuilder().setQuery("build").setPageToken(pageToken).build(), mockResponseObserver);
+			stub.searchTasks(req.toBuilder().setPageToken("2").build(), mockResponseObserver);
+			// the model was refreshed since the first page
+			indexTasks("test", "testClasses", "integrationTest", "build");
+			stub.searchTasks(req.toBuilder().setPageToken(pageToken).build(), mockResponseObserver);
+
+			verify(mockResponseObserver, times(3)).onError(onError.capture());
+			List<Status.Code> codes = onError.getAllValues().stream()
+					.map(error -> Status.fromThrowable(error).getCode()).collect(Collectors.toList());
+			assertEquals(Arrays.asList(Status.Code.INVALID_ARGUMENT, Status.Code.INVALID_ARGUMENT,
+					Status.Code.FAILED_PRECONDITION), codes);
+		} finally {
+			TaskIndex.invalidate(mockProjectDir.getAbsolutePath());
+		}
+	}
+
+	@Test
+	public void listTasks_shouldCountPagesOfAnyPageSize() {
+		StreamObserver<ListTasksReply> mockResponseObserver = (StreamObserver<ListTasksReply>) mock(
+				StreamObserver.class);
+		indexTasks("test", "build");
+		ListTasksRequest req = ListTasksRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath())
+				.setProjectPath(mockProjectDir.getAbsolutePath()).setPageSize(Integer.MAX_VALUE).build();
+		ArgumentCaptor<ListTasksReply> onNext = ArgumentCaptor.forClass(ListTasksReply.class);
+
+		try {
+			stub.listTasks(req, mockResponseObserver);
+			verify(mockResponseObserver, never()).onError(any());
+			verify(mockResponseObserver).onNext(onNext.capture());
+			assertEquals(1, onNext.getValue().getPageCount());
+			assertEquals(2, onNext.getValue().getTasksCount());
+		} finally {
+			TaskIndex.invalidate(mockProjectDir.getAbsolutePath());
+		}
+	}
+
+	private void indexTasks(String... names) {
+		GradleProject.Builder project = GradleProject.newBuilder().setProjectPath(mockProjectDir.getAbsolutePath());
+		for (String name : names) {
+			project.addTasks(GradleTask.newBuilder().setName(name).setPath(":" + name));
+		}
+		TaskIndex.update(mockProjectDir.getAbsolutePath(), GradleBuild.newBuilder().setProject(project).build());
+	}
+
+	@Test
+	public void getBuild_shouldStreamProjectsAndCompleteWithMarker() throws IOException {
+		GradleModelCache.setCacheDir(Files.createTempDirectory("mockModelCache").toFile());
+		StreamObserver<GetBuildReply> mockResponseObserver = (StreamObserver<GetBuildReply>) mock(StreamObserver.class);
+		GradleProjectModel mockSubProject = mockProjectModel("/root/app", "/root");
+		GradleProjectModel mockRootProject = mockProjectModel("/root", null);
+		doReturn(Arrays.asList(mockSubProject)).when(mockRootProject).getSubProjects();
+		// Gradle 6.3 can't send streamed values, the server splits the whole model
+		when(mockBuildModelAction.run())
+				.thenReturn(new GradleBuildModel(mockEnvironmentModel(), mockRootProject, false));
+
+		GetBuildRequest req = GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).setStreamProjects(true).build();
+		ArgumentCaptor<GetBuildReply> onNext = ArgumentCaptor.forClass(GetBuildReply.class);
+
+		try {
+			stub.getBuild(req, mockResponseObserver);
+			verify(mockResponseObserver, never()).onError(any());
+			verify(mockResponseObserver, times(4)).onNext(onNext.capture());
+			verify(mockResponseObserver).onCompleted();
+			List<GetBuildReply> replies = onNext.getAllValues();
+			assertEquals(GetBuildReply.KindCase.ENVIRONMENT, replies.get(0).getKindCase());
+			GetBuildProjectResult rootResult = replies.get(1).getGetBuildProjectResult();
+			assertEquals("", rootResult.getParentProjectPath());
+			assertEquals(0, rootResult.getProject().getProjectsCount());
+			GetBuildProjectResult subProjectResult = replies.get(2).getGetBuildProjectResult();
+			assertEquals("/root", subProjectResult.getParentProjectPath());
+			assertEquals("/root/app", subProjectResult.getProject().getProjectPath());
+			GetBuildResult result = replies.get(3).getGetBuildResult();
+			assertTrue(result.getStreamed());
+			assertFalse(result.getBuild().hasProject());
+
+			GradleBuild cachedBuild = GradleModelCache.get(req.getProjectDir(), GradleModelCache.getFingerprint(req))
+					.getBuild();
+			assertEquals("/root/app", cachedBuild.getProject().getProjects(0).getProjectPath());
+		} finally {
+			GradleModelCache.setCacheDir(null);
+		}
+	}
+
+	@Test
+	public void getBuild_shouldReplyWithEnvironmentOfAFailedBuild() throws Exception {
+		StreamObserver<GetBuildReply> mockResponseObserver = (StreamObserver<GetBuildReply>) mock(StreamObserver.class);
+		// eg a broken build script
+		when(mockBuildModelAction.run()).thenThrow(new GradleConnectionException("Could not run build action"));
+		GetBuildRequest req = GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true).setJavaExtensionVersion("1.3.0"))
+				.build();
+		ArgumentCaptor<GetBuildReply> onNext = ArgumentCaptor.forClass(GetBuildReply.class);
+
+		stub.getBuild(req, mockResponseObserver);
+
+		verify(mockResponseObserver).onNext(onNext.capture());
+		verify(mockResponseObserver).onError(any());
+		assertEquals("6.3", onNext.getValue().getEnvironment().getGradleEnvironment().getGradleVersion());
+	}
+
+	@Test
+	public void getBuild_shouldReplyWithCachedEnvironmentBeforeCachedBuild() throws Exception {
+		StreamObserver<GetBuildReply> mockResponseObserver = (StreamObserver<GetBuildReply>) mock(StreamObserver.class);
+		StreamObserver<GetBuildReply> mockCachedResponseObserver = (StreamObserver<GetBuildReply>) mock(
+				StreamObserver.class);
+		GradleProjectModel mockRootProject = mockProjectModel("/root", null);
+		when(mockBuildModelAction.run())
+				.thenReturn(new GradleBuildModel(mockEnvironmentModel(), mockRootProject, false));
+		GetBuildRequest req = GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).build();
+		ArgumentCaptor<GetBuildReply> onNext = ArgumentCaptor.forClass(GetBuildReply.class);
+
+		stub.getBuild(req, mockResponseObserver);
+		// served from the cache without revalidation, the model was just built
+		stub.getBuild(req, mockCachedResponseObserver);
+
+		verify(mockBuildModelAction, times(1)).run();
+		verify(mockCachedResponseObserver, never()).onError(any());
+		verify(mockCachedResponseObserver, times(2)).onNext(onNext.capture());
+		verify(mockCachedResponseObserver).onCompleted();
+		List<GetBuildReply> replies = onNext.getAllValues();
+		assertEquals("8.6", replies.get(0).getEnvironment().getGradleEnvironment().getGradleVersion());
+		assertTrue(replies.get(1).getGetBuildResult().getCached());
+	}
+
+	@Test
+	public void getBuild_shouldReplyWithStreamedEnvironmentFirst() throws IOException {
+		StreamObserver<GetBuildReply> mockResponseObserver = (StreamObserver<GetBuildReply>) mock(StreamObserver.class);
+		ArgumentCaptor<StreamedValueListener> streamedValueListener = ArgumentCaptor
+				.forClass(StreamedValueListener.class);
+		// Gradle 8.6+ sends the environment, then each project, from the build action
+		when(mockBuildModelAction.run()).thenAnswer(invocation -> {
+			verify(mockBuildModelAction).setStreamedValueListener(streamedValueListener.capture());
+			GradleEnvironmentModel environment = mockEnvironmentModel();
+			streamedValueListener.getValue().onValue(environment);
+			streamedValueListener.getValue().onValue(mockProjectModel("/root", null));
+			return new GradleBuildModel(environment, null, true);
+		});
+
+		GetBuildRequest req = GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).setStreamProjects(true).build();
+		ArgumentCaptor<GetBuildReply> onNext = ArgumentCaptor.forClass(GetBuildReply.class);
+
+		stub.getBuild(req, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		verify(mockResponseObserver, times(3)).onNext(onNext.capture());
+		verify(mockResponseObserver).onCompleted();
+		verify(mockConnection, never()).model(org.gradle.tooling.model.build.BuildEnvironment.class);
+		List<GetBuildReply> replies = onNext.getAllValues();
+		assertEquals(GetBuildReply.KindCase.ENVIRONMENT, replies.get(0).getKindCase());
+		assertEquals("8.6", replies.get(0).getEnvironment().getGradleEnvironment().getGradleVersion());
+		assertEquals("/root", replies.get(1).getGetBuildProjectResult().getProject().getProjectPath());
+		assertTrue(replies.get(2).getGetBuildResult().getStreamed());
+	}
+
+	@Test
+	public void getBuilds_shouldTagRepliesWithTheirRoot() throws IOException {
+		StreamObserver<GetBuildsReply> mockResponseObserver = (StreamObserver<GetBuildsReply>) mock(
+				StreamObserver.class);
+		File otherProjectDir = Files.createTempDirectory("mockOtherProjectDir").toFile();
+		when(mockConnector.forProjectDirectory(otherProjectDir)).thenReturn(mockConnector);
+		GradleConfig gradleConfig = GradleConfig.newBuilder().setWrapperEnabled(true).build();
+		GetBuildsRequest req = GetBuildsRequest.newBuilder()
+				.addBuilds(GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath())
+						.setGradleConfig(gradleConfig))
+				.addBuilds(GetBuildRequest.newBuilder().setProjectDir(otherProjectDir.getAbsolutePath())
+						.setGradleConfig(gradleConfig))
+				.build();
+		ArgumentCaptor<GetBuildsReply> onNext = ArgumentCaptor.forClass(GetBuildsReply.class);
+
+		try {
+			stub.getBuilds(req, mockResponseObserver);
+			verify(mockResponseObserver, never()).onError(any());
+			verify(mockResponseObserver, times(6)).onNext(onNext.capture());
+			verify(mockResponseObserver).onCompleted();
+			for (File projectDir : Arrays.asList(mockProjectDir, otherProjectDir)) {
+				List<GetBuildsReply> replies = onNext.getAllValues().stream()
+						.filter(reply -> reply.getProjectDir().equals(projectDir.getAbsolutePath()))
+						.collect(Collectors.toList());
+				assertEquals(3, replies.size());
+				assertTrue(replies.get(0).getGetBuildReply().hasEnvironment());
+				assertEquals("/root",
+						replies.get(1).getGetBuildReply().getGetBuildResult().getBuild().getProject().getProjectPath());
+				assertEquals("", replies.get(2).getRootCompleted().getError());
+			}
+		} finally {
+			otherProjectDir.delete();
+		}
+	}
+
+	@Test
+	public void getBuilds_shouldReplyWithErrorOfFailedRoot() throws IOException {
+		StreamObserver<GetBuildsReply> mockResponseObserver = (StreamObserver<GetBuildsReply>) mock(
+				StreamObserver.class);
+		when(mockBuildModelAction.run()).thenThrow(new IllegalStateException("Unable to configure the build"));
+		GetBuildsRequest req = GetBuildsRequest.newBuilder()
+				.addBuilds(GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath()).setGradleConfig(
+						GradleConfig.newBuilder().setWrapperEnabled(true).setJavaExtensionVersion("1.3.0")))
+				.build();
+		ArgumentCaptor<GetBuildsReply> onNext = ArgumentCaptor.forClass(GetBuildsReply.class);
+
+		stub.getBuilds(req, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		verify(mockResponseObserver, times(2)).onNext(onNext.capture());
+		verify(mockResponseObserver).onCompleted();
+		// the environment of the failed root is still sent
+		assertTrue(onNext.getAllValues().get(0).getGetBuildReply().hasEnvironment());
+		assertEquals(mockProjectDir.getAbsolutePath(), onNext.getValue().getProjectDir());
+		assertEquals("Unable to configure the build", onNext.getValue().getRootCompleted().getError());
+	}
+
+	@Test
+	public void getBuild_shouldFetchEnvironmentIfActionCannot() throws IOException {
+		StreamObserver<GetBuildReply> mockResponseObserver = (StreamObserver<GetBuildReply>) mock(StreamObserver.class);
+		GradleBuildModel mockBuildModel = new GradleBuildModel(null, mockProjectModel("/root", null), false);
+		when(mockBuildModelAction.run()).thenReturn(mockBuildModel);
+
+		GetBuildRequest req = GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).build();
+		ArgumentCaptor<GetBuildReply> onNext = ArgumentCaptor.forClass(GetBuildReply.class);
+
+		stub.getBuild(req, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		verify(mockResponseObserver, times(2)).onNext(onNext.capture());
+		verify(mockBuildEnvironmentBuilder).get();
+		assertEquals("6.3", onNext.getAllValues().get(0).getEnvironment().getGradleEnvironment().getGradleVersion());
+		assertEquals("/root",
+				onNext.getAllValues().get(1).getGetBuildResult().getBuild().getProject().getProjectPath());
+	}
+
+	@Test
+	public void getBuild_shouldNotReplyAgainWithAnUnchangedBuild() throws IOException {
+		File cacheDir = Files.createTempDirectory("mockModelCache").toFile();
+		GradleModelCache.setCacheDir(cacheDir);
+		StreamObserver<GetBuildReply> mockResponseObserver = (StreamObserver<GetBuildReply>) mock(StreamObserver.class);
+		StreamObserver<GetBuildReply> mockRevalidatedResponseObserver = (StreamObserver<GetBuildReply>) mock(
+				StreamObserver.class);
+		GradleProjectModel mockRootProject = mockProjectModel("/root", null);
+		com.microsoft.gradle.api.GradleTask build = mockTask("build");
+		com.microsoft.gradle.api.GradleTask test = mockTask("test");
+		// the tasks of the same build, as Gradle may list them on each fetch
+		when(mockRootProject.getTasks()).thenReturn(Arrays.asList(build, test), Arrays.asList(test, build));
+		when(mockBuildModelAction.run())
+				.thenReturn(new GradleBuildModel(mockEnvironmentModel(), mockRootProject, false));
+		GetBuildRequest req = GetBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).build();
+		ArgumentCaptor<GetBuildReply> onNext = ArgumentCaptor.forClass(GetBuildReply.class);
+
+		stub.getBuild(req, mockResponseObserver);
+		// forget the validation, so the cached model is revalidated
+		GradleModelCache.setCacheDir(cacheDir);
+		stub.getBuild(req, mockRevalidatedResponseObserver);
+
+		verify(mockBuildModelAction, times(2)).run();
+		verify(mockRevalidatedResponseObserver, never()).onError(any());
+		verify(mockRevalidatedResponseObserver, times(2)).onNext(onNext.capture());
+		verify(mockRevalidatedResponseObserver).onCompleted();
+		List<GetBuildReply> replies = onNext.getAllValues();
+		assertTrue(replies.get(0).hasEnvironment());
+		// only the cached build, the revalidated one is the same
+		assertTrue(replies.get(1).getGetBuildResult().getCached());
+		assertEquals(Arrays.asList("build", "test"), replies.get(1).getGetBuildResult().getBuild().getProject()
+				.getTasksList().stream().map(GradleTask::getName).collect(Collectors.toList()));
+	}
+
+	private GradleEnvironmentModel mockEnvironmentModel() {
+		return new GradleEnvironmentModel("8.6", mockGradleUserHome.getAbsolutePath(), mockJavaHome.getAbsolutePath(),
+				mockJvmArgs);
+	}
+
+	private static GradleProjectModel mockProjectModel(String projectPath, String parentProjectPath) {
+		GradleDependencyNode mockNode = mock(GradleDependencyNode.class);
+		when(mockNode.getName()).thenReturn(projectPath);
+		when(mockNode.getType()).thenReturn(GradleDependencyType.PROJECT);
+		GradleProjectModel mockModel = mock(GradleProjectModel.class);
+		when(mockModel.getIsRoot()).thenReturn(parentProjectPath == null);
+		when(mockModel.getProjectPath()).thenReturn(projectPath);
+		when(mockModel.getParentProjectPath()).thenReturn(parentProjectPath);
+		when(mockModel.getDependencyNode()).thenReturn(mockNode);
+		return mockModel;
+	}
+
+	private static com.microsoft.gradle.api.GradleTask mockTask(String name) {
+		com.microsoft.gradle.api.GradleTask mockTask = mock(com.microsoft.gradle.api.GradleTask.class);
+		when(mockTask.getName()).thenReturn(name);
+		when(mockTask.getPath()).thenReturn(":" + name);
+		when(mockTask.getProject()).thenReturn("root");
+		when(mockTask.getBuildFile()).thenReturn("/root/build.gradle");
+		when(mockTask.getRootProject()).thenReturn("root");
+		return mockTask;
 	}
 
 	@Test
@@ -336,7 +761,7 @@ public class GradleServerTest {
 
 		stub.runBuild(req, mockResponseObserver);
 		verify(mockResponseObserver, never()).onError(any());
-		verify(mockBuildLauncher).setJvmArguments(jvmArgs);
+		verify(mockBuildLauncher).setJvmArguments(jvmArgs.split(" "));
 	}
 
 	@Test
@@ -412,12 +837,168 @@ public class GradleServerTest {
 
 		stub.runBuild(req, mockResponseObserver);
 		verify(mockResponseObserver, never()).onError(any());
-		verify(mockBuildLauncher).addProgressListener(any(org.gradle.tooling.events.ProgressListener.class),
-				onAddProgressListener.capture());
+		verify(mockBuildLauncher).addProgressListener(any(ProgressCoalescer.class), onAddProgressListener.capture());
+		verify(mockBuildLauncher).addProgressListener(any(BuildProfiler.class),
+				ArgumentMatchers.eq(BuildProfiler.OPERATION_TYPES));
 
-		assertEquals(3, onAddProgressListener.getValue().size());
+		assertEquals(4, onAddProgressListener.getValue().size());
 		assertTrue(onAddProgressListener.getValue().contains(OperationType.PROJECT_CONFIGURATION));
 		assertTrue(onAddProgressListener.getValue().contains(OperationType.TASK));
 		assertTrue(onAddProgressListener.getValue().contains(OperationType.TRANSFORM));
+		assertTrue(onAddProgressListener.getValue().contains(OperationType.BUILD_PHASE));
+	}
+
+	@Test
+	public void runBuild_shouldReusePooledConnection() throws IOException {
+		StreamObserver<RunBuildReply> mockResponseObserver = (StreamObserver<RunBuildReply>) mock(StreamObserver.class);
+
+		RunBuildRequest req = RunBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
+				.addAllArgs(mockBuildArgs).setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).build();
+
+		long hits = GradleProjectConnectionPool.getHits();
+		stub.runBuild(req, mockResponseObserver);
+		stub.runBuild(req, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		verify(mockConnector, times(1)).connect();
+		assertEquals(hits + 1, GradleProjectConnectionPool.getHits());
+	}
+
+	@Test
+	public void runBuild_shouldInvalidatePooledConnectionWhenConfigChanges() throws IOException {
+		StreamObserver<RunBuildReply> mockResponseObserver = (StreamObserver<RunBuildReply>) mock(StreamObserver.class);
+
+		RunBuildRequest req1 = RunBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
+				.addAllArgs(mockBuildArgs).setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).build();
+		RunBuildRequest req2 = RunBuildRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath().toString())
+				.addAllArgs(mockBuildArgs)
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(false).setVersion("6.3")).build();
+
+		stub.runBuild(req1, mockResponseObserver);
+		stub.runBuild(req2, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		verify(mockConnector, times(2)).connect();
+		verify(mockConnection, times(1)).close();
+		assertEquals(1, GradleProjectConnectionPool.size());
+	}
+
+	@Test
+	public void runTests_shouldSelectTestsOfEveryTestTask() throws IOException {
+		StreamObserver<RunTestsReply> mockResponseObserver = (StreamObserver<RunTestsReply>) mock(StreamObserver.class);
+		String jvmArgs = "-Xmx64m -Xms64m";
+
+		RunTestsRequest req = RunTestsRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath())
+				.addTestClasses("com.example.AppTest")
+				.addTestMethods(TestMethods.newBuilder().setTestClass("com.example.LibTest").addMethods("works"))
+				.addTestMethods(TestMethods.newBuilder().setTestClass("com.example.UtilTest")).setJavaDebugPort(5005)
+				.setGradleConfig(GradleConfig.newBuilder().setJvmArguments(jvmArgs).setWrapperEnabled(true)).build();
+
+		stub.runTests(req, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		// a class without methods runs all of its tests
+		verify(mockTestLauncher).withJvmTestClasses(Arrays.asList("com.example.AppTest", "com.example.UtilTest"));
+		verify(mockTestLauncher).withJvmTestMethods("com.example.LibTest", Arrays.asList("works"));
+		verify(mockTestLauncher, never()).withTaskAndTestClasses(any(String.class), any());
+		verify(mockTestLauncher).debugTestsOn(5005);
+		verify(mockTestLauncher).setJvmArguments("-Xmx64m", "-Xms64m");
+		verify(mockTestLauncher).run();
+	}
+
+	@Test
+	public void runTests_shouldSelectTestsOfTheTestTask() throws IOException {
+		StreamObserver<RunTestsReply> mockResponseObserver = (StreamObserver<RunTestsReply>) mock(StreamObserver.class);
+
+		RunTestsRequest req = RunTestsRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath())
+				.setTaskPath(":app:test").addTestClasses("com.example.AppTest")
+				.addTestMethods(TestMethods.newBuilder().setTestClass("com.example.LibTest").addMethods("works"))
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).build();
+
+		stub.runTests(req, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		verify(mockTestLauncher).withTaskAndTestClasses(":app:test", Arrays.asList("com.example.AppTest"));
+		verify(mockTestLauncher).withTaskAndTestMethods(":app:test", "com.example.LibTest", Arrays.asList("works"));
+		verify(mockTestLauncher, never()).withJvmTestClasses(any(Iterable.class));
+		verify(mockTestLauncher, never()).debugTestsOn(ArgumentMatchers.anyInt());
+		verify(mockTestLauncher, never()).setJvmArguments(any(String[].class));
+	}
+
+	@Test
+	public void runTests_shouldSelectTestPatternsOfTheTestTask() throws IOException {
+		StreamObserver<RunTestsReply> mockResponseObserver = (StreamObserver<RunTestsReply>) mock(StreamObserver.class);
+		ArgumentCaptor<org.gradle.api.Action<org.gradle.tooling.TestSpecs>> withTestsFor = ArgumentCaptor
+				.forClass(org.gradle.api.Action.class);
+		org.gradle.tooling.TestSpecs mockSpecs = mock(org.gradle.tooling.TestSpecs.class);
+		org.gradle.tooling.TestSpec mockSpec = mock(org.gradle.tooling.TestSpec.class);
+		when(mockSpecs.forTaskPath(":app:test")).thenReturn(mockSpec);
+
+		RunTestsRequest req = RunTestsRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath())
+				.setTaskPath(":app:test").addTestClasses("com.example.AppTest")
+				.addTestMethods(TestMethods.newBuilder().setTestClass("com.example.LibTest").addMethods("works"))
+				.addTestPatterns("com.example.*IntegrationTest")
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).build();
+
+		stub.runTests(req, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		verify(mockTestLauncher).withTestsFor(withTestsFor.capture());
+		verify(mockTestLauncher, never()).withTaskAndTestClasses(any(String.class), any());
+		withTestsFor.getValue().execute(mockSpecs);
+		verify(mockSpec).includeClasses(Arrays.asList("com.example.AppTest"));
+		verify(mockSpec).includeMethods("com.example.LibTest", Arrays.asList("works"));
+		verify(mockSpec).includePatterns(Arrays.asList("com.example.*IntegrationTest"));
+	}
+
+	@Test
+	public void runTests_shouldReplyWithTheCountsOfTheTests() throws IOException {
+		StreamObserver<RunTestsReply> mockResponseObserver = (StreamObserver<RunTestsReply>) mock(StreamObserver.class);
+		ArgumentCaptor<org.gradle.tooling.events.ProgressListener> listeners = ArgumentCaptor
+				.forClass(org.gradle.tooling.events.ProgressListener.class);
+		ArgumentCaptor<Set<OperationType>> operationTypes = ArgumentCaptor.forClass(Set.class);
+		doAnswer(invocation -> {
+			verify(mockTestLauncher, times(3)).addProgressListener(listeners.capture(), operationTypes.capture());
+			for (int i = 0; i < listeners.getAllValues().size(); i++) {
+				if (operationTypes.getAllValues().get(i).equals(Collections.singleton(OperationType.TEST))) {
+					org.gradle.tooling.events.ProgressListener listener = listeners.getAllValues().get(i);
+					listener.statusChanged(
+							testFinishEvent("passes", mock(org.gradle.tooling.events.test.TestSuccessResult.class)));
+					listener.statusChanged(
+							testFinishEvent("fails", mock(org.gradle.tooling.events.test.TestFailureResult.class)));
+					listener.statusChanged(
+							testFinishEvent("ignored", mock(org.gradle.tooling.events.test.TestSkippedResult.class)));
+				}
+			}
+			throw new org.gradle.tooling.TestExecutionException("1 test failed");
+		}).when(mockTestLauncher).run();
+		ArgumentCaptor<RunTestsReply> onNext = ArgumentCaptor.forClass(RunTestsReply.class);
+
+		RunTestsRequest req = RunTestsRequest.newBuilder().setProjectDir(mockProjectDir.getAbsolutePath())
+				.addTestClasses("com.example.AppTest")
+				.setGradleConfig(GradleConfig.newBuilder().setWrapperEnabled(true)).build();
+
+		stub.runTests(req, mockResponseObserver);
+		verify(mockResponseObserver, never()).onError(any());
+		verify(mockResponseObserver, times(4)).onNext(onNext.capture());
+		verify(mockResponseObserver).onCompleted();
+		List<RunTestsReply> testEvents = onNext.getAllValues().subList(0, 3);
+		assertTrue(testEvents.stream().allMatch(RunTestsReply::hasTestEvent));
+		RunTestsResult result = onNext.getValue().getRunTestsResult();
+		assertEquals("1 test failed", result.getMessage());
+		assertTrue(result.getFailed());
+		assertEquals(1, result.getPassed());
+		assertEquals(1, result.getFailures());
+		assertEquals(1, result.getSkipped());
+	}
+
+	private static org.gradle.tooling.events.test.TestFinishEvent testFinishEvent(String methodName,
+			org.gradle.tooling.events.test.TestOperationResult result) {
+		org.gradle.tooling.events.test.JvmTestOperationDescriptor descriptor = mock(
+				org.gradle.tooling.events.test.JvmTestOperationDescriptor.class);
+		when(descriptor.getJvmTestKind()).thenReturn(org.gradle.tooling.events.test.JvmTestKind.ATOMIC);
+		when(descriptor.getClassName()).thenReturn("com.example.AppTest");
+		when(descriptor.getMethodName()).thenReturn(methodName);
+		when(descriptor.getDisplayName()).thenReturn(methodName);
+		org.gradle.tooling.events.test.TestFinishEvent event = mock(
+				org.gradle.tooling.events.test.TestFinishEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		when(event.getResult()).thenReturn(result);
+		return event;
 	}
 }
@@ -0,0 +1,21 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.github.badsyntax.gradle.exceptions.GradleBuildRunnerException;
+import org.junit.Test;
+
+public class GradleTestRunnerTest {
+
+	@Test(expected = GradleBuildRunnerException.class)
+	public void shouldRequireTests() throws Exception {
+		new GradleTestRunner(RunTestsRequest.newBuilder().setProjectDir("/project").setTaskPath(":test").build()).run();
+	}
+
+	@Test(expected = GradleBuildRunnerException.class)
+	public void shouldRequireTaskForPatterns() throws Exception {
+		new GradleTestRunner(RunTestsRequest.newBuilder().setProjectDir("/project")
+				.addTestPatterns("com.example.*IntegrationTest").build()).run();
+	}
+}
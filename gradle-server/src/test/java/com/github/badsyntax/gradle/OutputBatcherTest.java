@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+@SuppressWarnings(value = "unchecked")
+public class OutputBatcherTest {
+
+	@Test
+	public void shouldCoalesceChunksOfTheSameType() {
+		List<Output> sent = new ArrayList<>();
+		OutputBatcher batcher = new OutputBatcher(mock(StreamObserver.class), (output, onSent) -> sent.add(output));
+		batcher.write(Output.OutputType.STDOUT, "a".getBytes(), 0, 1);
+		batcher.write(Output.OutputType.STDOUT, "b".getBytes(), 0, 1);
+		batcher.write(Output.OutputType.STDERR, "c".getBytes(), 0, 1);
+		batcher.flush();
+
+		assertEquals(2, sent.size());
+		assertEquals(Output.OutputType.STDOUT, sent.get(0).getOutputType());
+		assertEquals("ab", sent.get(0).getOutputBytes().toStringUtf8());
+		assertEquals(Output.OutputType.STDERR, sent.get(1).getOutputType());
+		assertEquals("c", sent.get(1).getOutputBytes().toStringUtf8());
+	}
+
+	@Test
+	public void shouldSendOnceBatchIsFull() {
+		List<Output> sent = new ArrayList<>();
+		OutputBatcher batcher = new OutputBatcher(mock(StreamObserver.class), (output, onSent) -> sent.add(output));
+		batcher.write(Output.OutputType.STDOUT, new byte[OutputBatcher.MAX_BATCH_BYTES], 0,
+				OutputBatcher.MAX_BATCH_BYTES);
+
+		assertEquals(1, sent.size());
+	}
+
+	@Test
+	public void shouldSendAfterBatchDelay() throws InterruptedException {
+		List<Output> sent = new ArrayList<>();
+		OutputBatcher batcher = new OutputBatcher(mock(StreamObserver.class), (output, onSent) -> {
+			synchronized (sent) {
+				sent.add(output);
+			}
+		});
+		batcher.write(Output.OutputType.STDOUT, "a".getBytes(), 0, 1);
+		Thread.sleep(OutputBatcher.MAX_BATCH_DELAY_MILLIS * 10);
+
+		synchronized (sent) {
+			assertEquals(1, sent.size());
+		}
+	}
+
+	@Test
+	public void shouldHoldBackOutputUntilClientIsReady() {
+		AtomicBoolean ready = new AtomicBoolean(false);
+		ServerCallStreamObserver<Object> observer = mock(ServerCallStreamObserver.class);
+		when(observer.isReady()).thenAnswer(invocation -> ready.get());
+		List<Output> sent = new ArrayList<>();
+		OutputBatcher batcher = new OutputBatcher(observer, (output, onSent) -> sent.add(output));
+		batcher.write(Output.OutputType.STDOUT, new byte[OutputBatcher.MAX_BATCH_BYTES], 0,
+				OutputBatcher.MAX_BATCH_BYTES);
+		batcher.write(Output.OutputType.STDOUT, new byte[OutputBatcher.MAX_BATCH_BYTES], 0,
+				OutputBatcher.MAX_BATCH_BYTES);
+		assertEquals(0, sent.size());
+
+		ready.set(true);
+		batcher.flush();
+		assertEquals(2, sent.size());
+	}
+}
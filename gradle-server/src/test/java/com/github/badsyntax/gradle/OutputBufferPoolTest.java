@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.stub.StreamObserver;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+@SuppressWarnings(value = "unchecked")
+public class OutputBufferPoolTest {
+	private static final int MEGABYTE = 1024 * 1024;
+	private static final int CHUNK_SIZE = 256;
+
+	@Test
+	public void shouldOnlyRecycleWhenEnabled() {
+		OutputBufferPool unpooled = new OutputBufferPool(false);
+		byte[] buffer = unpooled.acquire();
+		unpooled.release(buffer);
+		assertNotSame(buffer, unpooled.acquire());
+
+		OutputBufferPool pool = new OutputBufferPool(true);
+		pool.release(buffer);
+		assertSame(buffer, pool.acquire());
+	}
+
+	@Test
+	public void shouldMakeThePoolCurrentForTheCallsOfItsServer() {
+		OutputBufferPool pool = new OutputBufferPool(true);
+		AtomicReference<OutputBufferPool> current = new AtomicReference<>();
+
+		pool.interceptor().interceptCall(mock(ServerCall.class), new Metadata(), (call, headers) -> {
+			current.set(OutputBufferPool.current());
+			return new ServerCall.Listener<Object>() {
+			};
+		});
+
+		assertSame(pool, current.get());
+		assertFalse(OutputBufferPool.current().isRecycling());
+	}
+
+	@Test
+	public void shouldReuseBuffersOfSentOutput() {
+		OutputBufferPool pool = new OutputBufferPool(true);
+		byte[] chunk = new byte[CHUNK_SIZE];
+		AtomicLong sentBytes = new AtomicLong();
+		OutputBatcher batcher = new OutputBatcher(mock(StreamObserver.class), (output, onSent) -> {
+			sentBytes.addAndGet(output.getOutputBytes().size());
+			onSent.run();
+		}, pool);
+
+		for (int written = 0; written < MEGABYTE; written += CHUNK_SIZE) {
+			batcher.write(Output.OutputType.STDOUT, chunk, 0, CHUNK_SIZE);
+		}
+		batcher.flush();
+
+		assertEquals(MEGABYTE, sentBytes.get());
+		// each message is sent before the next buffer is needed
+		assertEquals(1, pool.getAllocatedBuffers());
+	}
+}
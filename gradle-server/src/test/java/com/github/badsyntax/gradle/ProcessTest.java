@@ -0,0 +1,142 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.github.badsyntax.gradle.exceptions.ProcessException;
+import com.github.badsyntax.gradle.process.Process;
+import com.github.badsyntax.gradle.process.ProcessListener;
+import com.github.badsyntax.gradle.process.ProcessResult;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProcessTest {
+	// 100 bytes per line with the newline
+	private static final String LINE = new String(new char[99]).replace('\0', 'x');
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File projectDir;
+
+	@Before
+	public void setUp() throws IOException {
+		Assume.assumeFalse(Process.IS_WINDOWS);
+		projectDir = temporaryFolder.newFolder("project");
+	}
+
+	@Test
+	public void shouldPumpStdOutAndStdErrAtOnce() throws Exception {
+		// stdout, then stderr, then stdout again, each well past a pipe buffer
+		writeWrapper("yes \"$1\" | head -n \"$2\"", "yes \"$1\" | head -n \"$2\" 1>&2", "yes \"$1\" | head -n \"$2\"");
+		int lines = 40000;
+		AtomicInteger stdOutLines = new AtomicInteger();
+		AtomicInteger stdErrLines = new AtomicInteger();
+		ProcessListener listener = new ProcessListener() {
+			@Override
+			public void onStdOut(String line) {
+				stdOutLines.incrementAndGet();
+			}
+
+			@Override
+			public void onStdErr(String line) {
+				stdErrLines.incrementAndGet();
+			}
+		};
+
+		ProcessResult result = newProcess().exec(listener, LINE, String.valueOf(lines)).get(60, TimeUnit.SECONDS);
+		assertEquals(0, result.getExitCode());
+		assertEquals(2 * lines, stdOutLines.get());
+		assertEquals(lines, stdErrLines.get());
+		assertEquals(2 * lines * 100 - 1, result.getStdOut().length());
+		assertEquals(lines * 100 - 1, result.getStdErr().length());
+	}
+
+	@Test
+	public void shouldRunManyProcessesAtOnce() throws Exception {
+		writeWrapper("yes \"$1\" | head -n \"$2\" 1>&2", "yes \"$1\" | head -n \"$2\"");
+		int lines = 10000;
+		List<CompletableFuture<ProcessResult>> results = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			results.add(newProcess().exec(ProcessListener.NONE, LINE, String.valueOf(lines)));
+		}
+		for (CompletableFuture<ProcessResult> result : results) {
+			assertEquals(lines * 100 - 1, result.get(60, TimeUnit.SECONDS).getStdOut().length());
+		}
+	}
+
+	@Test
+	public void shouldKeepDrainingWhenTheListenerFails() throws Exception {
+		writeWrapper("yes \"$1\" | head -n \"$2\"");
+		ProcessListener listener = new ProcessListener() {
+			@Override
+			public void onStdOut(String line) {
+				throw new IllegalStateException("call cancelled");
+			}
+		};
+		ProcessResult result = newProcess().exec(listener, LINE, "10000").get(60, TimeUnit.SECONDS);
+		assertEquals(10000 * 100 - 1, result.getStdOut().length());
+	}
+
+	@Test
+	public void shouldKillTheProcessAfterTheDeadline() throws Exception {
+		writeWrapper("echo started", "exec sleep 60");
+		Process process = newProcess();
+		process.setTimeout(500, TimeUnit.MILLISECONDS);
+		long start = System.nanoTime();
+		try {
+			process.exec(ProcessListener.NONE).get(30, TimeUnit.SECONDS);
+			fail("Expected the process to time out");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ProcessException);
+		}
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+	}
+
+	@Test
+	public void shouldParseDaemonStatusAsItArrives() throws Exception {
+		writeWrapper("echo '   PID STATUS   INFO'", "echo ' 56783 IDLE     8.6'",
+				"echo ' 39762 STOPPED  (stop command received)'", "echo ' 12345 BROKEN   8.6'");
+		List<DaemonInfo> daemons = new DaemonStatus(new GradleWrapper(projectDir)).get().get(60, TimeUnit.SECONDS);
+		assertEquals(2, daemons.size());
+		assertEquals("56783", daemons.get(0).getPid());
+		assertEquals(DaemonInfo.DaemonStatus.IDLE, daemons.get(0).getStatus());
+		assertEquals(DaemonInfo.DaemonStatus.STOPPED, daemons.get(1).getStatus());
+	}
+
+	@Test(expected = ExecutionException.class)
+	public void shouldFailWhenTheWrapperWritesToStdErr() throws Exception {
+		writeWrapper("echo 'Could not find or load main class' 1>&2");
+		new GradleWrapper(projectDir).exec(ProcessListener.NONE, "--stop").get(60, TimeUnit.SECONDS);
+	}
+
+	private Process newProcess() {
+		Process process = new Process(projectDir);
+		process.setUnixCommand("gradlew");
+		return process;
+	}
+
+	private void writeWrapper(String... lines) throws IOException {
+		File wrapper = new File(projectDir, "gradlew");
+		Files.write(wrapper.toPath(),
+				("#!/bin/sh\n" + String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+		wrapper.setExecutable(true);
+	}
+}
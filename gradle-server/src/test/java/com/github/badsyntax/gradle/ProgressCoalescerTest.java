@@ -0,0 +1,83 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.gradle.tooling.events.lifecycle.BuildPhaseOperationDescriptor;
+import org.gradle.tooling.events.lifecycle.BuildPhaseStartEvent;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+import org.junit.Test;
+
+public class ProgressCoalescerTest {
+
+	@Test
+	public void shouldSendFirstEventAndCoalesceTheRest() {
+		List<Progress> sent = new ArrayList<>();
+		ProgressCoalescer coalescer = new ProgressCoalescer(sent::add);
+		coalescer.statusChanged(buildPhaseStartEvent(3));
+		coalescer.statusChanged(taskFinishEvent(":a", true));
+		coalescer.statusChanged(taskFinishEvent(":b", false));
+		coalescer.statusChanged(taskFinishEvent(":c", false));
+		assertEquals(1, sent.size());
+
+		coalescer.flush();
+		assertEquals(2, sent.size());
+		Progress first = sent.get(0);
+		assertEquals(Progress.OperationType.TASK, first.getOperationType());
+		assertEquals(Progress.EventType.FINISH, first.getEventType());
+		assertEquals(":a", first.getPath());
+		assertEquals(Progress.Outcome.UP_TO_DATE, first.getOutcome());
+		assertEquals(1, first.getCompleted());
+		assertEquals(3, first.getTotal());
+		Progress last = sent.get(1);
+		assertEquals(":c", last.getPath());
+		assertEquals(Progress.Outcome.SUCCESS, last.getOutcome());
+		assertEquals(3, last.getCompleted());
+	}
+
+	@Test
+	public void shouldSendLatestStateAfterThrottleDelay() throws InterruptedException {
+		List<Progress> sent = new ArrayList<>();
+		ProgressCoalescer coalescer = new ProgressCoalescer(progress -> {
+			synchronized (sent) {
+				sent.add(progress);
+			}
+		});
+		coalescer.statusChanged(taskFinishEvent(":a", false));
+		coalescer.statusChanged(taskFinishEvent(":b", false));
+		Thread.sleep(ProgressCoalescer.THROTTLE_MILLIS * 3);
+
+		synchronized (sent) {
+			assertEquals(2, sent.size());
+			assertEquals(":b", sent.get(1).getPath());
+		}
+	}
+
+	private static BuildPhaseStartEvent buildPhaseStartEvent(int buildItemsCount) {
+		BuildPhaseOperationDescriptor descriptor = mock(BuildPhaseOperationDescriptor.class);
+		when(descriptor.getBuildItemsCount()).thenReturn(buildItemsCount);
+		BuildPhaseStartEvent event = mock(BuildPhaseStartEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		return event;
+	}
+
+	private static TaskFinishEvent taskFinishEvent(String taskPath, boolean upToDate) {
+		TaskOperationDescriptor descriptor = mock(TaskOperationDescriptor.class);
+		when(descriptor.getTaskPath()).thenReturn(taskPath);
+		TaskSuccessResult result = mock(TaskSuccessResult.class);
+		when(result.isUpToDate()).thenReturn(upToDate);
+		TaskFinishEvent event = mock(TaskFinishEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		when(event.getResult()).thenReturn(result);
+		when(event.getDisplayName()).thenReturn("Task " + taskPath + " SUCCESS");
+		return event;
+	}
+}
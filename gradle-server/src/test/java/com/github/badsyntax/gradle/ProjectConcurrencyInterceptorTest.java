@@ -0,0 +1,232 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.Context;
+import io.grpc.ManagedChannel;
+import io.grpc.ServerInterceptors;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ProjectConcurrencyInterceptorTest {
+	@Rule
+	public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+	private final Semaphore builds = new Semaphore(0);
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+	private final ExecutorService executor = Executors
+			.newCachedThreadPool(ServerExecutors.newThreadFactory("project-concurrency-test"));
+	private ProjectConcurrencyInterceptor interceptor;
+	private GradleGrpc.GradleStub stub;
+
+	@Before
+	public void setUp() throws IOException {
+		startServer(executor);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private void startServer(Executor queuedCallExecutor) throws IOException {
+		String serverName = InProcessServerBuilder.generateName();
+		interceptor = new ProjectConcurrencyInterceptor(1, queuedCallExecutor);
+		grpcCleanup.register(InProcessServerBuilder.forName(serverName).executor(executor)
+				.addService(ServerInterceptors.intercept(new BlockingService(), interceptor)).build().start());
+		ManagedChannel channel = grpcCleanup.register(InProcessChannelBuilder.forName(serverName).build());
+		stub = GradleGrpc.newStub(channel);
+	}
+
+	@Test
+	public void shouldQueueCallsOverTheLimitOfTheProject() throws Exception {
+		CountDownLatch completed = new CountDownLatch(4);
+		getBuild("project-a", completed);
+		getBuild("project-a", completed);
+		getBuild("project-a", completed);
+		getBuild("project-b", completed);
+
+		waitFor(() -> running.get() == 2 && interceptor.getQueuedCalls("project-a") == 2);
+		builds.release(4);
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		assertEquals(2, maxRunning.get());
+		assertEquals(0, interceptor.getQueuedCalls("project-a"));
+		waitFor(() -> !interceptor.hasQueue("project-a") && !interceptor.hasQueue("project-b"));
+	}
+
+	@Test
+	public void shouldFailQueuedCallsTheExecutorRejects() throws Exception {
+		startServer(runnable -> {
+			throw new RejectedExecutionException("queue full");
+		});
+		CountDownLatch completed = new CountDownLatch(1);
+		getBuild("project-a", completed);
+		waitFor(() -> running.get() == 1);
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		getBuild("project-a", new CountDownLatch(1), error);
+		waitFor(() -> interceptor.getQueuedCalls("project-a") == 1);
+
+		builds.release();
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		waitFor(() -> error.get() != null);
+		assertEquals(Status.Code.RESOURCE_EXHAUSTED, Status.fromThrowable(error.get()).getCode());
+		assertEquals(1, maxRunning.get());
+		waitFor(() -> !interceptor.hasQueue("project-a"));
+	}
+
+	@Test
+	public void shouldRemoveCancelledCallsFromTheQueue() throws Exception {
+		CountDownLatch completed = new CountDownLatch(2);
+		getBuild("project-a", completed);
+		waitFor(() -> running.get() == 1);
+		Context.CancellableContext context = Context.current().withCancellation();
+		context.run(() -> getBuild("project-a", new CountDownLatch(1)));
+		waitFor(() -> interceptor.getQueuedCalls("project-a") == 1);
+		getBuild("project-a", completed);
+
+		waitFor(() -> interceptor.getQueuedCalls("project-a") == 2);
+		context.cancel(null);
+		waitFor(() -> interceptor.getQueuedCalls("project-a") == 1);
+		builds.release(2);
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		assertEquals(1, maxRunning.get());
+	}
+
+	@Test
+	public void shouldKeepThePermitOfACancelledCallUntilItsHandlerReturns() throws Exception {
+		CountDownLatch completed = new CountDownLatch(2);
+		getBuild("project-a", completed);
+		waitFor(() -> running.get() == 1);
+		Context.CancellableContext context = Context.current().withCancellation();
+		context.run(() -> getBuild("project-a", new CountDownLatch(1)));
+		waitFor(() -> interceptor.getQueuedCalls("project-a") == 1);
+		getBuild("project-a", completed);
+		waitFor(() -> interceptor.getQueuedCalls("project-a") == 2);
+		// a queued call runs off the callbacks of gRPC, so its cancel arrives while it
+		// is running
+		builds.release();
+		waitFor(() -> interceptor.getQueuedCalls("project-a") == 1 && running.get() == 1);
+
+		context.cancel(null);
+		// the cancelled build is still running, the queued one waits for it
+		Thread.sleep(200);
+		assertEquals(1, running.get());
+		assertEquals(1, interceptor.getQueuedCalls("project-a"));
+		builds.release(2);
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		assertEquals(1, maxRunning.get());
+		waitFor(() -> !interceptor.hasQueue("project-a"));
+	}
+
+	@Test
+	public void shouldShareThePermitsOfTheProjectWithEachRootOfGetBuilds() throws Exception {
+		CountDownLatch completed = new CountDownLatch(2);
+		getBuild("project-a", completed);
+		waitFor(() -> running.get() == 1);
+		GetBuildsRequest req = GetBuildsRequest.newBuilder()
+				.addBuilds(GetBuildRequest.newBuilder().setProjectDir("project-a")).build();
+		stub.getBuilds(req, new StreamObserver<GetBuildsReply>() {
+			@Override
+			public void onNext(GetBuildsReply value) {
+			}
+
+			@Override
+			public void onError(Throwable t) {
+			}
+
+			@Override
+			public void onCompleted() {
+				completed.countDown();
+			}
+		});
+
+		waitFor(() -> interceptor.getQueuedCalls("project-a") == 1);
+		builds.release(2);
+		assertTrue(completed.await(5, TimeUnit.SECONDS));
+		assertEquals(1, maxRunning.get());
+		waitFor(() -> !interceptor.hasQueue("project-a"));
+	}
+
+	private void getBuild(String projectDir, CountDownLatch completed) {
+		getBuild(projectDir, completed, new AtomicReference<>());
+	}
+
+	private void getBuild(String projectDir, CountDownLatch completed, AtomicReference<Throwable> error) {
+		GetBuildRequest req = GetBuildRequest.newBuilder().setProjectDir(projectDir).build();
+		stub.getBuild(req, new StreamObserver<GetBuildReply>() {
+			@Override
+			public void onNext(GetBuildReply value) {
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				error.set(t);
+			}
+
+			@Override
+			public void onCompleted() {
+				completed.countDown();
+			}
+		});
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private class BlockingService extends GradleGrpc.GradleImplBase {
+		@Override
+		public void getBuild(GetBuildRequest req, StreamObserver<GetBuildReply> responseObserver) {
+			build();
+			responseObserver.onCompleted();
+		}
+
+		@Override
+		public void getBuilds(GetBuildsRequest req, StreamObserver<GetBuildsReply> responseObserver) {
+			for (GetBuildRequest build : req.getBuildsList()) {
+				try (ProjectConcurrencyInterceptor.Permit permit = ProjectConcurrencyInterceptor
+						.acquire(build.getProjectDir())) {
+					build();
+				}
+			}
+			responseObserver.onCompleted();
+		}
+
+		private void build() {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				builds.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			running.decrementAndGet();
+		}
+	}
+}
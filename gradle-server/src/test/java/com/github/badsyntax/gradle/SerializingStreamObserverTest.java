@@ -0,0 +1,82 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+public class SerializingStreamObserverTest {
+	private static final int PRODUCERS = 4;
+	private static final int MESSAGES = 10000;
+
+	@Test
+	public void shouldKeepOrderPerProducerWithoutConcurrentWrites() throws InterruptedException {
+		AtomicBoolean writing = new AtomicBoolean();
+		AtomicBoolean overlapped = new AtomicBoolean();
+		List<String> received = new ArrayList<>();
+		StreamObserver<String> delegate = new StreamObserver<String>() {
+			@Override
+			public void onNext(String value) {
+				if (!writing.compareAndSet(false, true)) {
+					overlapped.set(true);
+				}
+				received.add(value);
+				writing.set(false);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+			}
+
+			@Override
+			public void onCompleted() {
+				received.add("completed");
+			}
+		};
+		SerializingStreamObserver<String> observer = new SerializingStreamObserver<>(delegate);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int producer = 0; producer < PRODUCERS; producer++) {
+			String name = String.valueOf(producer);
+			Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				for (int i = 0; i < MESSAGES; i++) {
+					observer.onNext(name + ":" + i);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		observer.onCompleted();
+
+		assertFalse(overlapped.get());
+		assertEquals(PRODUCERS * MESSAGES + 1, received.size());
+		assertEquals("completed", received.get(received.size() - 1));
+		Map<String, Integer> lastSeen = new HashMap<>();
+		for (String value : received.subList(0, received.size() - 1)) {
+			String[] parts = value.split(":");
+			int index = Integer.parseInt(parts[1]);
+			assertTrue(lastSeen.getOrDefault(parts[0], -1) < index);
+			lastSeen.put(parts[0], index);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.Context;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.testing.GrpcCleanupRule;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ServerMetricsTest {
+	@Rule
+	public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+	private GradleServer server;
+	private GradleGrpc.GradleBlockingStub stub;
+
+	@Before
+	public void setUp() throws IOException {
+		ServerMetrics.reset();
+		String serverName = InProcessServerBuilder.generateName();
+		server = new GradleServer(InProcessServerBuilder.forName(serverName).directExecutor(), 0);
+		server.start();
+		ManagedChannel channel = grpcCleanup
+				.register(InProcessChannelBuilder.forName(serverName).directExecutor().build());
+		stub = GradleGrpc.newBlockingStub(channel);
+	}
+
+	@After
+	public void tearDown() throws InterruptedException {
+		server.stop();
+	}
+
+	@Test
+	public void shouldRecordCallsAndMessages() {
+		CancelBuildRequest req = CancelBuildRequest.newBuilder().setCancellationKey("unknown-build").build();
+		CancelBuildReply reply = stub.cancelBuild(req);
+		stub.cancelBuild(req);
+
+		RpcMetrics metrics = getRpcMetrics(stub.getServerMetrics(GetServerMetricsRequest.getDefaultInstance()),
+				"gradle.Gradle/CancelBuild");
+		assertEquals(2, metrics.getCalls());
+		assertEquals(0, metrics.getInFlight());
+		assertEquals(0, metrics.getErrors());
+		assertEquals(2, metrics.getMessagesReceived());
+		assertEquals(2 * req.getSerializedSize(), metrics.getBytesReceived());
+		assertEquals(2, metrics.getMessagesSent());
+		assertEquals(2 * reply.getSerializedSize(), metrics.getBytesSent());
+		assertTrue(metrics.getLatencyP50Millis() > 0);
+		assertTrue(metrics.getLatencyP99Millis() >= metrics.getLatencyP50Millis());
+	}
+
+	@Test
+	public void shouldRecordToolingApiTimeOfCurrentCall() throws Exception {
+		ServerMetrics.MethodMetrics methodMetrics = ServerMetrics.forMethod("gradle.Gradle/GetBuild");
+		Context.current().withValue(ServerMetrics.CURRENT_METHOD, methodMetrics)
+				.run(() -> ServerMetrics.runToolingApi(() -> sleep(20)));
+		// outside of a call, nothing to attribute the time to
+		ServerMetrics.runToolingApi(() -> sleep(200));
+
+		RpcMetrics metrics = getRpcMetrics(ServerMetrics.getMetrics(), "gradle.Gradle/GetBuild");
+		assertTrue(metrics.getToolingApiMillis() >= 20);
+		assertTrue(metrics.getToolingApiMillis() < 200);
+	}
+
+	@Test
+	public void shouldEstimatePercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		assertEquals(50, histogram.getPercentile(50), 50 * 0.1);
+		assertEquals(95, histogram.getPercentile(95), 95 * 0.1);
+		assertEquals(99, histogram.getPercentile(99), 99 * 0.1);
+		assertEquals(0, new LatencyHistogram().getPercentile(50), 0);
+	}
+
+	private static RpcMetrics getRpcMetrics(GetServerMetricsReply reply, String method) {
+		return reply.getRpcsList().stream().filter(metrics -> metrics.getMethod().equals(method)).findFirst()
+				.orElseThrow(AssertionError::new);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
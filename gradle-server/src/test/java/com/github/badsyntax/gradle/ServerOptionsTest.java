@@ -0,0 +1,63 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.junit.Test;
+
+public class ServerOptionsTest {
+
+	@Test
+	public void shouldUseDefaults() {
+		ServerOptions options = ServerOptions.parse(new String[0], Collections.emptyMap());
+		assertEquals(ServerOptions.DEFAULT_PORT, options.getPort());
+		assertEquals(ServerOptions.ExecutorMode.CACHED, options.getExecutorMode());
+		assertEquals(0, options.getMaxCallsPerProject());
+		assertNull(ServerExecutors.create(options));
+	}
+
+	@Test
+	public void shouldPreferCommandLineOverEnvironment() {
+		Map<String, String> env = new HashMap<>();
+		env.put("VSCODE_GRADLE_SERVER_EXECUTOR", "virtual");
+		env.put("VSCODE_GRADLE_SERVER_MAX_THREADS", "4");
+		env.put("VSCODE_GRADLE_SERVER_MAX_CALLS_PER_PROJECT", "2");
+		ServerOptions options = ServerOptions.parse(new String[]{"9999", "--executor=bounded", "--max-threads=8"}, env);
+		assertEquals(9999, options.getPort());
+		assertEquals(ServerOptions.ExecutorMode.BOUNDED, options.getExecutorMode());
+		assertEquals(8, options.getMaxThreads());
+		assertEquals(2, options.getMaxCallsPerProject());
+	}
+
+	@Test
+	public void shouldCreateBoundedExecutor() {
+		ServerOptions options = ServerOptions.parse(new String[]{"--executor=bounded", "--max-threads=3"},
+				Collections.emptyMap());
+		ExecutorService executor = ServerExecutors.create(options);
+		try {
+			assertTrue(executor instanceof ThreadPoolExecutor);
+			assertEquals(3, ((ThreadPoolExecutor) executor).getMaximumPoolSize());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnknownOption() {
+		ServerOptions.parse(new String[]{"--threads=2"}, Collections.emptyMap());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectNonPositiveThreads() {
+		ServerOptions.parse(new String[]{"--max-threads=0"}, Collections.emptyMap());
+	}
+}
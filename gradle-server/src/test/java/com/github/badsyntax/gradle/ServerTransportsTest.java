@@ -0,0 +1,86 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.testing.GrpcCleanupRule;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.unix.DomainSocketAddress;
+import java.io.File;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ServerTransportsTest {
+	@Rule
+	public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private GradleServer server;
+
+	@After
+	public void tearDown() throws InterruptedException {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void shouldServeOverUnixDomainSocket() throws Exception {
+		Assume.assumeTrue(Epoll.isAvailable());
+		File socketFile = new File(temporaryFolder.getRoot(), "gradle-server.sock");
+		server = new GradleServer(
+				ServerOptions.parse(new String[]{"--transport=uds", "--socket-path=" + socketFile.getAbsolutePath()},
+						Collections.emptyMap()));
+		server.start();
+		assertTrue(socketFile.exists());
+
+		EpollEventLoopGroup eventLoopGroup = new EpollEventLoopGroup(1);
+		try {
+			ManagedChannel channel = grpcCleanup.register(NettyChannelBuilder
+					.forAddress(new DomainSocketAddress(socketFile)).channelType(EpollDomainSocketChannel.class)
+					.eventLoopGroup(eventLoopGroup).usePlaintext().build());
+			assertCancelBuildReplies(channel);
+			channel.shutdownNow();
+		} finally {
+			eventLoopGroup.shutdownGracefully();
+		}
+		server.stop();
+		server = null;
+		assertFalse(socketFile.exists());
+	}
+
+	@Test
+	public void shouldServeInProcess() throws Exception {
+		String serverName = InProcessServerBuilder.generateName();
+		server = new GradleServer(ServerOptions.parse(
+				new String[]{"--transport=in-process", "--in-process-name=" + serverName}, Collections.emptyMap()));
+		server.start();
+		assertCancelBuildReplies(grpcCleanup.register(InProcessChannelBuilder.forName(serverName).build()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRequireSocketPath() throws Exception {
+		new GradleServer(ServerOptions.parse(new String[]{"--transport=uds"}, Collections.emptyMap()));
+	}
+
+	private static void assertCancelBuildReplies(ManagedChannel channel) {
+		CancelBuildReply reply = GradleGrpc.newBlockingStub(channel)
+				.cancelBuild(CancelBuildRequest.newBuilder().setCancellationKey("unknown-build").build());
+		assertFalse(reply.getBuildRunning());
+	}
+}
@@ -0,0 +1,81 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaskIndexTest {
+	private static final String PROJECT_DIR = "/root";
+
+	@Before
+	public void setUp() {
+		GradleProject app = GradleProject.newBuilder().setProjectPath("/root/app")
+				.addTasks(task(":app:compileJava", "build", "Compiles main Java source."))
+				.addTasks(task(":app:jar", "build", "Assembles a jar archive."))
+				.addTasks(task(":app:run", "application", "Runs this project as a JVM application")).build();
+		GradleProject root = GradleProject.newBuilder().setProjectPath(PROJECT_DIR)
+				.addTasks(task(":build", "build", "Assembles and tests this project.")).addProjects(app).build();
+		TaskIndex.update(PROJECT_DIR, GradleBuild.newBuilder().setProject(root).build());
+	}
+
+	@After
+	public void tearDown() {
+		TaskIndex.invalidate(PROJECT_DIR);
+	}
+
+	@Test
+	public void shouldRankNameMatchesFirst() {
+		TaskIndex index = TaskIndex.get(PROJECT_DIR);
+
+		assertEquals(Arrays.asList(":app:jar", ":app:compileJava"), getPaths(index.search("JA")));
+		assertEquals(Arrays.asList(":app:compileJava", ":app:jar", ":app:run"), getPaths(index.search(":app")));
+	}
+
+	@Test
+	public void shouldMatchGroupsDescriptionsAndAbbreviations() {
+		TaskIndex index = TaskIndex.get(PROJECT_DIR);
+
+		assertEquals(Arrays.asList(":app:run"), getPaths(index.search("application")));
+		assertEquals(Arrays.asList(":app:compileJava"), getPaths(index.search("cJ")));
+		assertEquals(Arrays.asList(":app:compileJava", ":app:jar", ":app:run", ":build"), getPaths(index.search(" ")));
+	}
+
+	@Test
+	public void shouldReuseTheResultOfTheLastQuery() {
+		TaskIndex index = TaskIndex.get(PROJECT_DIR);
+
+		List<GradleTask> firstPage = index.search("compile");
+		assertSame(firstPage, index.search(" Compile "));
+		assertNotSame(firstPage, index.search("jar"));
+		assertEquals(firstPage, index.search("compile"));
+	}
+
+	@Test
+	public void shouldListTasksOfAProject() {
+		TaskIndex index = TaskIndex.get(PROJECT_DIR);
+
+		assertEquals(Arrays.asList(":build"), getPaths(index.getTasks(PROJECT_DIR)));
+		assertEquals(3, index.getTasks("/root/app").size());
+		assertNull(index.getTasks("/root/lib"));
+	}
+
+	private static GradleTask task(String path, String group, String description) {
+		return GradleTask.newBuilder().setName(path.substring(path.lastIndexOf(':') + 1)).setPath(path).setGroup(group)
+				.setDescription(description).build();
+	}
+
+	private static List<String> getPaths(List<GradleTask> tasks) {
+		return tasks.stream().map(GradleTask::getPath).collect(Collectors.toList());
+	}
+}
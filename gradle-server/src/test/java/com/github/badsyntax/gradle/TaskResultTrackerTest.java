@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.grpc.stub.StreamObserver;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.gradle.tooling.Failure;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.TaskStartEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TaskResultTrackerTest {
+	private final List<TaskResult> taskResults = new ArrayList<>();
+	private final List<Output> outputs = new ArrayList<>();
+	private OutputBatcher outputBatcher;
+	private TaskResultTracker tracker;
+
+	@Before
+	public void setUp() {
+		outputBatcher = new OutputBatcher(mock(StreamObserver.class), (output, onSent) -> outputs.add(output));
+		tracker = new TaskResultTracker(Arrays.asList(":app:assemble", "test", "lib:javadoc"), taskResults::add,
+				outputBatcher);
+	}
+
+	@Test
+	public void shouldReplyWithTaskResults() {
+		TaskOperationDescriptor compile = task(":app:compileJava");
+		TaskOperationDescriptor test = task(":lib:test");
+		tracker.statusChanged(taskStartEvent(compile));
+		tracker.statusChanged(taskFinishEvent(compile, success(1000, 1500)));
+		tracker.statusChanged(taskStartEvent(test));
+		tracker.statusChanged(taskFinishEvent(test, failure(2000, 4000, "There were failing tests")));
+
+		assertEquals(4, taskResults.size());
+		assertEquals(Progress.EventType.START, taskResults.get(0).getEventType());
+		assertFalse(taskResults.get(0).getRequested());
+		assertEquals(Progress.Outcome.SUCCESS, taskResults.get(1).getOutcome());
+		assertEquals(500, taskResults.get(1).getDurationMillis());
+		TaskResult testResult = taskResults.get(3);
+		assertTrue(testResult.getRequested());
+		assertEquals(Progress.Outcome.FAILED, testResult.getOutcome());
+		assertEquals("There were failing tests", testResult.getFailure());
+
+		List<TaskResult> requestedResults = tracker.getRequestedResults();
+		assertEquals(Arrays.asList(":app:assemble", ":lib:test", "lib:javadoc"),
+				requestedResults.stream().map(TaskResult::getPath).collect(Collectors.toList()));
+		assertEquals(Progress.Outcome.NONE, requestedResults.get(0).getOutcome());
+		assertEquals(Progress.Outcome.FAILED, requestedResults.get(1).getOutcome());
+	}
+
+	@Test
+	public void shouldAttributeOutputWhileOneTaskRuns() {
+		TaskOperationDescriptor compile = task(":app:compileJava");
+		TaskOperationDescriptor test = task(":lib:test");
+		write("before tasks");
+		tracker.statusChanged(taskStartEvent(compile));
+		write("compiling");
+		tracker.statusChanged(taskStartEvent(test));
+		write("in parallel");
+		tracker.statusChanged(taskFinishEvent(compile, success(0, 1)));
+		write("testing");
+		tracker.statusChanged(taskFinishEvent(test, success(0, 2)));
+		write("after tasks");
+		outputBatcher.flush();
+
+		assertEquals(Arrays.asList("", ":app:compileJava", "", ":lib:test", ""),
+				outputs.stream().map(Output::getTaskPath).collect(Collectors.toList()));
+		assertEquals("compiling", outputs.get(1).getOutputBytes().toStringUtf8());
+	}
+
+	@Test
+	public void shouldMatchTasksAsTheCommandLineDoes() {
+		assertTrue(TaskResultTracker.matches(":app:build", ":app:build"));
+		assertFalse(TaskResultTracker.matches(":build", ":app:build"));
+		assertTrue(TaskResultTracker.matches("app:build", ":app:build"));
+		assertTrue(TaskResultTracker.matches("build", ":app:build"));
+		assertTrue(TaskResultTracker.matches("build", ":build"));
+		assertFalse(TaskResultTracker.matches("build", ":app:rebuild"));
+	}
+
+	private void write(String output) {
+		byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+		outputBatcher.write(Output.OutputType.STDOUT, bytes, 0, bytes.length);
+	}
+
+	private static TaskOperationDescriptor task(String taskPath) {
+		TaskOperationDescriptor descriptor = mock(TaskOperationDescriptor.class);
+		when(descriptor.getTaskPath()).thenReturn(taskPath);
+		return descriptor;
+	}
+
+	private static TaskStartEvent taskStartEvent(TaskOperationDescriptor descriptor) {
+		TaskStartEvent event = mock(TaskStartEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		return event;
+	}
+
+	private static TaskFinishEvent taskFinishEvent(TaskOperationDescriptor descriptor, TaskOperationResult result) {
+		TaskFinishEvent event = mock(TaskFinishEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		when(event.getResult()).thenReturn(result);
+		return event;
+	}
+
+	private static TaskSuccessResult success(long startTime, long endTime) {
+		TaskSuccessResult result = mock(TaskSuccessResult.class);
+		when(result.getStartTime()).thenReturn(startTime);
+		when(result.getEndTime()).thenReturn(endTime);
+		return result;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static TaskFailureResult failure(long startTime, long endTime, String message) {
+		Failure failure = mock(Failure.class);
+		when(failure.getMessage()).thenReturn(message);
+		TaskFailureResult result = mock(TaskFailureResult.class);
+		when(result.getStartTime()).thenReturn(startTime);
+		when(result.getEndTime()).thenReturn(endTime);
+		when(result.getFailures()).thenReturn((List) Collections.singletonList(failure));
+		return result;
+	}
+}
@@ -0,0 +1,93 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.gradle.tooling.Failure;
+import org.gradle.tooling.events.test.JvmTestKind;
+import org.gradle.tooling.events.test.JvmTestOperationDescriptor;
+import org.gradle.tooling.events.test.TestFailureResult;
+import org.gradle.tooling.events.test.TestFinishEvent;
+import org.gradle.tooling.events.test.TestOperationResult;
+import org.gradle.tooling.events.test.TestSkippedResult;
+import org.gradle.tooling.events.test.TestStartEvent;
+import org.gradle.tooling.events.test.TestSuccessResult;
+import org.junit.Test;
+
+public class TestEventTrackerTest {
+	private final List<TestEvent> testEvents = new ArrayList<>();
+	private final TestEventTracker tracker = new TestEventTracker(testEvents::add);
+
+	@Test
+	public void shouldReplyWithTestEvents() {
+		JvmTestOperationDescriptor testClass = test(JvmTestKind.SUITE, "com.example.AppTest", null);
+		JvmTestOperationDescriptor passing = test(JvmTestKind.ATOMIC, "com.example.AppTest", "passes");
+		JvmTestOperationDescriptor failing = test(JvmTestKind.ATOMIC, "com.example.AppTest", "fails");
+		JvmTestOperationDescriptor ignored = test(JvmTestKind.ATOMIC, "com.example.AppTest", "ignored");
+		tracker.statusChanged(testStartEvent(testClass));
+		tracker.statusChanged(testStartEvent(passing));
+		tracker.statusChanged(testFinishEvent(passing, mock(TestSuccessResult.class), 100, 150));
+		tracker.statusChanged(testFinishEvent(failing, failure("expected:<1> but was:<2>"), 150, 160));
+		tracker.statusChanged(testFinishEvent(ignored, mock(TestSkippedResult.class), 160, 160));
+		tracker.statusChanged(testFinishEvent(testClass, failure(null), 100, 160));
+
+		assertEquals(6, testEvents.size());
+		assertEquals(TestEvent.Kind.CLASS, testEvents.get(0).getKind());
+		assertEquals(Progress.EventType.START, testEvents.get(0).getEventType());
+		TestEvent passed = testEvents.get(2);
+		assertEquals(TestEvent.Kind.METHOD, passed.getKind());
+		assertEquals("com.example.AppTest", passed.getClassName());
+		assertEquals("passes", passed.getMethodName());
+		assertEquals(Progress.Outcome.SUCCESS, passed.getOutcome());
+		assertEquals(50, passed.getDurationMillis());
+		assertEquals(Progress.Outcome.FAILED, testEvents.get(3).getOutcome());
+		assertEquals("expected:<1> but was:<2>", testEvents.get(3).getFailure());
+		assertEquals(Progress.Outcome.SKIPPED, testEvents.get(4).getOutcome());
+
+		// only test methods are counted
+		assertEquals(1, tracker.getPassed());
+		assertEquals(1, tracker.getFailures());
+		assertEquals(1, tracker.getSkipped());
+	}
+
+	private static JvmTestOperationDescriptor test(JvmTestKind kind, String className, String methodName) {
+		JvmTestOperationDescriptor descriptor = mock(JvmTestOperationDescriptor.class);
+		when(descriptor.getJvmTestKind()).thenReturn(kind);
+		when(descriptor.getClassName()).thenReturn(className);
+		when(descriptor.getMethodName()).thenReturn(methodName);
+		when(descriptor.getDisplayName()).thenReturn(methodName == null ? className : methodName);
+		return descriptor;
+	}
+
+	private static TestStartEvent testStartEvent(JvmTestOperationDescriptor descriptor) {
+		TestStartEvent event = mock(TestStartEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		return event;
+	}
+
+	private static TestFinishEvent testFinishEvent(JvmTestOperationDescriptor descriptor, TestOperationResult result,
+			long startTime, long endTime) {
+		when(result.getStartTime()).thenReturn(startTime);
+		when(result.getEndTime()).thenReturn(endTime);
+		TestFinishEvent event = mock(TestFinishEvent.class);
+		when(event.getDescriptor()).thenReturn(descriptor);
+		when(event.getResult()).thenReturn(result);
+		return event;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static TestFailureResult failure(String message) {
+		Failure failure = mock(Failure.class);
+		when(failure.getMessage()).thenReturn(message);
+		TestFailureResult result = mock(TestFailureResult.class);
+		when(result.getFailures()).thenReturn((List) Collections.singletonList(failure));
+		return result;
+	}
+}
@@ -0,0 +1,116 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT license.
+
+package com.github.badsyntax.gradle;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.unix.DomainSocketAddress;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the RunBuild output throughput of the TCP and UDS transports, by
+ * replaying build output through a stub service. Not run with the tests:
+ *
+ * <pre>
+ * java -cp ... com.github.badsyntax.gradle.TransportBenchmark [messages] [bytes per message] [rounds]
+ * </pre>
+ */
+public class TransportBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int messages = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		int messageSize = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		byte[] line = new byte[messageSize];
+		new Random(0).nextBytes(line);
+		RunBuildReply output = RunBuildReply.newBuilder().setOutput(
+				Output.newBuilder().setOutputType(Output.OutputType.STDOUT).setOutputBytes(ByteString.copyFrom(line)))
+				.build();
+
+		File socketFile = new File(Files.createTempDirectory("gradle-server").toFile(), "gradle-server.sock");
+		EpollEventLoopGroup clientGroup = new EpollEventLoopGroup(1);
+		try {
+			for (String transport : new String[]{"tcp", "uds"}) {
+				ServerOptions options = ServerOptions.parse(
+						new String[]{"0", "--transport=" + transport, "--socket-path=" + socketFile.getAbsolutePath()},
+						Collections.emptyMap());
+				ServerTransports.ServerTransport serverTransport = ServerTransports.create(options);
+				Server server = serverTransport.getServerBuilder().addService(new ReplayService(output, messages))
+						.build().start();
+				ManagedChannel channel = "tcp".equals(transport)
+						? NettyChannelBuilder.forAddress("localhost", server.getPort()).usePlaintext().build()
+						: NettyChannelBuilder.forAddress(new DomainSocketAddress(socketFile))
+								.channelType(EpollDomainSocketChannel.class).eventLoopGroup(clientGroup).usePlaintext()
+								.build();
+				try {
+					GradleGrpc.GradleBlockingStub stub = GradleGrpc.newBlockingStub(channel);
+					// warm up
+					replay(stub);
+					for (int round = 0; round < rounds; round++) {
+						long start = System.nanoTime();
+						long bytes = replay(stub);
+						double seconds = (System.nanoTime() - start) / 1e9;
+						System.out.printf("%s: %d messages, %.1f MB in %.3f s, %.0f messages/s, %.1f MB/s%n", transport,
+								messages, bytes / 1e6, seconds, messages / seconds, bytes / 1e6 / seconds);
+					}
+				} finally {
+					channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+					server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+					serverTransport.shutdown();
+				}
+			}
+		} finally {
+			clientGroup.shutdownGracefully();
+		}
+	}
+
+	private static long replay(GradleGrpc.GradleBlockingStub stub) {
+		long bytes = 0;
+		Iterator<RunBuildReply> replies = stub.runBuild(RunBuildRequest.getDefaultInstance());
+		while (replies.hasNext()) {
+			bytes += replies.next().getOutput().getOutputBytes().size();
+		}
+		return bytes;
+	}
+
+	private static class ReplayService extends GradleGrpc.GradleImplBase {
+		private final RunBuildReply output;
+		private final int messages;
+
+		ReplayService(RunBuildReply output, int messages) {
+			this.output = output;
+			this.messages = messages;
+		}
+
+		@Override
+		public void runBuild(RunBuildRequest req, StreamObserver<RunBuildReply> responseObserver) {
+			ServerCallStreamObserver<RunBuildReply> call = (ServerCallStreamObserver<RunBuildReply>) responseObserver;
+			int[] sent = {0};
+			// sends as fast as the transport takes the messages
+			call.setOnReadyHandler(() -> {
+				while (call.isReady() && sent[0] < messages) {
+					call.onNext(output);
+					sent[0]++;
+				}
+				if (sent[0] == messages) {
+					sent[0]++;
+					call.onNext(RunBuildReply.newBuilder()
+							.setRunBuildResult(RunBuildResult.newBuilder().setMessage("BUILD SUCCESSFUL")).build());
+					call.onCompleted();
+				}
+			});
+		}
+	}
+}